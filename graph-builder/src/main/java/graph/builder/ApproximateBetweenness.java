@@ -0,0 +1,201 @@
+package graph.builder;
+
+import graph.builder.util.Logger;
+import graph.builder.vo.ApproximateBetweennessParam;
+import graph.builder.vo.EdgeFilter;
+
+import java.util.SplittableRandom;
+
+/**
+ * Approximate betweenness centrality by shortest path sampling (Riondato and Kornaropoulos).
+ *
+ * Each sample picks a random pair of nodes (u, v), runs the bfs from u until the shortest paths to v are all
+ * counted, then walks back one shortest path chosen uniformly and adds 1 / r to every inner node of the path. With
+ * r = (c / epsilon^2) * (floor(log2(VD - 2)) + 1 + ln(1 / delta)) samples, where VD bounds the number of nodes on a
+ * shortest path, the estimation of all nodes are within epsilon of the normalized betweenness with probability at
+ * least 1 - delta. The sample count does not depend on the size of graph.
+ */
+class ApproximateBetweenness {
+    /**
+     * The universal constant of the sample size, 0.5 is the value suggested by the paper.
+     */
+    private static final double C = 0.5;
+
+    /**
+     * The deadline is checked once per this many samples.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+
+    private final ViewSnapshot snapshot;
+    private final EdgeFilter edgeFilter;
+    private final ApproximateBetweennessParam param;
+    private final int n;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param param - Pre-set parameters.
+     */
+    ApproximateBetweenness(ViewSnapshot snapshot, EdgeFilter edgeFilter, ApproximateBetweennessParam param) {
+        this.snapshot = snapshot;
+        this.edgeFilter = edgeFilter;
+        this.param = param;
+        this.n = snapshot.nodeCount();
+    }
+
+    /**
+     * Sample the shortest paths.
+     *
+     * @return - The estimated betweenness centrality by node index, scaled by n * (n - 1) to be comparable with the
+     * exact betweenness.
+     */
+    double[] compute() {
+        double[] betweenness = new double[n];
+        int vertexDiameter = vertexDiameterBound();
+        if (vertexDiameter < 3) {
+            // No shortest path has inner nodes.
+            return betweenness;
+        }
+
+        long sampleSize = sampleSize(vertexDiameter);
+        long deadline = param.getTimeBudget() > 0 ? System.nanoTime() + param.getTimeBudget() * 1_000_000L : 0;
+        SplittableRandom random = new SplittableRandom(param.getSeed());
+        BrandesBetweenness.SourceState state = new BrandesBetweenness.SourceState(snapshot, edgeFilter);
+
+        long samples = 0;
+        while (samples < sampleSize) {
+            if (deadline != 0 && samples % DEADLINE_CHECK_INTERVAL == 0 && samples > 0 && System.nanoTime() > deadline) {
+                break;
+            }
+
+            int u = random.nextInt(n);
+            int v = random.nextInt(n - 1);
+            if (v >= u) {
+                v++;
+            }
+            samplePath(state, u, v, random, betweenness);
+            samples++;
+        }
+
+        if (samples < sampleSize) {
+            Logger.getInstance().info("Approximate betweenness stops at the time budget with " + samples + " of "
+                    + sampleSize + " samples, the error bound is " + errorBound(vertexDiameter, samples) + ".");
+        }
+
+        double scale = (double) n * (n - 1) / samples;
+        for (int i = 0; i < n; i++) {
+            betweenness[i] *= scale;
+        }
+        return betweenness;
+    }
+
+    /**
+     * Count the inner nodes of one shortest path from u to v chosen uniformly, nothing is counted if v is not
+     * reachable.
+     *
+     * @param state - Working state of bfs.
+     * @param u - Index of source node.
+     * @param v - Index of target node.
+     * @param random
+     * @param count - The number of sampled paths through each node.
+     */
+    private void samplePath(BrandesBetweenness.SourceState state, int u, int v, SplittableRandom random, double[] count) {
+        state.forward(u, v);
+        if (state.distance(v) > 1) {
+            // Each predecessor p of w is chosen with the probability sigma(p) / sigma(w).
+            int w = v;
+            while (true) {
+                double pick = random.nextDouble() * state.sigma(w);
+                int chosen = -1;
+                for (int slot = snapshot.inStart(w); slot < snapshot.inEnd(w); slot++) {
+                    int p = snapshot.inSource(slot);
+                    if (!state.isPredecessor(p, w, slot)) {
+                        continue;
+                    }
+                    chosen = p;
+                    pick -= state.sigma(p);
+                    if (pick < 0) {
+                        break;
+                    }
+                }
+
+                if (chosen == u) {
+                    break;
+                }
+                count[chosen]++;
+                w = chosen;
+            }
+        }
+        state.reset();
+    }
+
+    /**
+     * Bound the number of nodes on a shortest path by the size of the largest weakly connected component.
+     *
+     * @return
+     */
+    private int vertexDiameterBound() {
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        for (int v = 0; v < n; v++) {
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (!snapshot.allowsOut(edgeFilter, slot)) {
+                    continue;
+                }
+                int a = find(parent, v);
+                int b = find(parent, snapshot.outTarget(slot));
+                if (a != b) {
+                    parent[a] = b;
+                }
+            }
+        }
+
+        int[] size = new int[n];
+        int largest = 0;
+        for (int v = 0; v < n; v++) {
+            largest = Math.max(largest, ++size[find(parent, v)]);
+        }
+        return largest;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * The number of samples for the error bound of param.
+     *
+     * @param vertexDiameter - Bound of the number of nodes on a shortest path.
+     * @return
+     */
+    private long sampleSize(int vertexDiameter) {
+        double epsilon = param.getEpsilon();
+        return (long) Math.ceil(C / (epsilon * epsilon) * (log2(vertexDiameter) + 1 + Math.log(1 / param.getDelta())));
+    }
+
+    /**
+     * The error bound reached by the samples taken, with the same confidence.
+     *
+     * @param vertexDiameter - Bound of the number of nodes on a shortest path.
+     * @param samples - The number of samples taken.
+     * @return
+     */
+    private double errorBound(int vertexDiameter, long samples) {
+        return Math.sqrt(C / samples * (log2(vertexDiameter) + 1 + Math.log(1 / param.getDelta())));
+    }
+
+    /**
+     * floor(log2(VD - 2)).
+     */
+    private static int log2(int vertexDiameter) {
+        return 31 - Integer.numberOfLeadingZeros(vertexDiameter - 2);
+    }
+}
@@ -0,0 +1,240 @@
+package graph.builder;
+
+import graph.builder.vo.EdgeFilter;
+
+import java.util.Arrays;
+
+/**
+ * Exact diameter, radius and center of the snapshot by bounding the eccentricities (Takes and Kosters), the edge
+ * directions are ignored since the bounds need symmetric distances.
+ *
+ * After a bfs from node v with eccentricity e, every node w in the same component has
+ * max(d(v, w), e - d(v, w)) <= ecc(w) <= e + d(v, w). A node is dropped from the candidates when its eccentricity is
+ * known, or when its upper bound cannot raise the diameter and its lower bound is above the radius. The next bfs
+ * starts from the candidate with the largest upper bound and the one with the smallest lower bound in turn, so a few
+ * bfs are enough on graphs with hubs. The components are handled one by one from the largest, and the isolated
+ * nodes need no bfs.
+ */
+class BoundingEccentricities {
+    private final ViewSnapshot snapshot;
+    private final EdgeFilter edgeFilter;
+    private final int n;
+
+    /**
+     * Node index to the lower bound and the upper bound of its eccentricity.
+     */
+    private final int[] lower;
+    private final int[] upper;
+
+    /**
+     * Node index to the number of filtered in-edges and out-edges, to break the ties of the bounds.
+     */
+    private final int[] degree;
+
+    /**
+     * Bfs working arrays, the distance of an unvisited node is -1.
+     */
+    private final int[] distance;
+    private final int[] queue;
+
+    private int diameterLower = 0;
+    private int radiusUpper = Integer.MAX_VALUE;
+    private int bfsCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     */
+    BoundingEccentricities(ViewSnapshot snapshot, EdgeFilter edgeFilter) {
+        this.snapshot = snapshot;
+        this.edgeFilter = edgeFilter;
+        this.n = snapshot.nodeCount();
+        this.lower = new int[n];
+        this.upper = new int[n];
+        this.degree = new int[n];
+        this.distance = new int[n];
+        this.queue = new int[n];
+    }
+
+    /**
+     * Bound the eccentricities until the diameter, the radius and the center are exact.
+     *
+     * @return - This.
+     */
+    BoundingEccentricities run() {
+        Arrays.fill(upper, Integer.MAX_VALUE);
+        Arrays.fill(distance, -1);
+        for (int v = 0; v < n; v++) {
+            for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                if (snapshot.allowsIn(edgeFilter, slot)) {
+                    degree[v]++;
+                }
+            }
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (snapshot.allowsOut(edgeFilter, slot)) {
+                    degree[v]++;
+                }
+            }
+        }
+
+        // Group the nodes by component, members[componentStart[c], componentStart[c + 1]) is component c.
+        int[] members = new int[n];
+        int[] componentStart = new int[n + 1];
+        int components = 0;
+        boolean[] grouped = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            if (grouped[v]) {
+                continue;
+            }
+            int size = bfs(v);
+            for (int i = 0; i < size; i++) {
+                grouped[queue[i]] = true;
+                distance[queue[i]] = -1;
+            }
+            System.arraycopy(queue, 0, members, componentStart[components], size);
+            componentStart[components + 1] = componentStart[components] + size;
+            components++;
+        }
+
+        Integer[] bySize = new Integer[components];
+        for (int c = 0; c < components; c++) {
+            bySize[c] = c;
+        }
+        Arrays.sort(bySize, (a, b) -> Integer.compare(componentStart[b + 1] - componentStart[b],
+                componentStart[a + 1] - componentStart[a]));
+
+        int[] candidates = new int[n];
+        for (int c : bySize) {
+            int size = componentStart[c + 1] - componentStart[c];
+            System.arraycopy(members, componentStart[c], candidates, 0, size);
+            bound(candidates, size);
+        }
+        return this;
+    }
+
+    /**
+     * Bound the eccentricities of the nodes in one component.
+     *
+     * @param candidates - The nodes of the component, used as the working list.
+     * @param size - The number of nodes.
+     */
+    private void bound(int[] candidates, int size) {
+        if (size == 1) {
+            lower[candidates[0]] = 0;
+            upper[candidates[0]] = 0;
+            radiusUpper = 0;
+            return;
+        }
+
+        int source = candidates[0];
+        for (int i = 1; i < size; i++) {
+            if (degree[candidates[i]] > degree[source]) {
+                source = candidates[i];
+            }
+        }
+
+        boolean pickHigh = true;
+        while (size > 0) {
+            int visited = bfs(source);
+            int e = distance[queue[visited - 1]];
+            bfsCount++;
+
+            for (int i = 0; i < size; i++) {
+                int w = candidates[i];
+                int d = distance[w];
+                lower[w] = Math.max(lower[w], Math.max(d, e - d));
+                upper[w] = Math.min(upper[w], e + d);
+                diameterLower = Math.max(diameterLower, lower[w]);
+                radiusUpper = Math.min(radiusUpper, upper[w]);
+            }
+            for (int i = 0; i < visited; i++) {
+                distance[queue[i]] = -1;
+            }
+
+            // The center nodes are never dropped before their eccentricities are known, since their lower bounds
+            // are not above the radius.
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int w = candidates[i];
+                if (lower[w] != upper[w] && (upper[w] > diameterLower || lower[w] <= radiusUpper)) {
+                    candidates[kept++] = w;
+                }
+            }
+            size = kept;
+
+            if (size > 0) {
+                source = pick(candidates, size, pickHigh);
+                pickHigh = !pickHigh;
+            }
+        }
+    }
+
+    /**
+     * Pick the candidate with the largest upper bound or the smallest lower bound, the larger degree wins the tie.
+     */
+    private int pick(int[] candidates, int size, boolean high) {
+        int best = candidates[0];
+        for (int i = 1; i < size; i++) {
+            int w = candidates[i];
+            int compare = high ? Integer.compare(upper[w], upper[best]) : Integer.compare(lower[best], lower[w]);
+            if (compare > 0 || (compare == 0 && degree[w] > degree[best])) {
+                best = w;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Bfs over the filtered edges in both directions. The distances of the visited nodes should be reset by the
+     * caller.
+     *
+     * @return - The number of visited nodes, they are queue[0, visited) in bfs order.
+     */
+    private int bfs(int start) {
+        distance[start] = 0;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int current = queue[head++];
+            int nextDistance = distance[current] + 1;
+            for (int slot = snapshot.inStart(current); slot < snapshot.inEnd(current); slot++) {
+                int next = snapshot.inSource(slot);
+                if (distance[next] < 0 && snapshot.allowsIn(edgeFilter, slot)) {
+                    distance[next] = nextDistance;
+                    queue[tail++] = next;
+                }
+            }
+            for (int slot = snapshot.outStart(current); slot < snapshot.outEnd(current); slot++) {
+                int next = snapshot.outTarget(slot);
+                if (distance[next] < 0 && snapshot.allowsOut(edgeFilter, slot)) {
+                    distance[next] = nextDistance;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    int diameter() {
+        return diameterLower;
+    }
+
+    int radius() {
+        return n == 0 ? 0 : radiusUpper;
+    }
+
+    int lower(int v) {
+        return lower[v];
+    }
+
+    int upper(int v) {
+        return upper[v];
+    }
+
+    int bfsCount() {
+        return bfsCount;
+    }
+}
@@ -0,0 +1,271 @@
+package graph.builder;
+
+import graph.builder.util.Logger;
+import graph.builder.vo.EdgeFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brandes betweenness over the snapshot with the sources split across workers.
+ *
+ * Each worker takes the sources in chunks and runs the single source bfs on primitive working arrays which are
+ * reused between sources. The dependencies are added into an accumulator owned by the worker, and the accumulators
+ * are summed once all workers finish, so the workers never wait for each other. The sum of a node may differ from
+ * the sequential loop in the last bits since the floating point additions are grouped by worker.
+ *
+ * The single source bfs is kept in SourceState, which is shared with the sampling of ApproximateBetweenness.
+ */
+class BrandesBetweenness {
+    /**
+     * The number of sources taken by a worker at a time.
+     */
+    private static final int CHUNK = 16;
+
+    private final ViewSnapshot snapshot;
+    private final EdgeFilter edgeFilter;
+    private final int n;
+
+    /**
+     * The first source of the next chunk to hand out.
+     */
+    private final AtomicInteger nextSource;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     */
+    BrandesBetweenness(ViewSnapshot snapshot, EdgeFilter edgeFilter) {
+        this.snapshot = snapshot;
+        this.edgeFilter = edgeFilter;
+        this.n = snapshot.nodeCount();
+        this.nextSource = new AtomicInteger();
+    }
+
+    /**
+     * Run the workers in the fork join pool. A worker failure stops the others from taking more sources.
+     *
+     * @param pool - Fork join pool.
+     * @param parallelism - The number of workers.
+     * @return - The betweenness centrality by node index, return null if the calculation is interrupted or fails.
+     */
+    double[] compute(ForkJoinPool pool, int parallelism) {
+        if (parallelism <= 1 || n < 2) {
+            return work();
+        }
+
+        List<Callable<double[]>> workers = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(this::work);
+        }
+
+        double[] betweenness = new double[n];
+        try {
+            for (Future<double[]> future : pool.invokeAll(workers)) {
+                double[] partial = future.get();
+                for (int v = 0; v < n; v++) {
+                    betweenness[v] += partial[v];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.getInstance().error("Betweenness centrality calculation is interrupted.");
+            return null;
+        } catch (ExecutionException e) {
+            Logger.getInstance().error("Fail to calculate betweenness centrality: " + e.getCause());
+            return null;
+        }
+        return betweenness;
+    }
+
+    /**
+     * Take chunks of sources until all sources are handed out.
+     *
+     * @return - The dependencies accumulated by this worker, by node index.
+     */
+    private double[] work() {
+        SourceState state = new SourceState(snapshot, edgeFilter);
+        double[] partial = new double[n];
+        try {
+            while (true) {
+                int start = nextSource.getAndAdd(CHUNK);
+                if (start >= n) {
+                    return partial;
+                }
+
+                int end = Math.min(n, start + CHUNK);
+                for (int source = start; source < end; source++) {
+                    state.run(source);
+                    state.accumulate(partial);
+                    state.reset();
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // Hand out nothing more, so the other workers finish and the failure is reported.
+            nextSource.set(n);
+            throw e;
+        }
+    }
+
+    /**
+     * Working arrays of single source bfs. The arrays are filled lazily, only the reached nodes are cleared by
+     * reset().
+     */
+    static class SourceState {
+        private final ViewSnapshot snapshot;
+        private final EdgeFilter edgeFilter;
+
+        /**
+         * The distance from start node, -1 means not reached.
+         */
+        private final int[] distance;
+
+        /**
+         * The number of shortest path from start node to this node.
+         */
+        private final double[] sigma;
+
+        /**
+         * A component of cumulative mediated centrality.
+         */
+        private final double[] delta;
+
+        /**
+         * The reached nodes in bfs order.
+         */
+        private final int[] order;
+
+        private int source;
+        private int reached;
+
+        SourceState(ViewSnapshot snapshot, EdgeFilter edgeFilter) {
+            this.snapshot = snapshot;
+            this.edgeFilter = edgeFilter;
+            int n = snapshot.nodeCount();
+            distance = new int[n];
+            sigma = new double[n];
+            delta = new double[n];
+            order = new int[n];
+            Arrays.fill(distance, -1);
+        }
+
+        /**
+         * Use BFS to calculate the shortest path from the source to all its descendants, then the dependencies
+         * from the farthest nodes back to the source. The unreachable nodes do not contribute.
+         *
+         * @param start - Index of source node.
+         */
+        void run(int start) {
+            forward(start, -1);
+
+            // Go from end to start, the predecessors of w are the in-side nodes one layer closer to the start.
+            for (int i = reached - 1; i >= 0; i--) {
+                int w = order[i];
+                for (int slot = snapshot.inStart(w); slot < snapshot.inEnd(w); slot++) {
+                    int v = snapshot.inSource(slot);
+                    if (!isPredecessor(v, w, slot)) {
+                        continue;
+                    }
+                    delta[v] += (sigma[v] / sigma[w]) * (1.0 + delta[w]);
+                }
+            }
+        }
+
+        /**
+         * The forward pass, which calculates the distance and the number of shortest path from the source.
+         *
+         * @param start - Index of source node.
+         * @param target - Index of target node, the bfs stops once the shortest paths to the target are all
+         *               counted. -1 to go through all descendants.
+         */
+        void forward(int start, int target) {
+            source = start;
+            distance[start] = 0;
+            sigma[start] = 1.0;
+            order[0] = start;
+            int head = 0;
+            int tail = 1;
+
+            // bfs: go through start points to its descendants. The bfs order is kept in 'order' so that it can be
+            // walked from end to start later. Each edge between two adjacent layers is a predecessor relationship.
+            while (head < tail) {
+                int current = order[head++];
+                if (target >= 0 && distance[target] >= 0 && distance[current] >= distance[target]) {
+                    break;
+                }
+
+                for (int slot = snapshot.outStart(current); slot < snapshot.outEnd(current); slot++) {
+                    if (!snapshot.allowsOut(edgeFilter, slot)) {
+                        continue;
+                    }
+
+                    int descendant = snapshot.outTarget(slot);
+                    if (distance[descendant] < 0) {
+                        order[tail++] = descendant;
+                        distance[descendant] = distance[current] + 1;
+                    }
+
+                    if (distance[descendant] == distance[current] + 1) {
+                        sigma[descendant] += sigma[current];
+                    }
+                }
+            }
+            reached = tail;
+        }
+
+        /**
+         * Check whether the in-side node of the slot is a predecessor of w on the shortest paths from the source.
+         *
+         * @param v - Index of in-side node.
+         * @param w - Index of node.
+         * @param slot - In slot of w.
+         * @return
+         */
+        boolean isPredecessor(int v, int w, int slot) {
+            return distance[v] >= 0 && distance[v] == distance[w] - 1 && snapshot.allowsIn(edgeFilter, slot);
+        }
+
+        int distance(int v) {
+            return distance[v];
+        }
+
+        double sigma(int v) {
+            return sigma[v];
+        }
+
+        /**
+         * Add the dependencies of the source into the result.
+         *
+         * @param betweenness - The betweenness centrality accumulated by node index.
+         */
+        void accumulate(double[] betweenness) {
+            for (int i = reached - 1; i >= 0; i--) {
+                int w = order[i];
+                if (w != source) {
+                    betweenness[w] += delta[w];
+                }
+            }
+        }
+
+        /**
+         * Clear the reached nodes only, the others are untouched by the last source.
+         */
+        void reset() {
+            for (int i = 0; i < reached; i++) {
+                int v = order[i];
+                distance[v] = -1;
+                sigma[v] = 0.0;
+                delta[v] = 0.0;
+            }
+            reached = 0;
+        }
+    }
+}
@@ -4,7 +4,9 @@ import graph.builder.entity.node.Node;
 import graph.builder.manager.CommunityDetectionManager;
 import graph.builder.vo.EdgeFilter;
 import graph.builder.vo.LabelPropagationCDParam;
+import graph.builder.vo.LeidenCDParam;
 import graph.builder.vo.LouvainCDParam;
+import graph.builder.vo.PartitionQuality;
 import lombok.NonNull;
 
 import java.util.Map;
@@ -26,6 +28,18 @@ public class CommunityDetection extends CommunityDetectionManager {
         return lpa(view, edgeFilter, param);
     }
 
+    /**
+     * Label propagations algorithm on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The label for each node.
+     */
+    public static Map<Node, Integer> labelPropagationAlgorithm(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull LabelPropagationCDParam param) {
+        return lpa(snapshot, edgeFilter, param);
+    }
+
     /**
      * Louvain algorithm for community detection.
      *
@@ -38,4 +52,69 @@ public class CommunityDetection extends CommunityDetectionManager {
         return louvain(view, edgeFilter, param);
     }
 
+    /**
+     * Louvain algorithm for community detection on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The community index for each node.
+     */
+    public static Map<Node, Integer> LouvainAlgorithm(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull LouvainCDParam param) {
+        return louvain(snapshot, edgeFilter, param);
+    }
+
+    /**
+     * Leiden algorithm for community detection. Compared with Louvain, the communities are refined before each
+     * aggregation, so every community is connected.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The community index for each node.
+     */
+    public static Map<Node, Integer> leidenAlgorithm(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull LeidenCDParam param) {
+        return leiden(view, edgeFilter, param);
+    }
+
+    /**
+     * Leiden algorithm for community detection on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The community index for each node.
+     */
+    public static Map<Node, Integer> leidenAlgorithm(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull LeidenCDParam param) {
+        return leiden(snapshot, edgeFilter, param);
+    }
+
+    /**
+     * Evaluate a partition, such as the result of the community detection algorithms. The modularity, coverage,
+     * conductance and the size and density of each community are calculated in one pass over the edges, regardless
+     * the direct.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param partition - Node to community label, each node of the view should have a label.
+     * @param weights - Edge type to weight, the types not in the map are ignored. Null means weight 1 for all.
+     * @return - The quality of partition. Return null if a node of the view has no label.
+     */
+    public static PartitionQuality evaluate(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull Map<Node, Integer> partition, Map<String, Double> weights) {
+        return quality(view, edgeFilter, partition, weights);
+    }
+
+    /**
+     * Evaluate a partition on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param partition - Node to community label, each node of the snapshot should have a label.
+     * @param weights - Edge type to weight, the types not in the map are ignored. Null means weight 1 for all.
+     * @return - The quality of partition. Return null if a node of the snapshot has no label.
+     */
+    public static PartitionQuality evaluate(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull Map<Node, Integer> partition, Map<String, Double> weights) {
+        return quality(snapshot, edgeFilter, partition, weights);
+    }
+
 }
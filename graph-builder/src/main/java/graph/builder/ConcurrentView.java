@@ -0,0 +1,615 @@
+package graph.builder;
+
+import graph.builder.entity.edge.Edge;
+import graph.builder.entity.node.*;
+import graph.builder.util.Adjacency;
+import graph.builder.vo.EdgeFilter;
+import lombok.NonNull;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * View which can be fed by several threads at the same time, such as the crawler threads of iframes.
+ *
+ * The adds share the view lock with the lookups, so they run at the same time:
+ * <ul>
+ *     <li>The id dictionaries allow lookups while other threads allocate.</li>
+ *     <li>The in lists and out lists of a node are guarded by one of the lock stripes, chosen by node int id.</li>
+ *     <li>The node adds only hold the node lock while they update the type sets and the secondary indexes, the
+ *     payload copy and the listeners run outside it.</li>
+ *     <li>A node or edge is published into its slot after its int ids are set, so a lookup under the shared lock
+ *     never sees a half added edge.</li>
+ *     <li>Each add takes a slot of the room reserved in the arrays, the arrays only grow under the exclusive lock
+ *     once the room runs out.</li>
+ * </ul>
+ * The deletes, freeze(), getAllX and the other changes hold the exclusive lock. The expensive part of the ingestion
+ * (crawling and parsing) stays outside the lock, and each thread can use its own ViewBuilder to defer the connection
+ * of its edges into one sweep. The listeners are called by several threads at once, they should be thread safe.
+ *
+ * The readers should work on freeze(), which is a consistent snapshot, or on the lists returned by getAllX. The
+ * live collections such as nodes() and the adjacency returned by inList / outList are not guarded, only use them
+ * after the writers finish.
+ */
+public class ConcurrentView extends View {
+    /**
+     * The number of lock stripes for the adjacency, a power of two.
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * The room reserved when the arrays grow, at least.
+     */
+    private static final int MIN_ROOM = 64;
+
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    /**
+     * Lock stripes of the adjacency, node int id to stripe by the low bits.
+     */
+    private final Object[] stripes;
+
+    /**
+     * Lock stripes of the network node adds, url to stripe by the low bits of hash. They are taken before the other
+     * locks.
+     */
+    private final Object[] urlStripes;
+
+    /**
+     * Guards the type sets and the secondary indexes of nodes.
+     */
+    private final Object nodeLock;
+
+    /**
+     * The new int ids still free to hand out under the shared lock, reset under the exclusive lock.
+     */
+    private final AtomicInteger nodeSlots;
+    private final AtomicInteger edgeSlots;
+
+    /**
+     * No args constructor.
+     */
+    public ConcurrentView() {
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        readLock = lock.readLock();
+        writeLock = lock.writeLock();
+        stripes = new Object[STRIPES];
+        urlStripes = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+            urlStripes[i] = new Object();
+        }
+        nodeLock = new Object();
+        nodeSlots = new AtomicInteger();
+        edgeSlots = new AtomicInteger();
+    }
+
+    /**
+     * Compile the current nodes and edges into a snapshot, no writer can change the view during the compile.
+     *
+     * @return - The snapshot of view.
+     */
+    @Override
+    public ViewSnapshot freeze() {
+        return write(super::freeze);
+    }
+
+    @Override
+    public String getViewId() {
+        return read(super::getViewId);
+    }
+
+    @Override
+    public String getParentViewId() {
+        return read(super::getParentViewId);
+    }
+
+    @Override
+    public String getParentNodeId() {
+        return read(super::getParentNodeId);
+    }
+
+    @Override
+    public Node getRootHTMLNode() {
+        return read(super::getRootHTMLNode);
+    }
+
+    @Override
+    public Node setRootHTMLNode(@NonNull Node root) {
+        return write(() -> super.setRootHTMLNode(root));
+    }
+
+    @Override
+    public List<Node> getAllNode() {
+        return write(super::getAllNode);
+    }
+
+    @Override
+    public List<Edge> getAllEdge() {
+        return write(super::getAllEdge);
+    }
+
+    @Override
+    public List<HTMLNode> getAllHTMLNodes() {
+        return write(super::getAllHTMLNodes);
+    }
+
+    @Override
+    public List<CSSNode> getAllCSSNodes() {
+        return write(super::getAllCSSNodes);
+    }
+
+    @Override
+    public List<CSSRuleNode> getAllCSSRules() {
+        return write(super::getAllCSSRules);
+    }
+
+    @Override
+    public List<ScriptNode> getAllScriptNodes() {
+        return write(super::getAllScriptNodes);
+    }
+
+    @Override
+    public List<NetworkNode> getAllNetworkNodes() {
+        return write(super::getAllNetworkNodes);
+    }
+
+    @Override
+    public List<IframeNode> getAllIframeNodes() {
+        return write(super::getAllIframeNodes);
+    }
+
+    @Override
+    public void setId(@NonNull String id) {
+        write(() -> {
+            super.setId(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void setParentViewId(@NonNull String id) {
+        write(() -> {
+            super.setParentViewId(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void setParentNodeId(@NonNull String id) {
+        write(() -> {
+            super.setParentNodeId(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void addListener(@NonNull ViewListener listener) {
+        write(() -> {
+            super.addListener(listener);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean removeListener(@NonNull ViewListener listener) {
+        return write(() -> super.removeListener(listener));
+    }
+
+    @Override
+    public Node findNodeById(@NonNull String id) {
+        return read(() -> super.findNodeById(id));
+    }
+
+    @Override
+    public Node findNodeByIndex(int index) {
+        return read(() -> super.findNodeByIndex(index));
+    }
+
+    @Override
+    public boolean containsNode(@NonNull Node node) {
+        return read(() -> super.containsNode(node));
+    }
+
+    @Override
+    public int indexOf(@NonNull Node node) {
+        return read(() -> super.indexOf(node));
+    }
+
+    @Override
+    public int indexOf(@NonNull Edge edge) {
+        return read(() -> super.indexOf(edge));
+    }
+
+    @Override
+    public Adjacency inList(int index) {
+        return read(() -> super.inList(index));
+    }
+
+    @Override
+    public Adjacency outList(int index) {
+        return read(() -> super.outList(index));
+    }
+
+    @Override
+    public int fromIndexOf(int edgeIndex) {
+        return read(() -> super.fromIndexOf(edgeIndex));
+    }
+
+    @Override
+    public int toIndexOf(int edgeIndex) {
+        return read(() -> super.toIndexOf(edgeIndex));
+    }
+
+    @Override
+    public int nodeIndexBound() {
+        return read(super::nodeIndexBound);
+    }
+
+    @Override
+    public int edgeIndexBound() {
+        return read(super::edgeIndexBound);
+    }
+
+    @Override
+    public String addHTMLNode(@NonNull HTMLNode htmlNode) {
+        return appendNode(() -> super.addHTMLNode(htmlNode));
+    }
+
+    @Override
+    public List<HTMLNode> findHTMLNodeByTag(@NonNull String tagName) {
+        return readNodeIndex(() -> super.findHTMLNodeByTag(tagName));
+    }
+
+    @Override
+    public List<HTMLNode> findHTMLNodeByIdentifyID(@NonNull String identifyID) {
+        return readNodeIndex(() -> super.findHTMLNodeByIdentifyID(identifyID));
+    }
+
+    @Override
+    public List<HTMLNode> findHTMLNodeByClass(@NonNull String className) {
+        return readNodeIndex(() -> super.findHTMLNodeByClass(className));
+    }
+
+    @Override
+    public void reindexNode(@NonNull Node node) {
+        write(() -> {
+            super.reindexNode(node);
+            return null;
+        });
+    }
+
+    @Override
+    public HTMLNode deleteHTMLNodeById(@NonNull String id) {
+        return write(() -> super.deleteHTMLNodeById(id));
+    }
+
+    @Override
+    public String addCSSNode(@NonNull CSSNode cssNode) {
+        return appendNode(() -> super.addCSSNode(cssNode));
+    }
+
+    @Override
+    public CSSNode deleteCSSNodeById(@NonNull String id) {
+        return write(() -> super.deleteCSSNodeById(id));
+    }
+
+    @Override
+    public String addCSSRuleNode(@NonNull CSSRuleNode cssRuleNode) {
+        return appendNode(() -> super.addCSSRuleNode(cssRuleNode));
+    }
+
+    @Override
+    public CSSRuleNode deleteCSSRuleNodeById(@NonNull String id) {
+        return write(() -> super.deleteCSSRuleNodeById(id));
+    }
+
+    @Override
+    public String addScriptNode(@NonNull ScriptNode scriptNode) {
+        return appendNode(() -> super.addScriptNode(scriptNode));
+    }
+
+    @Override
+    public ScriptNode deleteScriptNodeById(@NonNull String id) {
+        return write(() -> super.deleteScriptNodeById(id));
+    }
+
+    @Override
+    public String addNetworkNode(@NonNull NetworkNode networkNode) {
+        // The lookup by url and the add of the same url should not interleave, or the node is not merged.
+        return appendNode(() -> {
+            synchronized (urlStripes[String.valueOf(networkNode.getUrl()).hashCode() & (STRIPES - 1)]) {
+                return super.addNetworkNode(networkNode);
+            }
+        });
+    }
+
+    @Override
+    public NetworkNode findNetworkNodeByURL(@NonNull String url) {
+        return readNodeIndex(() -> super.findNetworkNodeByURL(url));
+    }
+
+    @Override
+    public NetworkNode deleteNetworkNodeById(@NonNull String id) {
+        return write(() -> super.deleteNetworkNodeById(id));
+    }
+
+    @Override
+    public NetworkNode deleteNetworkNodeByURL(@NonNull String url) {
+        return write(() -> super.deleteNetworkNodeByURL(url));
+    }
+
+    @Override
+    public String addIframe(@NonNull IframeNode iframeNode) {
+        return appendNode(() -> super.addIframe(iframeNode));
+    }
+
+    @Override
+    public IframeNode deleteIframeNodeById(@NonNull String id) {
+        return write(() -> super.deleteIframeNodeById(id));
+    }
+
+    @Override
+    public List<Edge> breakConnection(Node node) {
+        return write(() -> super.breakConnection(node));
+    }
+
+    @Override
+    public String addEdge(@NonNull Edge edge) {
+        return appendEdge(() -> super.addEdge(edge));
+    }
+
+    @Override
+    public Edge addEdge(@NonNull String fromNodeId, @NonNull String fromType, @NonNull String toNodeId, @NonNull String toType, @NonNull String edgeType) {
+        return appendEdge(() -> super.addEdge(fromNodeId, fromType, toNodeId, toType, edgeType));
+    }
+
+    @Override
+    public String addEdgeUncheckExistence(@NonNull Edge edge) {
+        return appendEdge(() -> super.addEdgeUncheckExistence(edge));
+    }
+
+    @Override
+    int addEdgeUnconnected(Edge edge) {
+        return appendEdge(() -> super.addEdgeUnconnected(edge));
+    }
+
+    @Override
+    public Edge deleteEdgeById(@NonNull String id) {
+        return write(() -> super.deleteEdgeById(id));
+    }
+
+    @Override
+    public Edge deleteEdgeByIndex(int index) {
+        return write(() -> super.deleteEdgeByIndex(index));
+    }
+
+    @Override
+    public List<Edge> deleteEdgesById(@NonNull List<String> ids) {
+        return write(() -> super.deleteEdgesById(ids));
+    }
+
+    @Override
+    public Edge findEdgeById(@NonNull String id) {
+        return read(() -> super.findEdgeById(id));
+    }
+
+    @Override
+    public Edge findEdgeByIndex(int index) {
+        return read(() -> super.findEdgeByIndex(index));
+    }
+
+    @Override
+    public boolean edgeTypeVerify(@NonNull String id, @NonNull EdgeFilter filter) {
+        return read(() -> super.edgeTypeVerify(id, filter));
+    }
+
+    @Override
+    public Node findToSideForEdge(@NonNull String id) {
+        return read(() -> super.findToSideForEdge(id));
+    }
+
+    @Override
+    public List<Edge> findInEdgeForNode(@NonNull Node node) {
+        return readAdjacency(node, () -> super.findInEdgeForNode(node));
+    }
+
+    @Override
+    public List<Edge> findAllEdgeForNode(@NonNull Node node) {
+        return readAdjacency(node, () -> super.findAllEdgeForNode(node));
+    }
+
+    @Override
+    public List<Edge> findAllEdgeForNode(@NonNull Node node, @NonNull String egdeType) {
+        return readAdjacency(node, () -> super.findAllEdgeForNode(node, egdeType));
+    }
+
+    @Override
+    public List<Edge> findInEdgeForNode(@NonNull Node node, @NonNull String egdeType) {
+        return readAdjacency(node, () -> super.findInEdgeForNode(node, egdeType));
+    }
+
+    @Override
+    public List<Edge> findOutEdgeForNode(@NonNull Node node) {
+        return readAdjacency(node, () -> super.findOutEdgeForNode(node));
+    }
+
+    @Override
+    public List<Edge> findOutEdgeForNode(@NonNull Node node, @NonNull String egdeType) {
+        return readAdjacency(node, () -> super.findOutEdgeForNode(node, egdeType));
+    }
+
+    @Override
+    public List<Edge> connectionEdge() {
+        return write(super::connectionEdge);
+    }
+
+    @Override
+    void ensureCapacity(int nodeCount, int edgeCount) {
+        write(() -> {
+            super.ensureCapacity(nodeCount, edgeCount);
+            resetSlots();
+            return null;
+        });
+    }
+
+    @Override
+    List<Edge> connectEdges(int firstIndex) {
+        return write(() -> super.connectEdges(firstIndex));
+    }
+
+    @Override
+    List<Edge> connectEdges(int[] indices) {
+        return write(() -> super.connectEdges(indices));
+    }
+
+    @Override
+    void createAdjacency(Adjacency[] ins, Adjacency[] outs, int index) {
+        synchronized (stripe(index)) {
+            super.createAdjacency(ins, outs, index);
+        }
+    }
+
+    @Override
+    void addToAdjacency(Adjacency[] lists, int node, int edgeIndex, byte type) {
+        synchronized (stripe(node)) {
+            super.addToAdjacency(lists, node, edgeIndex, type);
+        }
+    }
+
+    private Object stripe(int node) {
+        return stripes[node & (STRIPES - 1)];
+    }
+
+    @Override
+    void indexNode(Node node, BitSet typeSet, int index) {
+        synchronized (nodeLock) {
+            super.indexNode(node, typeSet, index);
+        }
+    }
+
+    /**
+     * Add a node under the shared lock, the node lock is only taken for the type sets and the secondary indexes.
+     *
+     * @param action
+     * @return - The result of action.
+     */
+    private <T> T appendNode(Supplier<T> action) {
+        return append(nodeSlots, action);
+    }
+
+    /**
+     * Add an edge under the shared lock, the edges added by other threads are not blocked.
+     *
+     * @param action
+     * @return - The result of action.
+     */
+    private <T> T appendEdge(Supplier<T> action) {
+        return append(edgeSlots, action);
+    }
+
+    /**
+     * Run the add under the shared lock once it gets a slot, otherwise grow the arrays under the exclusive lock and
+     * try again. The failed threads do not give the slot back, the slots are counted again after growing.
+     *
+     * @param slots - Node slots or edge slots.
+     * @param action
+     * @return - The result of action.
+     */
+    private <T> T append(AtomicInteger slots, Supplier<T> action) {
+        while (true) {
+            readLock.lock();
+            try {
+                if (slots.getAndDecrement() > 0) {
+                    return action.get();
+                }
+            } finally {
+                readLock.unlock();
+            }
+
+            write(() -> {
+                int nodeGrowth = nodeRoom() < MIN_ROOM ? Math.max(MIN_ROOM, super.nodeIndexBound() >> 1) : 0;
+                int edgeGrowth = edgeRoom() < MIN_ROOM ? Math.max(MIN_ROOM, super.edgeIndexBound() >> 1) : 0;
+                super.ensureCapacity(nodeGrowth, edgeGrowth);
+                resetSlots();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Count the slots from the room of arrays, under the exclusive lock.
+     */
+    private void resetSlots() {
+        nodeSlots.set(nodeRoom());
+        edgeSlots.set(edgeRoom());
+    }
+
+    /**
+     * Read the type sets or the secondary indexes under the shared lock and the node lock.
+     *
+     * @param action
+     * @return - The result of action.
+     */
+    private <T> T readNodeIndex(Supplier<T> action) {
+        return read(() -> {
+            synchronized (nodeLock) {
+                return action.get();
+            }
+        });
+    }
+
+    /**
+     * Read the adjacency of node under the shared lock and its lock stripe.
+     *
+     * @param node
+     * @param action
+     * @return - The result of action.
+     */
+    private <T> T readAdjacency(Node node, Supplier<T> action) {
+        return read(() -> {
+            int index = super.indexOf(node);
+            if (index < 0) {
+                return action.get();
+            }
+            synchronized (stripe(index)) {
+                return action.get();
+            }
+        });
+    }
+
+    /**
+     * Run the action under the read lock.
+     *
+     * @param action
+     * @return - The result of action.
+     */
+    private <T> T read(Supplier<T> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Run the action under the write lock.
+     *
+     * @param action
+     * @return - The result of action.
+     */
+    private <T> T write(Supplier<T> action) {
+        writeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
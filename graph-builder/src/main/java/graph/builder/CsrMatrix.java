@@ -0,0 +1,174 @@
+package graph.builder;
+
+import graph.builder.vo.EdgeFilter;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Unweighted sparse adjacency matrix in compressed-sparse-row form, for the centralities which iterate
+ * x' = shift + scale * A x, such as Katz and PageRank.
+ *
+ * The rows are compiled once from the snapshot with the edge filter applied, so the iteration reads two flat int
+ * arrays and does not check the edge type again. The multiplication is split into row partitions of about the same
+ * number of entries, which run in parallel when the matrix is large. Each row is summed in a fixed order by one
+ * thread, so the result does not depend on the partitions.
+ */
+class CsrMatrix {
+    /**
+     * The matrix with fewer entries is multiplied in the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    /**
+     * The number of entries in one row partition at least.
+     */
+    private static final int PARTITION_SIZE = 1 << 13;
+
+    private final int rows;
+
+    /**
+     * The entries of row v are [rowStart[v], rowStart[v + 1]).
+     */
+    private final int[] rowStart;
+
+    /**
+     * Entry to column.
+     */
+    private final int[] columns;
+
+    /**
+     * Partition p covers the rows [partitionStart[p], partitionStart[p + 1]).
+     */
+    private final int[] partitionStart;
+
+    private CsrMatrix(int rows, int[] rowStart, int[] columns) {
+        this.rows = rows;
+        this.rowStart = rowStart;
+        this.columns = columns;
+        this.partitionStart = partition();
+    }
+
+    /**
+     * Compile the adjacency of the snapshot. The row of node v holds the in-side nodes of v followed by the
+     * out-side nodes of v, depends on the direction.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param in - If the in-side nodes are in the row.
+     * @param out - If the out-side nodes are in the row. Both in and out gives the symmetric matrix.
+     * @return - The matrix.
+     */
+    static CsrMatrix adjacency(ViewSnapshot snapshot, EdgeFilter edgeFilter, boolean in, boolean out) {
+        int n = snapshot.nodeCount();
+        int[] rowStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int count = 0;
+            if (in) {
+                for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                    if (snapshot.allowsIn(edgeFilter, slot)) {
+                        count++;
+                    }
+                }
+            }
+            if (out) {
+                for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                    if (snapshot.allowsOut(edgeFilter, slot)) {
+                        count++;
+                    }
+                }
+            }
+            rowStart[v + 1] = rowStart[v] + count;
+        }
+
+        int[] columns = new int[rowStart[n]];
+        for (int v = 0; v < n; v++) {
+            int entry = rowStart[v];
+            if (in) {
+                for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                    if (snapshot.allowsIn(edgeFilter, slot)) {
+                        columns[entry++] = snapshot.inSource(slot);
+                    }
+                }
+            }
+            if (out) {
+                for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                    if (snapshot.allowsOut(edgeFilter, slot)) {
+                        columns[entry++] = snapshot.outTarget(slot);
+                    }
+                }
+            }
+        }
+        return new CsrMatrix(n, rowStart, columns);
+    }
+
+    /**
+     * The number of entries in row v.
+     */
+    int rowSize(int v) {
+        return rowStart[v + 1] - rowStart[v];
+    }
+
+    /**
+     * Calculate y = shift + scale * A x.
+     *
+     * @param x - Input vector, not changed.
+     * @param y - Output vector, should not be x.
+     * @param scale
+     * @param shift
+     * @return - The max absolute difference between y and x (L-infinity distance), NaN differences are ignored.
+     */
+    double multiply(double[] x, double[] y, double scale, double shift) {
+        int partitions = partitionStart.length - 1;
+        if (partitions <= 1 || columns.length < PARALLEL_THRESHOLD) {
+            return multiplyRows(x, y, scale, shift, 0, rows);
+        }
+
+        return IntStream.range(0, partitions)
+                .parallel()
+                .mapToDouble(p -> multiplyRows(x, y, scale, shift, partitionStart[p], partitionStart[p + 1]))
+                .max()
+                .orElse(0.0);
+    }
+
+    /**
+     * Calculate the rows [from, to) of y = shift + scale * A x.
+     *
+     * @return - The max absolute difference between y and x in the rows.
+     */
+    private double multiplyRows(double[] x, double[] y, double scale, double shift, int from, int to) {
+        double maxDifference = 0.0;
+        for (int v = from; v < to; v++) {
+            double sum = 0;
+            for (int entry = rowStart[v]; entry < rowStart[v + 1]; entry++) {
+                sum += x[columns[entry]];
+            }
+            y[v] = shift + scale * sum;
+
+            double difference = Math.abs(y[v] - x[v]);
+            if (difference > maxDifference) {
+                maxDifference = difference;
+            }
+        }
+        return maxDifference;
+    }
+
+    /**
+     * Split the rows into partitions with about PARTITION_SIZE entries, a row is never split.
+     *
+     * @return - The first row of each partition, followed by the number of rows.
+     */
+    private int[] partition() {
+        int[] starts = new int[Math.max(1, columns.length / PARTITION_SIZE) + 1];
+        int count = 1;
+        int next = PARTITION_SIZE;
+        for (int v = 0; v < rows && count < starts.length - 1; v++) {
+            if (rowStart[v] >= next) {
+                starts[count++] = v;
+                next = rowStart[v] + PARTITION_SIZE;
+            }
+        }
+        starts[count++] = rows;
+        return count == starts.length ? starts : Arrays.copyOf(starts, count);
+    }
+}
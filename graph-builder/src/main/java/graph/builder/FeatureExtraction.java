@@ -1,13 +1,24 @@
 package graph.builder;
 
+import graph.builder.common.EdgeType;
+import graph.builder.common.Feature;
 import graph.builder.entity.edge.Edge;
 import graph.builder.entity.node.Node;
+import graph.builder.util.Adjacency;
+import graph.builder.util.IntList;
 import graph.builder.util.Logger;
+import graph.builder.vo.ApproximateBetweennessParam;
+import graph.builder.vo.ClusteringResult;
+import graph.builder.vo.EccentricityBounds;
 import graph.builder.vo.EdgeFilter;
+import graph.builder.vo.FeatureMatrix;
 import graph.builder.vo.KatzCentralityParam;
+import graph.builder.vo.PageRankParam;
 import lombok.NonNull;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Collection of feature extraction algorithm.
@@ -22,7 +33,8 @@ public class FeatureExtraction {
      * @return - In degree of the node. Return -1 if the node does not exist in the view.
      */
     public static int inDegree(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
-        if (view.findNodeById(node.getId()) == null) {
+        int v = view.indexOf(node);
+        if (v < 0) {
             Logger.getInstance().warning("Cannot find the in degree for node " + node.getId() +
                     " since node is not found in view " + view.getViewId());
             return -1;
@@ -30,18 +42,7 @@ public class FeatureExtraction {
 
         edgeFilter.buildTypeSet();
 
-        List<String> inIdList = node.getInList();
-        int result = 0;
-
-        for (String inId : inIdList) {
-            Edge edge = view.findEdgeById(inId);
-            if (edge != null && view.findNodeById(edge.getFromNodeId()) != null &&
-                    edgeFilter.contains(edge.getEdgeType())) {
-                result++;
-            }
-        }
-
-        return result;
+        return otherSides(view, view.inList(v), edgeFilter, true, null);
     }
 
     /**
@@ -53,7 +54,8 @@ public class FeatureExtraction {
      * @return - Out degree of the node. Return -1 if the node does not exist in the view.
      */
     public static int outDegree(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
-        if (view.findNodeById(node.getId()) == null) {
+        int v = view.indexOf(node);
+        if (v < 0) {
             Logger.getInstance().warning("Cannot find the out degree for node " + node.getId() +
                     " since node is not found in view " + view.getViewId());
             return -1;
@@ -61,18 +63,7 @@ public class FeatureExtraction {
 
         edgeFilter.buildTypeSet();
 
-        List<String> outIdList = node.getOutList();
-        int result = 0;
-
-        for (String outId : outIdList) {
-            Edge edge = view.findEdgeById(outId);
-            if (edge != null && view.findNodeById(edge.getToNodeId()) != null &&
-                    edgeFilter.contains(edge.getEdgeType())) {
-                result++;
-            }
-        }
-
-        return result;
+        return otherSides(view, view.outList(v), edgeFilter, false, null);
     }
 
     /**
@@ -98,42 +89,19 @@ public class FeatureExtraction {
      * @return - The neighbours of node. Return null if node does not in the view.
      */
     public static List<Node> neighbor(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
-        if (view.findNodeById(node.getId()) == null) {
+        int v = view.indexOf(node);
+        if (v < 0) {
             Logger.getInstance().warning("Cannot find the neighbor number for node " + node.getId() +
                     " since node is not found in view " + view.getViewId());
             return null;
         }
         edgeFilter.buildTypeSet();
 
-        List<Node> neighbors = new ArrayList<>();
-
-        List<String> inIdList = node.getInList();
-        for (String inId : inIdList) {
-            Edge edge = view.findEdgeById(inId);
-            if (edge == null || !edgeFilter.contains(edge.getEdgeType())) {
-                continue;
-            }
-
-            Node neighbor = view.findNodeById(edge.getFromNodeId());
-            if (neighbor != null) {
-                neighbors.add(neighbor);
-            }
-        }
-
-        List<String> outIdList = node.getOutList();
-        for (String outId : outIdList) {
-            Edge edge = view.findEdgeById(outId);
-            if (edge == null || !edgeFilter.contains(edge.getEdgeType())) {
-                continue;
-            }
+        IntList neighbors = new IntList();
+        otherSides(view, view.inList(v), edgeFilter, true, neighbors);
+        otherSides(view, view.outList(v), edgeFilter, false, neighbors);
 
-            Node neighbor = view.findNodeById(edge.getToNodeId());
-            if (neighbor != null) {
-                neighbors.add(neighbor);
-            }
-        }
-
-        return neighbors;
+        return toNodes(view, neighbors);
     }
 
     /**
@@ -147,7 +115,8 @@ public class FeatureExtraction {
      * @return - The number of ascendants of this node. Return -1 if the node does not exist in the view.
      */
     public static int ascendants(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter, int maxDistance) {
-        if (view.findNodeById(node.getId()) == null) {
+        int start = view.indexOf(node);
+        if (start < 0) {
             Logger.getInstance().warning("Cannot count the ascendants for node " + node.getId() +
                     " since node is not found in view " + view.getViewId());
             return -1;
@@ -159,38 +128,38 @@ public class FeatureExtraction {
             maxDistance = Integer.MAX_VALUE;
         }
 
-        Map<String, Integer> distances = new HashMap<>();
-        // Visited set can also be the ascendant id sets.
-        Set<String> visited = new HashSet<>();
-        Queue<Node> queue = new LinkedList<>();
+        int[] distances = new int[view.nodeIndexBound()];
+        // Visited set can also be the ascendant int id sets.
+        BitSet visited = new BitSet(view.nodeIndexBound());
+        // The queue keeps the polled int ids, the head moves forward instead.
+        IntList queue = new IntList();
+        IntList ascendantList = new IntList();
 
-        distances.put(node.getId(), 0);
-        queue.add(node);
+        distances[start] = 0;
+        queue.add(start);
 
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
+        for (int head = 0; head < queue.size(); head++) {
+            int current = queue.get(head);
 
-            int currentDistance = distances.get(current.getId());
+            int currentDistance = distances[current];
             if (currentDistance >= maxDistance) {
                 continue;
             }
 
-            List<Node> ascendantNodeList = ascendantNodes(view, current, edgeFilter);
-
-            if (ascendantNodeList == null) {
-                continue;
-            }
+            ascendantList.clear();
+            otherSides(view, view.inList(current), edgeFilter, true, ascendantList);
 
-            for (Node ascendantNode : ascendantNodeList) {
-                if (!visited.contains(ascendantNode.getId())) {
-                    distances.put(ascendantNode.getId(), currentDistance+1);
-                    visited.add(ascendantNode.getId());
-                    queue.add(ascendantNode);
+            for (int i = 0; i < ascendantList.size(); i++) {
+                int ascendant = ascendantList.get(i);
+                if (!visited.get(ascendant)) {
+                    distances[ascendant] = currentDistance + 1;
+                    visited.set(ascendant);
+                    queue.add(ascendant);
                 }
             }
         }
 
-        return visited.size();
+        return visited.cardinality();
     }
 
     /**
@@ -202,27 +171,17 @@ public class FeatureExtraction {
      * @return - The directly ascendant nodes of aim node. Return null if aim node does not in the view.
      */
     public static List<Node> ascendantNodes(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
-        if (view.findNodeById(node.getId()) == null) {
+        int v = view.indexOf(node);
+        if (v < 0) {
             return null;
         }
 
         edgeFilter.buildTypeSet();
 
-        List<Node> ascendantNodes = new ArrayList<>();
-        List<String> ascendantEdgeId = node.getInList();
-        for (String edgeId : ascendantEdgeId) {
-            Edge edge = view.findEdgeById(edgeId);
-            if (edge == null || !edgeFilter.contains(edge.getEdgeType())) {
-                continue;
-            }
-
-            Node ascendantNode = view.findNodeById(edge.getFromNodeId());
-            if (ascendantNode != null) {
-                ascendantNodes.add(ascendantNode);
-            }
-        }
+        IntList ascendantNodes = new IntList();
+        otherSides(view, view.inList(v), edgeFilter, true, ascendantNodes);
 
-        return ascendantNodes;
+        return toNodes(view, ascendantNodes);
     }
 
     /**
@@ -236,7 +195,8 @@ public class FeatureExtraction {
      * @return - The number of descendants of this node. Return -1 if the node does not exist in the view.
      */
     public static int descendants(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter, int maxDistance) {
-        if (view.findNodeById(node.getId()) == null) {
+        int start = view.indexOf(node);
+        if (start < 0) {
             Logger.getInstance().warning("Cannot count the descendants for node " + node.getId() +
                     " since node is not found in view " + view.getViewId());
             return -1;
@@ -248,38 +208,38 @@ public class FeatureExtraction {
             maxDistance = Integer.MAX_VALUE;
         }
 
-        Map<String, Integer> distances = new HashMap<>();
-        // Visited set can also be the descendant id sets.
-        Set<String> visited = new HashSet<>();
-        Queue<Node> queue = new LinkedList<>();
+        int[] distances = new int[view.nodeIndexBound()];
+        // Visited set can also be the descendant int id sets.
+        BitSet visited = new BitSet(view.nodeIndexBound());
+        // The queue keeps the polled int ids, the head moves forward instead.
+        IntList queue = new IntList();
+        IntList descendantList = new IntList();
 
-        distances.put(node.getId(), 0);
-        queue.add(node);
+        distances[start] = 0;
+        queue.add(start);
 
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
+        for (int head = 0; head < queue.size(); head++) {
+            int current = queue.get(head);
 
-            int currentDistance = distances.get(current.getId());
+            int currentDistance = distances[current];
             if (currentDistance >= maxDistance) {
                 continue;
             }
 
-            List<Node> descendantNodeList = descendantNodes(view, current, edgeFilter);
-
-            if (descendantNodeList == null) {
-                continue;
-            }
+            descendantList.clear();
+            otherSides(view, view.outList(current), edgeFilter, false, descendantList);
 
-            for (Node descendantNode : descendantNodeList) {
-                if (!visited.contains(descendantNode.getId())) {
-                    distances.put(descendantNode.getId(), currentDistance+1);
-                    visited.add(descendantNode.getId());
-                    queue.add(descendantNode);
+            for (int i = 0; i < descendantList.size(); i++) {
+                int descendant = descendantList.get(i);
+                if (!visited.get(descendant)) {
+                    distances[descendant] = currentDistance + 1;
+                    visited.set(descendant);
+                    queue.add(descendant);
                 }
             }
         }
 
-        return visited.size();
+        return visited.cardinality();
     }
 
     /**
@@ -291,27 +251,17 @@ public class FeatureExtraction {
      * @return - The directly descendant nodes of aim node. Return null if aim node does not in the view.
      */
     public static List<Node> descendantNodes(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
-        if (view.findNodeById(node.getId()) == null) {
+        int v = view.indexOf(node);
+        if (v < 0) {
             return null;
         }
 
         edgeFilter.buildTypeSet();
 
-        List<Node> descendantNodes = new ArrayList<>();
-        List<String> descendantEdgeId = node.getOutList();
-        for (String edgeId : descendantEdgeId) {
-            Edge edge = view.findEdgeById(edgeId);
-            if (edge == null || !edgeFilter.contains(edge.getEdgeType())) {
-                continue;
-            }
-
-            Node descendantNode = view.findNodeById(edge.getToNodeId());
-            if (descendantNode != null) {
-                descendantNodes.add(descendantNode);
-            }
-        }
+        IntList descendantNodes = new IntList();
+        otherSides(view, view.outList(v), edgeFilter, false, descendantNodes);
 
-        return descendantNodes;
+        return toNodes(view, descendantNodes);
     }
 
     /**
@@ -324,7 +274,8 @@ public class FeatureExtraction {
      * @return - The shortest path length from start node to other reachable nodes (Id) in the view. Return null if start node does not in the view.
      */
     public static Map<String, Integer> shortestPathFrom(@NonNull View view, @NonNull Node start, @NonNull EdgeFilter edgeFilter, @NonNull int direction) {
-        if (view.findNodeById(start.getId()) == null) {
+        int startIndex = view.indexOf(start);
+        if (startIndex < 0) {
             Logger.getInstance().warning("Cannot find the shorted path length from start node " + start.getId() +
                     " since start node is not found in view " + view.getViewId());
             return null;
@@ -332,38 +283,36 @@ public class FeatureExtraction {
 
         edgeFilter.buildTypeSet();
         Map<String, Integer> distances = new HashMap<>();
-        Queue<Node> queue = new LinkedList<>();
-        Set<Node> visited = new HashSet<>();
+        int[] distanceArray = new int[view.nodeIndexBound()];
+        IntList queue = new IntList();
+        BitSet visited = new BitSet(view.nodeIndexBound());
+        IntList neighbourList = new IntList();
 
-        queue.add(start);
+        queue.add(startIndex);
         distances.put(start.getId(), 0);
-        visited.add(start);
+        visited.set(startIndex);
 
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
-            int currentDist = distances.get(current.getId());
-            List<Node> neighbourNodeList = new ArrayList<>();
+        for (int head = 0; head < queue.size(); head++) {
+            int current = queue.get(head);
+            int currentDist = distanceArray[current];
+            neighbourList.clear();
 
             if (direction != 0) {
-                List<Node> ascendantNodes = ascendantNodes(view, current, edgeFilter);
-                if (ascendantNodes != null) {
-                    neighbourNodeList.addAll(ascendantNodes);
-                }
+                otherSides(view, view.inList(current), edgeFilter, true, neighbourList);
             }
 
             if (direction != 1) {
-                List<Node> descendantNodeList = descendantNodes(view, current, edgeFilter);
-                if (descendantNodeList != null) {
-                    neighbourNodeList.addAll(descendantNodeList);
-                }
+                otherSides(view, view.outList(current), edgeFilter, false, neighbourList);
             }
 
 
-            for (Node neighbourNode : neighbourNodeList) {
-                if (!visited.contains(neighbourNode)) {
-                    queue.add(neighbourNode);
-                    visited.add(neighbourNode);
-                    distances.put(neighbourNode.getId(), currentDist + 1);
+            for (int i = 0; i < neighbourList.size(); i++) {
+                int neighbour = neighbourList.get(i);
+                if (!visited.get(neighbour)) {
+                    queue.add(neighbour);
+                    visited.set(neighbour);
+                    distanceArray[neighbour] = currentDist + 1;
+                    distances.put(view.findNodeByIndex(neighbour).getId(), currentDist + 1);
                 }
             }
         }
@@ -380,7 +329,8 @@ public class FeatureExtraction {
      * @return - The maximum distance from start node to all other nodes. Return null if start node does not in the view.
      */
     public static double eccentricity(@NonNull View view, @NonNull Node start, @NonNull EdgeFilter edgeFilter) {
-        if (view.findNodeById(start.getId()) == null) {
+        int startIndex = view.indexOf(start);
+        if (startIndex < 0) {
             Logger.getInstance().warning("Cannot calculate eccentricity from start node " + start.getId() +
                     " since start node is not found in view " + view.getViewId());
             return -1.0;
@@ -388,30 +338,28 @@ public class FeatureExtraction {
 
         edgeFilter.buildTypeSet();
 
-        Map<String, Integer> distances = new HashMap<>();
-        Queue<Node> queue = new LinkedList<>();
-        Set<Node> visited = new HashSet<>();
+        int[] distances = new int[view.nodeIndexBound()];
+        IntList queue = new IntList();
+        BitSet visited = new BitSet(view.nodeIndexBound());
+        IntList neighbours = new IntList();
 
-        queue.add(start);
-        distances.put(start.getId(), 0);
-        visited.add(start);
+        queue.add(startIndex);
+        visited.set(startIndex);
 
         double maxDistance = 0.0;
 
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
-            int currentDist = distances.get(current.getId());
-            List<Node> neighbours = descendantNodes(view, current, edgeFilter);
-
-            if (neighbours == null) {
-                continue;
-            }
+        for (int head = 0; head < queue.size(); head++) {
+            int current = queue.get(head);
+            int currentDist = distances[current];
+            neighbours.clear();
+            otherSides(view, view.outList(current), edgeFilter, false, neighbours);
 
-            for (Node neighbour : neighbours) {
-                if (!visited.contains(neighbour)) {
+            for (int i = 0; i < neighbours.size(); i++) {
+                int neighbour = neighbours.get(i);
+                if (!visited.get(neighbour)) {
                     queue.add(neighbour);
-                    visited.add(neighbour);
-                    distances.put(neighbour.getId(), currentDist + 1);
+                    visited.set(neighbour);
+                    distances[neighbour] = currentDist + 1;
                     if (currentDist + 1 > maxDistance) {
                         maxDistance = currentDist + 1;
                     }
@@ -432,7 +380,7 @@ public class FeatureExtraction {
      * @return - The mean degree of the neighbours of aim node, return -1 if aim node does not in the view
      */
     public static double meanConnectivityDegree(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter, int considerSide) {
-        if (view.findNodeById(node.getId()) == null) {
+        if (!view.containsNode(node)) {
             Logger.getInstance().warning("Cannot calculate the mean degree connectivity of node " + node.getId() +
                     " since node is not found in view " + view.getViewId());
             return -1;
@@ -466,37 +414,48 @@ public class FeatureExtraction {
      * @return - The cluster coefficient of aim node. Return -1 if the node does not exist in the view.
      */
     public static Double clusterCoefficient(@NonNull View view, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
-        if (view.findNodeById(node.getId()) == null) {
+        int v = view.indexOf(node);
+        if (v < 0) {
             Logger.getInstance().warning("Cannot calculate the cluster coefficient of node " + node.getId() +
                     " since node is not found in view " + view.getViewId());
             return null;
         }
         edgeFilter.buildTypeSet();
 
-        List<Node> neighbors = neighbor(view, node, edgeFilter);
-        if (neighbors == null || neighbors.size() < 2) {
+        IntList neighbors = new IntList();
+        otherSides(view, view.inList(v), edgeFilter, true, neighbors);
+        otherSides(view, view.outList(v), edgeFilter, false, neighbors);
+        if (neighbors.size() < 2) {
             return 0.0;
         }
 
-        Set<String> neighborIds = new HashSet<>();
-        Set<String> edgeIdSet = new HashSet<>();
-        for (Node neighbor : neighbors) {
-            neighborIds.add(neighbor.getId());
-            edgeIdSet.addAll(neighbor.getOutList());
-            edgeIdSet.addAll(neighbor.getInList());
+        BitSet neighborIds = new BitSet(view.nodeIndexBound());
+        BitSet edgeIdSet = new BitSet(view.edgeIndexBound());
+        for (int k = 0; k < neighbors.size(); k++) {
+            int neighbor = neighbors.get(k);
+            neighborIds.set(neighbor);
+            Adjacency outList = view.outList(neighbor);
+            for (int i = 0; i < outList.size(); i++) {
+                edgeIdSet.set(outList.get(i));
+            }
+            Adjacency inList = view.inList(neighbor);
+            for (int i = 0; i < inList.size(); i++) {
+                edgeIdSet.set(inList.get(i));
+            }
         }
 
         double existingEdgeBetweenNeighbors = 0.0;
-        double totalPossibleEdgesBetweenNeighbors = neighbors.size() * (neighbors.size() - 1);
+        double totalPossibleEdgesBetweenNeighbors = (double) neighbors.size() * (neighbors.size() - 1);
 
-        for (String edgeId : edgeIdSet) {
-            Edge edge = view.findEdgeById(edgeId);
-            if (edge == null || !edgeFilter.contains(edge.getEdgeType())) {
+        for (int edgeId = edgeIdSet.nextSetBit(0); edgeId >= 0; edgeId = edgeIdSet.nextSetBit(edgeId + 1)) {
+            Edge edge = view.findEdgeByIndex(edgeId);
+            if (edge == null || !edgeFilter.contains(edge)) {
                 continue;
             }
 
-            if (!edge.getFromNodeId().equals(edge.getToNodeId()) &&
-                    neighborIds.contains(edge.getFromNodeId()) && neighborIds.contains(edge.getToNodeId())) {
+            int from = view.fromIndexOf(edgeId);
+            int to = view.toIndexOf(edgeId);
+            if (from >= 0 && to >= 0 && from != to && neighborIds.get(from) && neighborIds.get(to)) {
                 existingEdgeBetweenNeighbors++;
             }
         }
@@ -505,225 +464,1203 @@ public class FeatureExtraction {
     }
 
     /**
-     * Calculate the closeness centrality for all the node in the view.
+     * Find the nodes in the other side of the edges in adjacency which meet the requirement of filter. Only the edge
+     * type buckets allowed by the filter are visited.
      *
-     * @param view - Aim view.
-     * @param edgeFilter - Edge filter.
-     * @param direction - 0 for only descendants, 1 for only ascendants, others for two direction.
-     * @return - The closeness centrality for all nodes in the view.
+     * @param view - The view contains the edges.
+     * @param adjacency - The in list or out list of node.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param fromSide - True if the adjacency is the in list, so the other side is the from side of edge.
+     * @param result - The list to collect the int ids of nodes found, null if only count them.
+     * @return - The number of nodes found.
      */
-    public static Map<String, Double> closenessCentrality(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull int direction) {
-        edgeFilter.buildTypeSet();
-        Map<String, Double> closenessMap = new HashMap<>();
-        for (Node node : view.getAllNode()) {
-            Map<String, Integer> reachableDist = shortestPathFrom(view, node,edgeFilter, direction);
-            if (reachableDist == null) {
-                continue;
-            }
-
-            reachableDist.remove(node.getId());
-            double numPath = reachableDist.size();
-            double countPathLength = 0.0;
-            for(double length : reachableDist.values()) {
-                countPathLength += length;
-            }
+    private static int otherSides(View view, Adjacency adjacency, EdgeFilter edgeFilter, boolean fromSide, IntList result) {
+        int count = 0;
+        for (long mask = edgeFilter.getTypeMask(); mask != 0; mask &= mask - 1) {
+            byte type = (byte) Long.numberOfTrailingZeros(mask);
+            for (int i = 0; i < adjacency.size(type); i++) {
+                int edgeIndex = adjacency.get(type, i);
+                Edge edge = view.findEdgeByIndex(edgeIndex);
+                // The edges with unknown type share one bucket, check them by name.
+                if (edge == null || (type == EdgeType.UNKNOWN_CODE && !edgeFilter.contains(edge))) {
+                    continue;
+                }
 
-            if (numPath == 0.0 || countPathLength == 0.0) {
-                closenessMap.put(node.getId(), 0.0);
-                continue;
+                int otherSide = fromSide ? view.fromIndexOf(edgeIndex) : view.toIndexOf(edgeIndex);
+                if (view.findNodeByIndex(otherSide) != null) {
+                    count++;
+                    if (result != null) {
+                        result.add(otherSide);
+                    }
+                }
             }
+        }
+        return count;
+    }
 
-            double closeness = 1 / (countPathLength/numPath);
+    /**
+     * Map the node int ids of view to the nodes.
+     *
+     * @param view
+     * @param indexes - Node int ids.
+     * @return
+     */
+    private static List<Node> toNodes(View view, IntList indexes) {
+        List<Node> nodes = new ArrayList<>(indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            nodes.add(view.findNodeByIndex(indexes.get(i)));
+        }
+        return nodes;
+    }
 
-            closenessMap.put(node.getId(), closeness);
+    /**
+     * Find the in degree for node in the snapshot.
+     *
+     * @param snapshot - The snapshot contains node which need to find the in degree.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @return - In degree of the node. Return -1 if the node does not exist in the snapshot.
+     */
+    public static int inDegree(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            Logger.getInstance().warning("Cannot find the in degree for node " + node.getId() +
+                    " since node is not found in snapshot of view " + snapshot.getViewId());
+            return -1;
         }
 
-        return closenessMap;
+        edgeFilter.buildTypeSet();
+        int result = 0;
+        for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+            if (snapshot.allowsIn(edgeFilter, slot)) {
+                result++;
+            }
+        }
+        return result;
     }
 
     /**
-     * Follow the Brandes algorithm which calculate the betweenness centrality for all nodes by cutting the big graph
-     * into small chunks to improve the efficiency.
+     * Find the out degree for node in the snapshot.
      *
-     * @param view - Aim view.
+     * @param snapshot - The snapshot contains node which need to find the out degree.
+     * @param node - Aim node.
      * @param edgeFilter - Edge filter.
-     * @return - The betweenness centrality for all nodes in the view.
+     * @return - Out degree of the node. Return -1 if the node does not exist in the snapshot.
      */
-    public static Map<String, Double> betweennessCentrality(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
-        edgeFilter.buildTypeSet();
-        Map<String, Double> betweennessMap = new HashMap<>();
-        for (Node node : view.getAllNode()) {
-            betweennessMap.put(node.getId(), 0.0);
+    public static int outDegree(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            Logger.getInstance().warning("Cannot find the out degree for node " + node.getId() +
+                    " since node is not found in snapshot of view " + snapshot.getViewId());
+            return -1;
         }
 
-        for (Node node : view.getAllNode()) {
-            bfsBetweennessCal(node, view.getAllNode(), view, edgeFilter, betweennessMap);
+        edgeFilter.buildTypeSet();
+        int result = 0;
+        for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+            if (snapshot.allowsOut(edgeFilter, slot)) {
+                result++;
+            }
         }
+        return result;
+    }
 
-        return betweennessMap;
+    /**
+     * Find the number of neighbors for node in the snapshot.
+     *
+     * @param snapshot - The snapshot contains the aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @return - The number of neighbours for node. Return -1 if the node does not exist in the snapshot.
+     */
+    public static int neighbourCount(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
+        int in = inDegree(snapshot, node, edgeFilter);
+        return in < 0 ? -1 : in + outDegree(snapshot, node, edgeFilter);
     }
 
     /**
-     * Use BFS to calculate the shortest path from current start "node" to all its descendants. The unreachable nodes
-     * does not contribute to the betweenness centrality calculation for this node.
+     * Find the neighbors of node in the snapshot.
      *
-     * @param start
-     * @param allNodes
-     * @param view
-     * @param edgeFilter
-     * @param betweennessMap
+     * @param snapshot - The snapshot contains the aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @return - The neighbours of node. Return null if node does not in the snapshot.
      */
-    private static void bfsBetweennessCal(Node start, List<Node> allNodes, View view, EdgeFilter edgeFilter, Map<String, Double> betweennessMap) {
-        Queue<Node> queue = new LinkedList<>();
-        Stack<Node> stack = new Stack<>();
+    public static List<Node> neighbor(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            Logger.getInstance().warning("Cannot find the neighbor number for node " + node.getId() +
+                    " since node is not found in snapshot of view " + snapshot.getViewId());
+            return null;
+        }
+        edgeFilter.buildTypeSet();
 
-        // Initial the predecessor list for each node. Set the distance for each node to -1 which means this node
-        // has not been calculated. Sigma means the number of shortest path from start node to this node.
-        Map<Node, List<Node>> predecessors = new HashMap<>();
-        Map<Node, Integer> distance = new HashMap<>();
-        Map<Node, Double> sigma = new HashMap<>();
+        List<Node> neighbors = new ArrayList<>();
+        collectNeighbours(snapshot, v, edgeFilter, 1, neighbors);
+        collectNeighbours(snapshot, v, edgeFilter, 0, neighbors);
+        return neighbors;
+    }
 
-        for (Node node : allNodes) {
-            predecessors.put(node, new ArrayList<>());
-            distance.put(node, -1);
-            sigma.put(node, 0.0);
+    /**
+     * Get the number of nodes that can be reached from this node. (If the graph contains loop, node itself is also
+     * count in the ascendants).
+     *
+     * @param snapshot - The snapshot contains the aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @param maxDistance - The max distance that can be reached from this node. Set to max integer value if input less than or equal to 0.
+     * @return - The number of ascendants of this node. Return -1 if the node does not exist in the snapshot.
+     */
+    public static int ascendants(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter, int maxDistance) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            Logger.getInstance().warning("Cannot count the ascendants for node " + node.getId() +
+                    " since node is not found in snapshot of view " + snapshot.getViewId());
+            return -1;
         }
 
-        distance.put(start, 0);
-        sigma.put(start, 1.0);
-        queue.add(start);
+        edgeFilter.buildTypeSet();
+        return reachableCount(snapshot, v, edgeFilter, 1, maxDistance);
+    }
 
-        // bfs: go through start points to its descendants, add the unprocessed node to queue for processing later in bfs
-        // order. Use stack to record the sequence to make sure popping the node from end to start.
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
-            stack.push(current);
+    /**
+     * Find the ascendant nodes for the specific node in the snapshot with distance is 1.
+     *
+     * @param snapshot - The snapshot contains the aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @return - The directly ascendant nodes of aim node. Return null if aim node does not in the snapshot.
+     */
+    public static List<Node> ascendantNodes(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            return null;
+        }
 
-            List<Node> descendantNodeList = descendantNodes(view, current, edgeFilter);
+        edgeFilter.buildTypeSet();
+        List<Node> ascendantNodes = new ArrayList<>();
+        collectNeighbours(snapshot, v, edgeFilter, 1, ascendantNodes);
+        return ascendantNodes;
+    }
 
-            if (descendantNodeList == null) {
-                continue;
-            }
+    /**
+     * Get the number of nodes that can reach this node. (If the graph contains loop, node itself is also
+     * count in the ascendants).
+     *
+     * @param snapshot - The snapshot contains the aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @param maxDistance - The max distance that can reach this node. Set to max integer value if input less than or equal to 0.
+     * @return - The number of descendants of this node. Return -1 if the node does not exist in the snapshot.
+     */
+    public static int descendants(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter, int maxDistance) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            Logger.getInstance().warning("Cannot count the descendants for node " + node.getId() +
+                    " since node is not found in snapshot of view " + snapshot.getViewId());
+            return -1;
+        }
 
-            for (Node descendantNode : descendantNodeList) {
-                // if neighbor hasn't been visited yet, add node to the queue for process and set the shortest distance
-                // from start node to this child node to (current distance + 1).
-                if (distance.get(descendantNode) < 0) {
-                    queue.add(descendantNode);
-                    distance.put(descendantNode, distance.get(current) + 1);
-                }
+        edgeFilter.buildTypeSet();
+        return reachableCount(snapshot, v, edgeFilter, 0, maxDistance);
+    }
 
-                // If this descendant node has been processed and the shortest length is same as previous one,
-                // it means this could also be another shortest path from current node to descendant node.
-                // Add this node 'current' to the predecessors list for this descendant node.
-                // Update the sigma: how many shortest path from start to 'current' means how many new shortest paths
-                // from start -> 'current' -> 'descendant', add it to the number of shortest path found before.
-                if (distance.get(descendantNode) == (distance.get(current) + 1)) {
-                    sigma.put(descendantNode, sigma.get(descendantNode) + sigma.get(current));
-                    predecessors.get(descendantNode).add(current);
-                }
-            }
+    /**
+     * Find the descendant nodes for the specific node in the snapshot with distance is 1.
+     *
+     * @param snapshot - The snapshot contains the aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @return - The directly descendant nodes of aim node. Return null if aim node does not in the snapshot.
+     */
+    public static List<Node> descendantNodes(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            return null;
         }
 
-        // A component of cumulative mediated centrality.
-        Map<Node, Double> delta = new HashMap<>();
-        for (Node node : allNodes) {
-            delta.put(node, 0.0);
+        edgeFilter.buildTypeSet();
+        List<Node> descendantNodes = new ArrayList<>();
+        collectNeighbours(snapshot, v, edgeFilter, 0, descendantNodes);
+        return descendantNodes;
+    }
+
+    /**
+     * Find the shortest path length from input start node to all reachable nodes in the snapshot.
+     *
+     * @param snapshot - The snapshot contains start node.
+     * @param start - Start node.
+     * @param edgeFilter - Edge filter.
+     * @param direction - 0 for only descendants, 1 for only ascendants, others for two direction.
+     * @return - The shortest path length from start node to other reachable nodes (Id) in the snapshot. Return null if start node does not in the snapshot.
+     */
+    public static Map<String, Integer> shortestPathFrom(@NonNull ViewSnapshot snapshot, @NonNull Node start, @NonNull EdgeFilter edgeFilter, int direction) {
+        int s = snapshot.indexOf(start);
+        if (s < 0) {
+            Logger.getInstance().warning("Cannot find the shorted path length from start node " + start.getId() +
+                    " since start node is not found in snapshot of view " + snapshot.getViewId());
+            return null;
         }
 
-        // Go from end to start.
-        while (!stack.isEmpty()) {
-            Node w = stack.pop();
-            for (Node v : predecessors.get(w)) {
-                double coeff = (sigma.get(v) / sigma.get(w)) * (1.0 + delta.get(w));
-                delta.put(v, delta.get(v) + coeff);
-            }
+        edgeFilter.buildTypeSet();
+        int[] distance = new int[snapshot.nodeCount()];
+        int[] queue = new int[snapshot.nodeCount()];
+        int visited = bfs(snapshot, s, edgeFilter, direction, distance, queue);
 
-            if (w != start) {
-                betweennessMap.replace(w.getId(), betweennessMap.get(w.getId()) + delta.get(w));
-            }
+        Map<String, Integer> distances = new HashMap<>();
+        for (int i = 0; i < visited; i++) {
+            distances.put(snapshot.getNode(queue[i]).getId(), distance[queue[i]]);
         }
+        return distances;
     }
 
     /**
-     * Calculate the katz centrality for each node.
-     *
-     * @param view - Aim view.
-     * @param edgeFilter - Edge filter
-     * @param param - Pre-set parameters.
-     * @return - Katz centrality for each node.
+     * Calculate maximum distance from start node to all other nodes.
      *
-     * @see KatzCentralityParam
+     * @param snapshot - The snapshot contains start node.
+     * @param start - Start node.
+     * @param edgeFilter - Edge filter.
+     * @return - The maximum distance from start node to all other nodes. Return -1 if start node does not in the snapshot.
      */
-    public static Map<String, Double> katzCentrality(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull KatzCentralityParam param) {
-        double alpha = param.getAlpha();
-        double beta = param.getBeta();
-        int maxIteration = param.getMax_iteration();
-        double tol = param.getTol();
-        boolean careAscendant = true;
-        boolean careDescendant = true;
-
-        if (param.getNeighborConsideration() == 0) {
-            careDescendant = false;
-        } else if (param.getNeighborConsideration() == 1) {
-            careAscendant = false;
+    public static double eccentricity(@NonNull ViewSnapshot snapshot, @NonNull Node start, @NonNull EdgeFilter edgeFilter) {
+        int s = snapshot.indexOf(start);
+        if (s < 0) {
+            Logger.getInstance().warning("Cannot calculate eccentricity from start node " + start.getId() +
+                    " since start node is not found in snapshot of view " + snapshot.getViewId());
+            return -1.0;
         }
 
-        Map<String, Double> oldCentrality = new HashMap<>();
-        Map<String, Double> newCentrality = new HashMap<>();
+        edgeFilter.buildTypeSet();
+        int[] distance = new int[snapshot.nodeCount()];
+        int[] queue = new int[snapshot.nodeCount()];
+        int visited = bfs(snapshot, s, edgeFilter, 0, distance, queue);
+        return distance[queue[visited - 1]];
+    }
 
-        for (Node node : view.getAllNode()) {
-            oldCentrality.put(node.getId(), beta);
+    /**
+     * Calculate the mean degree of the neighbours of aim node in the snapshot.
+     *
+     * @param snapshot - The snapshot contains aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @param considerSide - 0 for only consider the in-edge, 1 for only consider the out-edge, other number means both.
+     * @return - The mean degree of the neighbours of aim node, return -1 if aim node does not in the snapshot
+     */
+    public static double meanConnectivityDegree(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter, int considerSide) {
+        if (snapshot.indexOf(node) < 0) {
+            Logger.getInstance().warning("Cannot calculate the mean degree connectivity of node " + node.getId() +
+                    " since node is not found in snapshot of view " + snapshot.getViewId());
+            return -1;
         }
+        edgeFilter.buildTypeSet();
 
-        for (int iteration = 0; iteration < maxIteration; iteration++) {
-            for (Node node : view.getAllNode()) {
-                double sum = 0;
-                List<Node> neighborNodes = new ArrayList<>();
-
-                if (careAscendant) {
-                    List<Node> ascendantNodes = ascendantNodes(view, node, edgeFilter);
-                    if (ascendantNodes != null) {
-                        neighborNodes.addAll(ascendantNodes);
-                    }
-                }
-
-                if (careDescendant) {
-                    List<Node> descendantNodes = descendantNodes(view, node, edgeFilter);
-                    if (descendantNodes != null) {
-                        neighborNodes.addAll(descendantNodes);
-                    }
-                }
-
-                for (Node neighbourNode : neighborNodes) {
-                    sum += oldCentrality.get(neighbourNode.getId());
-                }
-                newCentrality.put(node.getId(), beta + alpha * sum);
+        double total = 0.0;
+        List<Node> neighbours = neighbor(snapshot, node, edgeFilter);
+        double numberOfNeighbour = neighbours.size();
+        for (Node neighbour : neighbours) {
+            if (considerSide != 0) {
+                total += outDegree(snapshot, node, edgeFilter);
             }
 
-            if (converged(oldCentrality, newCentrality, tol)) {
-                break;
+            if (considerSide != 1) {
+                total += inDegree(snapshot, node, edgeFilter);
             }
-
-            oldCentrality.replaceAll((i, v) -> newCentrality.get(i));
         }
-        return newCentrality;
+
+        return total / numberOfNeighbour;
     }
 
     /**
-     * Check if the calculate result converge. The different between old value and new value less than tolerance threshold.
-     *
-     * @param oldValues - Nodes old value.
-     * @param newValues - Nodes new value.
-     * @param tol - Tolerance for difference.
-     * @return
+     * Calculate the clustering coefficient for the aim node in the snapshot.
+     * Since the graph is directed, the function to calculate the coefficient will be changed:
+     * the total possible edges between neighbors should be twice since we need to consider the two directions.
+     *
+     * @param snapshot - The snapshot contains aim node.
+     * @param node - Aim node.
+     * @param edgeFilter - Edge filter.
+     * @return - The cluster coefficient of aim node. Return null if the node does not exist in the snapshot.
+     */
+    public static Double clusterCoefficient(@NonNull ViewSnapshot snapshot, @NonNull Node node, @NonNull EdgeFilter edgeFilter) {
+        int v = snapshot.indexOf(node);
+        if (v < 0) {
+            Logger.getInstance().warning("Cannot calculate the cluster coefficient of node " + node.getId() +
+                    " since node is not found in snapshot of view " + snapshot.getViewId());
+            return null;
+        }
+        edgeFilter.buildTypeSet();
+
+        int neighbourSize = 0;
+        Set<Integer> neighbourSet = new HashSet<>();
+        for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+            if (snapshot.allowsIn(edgeFilter, slot)) {
+                neighbourSet.add(snapshot.inSource(slot));
+                neighbourSize++;
+            }
+        }
+        for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+            if (snapshot.allowsOut(edgeFilter, slot)) {
+                neighbourSet.add(snapshot.outTarget(slot));
+                neighbourSize++;
+            }
+        }
+
+        if (neighbourSize < 2) {
+            return 0.0;
+        }
+
+        // Every edge between two neighbours starts from a neighbour, so scanning the out slots of each distinct
+        // neighbour visits each of these edges exactly once.
+        double existingEdgeBetweenNeighbors = 0.0;
+        double totalPossibleEdgesBetweenNeighbors = (double) neighbourSize * (neighbourSize - 1);
+        for (int u : neighbourSet) {
+            for (int slot = snapshot.outStart(u); slot < snapshot.outEnd(u); slot++) {
+                int w = snapshot.outTarget(slot);
+                if (w != u && snapshot.allowsOut(edgeFilter, slot) && neighbourSet.contains(w)) {
+                    existingEdgeBetweenNeighbors++;
+                }
+            }
+        }
+
+        return existingEdgeBetweenNeighbors / totalPossibleEdgesBetweenNeighbors;
+    }
+
+    /**
+     * Calculate the closeness centrality for all the node in the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param direction - 0 for only descendants, 1 for only ascendants, others for two direction.
+     * @return - The closeness centrality for all nodes in the view.
+     */
+    public static Map<String, Double> closenessCentrality(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull int direction) {
+        return closenessCentrality(view.freeze(), edgeFilter, direction);
+    }
+
+    /**
+     * Calculate the closeness centrality for all the node in the snapshot.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param direction - 0 for only descendants, 1 for only ascendants, others for two direction.
+     * @return - The closeness centrality for all nodes in the snapshot.
+     */
+    public static Map<String, Double> closenessCentrality(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, int direction) {
+        edgeFilter.buildTypeSet();
+        MultiSourceBfs bfs = new MultiSourceBfs(snapshot, edgeFilter, direction, -1).run();
+        if (bfs == null) {
+            return null;
+        }
+
+        Map<String, Double> closenessMap = new HashMap<>();
+        for (int v = 0; v < snapshot.nodeCount(); v++) {
+            // The start node itself is not counted.
+            double numPath = bfs.reached(v);
+            double countPathLength = bfs.distanceSum(v);
+
+            if (numPath == 0.0 || countPathLength == 0.0) {
+                closenessMap.put(snapshot.getNode(v).getId(), 0.0);
+                continue;
+            }
+
+            closenessMap.put(snapshot.getNode(v).getId(), 1 / (countPathLength / numPath));
+        }
+
+        return closenessMap;
+    }
+
+    /**
+     * Calculate the eccentricity for all the node in the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @return - The maximum distance from each node to all other nodes. Return null if the calculation fails.
+     */
+    public static Map<String, Double> eccentricity(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        return eccentricity(view.freeze(), edgeFilter);
+    }
+
+    /**
+     * Calculate the eccentricity for all the node in the snapshot, the bfs of 64 nodes are run together.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @return - The maximum distance from each node to all other nodes. Return null if the calculation fails.
+     */
+    public static Map<String, Double> eccentricity(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter) {
+        edgeFilter.buildTypeSet();
+        MultiSourceBfs bfs = new MultiSourceBfs(snapshot, edgeFilter, 0, -1).run();
+        if (bfs == null) {
+            return null;
+        }
+
+        Map<String, Double> eccentricityMap = new HashMap<>();
+        for (int v = 0; v < snapshot.nodeCount(); v++) {
+            eccentricityMap.put(snapshot.getNode(v).getId(), (double) bfs.eccentricity(v));
+        }
+        return eccentricityMap;
+    }
+
+    /**
+     * Calculate the cluster coefficient for all the node in the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param directed - True for the directed coefficient, same as clusterCoefficient(view, node, edgeFilter). False
+     *                 for the coefficient of the simple undirected graph.
+     * @return - The cluster coefficients with the triangle count and the global transitivity.
+     */
+    public static ClusteringResult clusterCoefficient(@NonNull View view, @NonNull EdgeFilter edgeFilter, boolean directed) {
+        return clusterCoefficient(view.freeze(), edgeFilter, directed);
+    }
+
+    /**
+     * Calculate the cluster coefficient for all the node in the snapshot. The triangles are counted once over the
+     * degree ordered adjacency in parallel, instead of scanning the neighbours of neighbours of each node.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param directed - True for the directed coefficient, same as clusterCoefficient(snapshot, node, edgeFilter).
+     *                 False for the coefficient of the simple undirected graph, 2 * t / (d * (d - 1)), where t is the
+     *                 number of triangles through the node and d is the number of distinct neighbours.
+     * @return - The cluster coefficients with the triangle count and the global transitivity.
+     */
+    public static ClusteringResult clusterCoefficient(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, boolean directed) {
+        edgeFilter.buildTypeSet();
+        TriangleCounting counting = new TriangleCounting(snapshot, edgeFilter).run();
+
+        Map<String, Double> coefficients = new HashMap<>();
+        for (int v = 0; v < snapshot.nodeCount(); v++) {
+            coefficients.put(snapshot.getNode(v).getId(),
+                    directed ? counting.directedCoefficient(v) : counting.undirectedCoefficient(v));
+        }
+
+        ClusteringResult result = new ClusteringResult();
+        result.setCoefficients(coefficients);
+        result.setTriangles(counting.totalTriangles());
+        result.setTransitivity(counting.transitivity());
+        return result;
+    }
+
+    /**
+     * Calculate the diameter of the view. Use eccentricityBounds to get the radius, the center and the bounds together.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @return - The max eccentricity of all nodes, ignoring the edge directions.
+     */
+    public static int diameter(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        return eccentricityBounds(view.freeze(), edgeFilter).getDiameter();
+    }
+
+    /**
+     * Calculate the diameter of the snapshot.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @return - The max eccentricity of all nodes, ignoring the edge directions.
+     */
+    public static int diameter(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter) {
+        return eccentricityBounds(snapshot, edgeFilter).getDiameter();
+    }
+
+    /**
+     * Calculate the radius of the view. Use eccentricityBounds to get the diameter, the center and the bounds together.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @return - The min eccentricity of all nodes, ignoring the edge directions.
+     */
+    public static int radius(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        return eccentricityBounds(view.freeze(), edgeFilter).getRadius();
+    }
+
+    /**
+     * Calculate the radius of the snapshot.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @return - The min eccentricity of all nodes, ignoring the edge directions.
+     */
+    public static int radius(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter) {
+        return eccentricityBounds(snapshot, edgeFilter).getRadius();
+    }
+
+    /**
+     * Find the center of the view. Use eccentricityBounds to get the diameter, the radius and the bounds together.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @return - The ids of the nodes whose eccentricity is the radius, ignoring the edge directions.
+     */
+    public static List<String> center(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        return eccentricityBounds(view.freeze(), edgeFilter).getCenter();
+    }
+
+    /**
+     * Find the center of the snapshot.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @return - The ids of the nodes whose eccentricity is the radius, ignoring the edge directions.
      */
-    private static boolean converged(Map<String, Double> oldValues, Map<String, Double> newValues, double tol) {
-        for (String nodeId : oldValues.keySet()) {
-            if (Math.abs(oldValues.get(nodeId) - newValues.get(nodeId)) > tol) {
-                return false;
+    public static List<String> center(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter) {
+        return eccentricityBounds(snapshot, edgeFilter).getCenter();
+    }
+
+    /**
+     * Calculate the diameter, radius and center of the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @return - The diameter, radius and center, with the eccentricity bounds of all nodes.
+     */
+    public static EccentricityBounds eccentricityBounds(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        return eccentricityBounds(view.freeze(), edgeFilter);
+    }
+
+    /**
+     * Calculate the diameter, radius and center of the snapshot by bounding the eccentricities, which usually needs
+     * a few bfs instead of one bfs per node. The distances ignore the edge directions, and the eccentricity of a node
+     * is the max distance to the nodes in its component. The bounds are kept in the result for reuse, every center
+     * node has the exact eccentricity.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @return - The diameter, radius and center, with the eccentricity bounds of all nodes.
+     */
+    public static EccentricityBounds eccentricityBounds(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter) {
+        edgeFilter.buildTypeSet();
+        BoundingEccentricities bounding = new BoundingEccentricities(snapshot, edgeFilter).run();
+
+        List<String> center = new ArrayList<>();
+        Map<String, Integer> lowerBounds = new HashMap<>();
+        Map<String, Integer> upperBounds = new HashMap<>();
+        for (int v = 0; v < snapshot.nodeCount(); v++) {
+            String id = snapshot.getNode(v).getId();
+            lowerBounds.put(id, bounding.lower(v));
+            upperBounds.put(id, bounding.upper(v));
+            if (bounding.upper(v) == bounding.radius()) {
+                center.add(id);
             }
         }
+
+        EccentricityBounds result = new EccentricityBounds();
+        result.setDiameter(bounding.diameter());
+        result.setRadius(bounding.radius());
+        result.setCenter(center);
+        result.setLowerBounds(lowerBounds);
+        result.setUpperBounds(upperBounds);
+        result.setBfsCount(bounding.bfsCount());
+        return result;
+    }
+
+    /**
+     * Get the number of ascendants for all the node in the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param maxDistance - The max distance. Set to max integer value if input less than or equal to 0.
+     * @return - The number of ascendants of each node. Return null if the calculation fails.
+     */
+    public static Map<String, Integer> ascendants(@NonNull View view, @NonNull EdgeFilter edgeFilter, int maxDistance) {
+        return ascendants(view.freeze(), edgeFilter, maxDistance);
+    }
+
+    /**
+     * Get the number of ascendants for all the node in the snapshot, the bfs of 64 nodes are run together.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param maxDistance - The max distance. Set to max integer value if input less than or equal to 0.
+     * @return - The number of ascendants of each node, same as ascendants(snapshot, node, edgeFilter, maxDistance).
+     * Return null if the calculation fails.
+     */
+    public static Map<String, Integer> ascendants(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, int maxDistance) {
+        return reachableCounts(snapshot, edgeFilter, 1, maxDistance);
+    }
+
+    /**
+     * Get the number of descendants for all the node in the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param maxDistance - The max distance. Set to max integer value if input less than or equal to 0.
+     * @return - The number of descendants of each node. Return null if the calculation fails.
+     */
+    public static Map<String, Integer> descendants(@NonNull View view, @NonNull EdgeFilter edgeFilter, int maxDistance) {
+        return descendants(view.freeze(), edgeFilter, maxDistance);
+    }
+
+    /**
+     * Get the number of descendants for all the node in the snapshot, the bfs of 64 nodes are run together.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param maxDistance - The max distance. Set to max integer value if input less than or equal to 0.
+     * @return - The number of descendants of each node, same as descendants(snapshot, node, edgeFilter, maxDistance).
+     * Return null if the calculation fails.
+     */
+    public static Map<String, Integer> descendants(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, int maxDistance) {
+        return reachableCounts(snapshot, edgeFilter, 0, maxDistance);
+    }
+
+    /**
+     * Build the reachability index of the view, which answers the unbounded ascendant and descendant counts and the
+     * reachability between two nodes without bfs.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @return - The index of the current snapshot of view.
+     */
+    public static ReachabilityIndex reachabilityIndex(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        return ReachabilityIndex.build(view.freeze(), edgeFilter);
+    }
+
+    /**
+     * Follow the Brandes algorithm which calculate the betweenness centrality for all nodes by cutting the big graph
+     * into small chunks to improve the efficiency.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @return - The betweenness centrality for all nodes in the view.
+     */
+    public static Map<String, Double> betweennessCentrality(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        return betweennessCentrality(view.freeze(), edgeFilter);
+    }
+
+    /**
+     * Follow the Brandes algorithm which calculate the betweenness centrality for all nodes in the snapshot, the
+     * sources are split across all available processors.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @return - The betweenness centrality for all nodes in the snapshot.
+     */
+    public static Map<String, Double> betweennessCentrality(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter) {
+        return betweennessCentrality(snapshot, edgeFilter, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Follow the Brandes algorithm which calculate the betweenness centrality for all nodes in the snapshot. The
+     * sources are split across the workers in the common fork join pool, each worker accumulates into its own array
+     * and the arrays are summed at the end, so the result may differ from the sequential one by rounding.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param parallelism - The number of workers, 1 runs in the calling thread.
+     * @return - The betweenness centrality for all nodes in the snapshot, return null if the calculation fails.
+     */
+    public static Map<String, Double> betweennessCentrality(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter,
+                                                            int parallelism) {
+        edgeFilter.buildTypeSet();
+        int n = snapshot.nodeCount();
+        int workers = Math.max(1, Math.min(parallelism, n));
+        double[] betweenness = new BrandesBetweenness(snapshot, edgeFilter).compute(ForkJoinPool.commonPool(), workers);
+        if (betweenness == null) {
+            return null;
+        }
+
+        Map<String, Double> betweennessMap = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            betweennessMap.put(snapshot.getNode(v).getId(), betweenness[v]);
+        }
+        return betweennessMap;
+    }
+
+    /**
+     * Approximate the betweenness centrality for all nodes by sampling shortest paths, which is much faster than
+     * betweennessCentrality on large views.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param epsilon - Additive error of the normalized betweenness, between 0 and 1.
+     * @param delta - The probability that some node is out of the error, between 0 and 1.
+     * @return - The estimated betweenness centrality for all nodes in the view, on the same scale as
+     * betweennessCentrality. Return null if the parameters are invalid.
+     *
+     * @see ApproximateBetweennessParam
+     */
+    public static Map<String, Double> approximateBetweenness(@NonNull View view, @NonNull EdgeFilter edgeFilter, double epsilon, double delta) {
+        ApproximateBetweennessParam param = new ApproximateBetweennessParam();
+        param.setEpsilon(epsilon);
+        param.setDelta(delta);
+        return approximateBetweenness(view.freeze(), edgeFilter, param);
+    }
+
+    /**
+     * Approximate the betweenness centrality for all nodes in the snapshot by sampling shortest paths. With
+     * probability at least 1 - delta, the estimation of every node divided by n * (n - 1) is within epsilon of the
+     * exact one divided by n * (n - 1).
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param param - Pre-set parameters.
+     * @return - The estimated betweenness centrality for all nodes in the snapshot, on the same scale as
+     * betweennessCentrality. Return null if the parameters are invalid.
+     *
+     * @see ApproximateBetweennessParam
+     */
+    public static Map<String, Double> approximateBetweenness(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter,
+                                                             @NonNull ApproximateBetweennessParam param) {
+        if (!(param.getEpsilon() > 0 && param.getEpsilon() < 1) || !(param.getDelta() > 0 && param.getDelta() < 1)) {
+            Logger.getInstance().error("Epsilon and delta of approximate betweenness should be between 0 and 1.");
+            return null;
+        }
+
+        edgeFilter.buildTypeSet();
+        int n = snapshot.nodeCount();
+        double[] betweenness = new ApproximateBetweenness(snapshot, edgeFilter, param).compute();
+
+        Map<String, Double> betweennessMap = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            betweennessMap.put(snapshot.getNode(v).getId(), betweenness[v]);
+        }
+        return betweennessMap;
+    }
+
+    /**
+     * Calculate the katz centrality for each node.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter
+     * @param param - Pre-set parameters.
+     * @return - Katz centrality for each node.
+     *
+     * @see KatzCentralityParam
+     */
+    public static Map<String, Double> katzCentrality(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull KatzCentralityParam param) {
+        return katzCentrality(view.freeze(), edgeFilter, param);
+    }
+
+    /**
+     * Calculate the katz centrality for each node in the snapshot. Each iteration is a sparse matrix-vector product
+     * over the adjacency compiled once from the snapshot, and stops when the max change of all nodes is within the
+     * tolerance.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter
+     * @param param - Pre-set parameters.
+     * @return - Katz centrality for each node.
+     *
+     * @see KatzCentralityParam
+     */
+    public static Map<String, Double> katzCentrality(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull KatzCentralityParam param) {
+        double alpha = param.getAlpha();
+        double beta = param.getBeta();
+        int maxIteration = param.getMax_iteration();
+        double tol = param.getTol();
+        boolean careAscendant = true;
+        boolean careDescendant = true;
+
+        if (param.getNeighborConsideration() == 0) {
+            careDescendant = false;
+        } else if (param.getNeighborConsideration() == 1) {
+            careAscendant = false;
+        }
+
+        Map<String, Double> result = new HashMap<>();
+        if (maxIteration <= 0) {
+            return result;
+        }
+
+        edgeFilter.buildTypeSet();
+        int n = snapshot.nodeCount();
+        CsrMatrix adjacency = CsrMatrix.adjacency(snapshot, edgeFilter, careAscendant, careDescendant);
+        double[] oldCentrality = new double[n];
+        double[] newCentrality = new double[n];
+        Arrays.fill(oldCentrality, beta);
+
+        for (int iteration = 0; iteration < maxIteration; iteration++) {
+            if (adjacency.multiply(oldCentrality, newCentrality, alpha, beta) <= tol) {
+                break;
+            }
+
+            if (iteration < maxIteration - 1) {
+                double[] swap = oldCentrality;
+                oldCentrality = newCentrality;
+                newCentrality = swap;
+            }
+        }
+
+        for (int v = 0; v < n; v++) {
+            result.put(snapshot.getNode(v).getId(), newCentrality[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Approximate the personalized PageRank of the seeds in the view, to rank the nodes related to the seeds. The
+     * walk moves along the filtered edges in both directions and jumps back to the seeds with probability alpha. The
+     * residuals are pushed from the seeds over the live view, so the cost depends on epsilon and the neighbourhood
+     * of the seeds but not on the size of the view. The view should not be changed during the calculation.
+     *
+     * @param view - Aim view.
+     * @param seeds - Seed nodes, the walk jumps back to each of them with the same probability.
+     * @param edgeFilter - Edge filter.
+     * @param alpha - The probability to jump back to the seeds, between 0 and 1. Smaller alpha reaches further.
+     * @param epsilon - The residual tolerance per edge, the estimate of node v is below the exact one by less than
+     *                epsilon * degree(v).
+     * @return - Node id to estimated PageRank for the nodes reached from the seeds. Return null if some seed does not
+     * exist in the view or the parameters are invalid.
+     */
+    public static Map<String, Double> personalizedPageRank(@NonNull View view, @NonNull Collection<Node> seeds, @NonNull EdgeFilter edgeFilter,
+                                                           double alpha, double epsilon) {
+        if (!validPersonalizedPageRank(seeds, alpha, epsilon)) {
+            return null;
+        }
+
+        int[] seedIndexes = new int[seeds.size()];
+        int i = 0;
+        for (Node seed : seeds) {
+            int index = view.indexOf(seed);
+            if (index < 0) {
+                Logger.getInstance().warning("Cannot calculate the personalized PageRank of node " + seed.getId() +
+                        " since node is not found in view " + view.getViewId());
+                return null;
+            }
+            seedIndexes[i++] = index;
+        }
+
+        edgeFilter.buildTypeSet();
+        return PageRank.of(view, edgeFilter).personalized(seedIndexes, alpha, epsilon);
+    }
+
+    /**
+     * Approximate the personalized PageRank of the seeds in the snapshot by forward push, same as
+     * personalizedPageRank(view, seeds, edgeFilter, alpha, epsilon).
+     *
+     * @param snapshot - Aim snapshot.
+     * @param seeds - Seed nodes, the walk jumps back to each of them with the same probability.
+     * @param edgeFilter - Edge filter.
+     * @param alpha - The probability to jump back to the seeds, between 0 and 1.
+     * @param epsilon - The residual tolerance per edge.
+     * @return - Node id to estimated PageRank for the nodes reached from the seeds. Return null if some seed does not
+     * exist in the snapshot or the parameters are invalid.
+     */
+    public static Map<String, Double> personalizedPageRank(@NonNull ViewSnapshot snapshot, @NonNull Collection<Node> seeds,
+                                                           @NonNull EdgeFilter edgeFilter, double alpha, double epsilon) {
+        if (!validPersonalizedPageRank(seeds, alpha, epsilon)) {
+            return null;
+        }
+
+        int[] seedIndexes = new int[seeds.size()];
+        int i = 0;
+        for (Node seed : seeds) {
+            seedIndexes[i] = snapshot.indexOf(seed);
+            if (seedIndexes[i++] < 0) {
+                Logger.getInstance().warning("Cannot calculate the personalized PageRank of node " + seed.getId() +
+                        " since node is not found in snapshot of view " + snapshot.getViewId());
+                return null;
+            }
+        }
+
+        edgeFilter.buildTypeSet();
+        return PageRank.of(snapshot, edgeFilter).personalized(seedIndexes, alpha, epsilon);
+    }
+
+    private static boolean validPersonalizedPageRank(Collection<Node> seeds, double alpha, double epsilon) {
+        if (seeds.isEmpty()) {
+            Logger.getInstance().error("Personalized PageRank needs at least one seed.");
+            return false;
+        }
+        if (!(alpha > 0 && alpha < 1) || !(epsilon > 0)) {
+            Logger.getInstance().error("Alpha of personalized PageRank should be between 0 and 1, and epsilon should be positive.");
+            return false;
+        }
         return true;
     }
+
+    /**
+     * Calculate the global PageRank for each node in the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Pre-set parameters.
+     * @return - PageRank for each node, the sum is 1. Return null if the parameters are invalid.
+     *
+     * @see PageRankParam
+     */
+    public static Map<String, Double> pageRank(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull PageRankParam param) {
+        return pageRank(view.freeze(), edgeFilter, param);
+    }
+
+    /**
+     * Calculate the global PageRank for each node in the snapshot, on the same walk as personalizedPageRank with
+     * all nodes as the seeds. Each iteration is a parallel sparse matrix-vector product over the adjacency compiled
+     * once from the snapshot.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param param - Pre-set parameters.
+     * @return - PageRank for each node, the sum is 1. Return null if the parameters are invalid.
+     *
+     * @see PageRankParam
+     */
+    public static Map<String, Double> pageRank(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull PageRankParam param) {
+        if (!(param.getAlpha() > 0 && param.getAlpha() < 1)) {
+            Logger.getInstance().error("Alpha of PageRank should be between 0 and 1.");
+            return null;
+        }
+
+        edgeFilter.buildTypeSet();
+        double[] rank = PageRank.global(snapshot, edgeFilter, param.getAlpha(), param.getTol(), param.getMaxIteration());
+
+        Map<String, Double> result = new HashMap<>();
+        for (int v = 0; v < snapshot.nodeCount(); v++) {
+            result.put(snapshot.getNode(v).getId(), rank[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Extract the features for all nodes in the view.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param featureSet - The features to extract.
+     * @return - The feature matrix, return null if the extraction fails.
+     */
+    public static FeatureMatrix extractFeatureMatrix(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull Set<Feature> featureSet) {
+        return extractFeatureMatrix(view.freeze(), edgeFilter, featureSet);
+    }
+
+    /**
+     * Extract the features for all nodes in the snapshot in one pass. The degrees are calculated in parallel over
+     * the nodes, the cluster coefficient comes from one triangle counting pass, and the traversal features share the multi-source
+     * bfs, one for ascendants and one for both descendants and eccentricity. The values are the same as the per node
+     * methods with no max distance.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @param featureSet - The features to extract.
+     * @return - The feature matrix, the columns are in the order of Feature. Return null if the extraction fails.
+     */
+    public static FeatureMatrix extractFeatureMatrix(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull Set<Feature> featureSet) {
+        edgeFilter.buildTypeSet();
+        int n = snapshot.nodeCount();
+        String[] nodeIds = new String[n];
+        for (int v = 0; v < n; v++) {
+            nodeIds[v] = snapshot.getNode(v).getId();
+        }
+        FeatureMatrix matrix = new FeatureMatrix(nodeIds, new ArrayList<>(featureSet.isEmpty()
+                ? EnumSet.noneOf(Feature.class) : EnumSet.copyOf(featureSet)));
+        if (n == 0) {
+            return matrix;
+        }
+
+        double[] inDegree = matrix.column(Feature.IN_DEGREE);
+        double[] outDegree = matrix.column(Feature.OUT_DEGREE);
+        double[] neighbourCount = matrix.column(Feature.NEIGHBOUR_COUNT);
+        double[] clusterCoefficient = matrix.column(Feature.CLUSTER_COEFFICIENT);
+        if (inDegree != null || outDegree != null || neighbourCount != null) {
+            int chunkSize = Math.max(1024, n / (4 * Runtime.getRuntime().availableProcessors()) + 1);
+            IntStream.range(0, (n + chunkSize - 1) / chunkSize).parallel().forEach(chunk -> {
+                for (int v = chunk * chunkSize; v < Math.min(n, (chunk + 1) * chunkSize); v++) {
+                    int in = 0;
+                    for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                        if (snapshot.allowsIn(edgeFilter, slot)) {
+                            in++;
+                        }
+                    }
+                    int out = 0;
+                    for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                        if (snapshot.allowsOut(edgeFilter, slot)) {
+                            out++;
+                        }
+                    }
+
+                    if (inDegree != null) {
+                        inDegree[v] = in;
+                    }
+                    if (outDegree != null) {
+                        outDegree[v] = out;
+                    }
+                    if (neighbourCount != null) {
+                        neighbourCount[v] = in + out;
+                    }
+                }
+            });
+        }
+        if (clusterCoefficient != null) {
+            TriangleCounting counting = new TriangleCounting(snapshot, edgeFilter).run();
+            for (int v = 0; v < n; v++) {
+                clusterCoefficient[v] = counting.directedCoefficient(v);
+            }
+        }
+
+        double[] ascendants = matrix.column(Feature.ASCENDANTS);
+        if (ascendants != null) {
+            MultiSourceBfs bfs = new MultiSourceBfs(snapshot, edgeFilter, 1, -1).run();
+            if (bfs == null) {
+                return null;
+            }
+            for (int v = 0; v < n; v++) {
+                ascendants[v] = bfs.reached(v) + (bfs.loop(v) ? 1 : 0);
+            }
+        }
+
+        double[] descendants = matrix.column(Feature.DESCENDANTS);
+        double[] eccentricity = matrix.column(Feature.ECCENTRICITY);
+        if (descendants != null || eccentricity != null) {
+            MultiSourceBfs bfs = new MultiSourceBfs(snapshot, edgeFilter, 0, -1).run();
+            if (bfs == null) {
+                return null;
+            }
+            for (int v = 0; v < n; v++) {
+                if (descendants != null) {
+                    descendants[v] = bfs.reached(v) + (bfs.loop(v) ? 1 : 0);
+                }
+                if (eccentricity != null) {
+                    eccentricity[v] = bfs.eccentricity(v);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Add the directly connected nodes of node v in the snapshot into the list.
+     *
+     * @param snapshot
+     * @param v - Node index.
+     * @param edgeFilter
+     * @param direction - 0 for descendants, 1 for ascendants.
+     * @param result
+     */
+    private static void collectNeighbours(ViewSnapshot snapshot, int v, EdgeFilter edgeFilter, int direction, List<Node> result) {
+        if (direction == 1) {
+            for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                if (snapshot.allowsIn(edgeFilter, slot)) {
+                    result.add(snapshot.getNode(snapshot.inSource(slot)));
+                }
+            }
+        } else {
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (snapshot.allowsOut(edgeFilter, slot)) {
+                    result.add(snapshot.getNode(snapshot.outTarget(slot)));
+                }
+            }
+        }
+    }
+
+    /**
+     * BFS in the snapshot from the start node.
+     *
+     * @param snapshot
+     * @param start - Index of start node.
+     * @param edgeFilter
+     * @param direction - 0 for only descendants, 1 for only ascendants, others for two direction.
+     * @param distance - Output, the distance of the visited nodes. Only the nodes in the queue are valid.
+     * @param queue - Output, the visited nodes in bfs order, the start node is the first one.
+     * @return - The number of visited nodes (include start node).
+     */
+    private static int bfs(ViewSnapshot snapshot, int start, EdgeFilter edgeFilter, int direction, int[] distance, int[] queue) {
+        Arrays.fill(distance, -1);
+        distance[start] = 0;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+
+        while (head < tail) {
+            int current = queue[head++];
+            int nextDistance = distance[current] + 1;
+
+            if (direction != 0) {
+                for (int slot = snapshot.inStart(current); slot < snapshot.inEnd(current); slot++) {
+                    int next = snapshot.inSource(slot);
+                    if (distance[next] < 0 && snapshot.allowsIn(edgeFilter, slot)) {
+                        distance[next] = nextDistance;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            if (direction != 1) {
+                for (int slot = snapshot.outStart(current); slot < snapshot.outEnd(current); slot++) {
+                    int next = snapshot.outTarget(slot);
+                    if (distance[next] < 0 && snapshot.allowsOut(edgeFilter, slot)) {
+                        distance[next] = nextDistance;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Count the nodes reachable from every node within max distance by multi-source bfs.
+     *
+     * @param snapshot
+     * @param edgeFilter
+     * @param direction - 0 for descendants, 1 for ascendants.
+     * @param maxDistance - Set to max integer value if input less than or equal to 0.
+     * @return - Node id to the number of reachable nodes, the node itself is only counted if it can be reached again
+     * through a loop. Return null if the calculation fails.
+     */
+    private static Map<String, Integer> reachableCounts(ViewSnapshot snapshot, EdgeFilter edgeFilter, int direction, int maxDistance) {
+        edgeFilter.buildTypeSet();
+        MultiSourceBfs bfs = new MultiSourceBfs(snapshot, edgeFilter, direction, maxDistance).run();
+        if (bfs == null) {
+            return null;
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int v = 0; v < snapshot.nodeCount(); v++) {
+            counts.put(snapshot.getNode(v).getId(), bfs.reached(v) + (bfs.loop(v) ? 1 : 0));
+        }
+        return counts;
+    }
+
+    /**
+     * Count the nodes reachable from the start node within max distance. The start node itself is only counted if
+     * it can be reached again through a loop.
+     *
+     * @param snapshot
+     * @param start - Index of start node.
+     * @param edgeFilter
+     * @param direction - 0 for descendants, 1 for ascendants.
+     * @param maxDistance - Set to max integer value if input less than or equal to 0.
+     * @return - The number of reachable nodes.
+     */
+    private static int reachableCount(ViewSnapshot snapshot, int start, EdgeFilter edgeFilter, int direction, int maxDistance) {
+        if (maxDistance <= 0) {
+            maxDistance = Integer.MAX_VALUE;
+        }
+
+        int n = snapshot.nodeCount();
+        int[] distance = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(distance, -1);
+        distance[start] = 0;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+        boolean startReached = false;
+
+        while (head < tail) {
+            int current = queue[head++];
+            if (distance[current] >= maxDistance) {
+                continue;
+            }
+
+            int begin = direction == 1 ? snapshot.inStart(current) : snapshot.outStart(current);
+            int end = direction == 1 ? snapshot.inEnd(current) : snapshot.outEnd(current);
+            for (int slot = begin; slot < end; slot++) {
+                if (direction == 1 ? !snapshot.allowsIn(edgeFilter, slot) : !snapshot.allowsOut(edgeFilter, slot)) {
+                    continue;
+                }
+
+                int next = direction == 1 ? snapshot.inSource(slot) : snapshot.outTarget(slot);
+                if (next == start) {
+                    startReached = true;
+                } else if (distance[next] < 0) {
+                    distance[next] = distance[current] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return tail - 1 + (startReached ? 1 : 0);
+    }
 }
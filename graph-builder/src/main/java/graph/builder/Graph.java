@@ -1,25 +1,61 @@
 package graph.builder;
 
 import graph.builder.common.NodeOptions;
+import graph.builder.entity.node.Node;
 import graph.builder.exception.GraphBuilderException;
 import graph.builder.manager.CrawlerManager;
+import graph.builder.util.PayloadStore;
 import graph.builder.util.Random;
+import graph.builder.util.StringPool;
 import lombok.NonNull;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * API Graph service
+ *
+ * The views can be created and found from several threads, the content of a view is only thread safe if it is a
+ * ConcurrentView. Close the graph to free the off-heap payloads of its nodes.
  */
-public class Graph {
+public class Graph implements AutoCloseable {
+    /**
+     * The views in the order they are created, copied on write so the list can be read while views are created.
+     */
     private List<View> viewList;
 
+    /**
+     * View id to view.
+     */
+    private Map<String, View> viewIdIndex;
+
+    /**
+     * The id of node in parent view to the view it points to.
+     */
+    private Map<String, View> parentNodeIdIndex;
+
+    /**
+     * Dedup pool for the strings repeated across the nodes of all views.
+     */
+    private final StringPool stringPool;
+
+    /**
+     * Off-heap store for the large payloads of the nodes in all views.
+     */
+    private final PayloadStore payloadStore;
+
     /**
      * No args constructor.
      */
     public Graph() {
-        viewList = new ArrayList<>();
+        viewList = new CopyOnWriteArrayList<>();
+        viewIdIndex = new HashMap<>();
+        parentNodeIdIndex = new HashMap<>();
+        stringPool = new StringPool();
+        payloadStore = new PayloadStore();
     }
 
     /**
@@ -72,14 +108,82 @@ public class Graph {
      * @return
      */
     public View createView(String id) {
-        View view = new View();
+        return register(new View(), id);
+    }
+
+    /**
+     * Create and return the view which can be fed by several threads.
+     *
+     * @return
+     */
+    public ConcurrentView createConcurrentView() {
+        return createConcurrentView(Random.generateId());
+    }
+
+    /**
+     * Create and return the view which can be fed by several threads.
+     *
+     * @param id - view id.
+     * @return
+     */
+    public ConcurrentView createConcurrentView(String id) {
+        return register(new ConcurrentView(), id);
+    }
+
+    /**
+     * Put the new view into the graph.
+     *
+     * @param view
+     * @param id - view id.
+     * @return - The view.
+     */
+    private synchronized <T extends View> T register(T view, String id) {
+        view.setGraph(this);
         view.setId(id);
         viewList.add(view);
         return view;
     }
 
+    /**
+     * Get the string pool shared by the views.
+     *
+     * @return
+     */
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * Get the payload store shared by the views.
+     *
+     * @return
+     */
+    public PayloadStore getPayloadStore() {
+        return payloadStore;
+    }
+
+    /**
+     * Free the payload store, the large payloads (such as inner html and http bodies) of the nodes still in the views
+     * read as null afterwards. The nodes also held by the views of another graph move their payloads into its store
+     * first.
+     */
+    @Override
+    public void close() {
+        for (View view : viewList) {
+            for (Node node : view.getAllNode()) {
+                node.evictPayloads(payloadStore);
+            }
+        }
+        payloadStore.close();
+    }
+
+    /**
+     * Get the views of graph, which is safe to iterate while other threads create views.
+     *
+     * @return - Read only list of views.
+     */
     public List<View> getViews() {
-        return viewList;
+        return Collections.unmodifiableList(viewList);
     }
 
     /**
@@ -87,7 +191,7 @@ public class Graph {
      *
      * @return
      */
-    public View getMainView() {
+    public synchronized View getMainView() {
         return viewList.get(0);
     }
 
@@ -97,16 +201,8 @@ public class Graph {
      * @param id
      * @return Return null if the view does not exists.
      */
-    public View findViewById(@NonNull String id) {
-        View view = null;
-
-        for (View v : viewList) {
-            if (v.getViewId().equals(id)) {
-                view = v;
-            }
-        }
-
-        return view;
+    public synchronized View findViewById(@NonNull String id) {
+        return viewIdIndex.get(id);
     }
 
     /**
@@ -115,16 +211,45 @@ public class Graph {
      * @param htmlNodeId
      * @return Return null if the view does not exists.
      */
-    public View findViewByRelatedNodeId(@NonNull String htmlNodeId) {
-        View view = null;
+    public synchronized View findViewByRelatedNodeId(@NonNull String htmlNodeId) {
+        return parentNodeIdIndex.get(htmlNodeId);
+    }
 
-        for (View v : viewList) {
-            if (v.getParentNodeId().equals(htmlNodeId)) {
-                view = v;
-            }
-        }
+    /**
+     * Update the view id index after the id of view changed.
+     *
+     * @param view
+     * @param oldId - The id before change.
+     */
+    synchronized void reindexViewId(View view, String oldId) {
+        reindex(viewIdIndex, view, oldId, view.getViewId());
+    }
 
-        return view;
+    /**
+     * Update the parent node id index after the parent node id of view changed.
+     *
+     * @param view
+     * @param oldId - The parent node id before change.
+     */
+    synchronized void reindexParentNodeId(View view, String oldId) {
+        reindex(parentNodeIdIndex, view, oldId, view.getParentNodeId());
+    }
+
+    /**
+     * Move the view from old key to new key. The later view wins if two views have the same key.
+     *
+     * @param index
+     * @param view
+     * @param oldKey
+     * @param newKey
+     */
+    private void reindex(Map<String, View> index, View view, String oldKey, String newKey) {
+        if (oldKey != null && index.get(oldKey) == view) {
+            index.remove(oldKey);
+        }
+        if (newKey != null) {
+            index.put(newKey, view);
+        }
     }
 
 }
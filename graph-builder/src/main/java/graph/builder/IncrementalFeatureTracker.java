@@ -0,0 +1,476 @@
+package graph.builder;
+
+import graph.builder.entity.edge.Edge;
+import graph.builder.entity.node.Node;
+import graph.builder.util.Adjacency;
+import graph.builder.vo.EdgeFilter;
+import lombok.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Opt-in tracker which keeps the degree features and the local triangle counts of all nodes in a view up to date
+ * while the view changes, such as during the script replay.
+ *
+ * The tracker listens to the edges connected and removed by the view (including the edges removed together with a
+ * node), and updates the features of the nodes around the changed edge in O(deg). The values are the same as
+ * FeatureExtraction on the current view:
+ * - in degree, out degree and neighbour count count the filtered edges.
+ * - the triangle count of node v is the number of filtered edges between two different neighbours of v, which is
+ *   the numerator of FeatureExtraction.clusterCoefficient.
+ *
+ * Attach the tracker when no other thread is changing the view. The queries find the int id of node by the view,
+ * so they can run while other threads change the view only if the view is a ConcurrentView.
+ */
+public class IncrementalFeatureTracker implements ViewListener {
+    private final View view;
+    private final EdgeFilter edgeFilter;
+
+    /**
+     * Node int id to node, kept by the tracker so that the queries do not go back to the view.
+     */
+    private Node[] nodes;
+
+    /**
+     * Node int id to the number of filtered in-edges and out-edges.
+     */
+    private int[] inDegree;
+    private int[] outDegree;
+
+    /**
+     * Node int id to the number of filtered edges between its neighbours.
+     */
+    private long[] triangles;
+
+    /**
+     * The number of filtered edges between two nodes in either direction, the two nodes are neighbours if it is
+     * positive.
+     */
+    private final PairCounts pairs;
+
+    /**
+     * Working array to dedup the neighbours, node int id to the last stamp which visits it.
+     */
+    private int[] mark;
+    private int stamp;
+
+    /**
+     * Calculate the features of the current view and start to track its changes.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     */
+    public IncrementalFeatureTracker(@NonNull View view, @NonNull EdgeFilter edgeFilter) {
+        this.view = view;
+        this.edgeFilter = edgeFilter;
+        edgeFilter.buildTypeSet();
+
+        int bound = Math.max(16, view.nodeIndexBound());
+        nodes = new Node[bound];
+        inDegree = new int[bound];
+        outDegree = new int[bound];
+        triangles = new long[bound];
+        mark = new int[bound];
+        pairs = new PairCounts();
+
+        for (int e = 0; e < view.edgeIndexBound(); e++) {
+            Edge edge = view.findEdgeByIndex(e);
+            int a = view.fromIndexOf(e);
+            int b = view.toIndexOf(e);
+            if (a >= 0 && b >= 0 && edgeFilter.contains(edge)) {
+                outDegree[a]++;
+                inDegree[b]++;
+                pairs.add(a, b, 1);
+            }
+        }
+
+        // Each edge between two neighbours starts from a neighbour, as in FeatureExtraction.clusterCoefficient.
+        for (int v = 0; v < view.nodeIndexBound(); v++) {
+            Node node = view.findNodeByIndex(v);
+            if (node == null) {
+                continue;
+            }
+            nodes[v] = node;
+            int visit = nextStamp();
+            long count = 0;
+            for (int side = 0; side < 2; side++) {
+                Adjacency adjacency = side == 0 ? view.inList(v) : view.outList(v);
+                for (int i = 0; i < adjacency.size(); i++) {
+                    int e = adjacency.get(i);
+                    Edge edge = view.findEdgeByIndex(e);
+                    int u = side == 0 ? view.fromIndexOf(e) : view.toIndexOf(e);
+                    if (!edgeFilter.contains(edge) || mark[u] == visit) {
+                        continue;
+                    }
+                    mark[u] = visit;
+                    count += linksFrom(u, v);
+                }
+            }
+            triangles[v] = count;
+        }
+
+        view.addListener(this);
+    }
+
+    /**
+     * Stop tracking the view, the values are not updated after that.
+     */
+    public void detach() {
+        view.removeListener(this);
+    }
+
+    /**
+     * Get the in degree of node.
+     *
+     * @param node - Aim node.
+     * @return - In degree of the node. Return -1 if the node does not exist in the view.
+     */
+    public int inDegree(@NonNull Node node) {
+        int v = view.indexOf(node);
+        synchronized (this) {
+            return tracks(node, v) ? inDegree[v] : -1;
+        }
+    }
+
+    /**
+     * Get the out degree of node.
+     *
+     * @param node - Aim node.
+     * @return - Out degree of the node. Return -1 if the node does not exist in the view.
+     */
+    public int outDegree(@NonNull Node node) {
+        int v = view.indexOf(node);
+        synchronized (this) {
+            return tracks(node, v) ? outDegree[v] : -1;
+        }
+    }
+
+    /**
+     * Get the number of neighbours of node.
+     *
+     * @param node - Aim node.
+     * @return - The number of neighbours for node. Return -1 if the node does not exist in the view.
+     */
+    public int neighbourCount(@NonNull Node node) {
+        int v = view.indexOf(node);
+        synchronized (this) {
+            return tracks(node, v) ? inDegree[v] + outDegree[v] : -1;
+        }
+    }
+
+    /**
+     * Get the local triangle count of node, which is the number of edges between two different neighbours.
+     *
+     * @param node - Aim node.
+     * @return - The triangle count. Return -1 if the node does not exist in the view.
+     */
+    public long triangles(@NonNull Node node) {
+        int v = view.indexOf(node);
+        synchronized (this) {
+            return tracks(node, v) ? triangles[v] : -1;
+        }
+    }
+
+    /**
+     * Get the cluster coefficient of node.
+     *
+     * @param node - Aim node.
+     * @return - Cluster coefficient, same as FeatureExtraction.clusterCoefficient. Return null if the node does not
+     * exist in the view.
+     */
+    public Double clusterCoefficient(@NonNull Node node) {
+        int v = view.indexOf(node);
+        synchronized (this) {
+            if (!tracks(node, v)) {
+                return null;
+            }
+
+            double neighbourSize = inDegree[v] + outDegree[v];
+            if (neighbourSize < 2) {
+                return 0.0;
+            }
+            return triangles[v] / (neighbourSize * (neighbourSize - 1));
+        }
+    }
+
+    @Override
+    public synchronized void nodeAdded(Node node, int index) {
+        ensureCapacity(index + 1);
+        nodes[index] = node;
+    }
+
+    @Override
+    public synchronized void nodeRemoved(Node node, int v) {
+        // The edges are removed before, only clear the int id for the next node.
+        nodes[v] = null;
+        inDegree[v] = 0;
+        outDegree[v] = 0;
+        triangles[v] = 0;
+    }
+
+    @Override
+    public synchronized void edgeConnected(Edge edge, int index, int a, int b) {
+        if (a < 0 || b < 0 || !edgeFilter.contains(edge)) {
+            return;
+        }
+
+        ensureCapacity(Math.max(a, b) + 1);
+        outDegree[a]++;
+        inDegree[b]++;
+
+        // The two sides become neighbours, count the other edges between the new neighbour and the old ones.
+        if (pairs.get(a, b) == 0) {
+            if (a == b) {
+                triangles[a] += linksOf(a, a, index);
+            } else {
+                triangles[a] += linksOf(b, a, index);
+                triangles[b] += linksOf(a, b, index);
+            }
+        }
+        pairs.add(a, b, 1);
+
+        // The edge itself is between two neighbours of every common neighbour of the two sides.
+        if (a != b) {
+            int visit = nextStamp();
+            forEachNeighbour(a, visit, v -> {
+                if (pairs.get(v, b) > 0) {
+                    triangles[v]++;
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized void edgeRemoved(Edge edge, int index, int a, int b) {
+        // The edge never connected is not counted.
+        if (a < 0 || b < 0 || !edgeFilter.contains(edge)) {
+            return;
+        }
+
+        // Reverse of edgeConnected, the edge is already unlinked from the two sides.
+        outDegree[a]--;
+        inDegree[b]--;
+
+        if (a != b) {
+            int visit = nextStamp();
+            NeighbourAction action = v -> {
+                if (pairs.get(v, b) > 0) {
+                    triangles[v]--;
+                }
+            };
+            forEachNeighbour(a, visit, action);
+            if (mark[b] != visit) {
+                mark[b] = visit;
+                action.accept(b);
+            }
+        }
+
+        pairs.add(a, b, -1);
+        if (pairs.get(a, b) == 0) {
+            if (a == b) {
+                triangles[a] -= linksOf(a, a, -1);
+            } else {
+                triangles[a] -= linksOf(b, a, -1);
+                triangles[b] -= linksOf(a, b, -1);
+            }
+        }
+    }
+
+    /**
+     * Check the node is tracked under the int id. The int id is found by the view before taking the lock of
+     * tracker, since the view calls the tracker while holding its own lock.
+     *
+     * @param node
+     * @param v - Node int id in the view.
+     * @return
+     */
+    private boolean tracks(Node node, int v) {
+        return v >= 0 && v < nodes.length && nodes[v] == node;
+    }
+
+    /**
+     * Count the filtered edges starting from u whose to side is another neighbour of v.
+     *
+     * @param u - Node int id.
+     * @param v - Node int id.
+     * @return
+     */
+    private long linksFrom(int u, int v) {
+        Adjacency out = view.outList(u);
+        long count = 0;
+        for (int i = 0; i < out.size(); i++) {
+            Edge edge = view.findEdgeByIndex(out.get(i));
+            int w = view.toIndexOf(out.get(i));
+            if (w != u && edgeFilter.contains(edge) && pairs.get(v, w) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the filtered edges in either direction between x and another neighbour of v.
+     *
+     * @param x - Node int id.
+     * @param v - Node int id.
+     * @param skip - The edge int id not to count, -1 for none.
+     * @return
+     */
+    private long linksOf(int x, int v, int skip) {
+        long count = 0;
+        for (int side = 0; side < 2; side++) {
+            Adjacency adjacency = side == 0 ? view.inList(x) : view.outList(x);
+            for (int i = 0; i < adjacency.size(); i++) {
+                int e = adjacency.get(i);
+                if (e == skip) {
+                    continue;
+                }
+                Edge edge = view.findEdgeByIndex(e);
+                int w = side == 0 ? view.fromIndexOf(e) : view.toIndexOf(e);
+                if (w != x && edgeFilter.contains(edge) && pairs.get(v, w) > 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Run the action on each distinct neighbour of node a.
+     *
+     * @param a - Node int id.
+     * @param visit - Stamp of this visit.
+     * @param action
+     */
+    private void forEachNeighbour(int a, int visit, NeighbourAction action) {
+        for (int side = 0; side < 2; side++) {
+            Adjacency adjacency = side == 0 ? view.inList(a) : view.outList(a);
+            for (int i = 0; i < adjacency.size(); i++) {
+                int e = adjacency.get(i);
+                Edge edge = view.findEdgeByIndex(e);
+                int u = side == 0 ? view.fromIndexOf(e) : view.toIndexOf(e);
+                if (mark[u] != visit && edgeFilter.contains(edge)) {
+                    mark[u] = visit;
+                    action.accept(u);
+                }
+            }
+        }
+    }
+
+    private int nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= inDegree.length) {
+            return;
+        }
+
+        int capacity = Math.max(size, inDegree.length + (inDegree.length >> 1));
+        nodes = Arrays.copyOf(nodes, capacity);
+        inDegree = Arrays.copyOf(inDegree, capacity);
+        outDegree = Arrays.copyOf(outDegree, capacity);
+        triangles = Arrays.copyOf(triangles, capacity);
+        mark = Arrays.copyOf(mark, capacity);
+    }
+
+    private interface NeighbourAction {
+        void accept(int v);
+    }
+
+    /**
+     * Open addressing map from an unordered node pair to a count, the pair is removed when the count drops to 0.
+     */
+    private static class PairCounts {
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+        private int[] counts;
+        private int size;
+
+        PairCounts() {
+            keys = new long[64];
+            counts = new int[64];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int get(int a, int b) {
+            int slot = find(key(a, b));
+            return keys[slot] == EMPTY ? 0 : counts[slot];
+        }
+
+        void add(int a, int b, int delta) {
+            long key = key(a, b);
+            int slot = find(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                counts[slot] = delta;
+                if (++size * 2 > keys.length) {
+                    rehash();
+                }
+                return;
+            }
+
+            counts[slot] += delta;
+            if (counts[slot] == 0) {
+                remove(slot);
+            }
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Remove the key in the slot, and shift back the following keys of the probe chain.
+         */
+        private void remove(int slot) {
+            int mask = keys.length - 1;
+            keys[slot] = EMPTY;
+            size--;
+            int next = (slot + 1) & mask;
+            while (keys[next] != EMPTY) {
+                long key = keys[next];
+                int count = counts[next];
+                keys[next] = EMPTY;
+                int target = find(key);
+                keys[target] = key;
+                counts[target] = count;
+                next = (next + 1) & mask;
+            }
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static long key(int a, int b) {
+            return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
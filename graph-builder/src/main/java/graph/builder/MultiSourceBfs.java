@@ -0,0 +1,284 @@
+package graph.builder;
+
+import graph.builder.util.IntList;
+import graph.builder.util.Logger;
+import graph.builder.vo.EdgeFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-source bfs over the snapshot (MS-BFS, Then et al.), which runs the bfs of 64 sources at once.
+ *
+ * Each node keeps a long bitset per array, bit i is source i of the batch. Going through the edges of a node moves
+ * all sources in its frontier to the neighbour with one OR, so the adjacency of a node is read once per batch
+ * instead of once per source. The batches are independent and are split across the workers in the common fork join
+ * pool.
+ *
+ * One traversal gives the reached count, the sum of distances and the eccentricity of every source, which are the
+ * base of closeness, eccentricity and the ascendant/descendant counts.
+ */
+class MultiSourceBfs {
+    /**
+     * The number of sources in one batch.
+     */
+    private static final int BATCH = Long.SIZE;
+
+    private final ViewSnapshot snapshot;
+    private final EdgeFilter edgeFilter;
+    private final boolean followIn;
+    private final boolean followOut;
+    private final int maxDistance;
+    private final int n;
+
+    /**
+     * Source index to the number of reached nodes, the source itself is not counted.
+     */
+    private final int[] reached;
+
+    /**
+     * Source index to the sum of distances of reached nodes.
+     */
+    private final long[] distanceSum;
+
+    /**
+     * Source index to the max distance of reached nodes, 0 if no node is reached.
+     */
+    private final int[] eccentricity;
+
+    /**
+     * Source index to whether the source reaches itself again through a loop.
+     */
+    private final boolean[] loop;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param direction - 0 for only descendants, 1 for only ascendants, others for two direction.
+     * @param maxDistance - The max distance to go, less than or equal to 0 means no limit.
+     */
+    MultiSourceBfs(ViewSnapshot snapshot, EdgeFilter edgeFilter, int direction, int maxDistance) {
+        this.snapshot = snapshot;
+        this.edgeFilter = edgeFilter;
+        this.followIn = direction != 0;
+        this.followOut = direction != 1;
+        this.maxDistance = maxDistance <= 0 ? Integer.MAX_VALUE : maxDistance;
+        this.n = snapshot.nodeCount();
+        this.reached = new int[n];
+        this.distanceSum = new long[n];
+        this.eccentricity = new int[n];
+        this.loop = new boolean[n];
+    }
+
+    /**
+     * Run the bfs from all nodes.
+     *
+     * @return - This, or null if the traversal is interrupted.
+     */
+    MultiSourceBfs run() {
+        int batches = (n + BATCH - 1) / BATCH;
+        int workers = Math.min(Runtime.getRuntime().availableProcessors(), batches);
+        AtomicInteger nextBatch = new AtomicInteger();
+        if (workers <= 1) {
+            new Worker(nextBatch, batches).call();
+            return this;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(new Worker(nextBatch, batches));
+        }
+
+        try {
+            for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.getInstance().error("Multi-source bfs is interrupted.");
+            return null;
+        } catch (ExecutionException e) {
+            Logger.getInstance().error("Fail to run multi-source bfs: " + e.getCause());
+            return null;
+        }
+        return this;
+    }
+
+    int reached(int source) {
+        return reached[source];
+    }
+
+    long distanceSum(int source) {
+        return distanceSum[source];
+    }
+
+    int eccentricity(int source) {
+        return eccentricity[source];
+    }
+
+    boolean loop(int source) {
+        return loop[source];
+    }
+
+    /**
+     * Worker which takes batches until all batches are done. The bitsets are reused between batches, they are all
+     * zero again at the end of a batch.
+     */
+    private class Worker implements Callable<Void> {
+        private final AtomicInteger nextBatch;
+        private final int batches;
+
+        /**
+         * Node index to the sources which have reached the node.
+         */
+        private final long[] seen = new long[n];
+
+        /**
+         * Node index to the sources whose frontier contains the node.
+         */
+        private final long[] visit = new long[n];
+
+        /**
+         * Node index to the sources which reach the node in the next level.
+         */
+        private final long[] visitNext = new long[n];
+
+        /**
+         * Node index to the bit of the node if it is a source of the batch.
+         */
+        private final long[] sourceBit = new long[n];
+
+        /**
+         * The nodes in the frontier of some source.
+         */
+        private final IntList frontier = new IntList();
+
+        /**
+         * The nodes which some source reaches in the next level.
+         */
+        private final IntList nextFrontier = new IntList();
+
+        /**
+         * The nodes seen by some source of the batch.
+         */
+        private final IntList touched = new IntList();
+
+        Worker(AtomicInteger nextBatch, int batches) {
+            this.nextBatch = nextBatch;
+            this.batches = batches;
+        }
+
+        @Override
+        public Void call() {
+            for (int batch = nextBatch.getAndIncrement(); batch < batches; batch = nextBatch.getAndIncrement()) {
+                runBatch(batch * BATCH, Math.min(BATCH, n - batch * BATCH));
+            }
+            return null;
+        }
+
+        /**
+         * Run the bfs of the sources [first, first + count) together.
+         *
+         * @param first - Index of the first source.
+         * @param count - The number of sources.
+         */
+        private void runBatch(int first, int count) {
+            for (int i = 0; i < count; i++) {
+                int s = first + i;
+                seen[s] = 1L << i;
+                visit[s] = 1L << i;
+                sourceBit[s] = 1L << i;
+                frontier.add(s);
+                touched.add(s);
+            }
+
+            long loops = 0L;
+            for (int level = 1; level <= maxDistance && !frontier.isEmpty(); level++) {
+                for (int f = 0; f < frontier.size(); f++) {
+                    int v = frontier.get(f);
+                    long bits = visit[v];
+                    if (followIn) {
+                        for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                            if (snapshot.allowsIn(edgeFilter, slot)) {
+                                spread(snapshot.inSource(slot), bits);
+                            }
+                        }
+                    }
+                    if (followOut) {
+                        for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                            if (snapshot.allowsOut(edgeFilter, slot)) {
+                                spread(snapshot.outTarget(slot), bits);
+                            }
+                        }
+                    }
+                    visit[v] = 0L;
+                }
+                frontier.clear();
+
+                for (int f = 0; f < nextFrontier.size(); f++) {
+                    int u = nextFrontier.get(f);
+                    long arrived = visitNext[u];
+                    visitNext[u] = 0L;
+                    loops |= arrived & sourceBit[u];
+
+                    long fresh = arrived & ~seen[u];
+                    if (fresh == 0L) {
+                        continue;
+                    }
+                    if (seen[u] == 0L) {
+                        touched.add(u);
+                    }
+                    seen[u] |= fresh;
+                    visit[u] = fresh;
+                    frontier.add(u);
+
+                    while (fresh != 0L) {
+                        int s = first + Long.numberOfTrailingZeros(fresh);
+                        fresh &= fresh - 1;
+                        reached[s]++;
+                        distanceSum[s] += level;
+                        eccentricity[s] = level;
+                    }
+                }
+                nextFrontier.clear();
+            }
+
+            for (int i = 0; i < count; i++) {
+                loop[first + i] = (loops & (1L << i)) != 0L;
+            }
+
+            // Clear the bitsets for the next batch.
+            for (int f = 0; f < frontier.size(); f++) {
+                visit[frontier.get(f)] = 0L;
+            }
+            frontier.clear();
+            for (int t = 0; t < touched.size(); t++) {
+                seen[touched.get(t)] = 0L;
+            }
+            touched.clear();
+            for (int i = 0; i < count; i++) {
+                sourceBit[first + i] = 0L;
+            }
+        }
+
+        /**
+         * Move the sources to the neighbour for the next level.
+         *
+         * @param u - Index of neighbour.
+         * @param bits - The sources.
+         */
+        private void spread(int u, long bits) {
+            if (visitNext[u] == 0L) {
+                nextFrontier.add(u);
+            }
+            visitNext[u] |= bits;
+        }
+    }
+}
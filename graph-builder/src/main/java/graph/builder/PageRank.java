@@ -0,0 +1,263 @@
+package graph.builder;
+
+import graph.builder.common.EdgeType;
+import graph.builder.entity.edge.Edge;
+import graph.builder.entity.node.Node;
+import graph.builder.util.Adjacency;
+import graph.builder.util.IntList;
+import graph.builder.vo.EdgeFilter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.stream.IntStream;
+
+/**
+ * PageRank of the random walk over the filtered edges in both directions. At each step the walk jumps back to the
+ * seeds with probability alpha, otherwise it moves along a random edge of the current node. A node without edges
+ * keeps the walk.
+ *
+ * The personalized PageRank is approximated by forward push (Andersen, Chung and Lang). Each node has an estimate
+ * and a residual, the residuals start at the seeds. A node whose residual is at least epsilon times its degree is
+ * pushed: alpha of the residual goes into its estimate and the rest is spread over its edges. The total pushed
+ * residual is at most 1 / (epsilon * alpha) edges, and only the touched nodes are kept in a map, so the cost depends
+ * on epsilon and the neighbourhood of the seeds but not on the size of the graph. The walk reads the graph through
+ * the two implementations below, one over the live view and one over the snapshot.
+ */
+abstract class PageRank {
+    /**
+     * The state of a touched node.
+     */
+    private static final class Entry {
+        int degree;
+        double estimate;
+        double residual;
+        boolean queued;
+    }
+
+    /**
+     * The number of filtered in-edges and out-edges of node v, self loops are counted in both.
+     */
+    abstract int degree(int v);
+
+    /**
+     * Add the other sides of the filtered in-edges and out-edges of node v into the list.
+     */
+    abstract void neighbours(int v, IntList result);
+
+    abstract Node node(int v);
+
+    /**
+     * Approximate the personalized PageRank of the seeds. When it returns, the residual of every node is less than
+     * epsilon times its degree.
+     *
+     * @param seeds - Node indexes of the seeds, the walk jumps back to each of them with the same probability.
+     * @param alpha - The probability to jump back to the seeds, between 0 and 1.
+     * @param epsilon - The residual tolerance per edge.
+     * @return - Node id to estimate, only the nodes with positive estimate are in the map.
+     */
+    Map<String, Double> personalized(int[] seeds, double alpha, double epsilon) {
+        Map<Integer, Entry> entries = new HashMap<>();
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int seed : seeds) {
+            Entry entry = entry(entries, seed);
+            entry.residual += 1.0 / seeds.length;
+            if (!entry.queued) {
+                entry.queued = true;
+                queue.add(seed);
+            }
+        }
+
+        IntList others = new IntList();
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            Entry entry = entries.get(u);
+            entry.queued = false;
+            if (entry.residual < epsilon * entry.degree) {
+                continue;
+            }
+
+            double residual = entry.residual;
+            entry.residual = 0.0;
+            if (entry.degree == 0) {
+                entry.estimate += residual;
+                continue;
+            }
+            entry.estimate += alpha * residual;
+
+            double share = (1 - alpha) * residual / entry.degree;
+            others.clear();
+            neighbours(u, others);
+            for (int i = 0; i < others.size(); i++) {
+                int w = others.get(i);
+                Entry other = entry(entries, w);
+                other.residual += share;
+                if (!other.queued && other.residual >= epsilon * other.degree) {
+                    other.queued = true;
+                    queue.add(w);
+                }
+            }
+        }
+
+        Map<String, Double> result = new HashMap<>();
+        for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().estimate > 0) {
+                result.put(node(entry.getKey()).getId(), entry.getValue().estimate);
+            }
+        }
+        return result;
+    }
+
+    private Entry entry(Map<Integer, Entry> entries, int v) {
+        Entry entry = entries.get(v);
+        if (entry == null) {
+            entry = new Entry();
+            entry.degree = degree(v);
+            entries.put(v, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Calculate the global PageRank of all nodes in the snapshot, where the walk jumps to any node with the same
+     * probability. The power iteration multiplies the symmetric adjacency compiled once, in parallel when it is
+     * large.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param alpha - The probability to jump, between 0 and 1.
+     * @param tol - The iteration stops when the sum of the changes of all nodes is within it.
+     * @param maxIteration - Max iterations.
+     * @return - Node index to PageRank, the sum is 1.
+     */
+    static double[] global(ViewSnapshot snapshot, EdgeFilter edgeFilter, double alpha, double tol, int maxIteration) {
+        int n = snapshot.nodeCount();
+        double[] rank = new double[n];
+        if (n == 0) {
+            return rank;
+        }
+
+        CsrMatrix adjacency = CsrMatrix.adjacency(snapshot, edgeFilter, true, true);
+        int[] degree = new int[n];
+        for (int v = 0; v < n; v++) {
+            degree[v] = adjacency.rowSize(v);
+        }
+
+        double[] share = new double[n];
+        double[] next = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        for (int iteration = 0; iteration < maxIteration; iteration++) {
+            for (int v = 0; v < n; v++) {
+                share[v] = degree[v] == 0 ? 0.0 : rank[v] / degree[v];
+            }
+
+            adjacency.multiply(share, next, 1 - alpha, alpha / n);
+            for (int v = 0; v < n; v++) {
+                if (degree[v] == 0) {
+                    next[v] += (1 - alpha) * rank[v];
+                }
+            }
+            double[] current = rank;
+            double[] updated = next;
+            double change = IntStream.range(0, n).parallel().mapToDouble(v -> Math.abs(updated[v] - current[v])).sum();
+            next = rank;
+            rank = updated;
+            if (change <= tol) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * The walk over the snapshot.
+     */
+    static PageRank of(ViewSnapshot snapshot, EdgeFilter edgeFilter) {
+        return new PageRank() {
+            @Override
+            int degree(int v) {
+                int count = 0;
+                for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                    if (snapshot.allowsIn(edgeFilter, slot)) {
+                        count++;
+                    }
+                }
+                for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                    if (snapshot.allowsOut(edgeFilter, slot)) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+
+            @Override
+            void neighbours(int v, IntList result) {
+                for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                    if (snapshot.allowsIn(edgeFilter, slot)) {
+                        result.add(snapshot.inSource(slot));
+                    }
+                }
+                for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                    if (snapshot.allowsOut(edgeFilter, slot)) {
+                        result.add(snapshot.outTarget(slot));
+                    }
+                }
+            }
+
+            @Override
+            Node node(int v) {
+                return snapshot.getNode(v);
+            }
+        };
+    }
+
+    /**
+     * The walk over the live view, node v is the node with int id v. The view should not be changed during the walk.
+     */
+    static PageRank of(View view, EdgeFilter edgeFilter) {
+        return new PageRank() {
+            private final IntList scratch = new IntList();
+
+            @Override
+            int degree(int v) {
+                scratch.clear();
+                neighbours(v, scratch);
+                return scratch.size();
+            }
+
+            @Override
+            void neighbours(int v, IntList result) {
+                if (view.findNodeByIndex(v) != null) {
+                    otherSides(view.inList(v), true, result);
+                    otherSides(view.outList(v), false, result);
+                }
+            }
+
+            private void otherSides(Adjacency adjacency, boolean fromSide, IntList result) {
+                for (long mask = edgeFilter.getTypeMask(); mask != 0; mask &= mask - 1) {
+                    byte type = (byte) Long.numberOfTrailingZeros(mask);
+                    for (int i = 0; i < adjacency.size(type); i++) {
+                        int edgeIndex = adjacency.get(type, i);
+                        Edge edge = view.findEdgeByIndex(edgeIndex);
+                        // The edges with unknown type share one bucket, check them by name.
+                        if (edge == null || (type == EdgeType.UNKNOWN_CODE && !edgeFilter.contains(edge))) {
+                            continue;
+                        }
+
+                        int otherSide = fromSide ? view.fromIndexOf(edgeIndex) : view.toIndexOf(edgeIndex);
+                        if (view.findNodeByIndex(otherSide) != null) {
+                            result.add(otherSide);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            Node node(int v) {
+                return view.findNodeByIndex(v);
+            }
+        };
+    }
+}
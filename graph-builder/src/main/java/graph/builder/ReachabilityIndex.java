@@ -0,0 +1,459 @@
+package graph.builder;
+
+import graph.builder.entity.node.Node;
+import graph.builder.util.IntList;
+import graph.builder.util.Logger;
+import graph.builder.vo.EdgeFilter;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reachability index of a snapshot, built once by {@link #build(ViewSnapshot, EdgeFilter)}.
+ *
+ * The strongly connected components are condensed into a DAG (Tarjan), and the components are numbered in reverse
+ * topological order, so every DAG edge goes from a larger component id to a smaller one. The transitive closure is
+ * then calculated over the DAG block by block, each block is a range of target components held as long bitsets, to
+ * get the exact number of ascendants and descendants of every component. The unbounded counts are array lookups
+ * after the build, and the bounded ones fall back to bfs.
+ *
+ * The closure bitsets are kept for canReach when they fit in CLOSURE_LIMIT, otherwise canReach runs a dfs over the
+ * DAG pruned by the component order.
+ */
+public class ReachabilityIndex {
+    /**
+     * The max number of longs in the bitsets of one closure block.
+     */
+    private static final int BLOCK_LIMIT = 1 << 22;
+
+    /**
+     * The max number of longs of the closure kept for canReach.
+     */
+    private static final long CLOSURE_LIMIT = 1L << 22;
+
+    private final ViewSnapshot snapshot;
+    private final EdgeFilter edgeFilter;
+
+    /**
+     * Node index to component id.
+     */
+    private final int[] component;
+
+    private final int componentCount;
+
+    /**
+     * The out-side components of component c in the DAG are dagTargets[dagStart[c], dagStart[c + 1]).
+     */
+    private final int[] dagStart;
+    private final int[] dagTargets;
+
+    /**
+     * Node index to the number of ascendants, same as FeatureExtraction.ascendants with no max distance.
+     */
+    private final int[] ascendants;
+
+    /**
+     * Node index to the number of descendants, same as FeatureExtraction.descendants with no max distance.
+     */
+    private final int[] descendants;
+
+    /**
+     * Component id to whether the component contains a cycle, so each of its nodes can reach itself.
+     */
+    private final boolean[] cyclic;
+
+    /**
+     * Row c holds the strict descendant components of c, null if the closure is too large to keep.
+     */
+    private final long[] closure;
+    private final int closureWords;
+
+    private ReachabilityIndex(ViewSnapshot snapshot, EdgeFilter edgeFilter) {
+        this.snapshot = snapshot;
+        this.edgeFilter = edgeFilter;
+        int n = snapshot.nodeCount();
+        this.component = new int[n];
+        this.componentCount = condense();
+
+        int[] size = new int[componentCount];
+        this.cyclic = new boolean[componentCount];
+        for (int v = 0; v < n; v++) {
+            size[component[v]]++;
+        }
+        for (int v = 0; v < n; v++) {
+            int c = component[v];
+            if (size[c] > 1) {
+                cyclic[c] = true;
+                continue;
+            }
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (snapshot.outTarget(slot) == v && snapshot.allowsOut(edgeFilter, slot)) {
+                    cyclic[c] = true;
+                }
+            }
+        }
+
+        // The DAG edges in both direction. The in-side DAG is mirrored (c -> componentCount - 1 - c), so that
+        // its edges also go from a larger id to a smaller one and the same closure applies.
+        int[][] out = dag(false);
+        int[][] in = dag(true);
+        this.dagStart = out[0];
+        this.dagTargets = out[1];
+
+        this.closureWords = (componentCount + 63) >>> 6;
+        this.closure = (long) componentCount * closureWords <= CLOSURE_LIMIT
+                ? new long[componentCount * closureWords] : null;
+        long[] strictDescendants = closureSizes(out[0], out[1], size, closure);
+
+        int[] mirroredSize = new int[componentCount];
+        for (int c = 0; c < componentCount; c++) {
+            mirroredSize[componentCount - 1 - c] = size[c];
+        }
+        long[] strictAscendants = closureSizes(in[0], in[1], mirroredSize, null);
+
+        this.ascendants = new int[n];
+        this.descendants = new int[n];
+        for (int v = 0; v < n; v++) {
+            int c = component[v];
+            // The other nodes of the component, and the node itself if it can reach itself.
+            int own = cyclic[c] ? size[c] : 0;
+            descendants[v] = (int) strictDescendants[c] + own;
+            ascendants[v] = (int) strictAscendants[componentCount - 1 - c] + own;
+        }
+    }
+
+    /**
+     * Build the reachability index of the snapshot.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter.
+     * @return - The index.
+     */
+    public static ReachabilityIndex build(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter) {
+        edgeFilter.buildTypeSet();
+        return new ReachabilityIndex(snapshot, edgeFilter);
+    }
+
+    /**
+     * Get the snapshot the index is built from.
+     *
+     * @return
+     */
+    public ViewSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * The number of strongly connected components.
+     *
+     * @return
+     */
+    public int componentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Get the number of nodes that can reach this node. (If the graph contains loop, node itself is also count in
+     * the ascendants).
+     *
+     * @param node - Aim node.
+     * @return - The number of ascendants of this node. Return -1 if the node does not exist in the snapshot.
+     */
+    public int ascendants(@NonNull Node node) {
+        int v = snapshot.indexOf(node);
+        return v < 0 ? -1 : ascendants[v];
+    }
+
+    /**
+     * Get the number of nodes that can reach this node within max distance, the bounded count falls back to bfs.
+     *
+     * @param node - Aim node.
+     * @param maxDistance - The max distance. No limit if input less than or equal to 0.
+     * @return - The number of ascendants of this node. Return -1 if the node does not exist in the snapshot.
+     */
+    public int ascendants(@NonNull Node node, int maxDistance) {
+        return maxDistance <= 0 ? ascendants(node) : FeatureExtraction.ascendants(snapshot, node, edgeFilter, maxDistance);
+    }
+
+    /**
+     * Get the number of nodes that can be reached from this node. (If the graph contains loop, node itself is also
+     * count in the descendants).
+     *
+     * @param node - Aim node.
+     * @return - The number of descendants of this node. Return -1 if the node does not exist in the snapshot.
+     */
+    public int descendants(@NonNull Node node) {
+        int v = snapshot.indexOf(node);
+        return v < 0 ? -1 : descendants[v];
+    }
+
+    /**
+     * Get the number of nodes that can be reached from this node within max distance, the bounded count falls back
+     * to bfs.
+     *
+     * @param node - Aim node.
+     * @param maxDistance - The max distance. No limit if input less than or equal to 0.
+     * @return - The number of descendants of this node. Return -1 if the node does not exist in the snapshot.
+     */
+    public int descendants(@NonNull Node node, int maxDistance) {
+        return maxDistance <= 0 ? descendants(node) : FeatureExtraction.descendants(snapshot, node, edgeFilter, maxDistance);
+    }
+
+    /**
+     * Check if there is a path of at least one edge from one node to another.
+     *
+     * @param from - From side node.
+     * @param to - To side node.
+     * @return - True if to can be reached from from. False if not, or any of them does not exist in the snapshot.
+     */
+    public boolean canReach(@NonNull Node from, @NonNull Node to) {
+        int a = snapshot.indexOf(from);
+        int b = snapshot.indexOf(to);
+        if (a < 0 || b < 0) {
+            Logger.getInstance().warning("Cannot check the reachability since the node is not found in snapshot of view "
+                    + snapshot.getViewId());
+            return false;
+        }
+        return canReach(a, b);
+    }
+
+    /**
+     * Check if there is a path of at least one edge from node index a to node index b.
+     *
+     * @param a - From side node index.
+     * @param b - To side node index.
+     * @return
+     */
+    public boolean canReach(int a, int b) {
+        int from = component[a];
+        int to = component[b];
+        if (from == to) {
+            return a != b || cyclic[from];
+        }
+        if (to > from) {
+            // The DAG edges only go to smaller ids.
+            return false;
+        }
+        if (closure != null) {
+            return (closure[from * closureWords + (to >>> 6)] & (1L << to)) != 0L;
+        }
+
+        // The components between to and from only.
+        BitSet visited = new BitSet();
+        IntList stack = new IntList();
+        stack.add(from);
+        while (!stack.isEmpty()) {
+            int c = stack.removeAt(stack.size() - 1);
+            for (int i = dagStart[c]; i < dagStart[c + 1]; i++) {
+                int d = dagTargets[i];
+                if (d == to) {
+                    return true;
+                }
+                if (d > to && !visited.get(d - to)) {
+                    visited.set(d - to);
+                    stack.add(d);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the strongly connected components by the iterative Tarjan algorithm. A component gets its id when it is
+     * completed, which is after all components reachable from it.
+     *
+     * @return - The number of components.
+     */
+    private int condense() {
+        int n = snapshot.nodeCount();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] callNode = new int[n];
+        int[] callSlot = new int[n];
+        Arrays.fill(index, -1);
+
+        int counter = 0;
+        int stackTop = 0;
+        int count = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+
+            int depth = 0;
+            callNode[0] = root;
+            callSlot[0] = snapshot.outStart(root);
+            index[root] = low[root] = counter++;
+            stack[stackTop++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callNode[depth];
+                int slot = callSlot[depth];
+                if (slot < snapshot.outEnd(v)) {
+                    callSlot[depth]++;
+                    if (!snapshot.allowsOut(edgeFilter, slot)) {
+                        continue;
+                    }
+
+                    int w = snapshot.outTarget(slot);
+                    if (index[w] < 0) {
+                        depth++;
+                        callNode[depth] = w;
+                        callSlot[depth] = snapshot.outStart(w);
+                        index[w] = low[w] = counter++;
+                        stack[stackTop++] = w;
+                        onStack[w] = true;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackTop];
+                        onStack[w] = false;
+                        component[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Build the DAG of components in CSR form, the parallel edges are merged.
+     *
+     * @param mirrored - False for the out-side DAG. True for the in-side DAG with mirrored ids.
+     * @return - {start, targets}, the targets of component c are targets[start[c], start[c + 1]).
+     */
+    private int[][] dag(boolean mirrored) {
+        int n = snapshot.nodeCount();
+        int last = componentCount - 1;
+
+        // Group the nodes by component.
+        int[] memberStart = new int[componentCount + 1];
+        for (int v = 0; v < n; v++) {
+            memberStart[(mirrored ? last - component[v] : component[v]) + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            memberStart[c + 1] += memberStart[c];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(memberStart, componentCount);
+        for (int v = 0; v < n; v++) {
+            members[fill[mirrored ? last - component[v] : component[v]]++] = v;
+        }
+
+        int[] start = new int[componentCount + 1];
+        IntList targets = new IntList();
+        int[] mark = new int[componentCount];
+        Arrays.fill(mark, -1);
+        for (int c = 0; c < componentCount; c++) {
+            for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+                int v = members[m];
+                int begin = mirrored ? snapshot.inStart(v) : snapshot.outStart(v);
+                int end = mirrored ? snapshot.inEnd(v) : snapshot.outEnd(v);
+                for (int slot = begin; slot < end; slot++) {
+                    if (mirrored ? !snapshot.allowsIn(edgeFilter, slot) : !snapshot.allowsOut(edgeFilter, slot)) {
+                        continue;
+                    }
+                    int w = mirrored ? snapshot.inSource(slot) : snapshot.outTarget(slot);
+                    int d = mirrored ? last - component[w] : component[w];
+                    if (d != c && mark[d] != c) {
+                        mark[d] = c;
+                        targets.add(d);
+                    }
+                }
+            }
+            start[c + 1] = targets.size();
+        }
+        return new int[][]{start, targets.toArray()};
+    }
+
+    /**
+     * Calculate the total size of the strict descendant components of each component, in blocks of target
+     * components. The DAG edges must go from a larger id to a smaller one, so component c only reaches the blocks
+     * below c and the rows of the block [lo, hi) are only needed for the components from lo.
+     *
+     * @param start - DAG in CSR form.
+     * @param targets - DAG in CSR form.
+     * @param size - Component id to the number of nodes in it.
+     * @param closure - Output, the closure bitsets with closureWords longs per row. Null if not needed.
+     * @return - Component id to the total size of its strict descendant components.
+     */
+    private long[] closureSizes(int[] start, int[] targets, int[] size, long[] closure) {
+        int count = size.length;
+        long[] result = new long[count];
+        if (count == 0) {
+            return result;
+        }
+
+        // Words per row of a block, keep the block within BLOCK_LIMIT longs.
+        int words = (int) Math.max(1, Math.min((count + 63) >>> 6, BLOCK_LIMIT / count));
+        int blockSize = words << 6;
+        long[] rows = new long[count * words];
+        boolean[] unit = new boolean[words];
+
+        for (int lo = 0; lo < count; lo += blockSize) {
+            int hi = Math.min(count, lo + blockSize);
+            // A word of components with one node each counts by popcount.
+            for (int k = 0; k < words; k++) {
+                unit[k] = true;
+                for (int c = lo + (k << 6); c < Math.min(hi, lo + ((k + 1) << 6)); c++) {
+                    unit[k] &= size[c] == 1;
+                }
+            }
+
+            for (int c = lo; c < count; c++) {
+                int row = (c - lo) * words;
+                Arrays.fill(rows, row, row + words, 0L);
+                for (int i = start[c]; i < start[c + 1]; i++) {
+                    int d = targets[i];
+                    if (d < lo) {
+                        continue;
+                    }
+                    int dRow = (d - lo) * words;
+                    for (int k = 0; k < words; k++) {
+                        rows[row + k] |= rows[dRow + k];
+                    }
+                    if (d < hi) {
+                        rows[row + ((d - lo) >>> 6)] |= 1L << (d - lo);
+                    }
+                }
+
+                long total = 0;
+                for (int k = 0; k < words; k++) {
+                    long word = rows[row + k];
+                    if (unit[k]) {
+                        total += Long.bitCount(word);
+                        continue;
+                    }
+                    while (word != 0L) {
+                        total += size[lo + (k << 6) + Long.numberOfTrailingZeros(word)];
+                        word &= word - 1;
+                    }
+                }
+                result[c] += total;
+
+                if (closure != null) {
+                    System.arraycopy(rows, row, closure, c * closureWords + (lo >>> 6),
+                            Math.min(words, closureWords - (lo >>> 6)));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -19,8 +19,8 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 public class Render {
@@ -49,8 +49,8 @@ public class Render {
         Object parent = graph.getDefaultParent();
         graph.getModel().beginUpdate();
 
-        Map<String, Object> vertexMap = insertVertex(parent, graph, view.getAllNode());
-        insertEdge(parent, graph, vertexMap, view.getAllEdge(), filter);
+        Map<String, Object> vertexMap = insertVertex(parent, graph, view.nodes());
+        insertEdge(parent, graph, vertexMap, view.edges(), filter);
 
         graph.getModel().endUpdate();
         mxIGraphLayout layout = new mxOrganicLayout(graph);
@@ -65,9 +65,9 @@ public class Render {
         }
     }
 
-    private static void insertEdge(Object parent, mxGraph graph, Map<String, Object> vertexMap, List<Edge> edgeList, EdgeFilter filter) {
+    private static void insertEdge(Object parent, mxGraph graph, Map<String, Object> vertexMap, Collection<Edge> edgeList, EdgeFilter filter) {
         for (Edge edge : edgeList) {
-            if (!filter.contains(edge.getEdgeType())) {
+            if (!filter.contains(edge)) {
                 continue;
             }
 
@@ -90,7 +90,7 @@ public class Render {
         }
     }
 
-    private static Map<String, Object> insertVertex(Object parent, mxGraph graph, List<Node> nodeList) {
+    private static Map<String, Object> insertVertex(Object parent, mxGraph graph, Collection<Node> nodeList) {
         Map<String, Object> vertexMap = new HashMap<>();
         for (Node node : nodeList) {
             String value = "";
@@ -0,0 +1,359 @@
+package graph.builder;
+
+import graph.builder.vo.EdgeFilter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Triangle counting over the snapshot by the compact-forward algorithm.
+ *
+ * The filtered edges are merged into a simple undirected graph, where the weight of a pair is the number of
+ * directed edges between the two nodes. The nodes are ranked by degree, and each node only keeps its neighbours of
+ * higher rank sorted by rank. Every triangle is then found exactly once, by intersecting the forward lists of the
+ * two lower ranked nodes, and the intersections stay short since the high degree nodes have few forward neighbours.
+ * The nodes are handed out to the workers in chunks. Each worker buffers the counts of the triangles it finds, and
+ * merges the buffer into the shared arrays stripe by stripe, where a stripe is a range of nodes guarded by its own
+ * lock. So a worker only holds a fixed size buffer whatever the number of nodes.
+ */
+class TriangleCounting {
+    /**
+     * The number of nodes handed out to a worker at once.
+     */
+    private static final int CHUNK = 512;
+
+    /**
+     * The number of counts a worker buffers before merging them into the shared arrays.
+     */
+    private static final int BUFFER = 4096;
+
+    /**
+     * A stripe covers 2^STRIPE_BITS consecutive nodes.
+     */
+    private static final int STRIPE_BITS = 10;
+
+    private final ViewSnapshot snapshot;
+    private final EdgeFilter edgeFilter;
+    private final int n;
+
+    /**
+     * Node index to the number of filtered in-edges and out-edges, self loops are counted in both.
+     */
+    private final int[] degree;
+
+    /**
+     * Node index to the number of filtered self loops.
+     */
+    private final int[] loops;
+
+    /**
+     * Node index to the number of distinct neighbours except itself.
+     */
+    private final int[] distinct;
+
+    /**
+     * Node index to the number of triangles through it.
+     */
+    private final long[] triangles;
+
+    /**
+     * Node index to the number of directed edges between two neighbours in the triangles through it.
+     */
+    private final long[] weightedTriangles;
+
+    /**
+     * Stripe to the lock which guards the triangles and weighted triangles of its nodes.
+     */
+    private final Object[] stripeLocks;
+
+    private long totalTriangles;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     */
+    TriangleCounting(ViewSnapshot snapshot, EdgeFilter edgeFilter) {
+        this.snapshot = snapshot;
+        this.edgeFilter = edgeFilter;
+        this.n = snapshot.nodeCount();
+        this.degree = new int[n];
+        this.loops = new int[n];
+        this.distinct = new int[n];
+        this.triangles = new long[n];
+        this.weightedTriangles = new long[n];
+        this.stripeLocks = new Object[(n >>> STRIPE_BITS) + 1];
+        for (int i = 0; i < stripeLocks.length; i++) {
+            stripeLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Count the triangles of all nodes.
+     *
+     * @return - This.
+     */
+    TriangleCounting run() {
+        // The neighbours of each node except itself, with repetition.
+        int[] start = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int count = 0;
+            for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                if (snapshot.allowsIn(edgeFilter, slot)) {
+                    count++;
+                    if (snapshot.inSource(slot) == v) {
+                        loops[v]++;
+                    }
+                }
+            }
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (snapshot.allowsOut(edgeFilter, slot)) {
+                    count++;
+                }
+            }
+            degree[v] = count;
+            start[v + 1] = start[v] + count - 2 * loops[v];
+        }
+
+        // Sort and merge the neighbours of each node, the weight is the repetition.
+        int[] neighbours = new int[start[n]];
+        int[] weights = new int[start[n]];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int entry = start[v];
+            for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                if (snapshot.inSource(slot) != v && snapshot.allowsIn(edgeFilter, slot)) {
+                    neighbours[entry++] = snapshot.inSource(slot);
+                }
+            }
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (snapshot.outTarget(slot) != v && snapshot.allowsOut(edgeFilter, slot)) {
+                    neighbours[entry++] = snapshot.outTarget(slot);
+                }
+            }
+
+            Arrays.sort(neighbours, start[v], entry);
+            int size = 0;
+            for (int i = start[v]; i < entry; i++) {
+                if (size > 0 && neighbours[start[v] + size - 1] == neighbours[i]) {
+                    weights[start[v] + size - 1]++;
+                } else {
+                    neighbours[start[v] + size] = neighbours[i];
+                    weights[start[v] + size] = 1;
+                    size++;
+                }
+            }
+            distinct[v] = size;
+        });
+
+        // Rank by degree, then keep the neighbours of higher rank sorted by rank. The rank and the weight of a
+        // forward neighbour are packed in one long for the sort.
+        Integer[] byDegree = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            byDegree[v] = v;
+        }
+        Arrays.sort(byDegree, (a, b) -> distinct[a] != distinct[b] ? Integer.compare(distinct[a], distinct[b]) : Integer.compare(a, b));
+        int[] rank = new int[n];
+        int[] node = new int[n];
+        for (int r = 0; r < n; r++) {
+            node[r] = byDegree[r];
+            rank[byDegree[r]] = r;
+        }
+
+        int[] forwardStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int count = 0;
+            for (int i = start[v]; i < start[v] + distinct[v]; i++) {
+                if (rank[neighbours[i]] > rank[v]) {
+                    count++;
+                }
+            }
+            forwardStart[v + 1] = forwardStart[v] + count;
+        }
+        long[] forward = new long[forwardStart[n]];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int entry = forwardStart[v];
+            for (int i = start[v]; i < start[v] + distinct[v]; i++) {
+                if (rank[neighbours[i]] > rank[v]) {
+                    forward[entry++] = ((long) rank[neighbours[i]] << 32) | weights[i];
+                }
+            }
+            Arrays.sort(forward, forwardStart[v], entry);
+        });
+
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), (n + CHUNK - 1) / CHUNK));
+        AtomicInteger nextChunk = new AtomicInteger();
+        long total = IntStream.range(0, workers).parallel().mapToLong(worker -> {
+            Counts counts = new Counts();
+            long found = 0;
+            for (int chunk = nextChunk.getAndIncrement(); chunk * CHUNK < n; chunk = nextChunk.getAndIncrement()) {
+                for (int u = chunk * CHUNK; u < Math.min(n, (chunk + 1) * CHUNK); u++) {
+                    found += countFrom(u, forward, forwardStart, node, counts);
+                }
+            }
+            counts.merge();
+            return found;
+        }).sum();
+        totalTriangles = total;
+        return this;
+    }
+
+    /**
+     * Find the triangles whose lowest ranked node is u.
+     *
+     * @return - The number of triangles found.
+     */
+    private static long countFrom(int u, long[] forward, int[] forwardStart, int[] node, Counts counts) {
+        long found = 0;
+        long weighted = 0;
+        for (int i = forwardStart[u]; i < forwardStart[u + 1]; i++) {
+            int w = node[(int) (forward[i] >>> 32)];
+            int uw = (int) forward[i];
+
+            // Merge the forward lists of u (after w) and w, both sorted by rank.
+            int p = i + 1;
+            int q = forwardStart[w];
+            while (p < forwardStart[u + 1] && q < forwardStart[w + 1]) {
+                long rankP = forward[p] >>> 32;
+                long rankQ = forward[q] >>> 32;
+                if (rankP < rankQ) {
+                    p++;
+                } else if (rankP > rankQ) {
+                    q++;
+                } else {
+                    int x = node[(int) rankP];
+                    weighted += (int) forward[q];
+                    counts.add(w, 1, (int) forward[p]);
+                    counts.add(x, 1, uw);
+                    found++;
+                    p++;
+                    q++;
+                }
+            }
+        }
+
+        // The triangles of u are only found here, so they are buffered once.
+        if (found > 0) {
+            counts.add(u, found, weighted);
+        }
+        return found;
+    }
+
+    /**
+     * The counts buffered by a worker.
+     */
+    private class Counts {
+        private final int[] nodes = new int[BUFFER];
+        private final long[] found = new long[BUFFER];
+        private final long[] weighted = new long[BUFFER];
+
+        /**
+         * The buffer positions sorted by stripe, and the start of each stripe in it.
+         */
+        private final int[] sorted = new int[BUFFER];
+        private final int[] stripeStart = new int[stripeLocks.length + 1];
+
+        private int size;
+
+        /**
+         * Buffer the triangles through the node, merge the buffer once it is full.
+         *
+         * @param v - Node index.
+         * @param triangleCount - The number of triangles.
+         * @param weight - The number of directed edges between two neighbours in the triangles.
+         */
+        void add(int v, long triangleCount, long weight) {
+            nodes[size] = v;
+            found[size] = triangleCount;
+            weighted[size] = weight;
+            if (++size == BUFFER) {
+                merge();
+            }
+        }
+
+        /**
+         * Merge the buffer into the shared arrays, taking the lock of each stripe once.
+         */
+        void merge() {
+            // Counting sort by stripe.
+            Arrays.fill(stripeStart, 0);
+            for (int i = 0; i < size; i++) {
+                stripeStart[(nodes[i] >>> STRIPE_BITS) + 1]++;
+            }
+            for (int s = 0; s < stripeLocks.length; s++) {
+                stripeStart[s + 1] += stripeStart[s];
+            }
+            for (int i = 0; i < size; i++) {
+                sorted[stripeStart[nodes[i] >>> STRIPE_BITS]++] = i;
+            }
+
+            // After the placement stripeStart[s] is the end of stripe s, which is the start of stripe s + 1.
+            int from = 0;
+            for (int s = 0; s < stripeLocks.length; s++) {
+                int to = stripeStart[s];
+                if (from < to) {
+                    synchronized (stripeLocks[s]) {
+                        for (int k = from; k < to; k++) {
+                            int i = sorted[k];
+                            triangles[nodes[i]] += found[i];
+                            weightedTriangles[nodes[i]] += weighted[i];
+                        }
+                    }
+                }
+                from = to;
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * The cluster coefficient of the directed definition, same as FeatureExtraction.clusterCoefficient: the number
+     * of edges between two different neighbours divided by k * (k - 1), where k is the number of in-edges and
+     * out-edges.
+     *
+     * @param v - Node index.
+     * @return
+     */
+    double directedCoefficient(int v) {
+        int k = degree[v];
+        if (k < 2) {
+            return 0.0;
+        }
+
+        // With a self loop the node is a neighbour of itself, then its edges to the other neighbours also count.
+        long links = weightedTriangles[v] + (loops[v] > 0 ? k - 2L * loops[v] : 0L);
+        double existingEdgeBetweenNeighbors = links;
+        double totalPossibleEdgesBetweenNeighbors = (double) k * (k - 1);
+        return existingEdgeBetweenNeighbors / totalPossibleEdgesBetweenNeighbors;
+    }
+
+    /**
+     * The cluster coefficient of the simple undirected graph, 2 * t / (d * (d - 1)), where t is the number of
+     * triangles and d is the number of distinct neighbours.
+     *
+     * @param v - Node index.
+     * @return
+     */
+    double undirectedCoefficient(int v) {
+        long d = distinct[v];
+        return d < 2 ? 0.0 : 2.0 * triangles[v] / (d * (d - 1));
+    }
+
+    /**
+     * The global transitivity of the simple undirected graph, 3 * triangles / connected triples.
+     *
+     * @return
+     */
+    double transitivity() {
+        long triples = 0;
+        for (int v = 0; v < n; v++) {
+            triples += (long) distinct[v] * (distinct[v] - 1) / 2;
+        }
+        return triples == 0 ? 0.0 : 3.0 * totalTriangles / triples;
+    }
+
+    long totalTriangles() {
+        return totalTriangles;
+    }
+}
@@ -1,23 +1,43 @@
 package graph.builder;
 
+import graph.builder.common.EdgeType;
 import graph.builder.common.NodeType;
 import graph.builder.entity.edge.Edge;
 import graph.builder.entity.node.*;
+import graph.builder.util.Adjacency;
+import graph.builder.util.IdAllocator;
+import graph.builder.util.LiveCollection;
 import graph.builder.util.Logger;
+import graph.builder.util.PayloadStore;
 import graph.builder.util.Random;
+import graph.builder.util.StringPool;
 import graph.builder.vo.EdgeFilter;
 import lombok.NonNull;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is not a node but represents a view. A view can contain various other types of nodes.
  * This view mainly represents individual frames and their contents.
  */
 public class View {
+    /**
+     * Ordered access to the slots of nodes and edges. The slot is published after the rest of its state, so the
+     * reader of ConcurrentView who sees the node or edge also sees its int ids.
+     */
+    private static final VarHandle NODES = MethodHandles.arrayElementVarHandle(Node[].class);
+    private static final VarHandle EDGES = MethodHandles.arrayElementVarHandle(Edge[].class);
+
     /**
      * view id.
      */
@@ -39,33 +59,143 @@ public class View {
     private Node rootHTMLNode;
 
     /**
-     * Edge id to edge
+     * The adjacency of the node which is not held by the view, never modified.
      */
-    private Map<String, Edge> edgeMap;
+    private static final Adjacency EMPTY = new Adjacency();
 
-    private Map<String, Node> nodeMap;
+    /**
+     * Edge id dictionary, the edge without id gets a minted id which starts with the random token of view.
+     */
+    private IdAllocator edgeIds;
 
-    private Map<String, HTMLNode> htmlNodeMap;
-    private Map<String, CSSNode> cssNodeMap;
-    private Map<String, CSSRuleNode> cssRuleMap;
-    private Map<String, ScriptNode> scriptNodeMap;
-    private Map<String, NetworkNode> networkNodeMap;
-    private Map<String, IframeNode> iframeNodeMap;
+    /**
+     * Edge int id to edge, null if the int id is released.
+     */
+    private Edge[] edges;
 
     /**
-     * No args constructor.
+     * Edge int id to the node int ids of its two sides, -1 if the edge is not connected.
      */
-    public View() {
-        edgeMap = new HashMap<>();
+    private int[] edgeFrom;
+    private int[] edgeTo;
+
+    /**
+     * Node id dictionary, the node without id gets a minted id which starts with the random token of view.
+     */
+    private IdAllocator nodeIds;
+
+    /**
+     * Node int id to node, null if the int id is released.
+     */
+    private Node[] nodes;
+
+    /**
+     * Node int id to the int ids of the edges point to / start from the node, bucketed by edge type. The int ids
+     * are kept in the view rather than in the node, so the same node object can be held by several views.
+     */
+    private Adjacency[] inLists;
+    private Adjacency[] outLists;
+
+    /**
+     * The int ids of nodes in each type.
+     */
+    private BitSet htmlNodeSet;
+    private BitSet cssNodeSet;
+    private BitSet cssRuleSet;
+    private BitSet scriptNodeSet;
+    private BitSet networkNodeSet;
+    private BitSet iframeNodeSet;
+
+    /**
+     * Secondary indexes: url to network node, tag name / identify id / class name to the int ids of html nodes.
+     */
+    private Map<String, NetworkNode> urlIndex;
+    private Map<String, Set<Integer>> tagIndex;
+    private Map<String, Set<Integer>> identifyIdIndex;
+    private Map<String, Set<Integer>> classIndex;
+
+    /**
+     * Node int id to the keys the node is indexed by, so that the node can be removed from the indexes
+     * after its attributes changed.
+     */
+    private String[][] indexedKeys;
+
+    /**
+     * The graph which creates this view, null if the view is created alone.
+     */
+    private Graph graph;
+
+    /**
+     * The string pool of the view created alone, the view in graph uses the pool of graph.
+     */
+    private StringPool stringPool;
+
+    /**
+     * The payload store of the view created alone, the view in graph uses the store of graph.
+     */
+    private PayloadStore payloadStore;
 
-        nodeMap = new HashMap<>();
+    /**
+     * The number of times nodes or edges are added or removed, the live collections fail fast on it. It is atomic
+     * since ConcurrentView adds from several threads at once.
+     */
+    private final AtomicInteger modCount;
+
+    /**
+     * The listeners of structure changes, null if there is none.
+     */
+    private ViewListener[] listeners;
 
-        htmlNodeMap = new HashMap<>();
-        cssNodeMap = new HashMap<>();
-        cssRuleMap = new HashMap<>();
-        scriptNodeMap = new HashMap<>();
-        networkNodeMap = new HashMap<>();
-        iframeNodeMap = new HashMap<>();
+    /**
+     * Live collections of nodes and edges, created once.
+     */
+    private final LiveCollection<Node> nodeView;
+    private final LiveCollection<Edge> edgeView;
+    private final LiveCollection<HTMLNode> htmlNodeView;
+    private final LiveCollection<CSSNode> cssNodeView;
+    private final LiveCollection<CSSRuleNode> cssRuleView;
+    private final LiveCollection<ScriptNode> scriptNodeView;
+    private final LiveCollection<NetworkNode> networkNodeView;
+    private final LiveCollection<IframeNode> iframeNodeView;
+
+    /**
+     * No args constructor.
+     */
+    public View() {
+        // The random token keeps the minted ids of views unique in the graph, as the random ids did.
+        String token = Random.generateId();
+        edgeIds = new IdAllocator(token + "/e#");
+        edges = new Edge[16];
+        edgeFrom = new int[16];
+        edgeTo = new int[16];
+
+        nodeIds = new IdAllocator(token + "/n#");
+        nodes = new Node[16];
+        inLists = new Adjacency[16];
+        outLists = new Adjacency[16];
+
+        htmlNodeSet = new BitSet();
+        cssNodeSet = new BitSet();
+        cssRuleSet = new BitSet();
+        scriptNodeSet = new BitSet();
+        networkNodeSet = new BitSet();
+        iframeNodeSet = new BitSet();
+
+        urlIndex = new HashMap<>();
+        tagIndex = new HashMap<>();
+        identifyIdIndex = new HashMap<>();
+        classIndex = new HashMap<>();
+        indexedKeys = new String[16][];
+
+        nodeView = new NodeCollection<>(null);
+        edgeView = new EdgeCollection();
+        htmlNodeView = new NodeCollection<>(htmlNodeSet);
+        cssNodeView = new NodeCollection<>(cssNodeSet);
+        cssRuleView = new NodeCollection<>(cssRuleSet);
+        scriptNodeView = new NodeCollection<>(scriptNodeSet);
+        networkNodeView = new NodeCollection<>(networkNodeSet);
+        iframeNodeView = new NodeCollection<>(iframeNodeSet);
+        modCount = new AtomicInteger();
     }
 
     /**
@@ -108,11 +238,11 @@ public class View {
             return null;
         }
 
-        if (root.getId() == null) {
-            root.setId(Random.generateId());
+        if (root.getId() == null || root.getId().isEmpty()) {
+            root.setId(nodeIds.mintId());
         }
 
-        if (nodeMap.containsKey(root.getId())) {
+        if (nodeIds.find(root.getId()) >= 0) {
             Logger.getInstance().warning("Node id exists.");
             return null;
         }
@@ -122,75 +252,168 @@ public class View {
     }
 
     /**
-     * Get all nodes in the view.
+     * Get all nodes in the view, the list is a copy.
      *
      * @return
+     * @see #nodes() iterate without copy.
      */
     public List<Node> getAllNode() {
-        return new ArrayList<>(nodeMap.values());
+        return new ArrayList<>(nodeView);
     }
 
     /**
-     * Get all edges in the view.
+     * Get all edges in the view, the list is a copy.
      *
      * @return
+     * @see #edges() iterate without copy.
      */
     public List<Edge> getAllEdge() {
-        return new ArrayList<>(edgeMap.values());
+        return new ArrayList<>(edgeView);
+    }
+
+    /**
+     * Unmodifiable live collection of all nodes in the view, ordered by node int id. Nothing is copied, and the
+     * iteration fails fast if any node or edge is added or removed meanwhile.
+     *
+     * @return
+     */
+    public LiveCollection<Node> nodes() {
+        return nodeView;
+    }
+
+    /**
+     * Unmodifiable live collection of all edges in the view, ordered by edge int id.
+     *
+     * @return
+     * @see #nodes()
+     */
+    public LiveCollection<Edge> edges() {
+        return edgeView;
+    }
+
+    /**
+     * Unmodifiable live collection of html nodes in the view.
+     *
+     * @return
+     * @see #nodes()
+     */
+    public LiveCollection<HTMLNode> htmlNodes() {
+        return htmlNodeView;
+    }
+
+    /**
+     * Unmodifiable live collection of css nodes in the view.
+     *
+     * @return
+     * @see #nodes()
+     */
+    public LiveCollection<CSSNode> cssNodes() {
+        return cssNodeView;
     }
 
     /**
-     * Get all html nodes in the view.
+     * Unmodifiable live collection of css rules in the view.
+     *
+     * @return
+     * @see #nodes()
+     */
+    public LiveCollection<CSSRuleNode> cssRules() {
+        return cssRuleView;
+    }
+
+    /**
+     * Unmodifiable live collection of script nodes in the view.
+     *
+     * @return
+     * @see #nodes()
+     */
+    public LiveCollection<ScriptNode> scriptNodes() {
+        return scriptNodeView;
+    }
+
+    /**
+     * Unmodifiable live collection of network nodes in the view.
+     *
+     * @return
+     * @see #nodes()
+     */
+    public LiveCollection<NetworkNode> networkNodes() {
+        return networkNodeView;
+    }
+
+    /**
+     * Unmodifiable live collection of iframe nodes in the view.
+     *
+     * @return
+     * @see #nodes()
+     */
+    public LiveCollection<IframeNode> iframeNodes() {
+        return iframeNodeView;
+    }
+
+    /**
+     * Compile the current nodes and edges into an immutable CSR snapshot for analytics. Only the edges connected
+     * to the nodes on both sides are included.
+     *
+     * @return - The snapshot of view.
+     * @see ViewSnapshot
+     */
+    public ViewSnapshot freeze() {
+        return new ViewSnapshot(id, nodes, outLists, nodeIds.bound(), edges, edgeTo, edgeIds.bound());
+    }
+
+    /**
+     * Get all html nodes in the view, the list is a copy.
      *
      * @return
      */
     public List<HTMLNode> getAllHTMLNodes() {
-        return new ArrayList<>(htmlNodeMap.values());
+        return new ArrayList<>(htmlNodeView);
     }
 
     /**
-     * Get all css nodes in the view.
+     * Get all css nodes in the view, the list is a copy.
      *
      * @return
      */
     public List<CSSNode> getAllCSSNodes() {
-        return new ArrayList<>(cssNodeMap.values());
+        return new ArrayList<>(cssNodeView);
     }
 
     /**
-     * Get all css rules in the view.
+     * Get all css rules in the view, the list is a copy.
      *
      * @return
      */
     public List<CSSRuleNode> getAllCSSRules() {
-        return new ArrayList<>(cssRuleMap.values());
+        return new ArrayList<>(cssRuleView);
     }
 
     /**
-     * Get all script nodes in the view.
+     * Get all script nodes in the view, the list is a copy.
      *
      * @return
      */
     public List<ScriptNode> getAllScriptNodes() {
-        return new ArrayList<>(scriptNodeMap.values());
+        return new ArrayList<>(scriptNodeView);
     }
 
     /**
-     * Get all network nodes in the view.
+     * Get all network nodes in the view, the list is a copy.
      *
      * @return
      */
     public List<NetworkNode> getAllNetworkNodes() {
-        return new ArrayList<>(networkNodeMap.values());
+        return new ArrayList<>(networkNodeView);
     }
 
     /**
-     * Get all iframe in the current VIEW. Each iframe corresponds to a view in the graph.
+     * Get all iframe in the current VIEW. Each iframe corresponds to a view in the graph. The list is a copy.
      *
      * @return
      */
     public List<IframeNode> getAllIframeNodes() {
-        return new ArrayList<>(iframeNodeMap.values());
+        return new ArrayList<>(iframeNodeView);
     }
 
     /**
@@ -198,7 +421,11 @@ public class View {
      * @param id
      */
     public void setId(@NonNull String id) {
+        String oldId = this.id;
         this.id = id;
+        if (graph != null) {
+            graph.reindexViewId(this, oldId);
+        }
     }
 
     /**
@@ -217,7 +444,88 @@ public class View {
      * @param id
      */
     public void setParentNodeId(@NonNull String id) {
+        String oldId = this.parentNodeId;
         this.parentNodeId = id;
+        if (graph != null) {
+            graph.reindexParentNodeId(this, oldId);
+        }
+    }
+
+    /**
+     * Set the graph which holds this view, the graph is notified when the id or parent node id changes.
+     *
+     * @param graph
+     */
+    void setGraph(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Get the string pool to dedup the attributes of nodes, which is shared by the views in the same graph.
+     *
+     * @return
+     */
+    public synchronized StringPool getStringPool() {
+        if (graph != null) {
+            return graph.getStringPool();
+        }
+        if (stringPool == null) {
+            stringPool = new StringPool();
+        }
+        return stringPool;
+    }
+
+    /**
+     * Get the payload store which holds the large payloads of nodes in the view, which is shared by the views in the
+     * same graph.
+     *
+     * @return
+     */
+    public synchronized PayloadStore getPayloadStore() {
+        if (graph != null) {
+            return graph.getPayloadStore();
+        }
+        if (payloadStore == null) {
+            payloadStore = new PayloadStore();
+        }
+        return payloadStore;
+    }
+
+    /**
+     * Register the listener of the structure changes of view.
+     *
+     * @param listener
+     */
+    public void addListener(@NonNull ViewListener listener) {
+        if (listeners == null) {
+            listeners = new ViewListener[]{listener};
+            return;
+        }
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Unregister the listener.
+     *
+     * @param listener
+     * @return - True if the listener is registered before.
+     */
+    public boolean removeListener(@NonNull ViewListener listener) {
+        if (listeners == null) {
+            return false;
+        }
+
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ViewListener[] remaining = new ViewListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                listeners = remaining.length == 0 ? null : remaining;
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -227,7 +535,126 @@ public class View {
      * @return
      */
     public Node findNodeById(@NonNull String id) {
-        return nodeMap.get(id);
+        int index = nodeIds.find(id);
+        return index < 0 ? null : nodeAt(index);
+    }
+
+    /**
+     * Find node by the int id assigned by the view.
+     *
+     * @param index
+     * @return - The node, return null if the int id is not in use.
+     */
+    public Node findNodeByIndex(int index) {
+        return index >= 0 && index < nodeIds.bound() ? nodeAt(index) : null;
+    }
+
+    /**
+     * Check if the node object is held by the view.
+     *
+     * @param node
+     * @return
+     */
+    public boolean containsNode(@NonNull Node node) {
+        return indexOf(node) >= 0;
+    }
+
+    /**
+     * Get the int id assigned by the view to the node.
+     *
+     * @param node
+     * @return - The int id, return -1 if the node object is not held by the view.
+     */
+    public int indexOf(@NonNull Node node) {
+        int index = nodeIds.find(node.getId());
+        return index >= 0 && nodeAt(index) == node ? index : -1;
+    }
+
+    /**
+     * Get the int id assigned by the view to the edge.
+     *
+     * @param edge
+     * @return - The int id, return -1 if the edge object is not held by the view.
+     */
+    public int indexOf(@NonNull Edge edge) {
+        int index = edgeIds.find(edge.getId());
+        return index >= 0 && edgeAt(index) == edge ? index : -1;
+    }
+
+    /**
+     * Get the int ids of the edges point to the node, bucketed by edge type. Do not modify it.
+     *
+     * @param index - Node int id.
+     * @return - The in-edges, return null if the int id is not in use.
+     */
+    public Adjacency inList(int index) {
+        return findNodeByIndex(index) == null ? null : inLists[index];
+    }
+
+    /**
+     * Get the int ids of the edges start from the node, bucketed by edge type. Do not modify it.
+     *
+     * @param index - Node int id.
+     * @return - The out-edges, return null if the int id is not in use.
+     */
+    public Adjacency outList(int index) {
+        return findNodeByIndex(index) == null ? null : outLists[index];
+    }
+
+    /**
+     * Get the node int id in the from side of edge.
+     *
+     * @param edgeIndex - Edge int id.
+     * @return - The node int id, return -1 if the edge int id is not in use or the edge is not connected.
+     */
+    public int fromIndexOf(int edgeIndex) {
+        return findEdgeByIndex(edgeIndex) == null ? -1 : edgeFrom[edgeIndex];
+    }
+
+    /**
+     * Get the node int id in the to side of edge.
+     *
+     * @param edgeIndex - Edge int id.
+     * @return - The node int id, return -1 if the edge int id is not in use or the edge is not connected.
+     */
+    public int toIndexOf(int edgeIndex) {
+        return findEdgeByIndex(edgeIndex) == null ? -1 : edgeTo[edgeIndex];
+    }
+
+    /**
+     * All node int ids in the view are less than this bound.
+     *
+     * @return
+     */
+    public int nodeIndexBound() {
+        return nodeIds.bound();
+    }
+
+    /**
+     * All edge int ids in the view are less than this bound.
+     *
+     * @return
+     */
+    public int edgeIndexBound() {
+        return edgeIds.bound();
+    }
+
+    /**
+     * The number of new node int ids the view can hand out without growing its arrays.
+     *
+     * @return
+     */
+    int nodeRoom() {
+        return nodes.length - nodeIds.bound();
+    }
+
+    /**
+     * The number of new edge int ids the view can hand out without growing its arrays.
+     *
+     * @return
+     */
+    int edgeRoom() {
+        return edges.length - edgeIds.bound();
     }
 
     /**
@@ -236,17 +663,7 @@ public class View {
      * @return - The id of html node, if the id already exists, return null.
      */
     public String addHTMLNode(@NonNull HTMLNode htmlNode) {
-        if (htmlNode.getId() == null || htmlNode.getId().equals("")) {
-            htmlNode.setId(Random.generateId());
-        }
-
-        if (htmlNodeMap.containsKey(htmlNode.getId())) {
-            return null;
-        }
-
-        nodeMap.put(htmlNode.getId(), htmlNode);
-        htmlNodeMap.put(htmlNode.getId(), htmlNode);
-        return htmlNode.getId();
+        return registerNode(htmlNode, htmlNodeSet);
     }
 
     /**
@@ -255,18 +672,55 @@ public class View {
      * @return - The html node with specific tag name,
      */
     public List<HTMLNode> findHTMLNodeByTag(@NonNull String tagName) {
-        List<HTMLNode> nodeList = new ArrayList<>();
         if (tagName.equals("")) {
-            return nodeList;
+            return new ArrayList<>();
         }
 
-        for (HTMLNode htmlNode : htmlNodeMap.values()) {
-            if (htmlNode.getTagName() != null && htmlNode.getTagName().equals(tagName)) {
-                nodeList.add(htmlNode);
-            }
+        return lookup(tagIndex, tagName);
+    }
+
+    /**
+     * Find html node by the id in html tag.
+     *
+     * @param identifyID
+     * @return - The html nodes with specific id in html tag.
+     */
+    public List<HTMLNode> findHTMLNodeByIdentifyID(@NonNull String identifyID) {
+        if (identifyID.equals("")) {
+            return new ArrayList<>();
         }
 
-        return nodeList;
+        return lookup(identifyIdIndex, identifyID);
+    }
+
+    /**
+     * Find html node by one of its class names.
+     *
+     * @param className - A single class name.
+     * @return - The html nodes which have the class name.
+     */
+    public List<HTMLNode> findHTMLNodeByClass(@NonNull String className) {
+        if (className.equals("")) {
+            return new ArrayList<>();
+        }
+
+        return lookup(classIndex, className);
+    }
+
+    /**
+     * Update the secondary indexes of node, should be called after changing the tag name, id in html tag or class
+     * names of a html node, or the url of a network node in the view.
+     *
+     * @param node
+     */
+    public void reindexNode(@NonNull Node node) {
+        int index = indexOf(node);
+        if (index < 0) {
+            return;
+        }
+
+        unindexNode(node, index);
+        indexNode(node, index);
     }
 
     /**
@@ -276,13 +730,7 @@ public class View {
      * @return - deleted html node if remove success, otherwise return null.
      */
     public HTMLNode deleteHTMLNodeById(@NonNull String id) {
-        HTMLNode node = htmlNodeMap.remove(id);
-        if (node != null) {
-            nodeMap.remove(id);
-            breakConnection(node);
-        }
-
-        return node;
+        return (HTMLNode) unregisterNode(nodeIds.find(id), htmlNodeSet);
     }
 
     /**
@@ -291,17 +739,7 @@ public class View {
      * @return - The id of css node, if the id already exists, return null.
      */
     public String addCSSNode(@NonNull CSSNode cssNode) {
-        if (cssNode.getId() == null || cssNode.getId().equals("")) {
-            cssNode.setId(Random.generateId());
-        }
-
-        if (cssNodeMap.containsKey(cssNode.getId())) {
-            return null;
-        }
-
-        nodeMap.put(cssNode.getId(), cssNode);
-        cssNodeMap.put(cssNode.getId(), cssNode);
-        return cssNode.getId();
+        return registerNode(cssNode, cssNodeSet);
     }
 
     /**
@@ -311,13 +749,7 @@ public class View {
      * @return - deleted css node if remove success, otherwise return null.
      */
     public CSSNode deleteCSSNodeById(@NonNull String id) {
-        CSSNode node = cssNodeMap.remove(id);
-        if (node != null) {
-            nodeMap.remove(id);
-            breakConnection(node);
-        }
-
-        return node;
+        return (CSSNode) unregisterNode(nodeIds.find(id), cssNodeSet);
     }
 
     /**
@@ -326,17 +758,7 @@ public class View {
      * @return - The id of css rule, if the id already exists, return null.
      */
     public String addCSSRuleNode(@NonNull CSSRuleNode cssRuleNode) {
-        if (cssRuleNode.getId() == null || cssRuleNode.getId().equals("")) {
-            cssRuleNode.setId(Random.generateId());
-        }
-
-        if (cssRuleMap.containsKey(cssRuleNode.getId())) {
-            return null;
-        }
-
-        nodeMap.put(cssRuleNode.getId(), cssRuleNode);
-        cssRuleMap.put(cssRuleNode.getId(), cssRuleNode);
-        return cssRuleNode.getId();
+        return registerNode(cssRuleNode, cssRuleSet);
     }
 
     /**
@@ -346,13 +768,7 @@ public class View {
      * @return - deleted css rule node if remove success, otherwise return null.
      */
     public CSSRuleNode deleteCSSRuleNodeById(@NonNull String id) {
-        CSSRuleNode node = cssRuleMap.remove(id);
-        if (node != null) {
-            nodeMap.remove(id);
-            breakConnection(node);
-        }
-
-        return node;
+        return (CSSRuleNode) unregisterNode(nodeIds.find(id), cssRuleSet);
     }
 
     /**
@@ -361,17 +777,7 @@ public class View {
      * @return - The id of script node, if the id already exists, return null.
      */
     public String addScriptNode(@NonNull ScriptNode scriptNode) {
-        if (scriptNode.getId() == null || scriptNode.getId().equals("")) {
-            scriptNode.setId(Random.generateId());
-        }
-
-        if (scriptNodeMap.containsKey(scriptNode.getId())) {
-            return null;
-        }
-
-        nodeMap.put(scriptNode.getId(), scriptNode);
-        scriptNodeMap.put(scriptNode.getId(), scriptNode);
-        return scriptNode.getId();
+        return registerNode(scriptNode, scriptNodeSet);
     }
 
     /**
@@ -381,13 +787,7 @@ public class View {
      * @return - deleted script node if remove success, otherwise return null.
      */
     public ScriptNode deleteScriptNodeById(@NonNull String id) {
-        ScriptNode node = scriptNodeMap.remove(id);
-        if (node != null) {
-            nodeMap.remove(id);
-            breakConnection(node);
-        }
-
-        return node;
+        return (ScriptNode) unregisterNode(nodeIds.find(id), scriptNodeSet);
     }
 
     /**
@@ -399,24 +799,13 @@ public class View {
      * @return - The id of saved network node, the id maybe changed if the network node with same url has exists.
      */
     public String addNetworkNode(@NonNull NetworkNode networkNode) {
-        if (networkNode.getId() == null || networkNode.getId().equals("")) {
-            networkNode.setId(Random.generateId());
-        }
-
         NetworkNode exist = findNetworkNodeByURL(networkNode.getUrl());
 
         if (exist != null) {
             exist.addMessages(networkNode.getMessageList());
             return exist.getId();
-        } else {
-            if (networkNodeMap.containsKey(networkNode.getId())) {
-                return null;
-            }
-
-            nodeMap.put(networkNode.getId(), networkNode);
-            networkNodeMap.put(networkNode.getId(), networkNode);
         }
-        return networkNode.getId();
+        return registerNode(networkNode, networkNodeSet);
     }
 
     /**
@@ -426,12 +815,7 @@ public class View {
      * @return
      */
     public NetworkNode findNetworkNodeByURL(@NonNull String url) {
-        for (NetworkNode node : networkNodeMap.values()) {
-            if (node.getUrl().equals(url)) {
-                return node;
-            }
-        }
-        return null;
+        return urlIndex.get(url);
     }
 
     /**
@@ -441,13 +825,7 @@ public class View {
      * @return - deleted network node if remove success, otherwise return null.
      */
     public NetworkNode deleteNetworkNodeById(@NonNull String id) {
-        NetworkNode node = networkNodeMap.remove(id);
-        if (node != null) {
-            nodeMap.remove(node.getUrl());
-            breakConnection(node);
-        }
-
-        return node;
+        return (NetworkNode) unregisterNode(nodeIds.find(id), networkNodeSet);
     }
 
     /**
@@ -458,13 +836,7 @@ public class View {
      */
     public NetworkNode deleteNetworkNodeByURL(@NonNull String url) {
         NetworkNode node = findNetworkNodeByURL(url);
-        if (node != null) {
-            networkNodeMap.remove(node.getId());
-            nodeMap.remove(node.getId());
-            breakConnection(node);
-        }
-
-        return node;
+        return node == null ? null : (NetworkNode) unregisterNode(indexOf(node), networkNodeSet);
     }
 
     /**
@@ -474,17 +846,7 @@ public class View {
      * @return
      */
     public String addIframe(@NonNull IframeNode iframeNode) {
-        if (iframeNode.getId() == null || iframeNode.getId().equals("")) {
-            iframeNode.setId(Random.generateId());
-        }
-
-        if (iframeNodeMap.containsKey(iframeNode.getId())) {
-            return null;
-        }
-
-        nodeMap.put(iframeNode.getId(), iframeNode);
-        iframeNodeMap.put(iframeNode.getId(), iframeNode);
-        return iframeNode.getId();
+        return registerNode(iframeNode, iframeNodeSet);
     }
 
     /**
@@ -494,16 +856,7 @@ public class View {
      * @return - deleted network node if remove success, otherwise return null.
      */
     public IframeNode deleteIframeNodeById(@NonNull String id) {
-        if (id == null) {
-            return null;
-        }
-
-        IframeNode node = iframeNodeMap.remove(id);
-        if (node != null) {
-            nodeMap.remove(id);
-            breakConnection(node);
-        }
-        return node;
+        return (IframeNode) unregisterNode(nodeIds.find(id), iframeNodeSet);
     }
 
     /**
@@ -514,12 +867,17 @@ public class View {
      */
     public List<Edge> breakConnection(Node node) {
         List<Edge> deleted = new ArrayList<>();
-        if (node.getInList() != null && !node.getInList().isEmpty()) {
-            deleted.addAll(deleteEdgesById(node.getInList()));
+        int index = indexOf(node);
+        if (index < 0) {
+            return deleted;
+        }
+
+        if (!inLists[index].isEmpty()) {
+            deleteEdgesByIndex(inLists[index].toArray(), deleted);
         }
 
-        if (node.getOutList() != null && !node.getOutList().isEmpty()) {
-            deleted.addAll(deleteEdgesById(node.getOutList()));
+        if (!outLists[index].isEmpty()) {
+            deleteEdgesByIndex(outLists[index].toArray(), deleted);
         }
 
         return deleted;
@@ -537,23 +895,18 @@ public class View {
         }
 
         // Make sure the node in two side has already added in the view.
-        if (!nodeMap.containsKey(edge.getFromNodeId()) || !nodeMap.containsKey(edge.getToNodeId())) {
+        int from = nodeIds.find(edge.getFromNodeId());
+        int to = nodeIds.find(edge.getToNodeId());
+        if (from < 0 || to < 0) {
             return null;
         }
 
-        if (edge.getId() == null || edge.getId().equals("")) {
-            edge.setId(Random.generateId());
-        }
-
-        if (edgeMap.containsKey(edge.getId())) {
+        int index = registerEdge(edge, from, to);
+        if (index < 0) {
             return null;
         }
 
-        nodeMap.get(edge.getFromNodeId()).addOutEdge(edge);
-        nodeMap.get(edge.getToNodeId()).addInEdge(edge);
-
-        edgeMap.put(edge.getId(), edge);
-
+        link(index, edge, from, to);
         return edge.getId();
     }
 
@@ -568,21 +921,22 @@ public class View {
      */
     public Edge addEdge(@NonNull String fromNodeId, @NonNull String fromType, @NonNull String toNodeId, @NonNull String toType, @NonNull String edgeType) {
         // Make sure the node in two side has already added in the view.
-        if (!nodeMap.containsKey(fromNodeId) || !nodeMap.containsKey(toNodeId)) {
+        int from = nodeIds.find(fromNodeId);
+        int to = nodeIds.find(toNodeId);
+        if (from < 0 || to < 0) {
             return null;
         }
 
         Edge edge = new Edge();
-        edge.setId(Random.generateId());
         edge.setEdgeType(edgeType);
         edge.setFrom(fromNodeId, fromType);
         edge.setTo(toNodeId, toType);
+        int index = registerEdge(edge, from, to);
+        if (index < 0) {
+            return null;
+        }
 
-        edgeMap.put(edge.getId(), edge);
-
-        nodeMap.get(fromNodeId).addOutEdge(edge);
-        nodeMap.get(toNodeId).addInEdge(edge);
-
+        link(index, edge, from, to);
         return edge;
     }
 
@@ -594,21 +948,22 @@ public class View {
      * @return - Return edge id if add successes, otherwise return null.
      */
     public String addEdgeUncheckExistence(@NonNull Edge edge) {
-        if (edge.getFromNodeId() == null || edge.getToNodeId() == null) {
-            return null;
-        }
-
-        if (edge.getId() == null) {
-            edge.setId(Random.generateId());
-        }
+        return addEdgeUnconnected(edge) < 0 ? null : edge.getId();
+    }
 
-        if (edgeMap.containsKey(edge.getId())) {
-            return null;
+    /**
+     * Register the edge into the view without connecting the nodes in two sides.
+     *
+     * @param edge
+     * @return - The int id of edge, return -1 if the edge is rejected.
+     * @see #addEdgeUncheckExistence(Edge)
+     */
+    int addEdgeUnconnected(Edge edge) {
+        if (edge.getFromNodeId() == null || edge.getToNodeId() == null) {
+            return -1;
         }
 
-        edgeMap.put(edge.getId(), edge);
-
-        return edge.getId();
+        return registerEdge(edge, -1, -1);
     }
 
     /**
@@ -618,18 +973,41 @@ public class View {
      * @return - deleted and return the edge if exists, otherwise return null.
      */
     public Edge deleteEdgeById(@NonNull String id) {
-        Edge edge = edgeMap.remove(id);
-        if (edge != null) {
-            Node from = findNodeById(edge.getFromNodeId());
-            if (from != null) {
-                from.removeOutEdge(edge);
-            }
-            Node to = findNodeById(edge.getToNodeId());
-            if (to != null) {
-                to.removeInEdge(edge);
+        return deleteEdgeByIndex(edgeIds.find(id));
+    }
+
+    /**
+     * Delete edge by the int id assigned by the view.
+     *
+     * @param index
+     * @return - deleted and return the edge if exists, otherwise return null.
+     */
+    public Edge deleteEdgeByIndex(int index) {
+        Edge edge = findEdgeByIndex(index);
+        if (edge == null) {
+            return null;
+        }
+
+        int from = edgeFrom[index];
+        int to = edgeTo[index];
+        if (from >= 0) {
+            outLists[from].remove(index);
+        }
+        if (to >= 0) {
+            inLists[to].remove(index);
+        }
+        // The listeners only know the connected edges.
+        if (listeners != null && from >= 0 && to >= 0) {
+            for (ViewListener listener : listeners) {
+                listener.edgeRemoved(edge, index, from, to);
             }
         }
 
+        edges[index] = null;
+        edgeFrom[index] = -1;
+        edgeTo[index] = -1;
+        edgeIds.release(index);
+        modCount.incrementAndGet();
         return edge;
     }
 
@@ -658,7 +1036,18 @@ public class View {
      * @return
      */
     public Edge findEdgeById(@NonNull String id) {
-        return edgeMap.get(id);
+        int index = edgeIds.find(id);
+        return index < 0 ? null : edgeAt(index);
+    }
+
+    /**
+     * Find edge by the int id assigned by the view.
+     *
+     * @param index
+     * @return - The edge, return null if the int id is not in use.
+     */
+    public Edge findEdgeByIndex(int index) {
+        return index >= 0 && index < edgeIds.bound() ? edgeAt(index) : null;
     }
 
     /**
@@ -670,7 +1059,12 @@ public class View {
      */
     public boolean edgeTypeVerify(@NonNull String id, @NonNull EdgeFilter filter) {
         Edge edge = findEdgeById(id);
-        return edge != null && filter.contains(edge.getEdgeType());
+        if (edge == null) {
+            return false;
+        }
+
+        filter.buildTypeSet();
+        return filter.contains(edge);
     }
 
     /**
@@ -680,12 +1074,12 @@ public class View {
      * @return
      */
     public Node findToSideForEdge(@NonNull String id) {
-        Edge edge = findEdgeById(id);
-        if(edge == null) {
+        int index = edgeIds.find(id);
+        if(index < 0) {
             return null;
         }
 
-        Node toSide = findNodeById(edge.getToNodeId());
+        Node toSide = findNodeByIndex(toIndexOf(index));
         if (toSide == null) {
             return null;
         }
@@ -700,8 +1094,10 @@ public class View {
      */
     public List<Edge> findInEdgeForNode(@NonNull Node node) {
         List<Edge> edgeList = new ArrayList<>();
-        for (String edgeId : node.getInList()) {
-            Edge in = edgeMap.get(edgeId);
+        Adjacency inList = inListOf(node);
+        for (int i = 0; i < inList.size(); i++) {
+            int edgeId = inList.get(i);
+            Edge in = findEdgeByIndex(edgeId);
             if (in == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the in-edge for node " + node.getId() + ".");
@@ -720,8 +1116,10 @@ public class View {
      */
     public List<Edge> findAllEdgeForNode(@NonNull Node node) {
         List<Edge> edgeList = new ArrayList<>();
-        for (String edgeId : node.getInList()) {
-            Edge in = edgeMap.get(edgeId);
+        Adjacency inList = inListOf(node);
+        for (int i = 0; i < inList.size(); i++) {
+            int edgeId = inList.get(i);
+            Edge in = findEdgeByIndex(edgeId);
             if (in == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the in-edge for node " + node.getId() + ".");
@@ -730,8 +1128,10 @@ public class View {
             edgeList.add(in);
         }
 
-        for (String edgeId : node.getOutList()) {
-            Edge in = edgeMap.get(edgeId);
+        Adjacency outList = outListOf(node);
+        for (int i = 0; i < outList.size(); i++) {
+            int edgeId = outList.get(i);
+            Edge in = findEdgeByIndex(edgeId);
             if (in == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the out-edge for node " + node.getId() + ".");
@@ -751,32 +1151,37 @@ public class View {
      */
     public List<Edge> findAllEdgeForNode(@NonNull Node node, @NonNull String egdeType) {
         List<Edge> edgeList = new ArrayList<>();
-        for (String edgeId : node.getInList()) {
-            Edge in = edgeMap.get(edgeId);
+        byte type = EdgeType.code(egdeType);
+        Adjacency inList = inListOf(node);
+        for (int i = 0; i < inList.size(type); i++) {
+            int edgeId = inList.get(type, i);
+            Edge in = findEdgeByIndex(edgeId);
             if (in == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the in-edge for node " + node.getId() + ".");
                 continue;
             }
 
-            if (in.getEdgeType().equals(egdeType)) {
+            // Only the unknown types share a bucket, the name check is needed for them only.
+            if (type != EdgeType.UNKNOWN_CODE || egdeType.equals(in.getEdgeType())) {
                 edgeList.add(in);
             }
-            edgeList.add(in);
         }
 
-        for (String edgeId : node.getOutList()) {
-            Edge out = edgeMap.get(edgeId);
+        Adjacency outList = outListOf(node);
+        for (int i = 0; i < outList.size(type); i++) {
+            int edgeId = outList.get(type, i);
+            Edge out = findEdgeByIndex(edgeId);
             if (out == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the out-edge for node " + node.getId() + ".");
                 continue;
             }
 
-            if (out.getEdgeType().equals(egdeType)) {
+            // Only the unknown types share a bucket, the name check is needed for them only.
+            if (type != EdgeType.UNKNOWN_CODE || egdeType.equals(out.getEdgeType())) {
                 edgeList.add(out);
             }
-            edgeList.add(out);
         }
         return edgeList;
     }
@@ -791,15 +1196,19 @@ public class View {
      */
     public List<Edge> findInEdgeForNode(@NonNull Node node, @NonNull String egdeType) {
         List<Edge> edgeList = new ArrayList<>();
-        for (String edgeId : node.getInList()) {
-            Edge in = edgeMap.get(edgeId);
+        byte type = EdgeType.code(egdeType);
+        Adjacency inList = inListOf(node);
+        for (int i = 0; i < inList.size(type); i++) {
+            int edgeId = inList.get(type, i);
+            Edge in = findEdgeByIndex(edgeId);
             if (in == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the in-edge for node " + node.getId() + ".");
                 continue;
             }
 
-            if (in.getEdgeType().equals(egdeType)) {
+            // Only the unknown types share a bucket, the name check is needed for them only.
+            if (type != EdgeType.UNKNOWN_CODE || egdeType.equals(in.getEdgeType())) {
                 edgeList.add(in);
             }
         }
@@ -814,8 +1223,10 @@ public class View {
      */
     public List<Edge> findOutEdgeForNode(@NonNull Node node) {
         List<Edge> edgeList = new ArrayList<>();
-        for (String edgeId : node.getOutList()) {
-            Edge out = edgeMap.get(edgeId);
+        Adjacency outList = outListOf(node);
+        for (int i = 0; i < outList.size(); i++) {
+            int edgeId = outList.get(i);
+            Edge out = findEdgeByIndex(edgeId);
             if (out == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the out-edge for node " + node.getId() + ".");
@@ -835,15 +1246,19 @@ public class View {
      */
     public List<Edge> findOutEdgeForNode(@NonNull Node node, @NonNull String egdeType) {
         List<Edge> edgeList = new ArrayList<>();
-        for (String edgeId : node.getOutList()) {
-            Edge out = edgeMap.get(edgeId);
+        byte type = EdgeType.code(egdeType);
+        Adjacency outList = outListOf(node);
+        for (int i = 0; i < outList.size(type); i++) {
+            int edgeId = outList.get(type, i);
+            Edge out = findEdgeByIndex(edgeId);
             if (out == null) {
                 Logger.getInstance().error("Fail to find edge for id: " + edgeId +
                         " which is the out-edge for node " + node.getId() + ".");
                 continue;
             }
 
-            if (out.getEdgeType().equals(egdeType)) {
+            // Only the unknown types share a bucket, the name check is needed for them only.
+            if (type != EdgeType.UNKNOWN_CODE || egdeType.equals(out.getEdgeType())) {
                 edgeList.add(out);
             }
         }
@@ -857,33 +1272,543 @@ public class View {
      * @return - The edge fail to find its connected node.
      */
     public List<Edge> connectionEdge() {
+        List<Edge> failList = connectEdges(0);
+        for (Edge edge : failList) {
+            Logger.getInstance().info("Edge (" + edge.getId() + " - " + edge.getEdgeType() + ") fail to build the connect.");
+        }
+
+        return failList;
+    }
+
+    /**
+     * Make sure the view can hold more nodes and edges without growing.
+     *
+     * @param nodeCount - The number of nodes to add.
+     * @param edgeCount - The number of edges to add.
+     */
+    void ensureCapacity(int nodeCount, int edgeCount) {
+        nodeIds.ensureCapacity(nodeCount);
+        edgeIds.ensureCapacity(edgeCount);
+        if (nodeIds.bound() + nodeCount > nodes.length) {
+            growNodes(nodeIds.bound() + nodeCount);
+        }
+        if (edgeIds.bound() + edgeCount > edges.length) {
+            growEdges(edgeIds.bound() + edgeCount);
+        }
+    }
+
+    /**
+     * Connect the edges whose int id is not less than firstIndex to the nodes in two sides.
+     *
+     * @param firstIndex - The first edge int id to connect.
+     * @return - The edges fail to find its connected node.
+     * @see #connectEdges(int[])
+     */
+    List<Edge> connectEdges(int firstIndex) {
+        int first = Math.max(firstIndex, 0);
+        int[] indices = new int[Math.max(edgeIds.bound() - first, 0)];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = first + i;
+        }
+        return connectEdges(indices);
+    }
+
+    /**
+     * Connect the edges to the nodes in two sides in one sweep. The two sides are resolved once, then the adjacency
+     * of each node is sized by its degree in the batch before the edges are added. The work and the memory are in
+     * the size of the batch, not the size of the view. The edge fail to find the node in either side is removed from
+     * the view.
+     *
+     * @param indices - The edge int ids to connect, the released int ids are skipped. The int ids of the edges not
+     *                connected are set to -1 on return, since they may be handed out again.
+     * @return - The edges fail to find its connected node.
+     */
+    List<Edge> connectEdges(int[] indices) {
         List<Edge> failList = new ArrayList<>();
-        for (Edge edge : edgeMap.values()) {
-            Node from = findNodeById(edge.getFromNodeId());
-            Node to = findNodeById(edge.getToNodeId());
+        int[] fromIndex = new int[indices.length];
+        int[] toIndex = new int[indices.length];
+        int[] outSides = new int[indices.length];
+        int[] inSides = new int[indices.length];
+        int count = 0;
+
+        for (int k = 0; k < indices.length; k++) {
+            int i = indices[k];
+            Edge edge = i >= 0 && i < edgeIds.bound() ? edges[i] : null;
+            fromIndex[k] = -1;
+            if (edge == null) {
+                indices[k] = -1;
+                continue;
+            }
+
+            int from = edge.getFromNodeId() == null ? -1 : nodeIds.find(edge.getFromNodeId());
+            int to = edge.getToNodeId() == null ? -1 : nodeIds.find(edge.getToNodeId());
 
-            if (from == null || to == null) {
+            if (from < 0 || to < 0) {
                 failList.add(edge);
-                Logger.getInstance().info("Edge (" + edge.getId() + " - " + edge.getEdgeType() + ") fail to build the connect.");
 
-                if (from != null) {
-                    from.removeOutEdge(edge);
+                // Remove the edge from the nodes it was connected to and release its int id.
+                deleteEdgeByIndex(i);
+                indices[k] = -1;
+                continue;
+            }
+
+            fromIndex[k] = from;
+            toIndex[k] = to;
+            outSides[count] = from;
+            inSides[count] = to;
+            count++;
+        }
+
+        reserve(outLists, outSides, count);
+        reserve(inLists, inSides, count);
+
+        for (int k = 0; k < indices.length; k++) {
+            if (fromIndex[k] >= 0) {
+                connect(indices[k], fromIndex[k], toIndex[k]);
+            }
+        }
+
+        return failList;
+    }
+
+    /**
+     * Grow the adjacency of each node once for the edges going to be added to it.
+     *
+     * @param lists - The in lists or out lists.
+     * @param sides - The node int id for each edge going to be added, sorted in place.
+     * @param count - The number of edges.
+     */
+    private static void reserve(Adjacency[] lists, int[] sides, int count) {
+        Arrays.sort(sides, 0, count);
+        int end;
+        for (int start = 0; start < count; start = end) {
+            end = start + 1;
+            while (end < count && sides[end] == sides[start]) {
+                end++;
+            }
+            lists[sides[start]].ensureCapacity(lists[sides[start]].size() + end - start);
+        }
+    }
+
+    /**
+     * Allocate the int id for node and put it into the view.
+     *
+     * @param node
+     * @param typeSet - The int id set of node type.
+     * @return - The id of node, if the id already exists, return null.
+     */
+    private String registerNode(Node node, BitSet typeSet) {
+        int index = nodeIds.allocate(node.getId());
+        if (index < 0) {
+            return null;
+        }
+
+        if (index >= nodes.length) {
+            growNodes(Math.max(index + 1, nodes.length + (nodes.length >> 1)));
+        }
+        node.setId(nodeIds.resolve(index));
+        node.attachPayloads(getPayloadStore());
+        createAdjacency(inLists, outLists, index);
+        NODES.setRelease(nodes, index, node);
+        modCount.incrementAndGet();
+        indexNode(node, typeSet, index);
+        if (listeners != null) {
+            for (ViewListener listener : listeners) {
+                listener.nodeAdded(node, index);
+            }
+        }
+        return node.getId();
+    }
+
+    /**
+     * Delete the connection of node, then remove it from the view and release its int id.
+     *
+     * @param index - Node int id.
+     * @param typeSet - The int id set of node type.
+     * @return - Deleted node, return null if the node is not in the type set.
+     */
+    private Node unregisterNode(int index, BitSet typeSet) {
+        if (index < 0 || !typeSet.get(index)) {
+            return null;
+        }
+
+        Node node = nodes[index];
+        breakConnection(node);
+        unindexNode(node, index);
+        if (listeners != null) {
+            for (ViewListener listener : listeners) {
+                listener.nodeRemoved(node, index);
+            }
+        }
+
+        nodes[index] = null;
+        inLists[index] = null;
+        outLists[index] = null;
+        typeSet.clear(index);
+        modCount.incrementAndGet();
+        nodeIds.release(index);
+        node.detachPayloads(getPayloadStore());
+        return node;
+    }
+
+    /**
+     * Allocate the int id for edge and put it into the view, the adjacency of two sides is not changed. The edge is
+     * published after its two sides are set.
+     *
+     * @param edge
+     * @param from - Node int id in the from side, -1 if not connected yet.
+     * @param to - Node int id in the to side, -1 if not connected yet.
+     * @return - The int id of edge, return -1 if the id already exists.
+     */
+    private int registerEdge(Edge edge, int from, int to) {
+        int index = edgeIds.allocate(edge.getId());
+        if (index < 0) {
+            return -1;
+        }
+
+        if (index >= edges.length) {
+            growEdges(Math.max(index + 1, edges.length + (edges.length >> 1)));
+        }
+        edge.setId(edgeIds.resolve(index));
+        edgeFrom[index] = from;
+        edgeTo[index] = to;
+        EDGES.setRelease(edges, index, edge);
+        modCount.incrementAndGet();
+        return index;
+    }
+
+    /**
+     * Link the edge to the nodes in two sides, nothing happens if it is already linked to them.
+     *
+     * @param index - Edge int id.
+     * @param from - Node int id in the from side.
+     * @param to - Node int id in the to side.
+     */
+    private void connect(int index, int from, int to) {
+        if (edgeFrom[index] == from && edgeTo[index] == to) {
+            return;
+        }
+
+        edgeFrom[index] = from;
+        edgeTo[index] = to;
+        link(index, edges[index], from, to);
+    }
+
+    /**
+     * Add the edge into the adjacency of the nodes in two sides, its two sides are already set.
+     *
+     * @param index - Edge int id.
+     * @param edge
+     * @param from - Node int id in the from side.
+     * @param to - Node int id in the to side.
+     */
+    private void link(int index, Edge edge, int from, int to) {
+        addToAdjacency(outLists, from, index, edge.getEdgeTypeCode());
+        addToAdjacency(inLists, to, index, edge.getEdgeTypeCode());
+        if (listeners != null) {
+            for (ViewListener listener : listeners) {
+                listener.edgeConnected(edge, index, from, to);
+            }
+        }
+    }
+
+    /**
+     * Create the adjacency of the node, unless an edge added at the same time already created it.
+     *
+     * @param ins - The in lists.
+     * @param outs - The out lists.
+     * @param index - Node int id.
+     * @see ConcurrentView
+     */
+    void createAdjacency(Adjacency[] ins, Adjacency[] outs, int index) {
+        if (ins[index] == null) {
+            ins[index] = new Adjacency();
+        }
+        if (outs[index] == null) {
+            outs[index] = new Adjacency();
+        }
+    }
+
+    /**
+     * Add the edge into the in list or out list of node, the list is created if the node is being added at the
+     * same time.
+     *
+     * @param lists - The in lists or out lists.
+     * @param node - Node int id.
+     * @param edgeIndex - Edge int id.
+     * @param type - Edge type code.
+     * @see ConcurrentView
+     */
+    void addToAdjacency(Adjacency[] lists, int node, int edgeIndex, byte type) {
+        Adjacency list = lists[node];
+        if (list == null) {
+            list = new Adjacency();
+            lists[node] = list;
+        }
+        list.add(edgeIndex, type);
+    }
+
+    /**
+     * Read the node slot, ordered after the writes before its publication.
+     *
+     * @param index - Node int id.
+     * @return
+     */
+    private Node nodeAt(int index) {
+        return (Node) NODES.getAcquire(nodes, index);
+    }
+
+    /**
+     * Read the edge slot, ordered after the writes before its publication.
+     *
+     * @param index - Edge int id.
+     * @return
+     */
+    private Edge edgeAt(int index) {
+        return (Edge) EDGES.getAcquire(edges, index);
+    }
+
+    /**
+     * Grow the arrays indexed by node int id.
+     *
+     * @param capacity
+     */
+    private void growNodes(int capacity) {
+        nodes = Arrays.copyOf(nodes, capacity);
+        inLists = Arrays.copyOf(inLists, capacity);
+        outLists = Arrays.copyOf(outLists, capacity);
+    }
+
+    /**
+     * Grow the arrays indexed by edge int id.
+     *
+     * @param capacity
+     */
+    private void growEdges(int capacity) {
+        edges = Arrays.copyOf(edges, capacity);
+        edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+        edgeTo = Arrays.copyOf(edgeTo, capacity);
+    }
+
+    /**
+     * Get the in-edges of node, the empty adjacency is returned if the node is not held by the view.
+     *
+     * @param node
+     * @return
+     */
+    private Adjacency inListOf(Node node) {
+        int index = indexOf(node);
+        Adjacency list = index < 0 ? null : inLists[index];
+        return list == null ? EMPTY : list;
+    }
+
+    /**
+     * Get the out-edges of node, the empty adjacency is returned if the node is not held by the view.
+     *
+     * @param node
+     * @return
+     */
+    private Adjacency outListOf(Node node) {
+        int index = indexOf(node);
+        Adjacency list = index < 0 ? null : outLists[index];
+        return list == null ? EMPTY : list;
+    }
+
+    /**
+     * Delete the edges by int id.
+     *
+     * @param indices - Edge int ids.
+     * @param deleted - The list to collect deleted edges.
+     */
+    private void deleteEdgesByIndex(int[] indices, List<Edge> deleted) {
+        for (int index : indices) {
+            Edge edge = deleteEdgeByIndex(index);
+            if (edge != null) {
+                deleted.add(edge);
+            }
+        }
+    }
+
+    /**
+     * Put the node into its type set and the secondary indexes.
+     *
+     * @param node - Node in the view.
+     * @param typeSet - The int id set of node type.
+     * @param index - Node int id.
+     * @see ConcurrentView
+     */
+    void indexNode(Node node, BitSet typeSet, int index) {
+        typeSet.set(index);
+        indexNode(node, index);
+    }
+
+    /**
+     * Put the html node or network node into the secondary indexes, and remember the keys.
+     *
+     * @param node - Node in the view.
+     * @param index - Node int id.
+     */
+    private void indexNode(Node node, int index) {
+        String[] keys;
+        if (node instanceof HTMLNode) {
+            HTMLNode htmlNode = (HTMLNode) node;
+            keys = new String[]{htmlNode.getTagName(), htmlNode.getIdentifyID(), htmlNode.getClassNames()};
+            addToIndex(tagIndex, keys[0], index);
+            addToIndex(identifyIdIndex, keys[1], index);
+            if (keys[2] != null) {
+                for (String className : keys[2].trim().split("\\s+")) {
+                    addToIndex(classIndex, className, index);
                 }
+            }
+        } else if (node instanceof NetworkNode) {
+            NetworkNode networkNode = (NetworkNode) node;
+            keys = new String[]{networkNode.getUrl()};
+            if (keys[0] != null) {
+                urlIndex.putIfAbsent(keys[0], networkNode);
+            }
+        } else {
+            return;
+        }
+
+        if (index >= indexedKeys.length) {
+            indexedKeys = Arrays.copyOf(indexedKeys, Math.max(index + 1, indexedKeys.length + (indexedKeys.length >> 1)));
+        }
+        indexedKeys[index] = keys;
+    }
+
+    /**
+     * Remove the node from the secondary indexes by the keys remembered when it is indexed.
+     *
+     * @param node - Node in the view.
+     * @param index - Node int id.
+     */
+    private void unindexNode(Node node, int index) {
+        if (index >= indexedKeys.length || indexedKeys[index] == null) {
+            return;
+        }
 
-                if (to != null) {
-                    to.removeOutEdge(edge);
+        String[] keys = indexedKeys[index];
+        indexedKeys[index] = null;
+        if (node instanceof HTMLNode) {
+            removeFromIndex(tagIndex, keys[0], index);
+            removeFromIndex(identifyIdIndex, keys[1], index);
+            if (keys[2] != null) {
+                for (String className : keys[2].trim().split("\\s+")) {
+                    removeFromIndex(classIndex, className, index);
                 }
-                continue;
             }
+        } else if (node instanceof NetworkNode && keys[0] != null && urlIndex.get(keys[0]) == node) {
+            urlIndex.remove(keys[0]);
+        }
+    }
 
-            from.addOutEdge(edge);
-            to.addInEdge(edge);
+    private static void addToIndex(Map<String, Set<Integer>> index, String key, int nodeIndex) {
+        if (key == null || key.isEmpty()) {
+            return;
         }
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(nodeIndex);
+    }
 
-        for (Edge failEdge : failList) {
-            edgeMap.remove(failEdge.getId());
+    private static void removeFromIndex(Map<String, Set<Integer>> index, String key, int nodeIndex) {
+        if (key == null || key.isEmpty()) {
+            return;
         }
 
-        return failList;
+        Set<Integer> nodeSet = index.get(key);
+        if (nodeSet != null && nodeSet.remove(nodeIndex) && nodeSet.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Copy the html nodes under the key of index into a list.
+     *
+     * @param index
+     * @param key
+     * @return
+     */
+    private List<HTMLNode> lookup(Map<String, Set<Integer>> index, String key) {
+        Set<Integer> nodeSet = index.get(key);
+        if (nodeSet == null) {
+            return new ArrayList<>();
+        }
+
+        List<HTMLNode> nodeList = new ArrayList<>(nodeSet.size());
+        for (int nodeIndex : nodeSet) {
+            nodeList.add((HTMLNode) nodes[nodeIndex]);
+        }
+        return nodeList;
+    }
+
+    /**
+     * Live collection of the nodes in the type set.
+     *
+     * @param <T> - Node type.
+     */
+    private class NodeCollection<T extends Node> extends LiveCollection<T> {
+        /**
+         * The int id set of node type, null for all nodes.
+         */
+        private final BitSet typeSet;
+
+        NodeCollection(BitSet typeSet) {
+            this.typeSet = typeSet;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected T slot(int index) {
+            return (T) nodes[index];
+        }
+
+        @Override
+        protected int nextIndex(int from) {
+            return typeSet == null ? from : typeSet.nextSetBit(from);
+        }
+
+        @Override
+        protected int bound() {
+            return nodeIds.bound();
+        }
+
+        @Override
+        protected int modCount() {
+            return modCount.get();
+        }
+
+        @Override
+        public int size() {
+            return typeSet == null ? nodeIds.size() : typeSet.cardinality();
+        }
+    }
+
+    /**
+     * Live collection of the edges.
+     */
+    private class EdgeCollection extends LiveCollection<Edge> {
+        @Override
+        protected Edge slot(int index) {
+            return edges[index];
+        }
+
+        @Override
+        protected int nextIndex(int from) {
+            return from;
+        }
+
+        @Override
+        protected int bound() {
+            return edgeIds.bound();
+        }
+
+        @Override
+        protected int modCount() {
+            return modCount.get();
+        }
+
+        @Override
+        public int size() {
+            return edgeIds.size();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package graph.builder;
+
+import graph.builder.entity.edge.Edge;
+import graph.builder.entity.node.*;
+import graph.builder.util.IntList;
+import graph.builder.util.Logger;
+import graph.builder.vo.ViewBuildSummary;
+import lombok.NonNull;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk loader of view. The nodes are added into the view immediately so their ids can be used by the edges, while
+ * the edges are only registered (the edge id is assigned) and connected to the nodes in two sides in one linear
+ * sweep when build() is called. The edges fail to find its connected node are reported in the summary instead of
+ * being logged one by one.
+ *
+ * Only the edges added through this builder are connected by its build(), so several builders can load into one
+ * ConcurrentView from different threads.
+ */
+public class ViewBuilder {
+    private final View view;
+
+    /**
+     * The int ids of edges registered since the last build.
+     */
+    private final IntList edgeIndices;
+
+    private int nodeCount;
+    private int mergedNodeCount;
+    private int rejectedNodeCount;
+    private int rejectedEdgeCount;
+
+    /**
+     * Constructor.
+     *
+     * @param view - The view to load into.
+     */
+    public ViewBuilder(@NonNull View view) {
+        this.view = view;
+        this.edgeIndices = new IntList();
+    }
+
+    /**
+     * Get the view to load into.
+     *
+     * @return
+     */
+    public View getView() {
+        return view;
+    }
+
+    /**
+     * Size the view up front for the nodes and edges going to be added.
+     *
+     * @param nodeCount - Expected number of nodes.
+     * @param edgeCount - Expected number of edges.
+     * @return - This builder.
+     */
+    public ViewBuilder ensureCapacity(int nodeCount, int edgeCount) {
+        view.ensureCapacity(Math.max(nodeCount, 0), Math.max(edgeCount, 0));
+        return this;
+    }
+
+    /**
+     * Add node into the view by its type.
+     *
+     * @param node
+     * @return - The id of saved node, return null if the node is rejected by the view.
+     * @see View#addNetworkNode(NetworkNode) the id of network node maybe changed.
+     */
+    public String addNode(@NonNull Node node) {
+        String id;
+        if (node instanceof HTMLNode) {
+            id = view.addHTMLNode((HTMLNode) node);
+        } else if (node instanceof CSSNode) {
+            id = view.addCSSNode((CSSNode) node);
+        } else if (node instanceof CSSRuleNode) {
+            id = view.addCSSRuleNode((CSSRuleNode) node);
+        } else if (node instanceof ScriptNode) {
+            id = view.addScriptNode((ScriptNode) node);
+        } else if (node instanceof NetworkNode) {
+            id = view.addNetworkNode((NetworkNode) node);
+        } else if (node instanceof IframeNode) {
+            id = view.addIframe((IframeNode) node);
+        } else {
+            id = null;
+        }
+
+        if (id == null) {
+            rejectedNodeCount++;
+        } else if (view.indexOf(node) >= 0) {
+            nodeCount++;
+        } else {
+            // The network node is merged into the existing one with the same url.
+            mergedNodeCount++;
+        }
+        return id;
+    }
+
+    /**
+     * Add a batch of nodes into the view.
+     *
+     * @param nodes
+     * @return - The number of nodes added, the network nodes merged into the existing ones are not counted.
+     */
+    public int addNodes(@NonNull Collection<? extends Node> nodes) {
+        ensureCapacity(nodes.size(), 0);
+        int before = nodeCount;
+        for (Node node : nodes) {
+            addNode(node);
+        }
+        return nodeCount - before;
+    }
+
+    /**
+     * Register the edge into the view, the edge is connected when build() is called.
+     *
+     * @param edge
+     * @return - Return edge id if add successes, otherwise return null.
+     */
+    public String addEdge(@NonNull Edge edge) {
+        int index = view.addEdgeUnconnected(edge);
+        if (index < 0) {
+            rejectedEdgeCount++;
+            return null;
+        }
+
+        edgeIndices.add(index);
+        return edge.getId();
+    }
+
+    /**
+     * Register a batch of edges into the view, the edges are connected when build() is called.
+     *
+     * @param edges
+     * @return - The number of edges registered.
+     */
+    public int addEdges(@NonNull Collection<Edge> edges) {
+        ensureCapacity(0, edges.size());
+        edgeIndices.ensureCapacity(edgeIndices.size() + edges.size());
+        int added = 0;
+        for (Edge edge : edges) {
+            if (addEdge(edge) != null) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Connect all edges registered since the last build, and remove the edges fail to find its connected node.
+     * The builder can be used again after build.
+     *
+     * @return - Summary of the loading since the last build.
+     */
+    public ViewBuildSummary build() {
+        int[] indices = edgeIndices.toArray();
+        List<Edge> dangling = view.connectEdges(indices);
+
+        ViewBuildSummary summary = new ViewBuildSummary();
+        summary.setViewId(view.getViewId());
+        summary.setNodeCount(nodeCount);
+        summary.setMergedNodeCount(mergedNodeCount);
+        summary.setRejectedNodeCount(rejectedNodeCount);
+        summary.setRejectedEdgeCount(rejectedEdgeCount);
+        int connected = 0;
+        for (int index : indices) {
+            if (index >= 0) {
+                connected++;
+            }
+        }
+        summary.setEdgeCount(connected);
+        for (Edge edge : dangling) {
+            summary.addDanglingEdge(edge);
+        }
+
+        if (!dangling.isEmpty()) {
+            Logger.getInstance().info(summary.toString());
+        }
+
+        edgeIndices.clear();
+        nodeCount = 0;
+        mergedNodeCount = 0;
+        rejectedNodeCount = 0;
+        rejectedEdgeCount = 0;
+        return summary;
+    }
+}
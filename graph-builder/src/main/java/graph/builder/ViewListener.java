@@ -0,0 +1,53 @@
+package graph.builder;
+
+import graph.builder.entity.edge.Edge;
+import graph.builder.entity.node.Node;
+
+/**
+ * Observer of the structure changes of a view, registered by {@link View#addListener(ViewListener)}. The callbacks
+ * run in the thread which changes the view, inside the change, so they should be short and must not change the
+ * view.
+ */
+public interface ViewListener {
+    /**
+     * Called after the node is added into the view. The int id may be a released one handed out again.
+     *
+     * @param node - The added node.
+     * @param index - Node int id.
+     */
+    default void nodeAdded(Node node, int index) {
+    }
+
+    /**
+     * Called when the node is removed from the view, after all its edges are removed and before its int id is
+     * released.
+     *
+     * @param node - The removed node.
+     * @param index - Node int id.
+     */
+    default void nodeRemoved(Node node, int index) {
+    }
+
+    /**
+     * Called after the edge is linked to the nodes in two sides.
+     *
+     * @param edge - The connected edge.
+     * @param index - Edge int id.
+     * @param from - Node int id in the from side.
+     * @param to - Node int id in the to side.
+     */
+    default void edgeConnected(Edge edge, int index, int from, int to) {
+    }
+
+    /**
+     * Called after the edge is unlinked from the nodes in two sides and before its int id is released. Only the
+     * edges connected before are reported, the edge registered without connection is removed silently.
+     *
+     * @param edge - The removed edge.
+     * @param index - Edge int id.
+     * @param from - Node int id in the from side.
+     * @param to - Node int id in the to side.
+     */
+    default void edgeRemoved(Edge edge, int index, int from, int to) {
+    }
+}
@@ -0,0 +1,366 @@
+package graph.builder;
+
+import graph.builder.common.EdgeType;
+import graph.builder.entity.edge.Edge;
+import graph.builder.entity.node.Node;
+import graph.builder.util.Adjacency;
+import graph.builder.vo.EdgeFilter;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable compressed-sparse-row (CSR) copy of the structure of a view, made by {@link View#freeze()}.
+ * Each node in the snapshot has a dense index in [0, nodeCount), the edges start from node v are stored in the
+ * slots [outStart(v), outEnd(v)) and the edges point to node v are stored in the slots [inStart(v), inEnd(v)).
+ *
+ * The snapshot only keeps the edges whose two sides both exist in the view when it is frozen. Later changes of
+ * the view are not reflected in the snapshot, but the node and edge objects are shared with the view.
+ */
+public class ViewSnapshot {
+    /**
+     * The id of view the snapshot made from.
+     */
+    private final String viewId;
+
+    /**
+     * Node index to node.
+     */
+    private final Node[] nodes;
+
+    /**
+     * Node id to node index, built at the first lookup by id.
+     */
+    private volatile Map<String, Integer> indexMap;
+
+    /**
+     * Out slot to edge, the out slots are sorted by the from side node.
+     */
+    private final Edge[] edges;
+
+    /**
+     * Out slot to edge type code.
+     *
+     * @see EdgeType#code(String)
+     */
+    private final byte[] edgeTypes;
+
+    /**
+     * The out slots of node v are [outOffsets[v], outOffsets[v + 1]).
+     */
+    private final int[] outOffsets;
+
+    /**
+     * Out slot to the index of node in the to side.
+     */
+    private final int[] outTargets;
+
+    /**
+     * The in slots of node v are [inOffsets[v], inOffsets[v + 1]).
+     */
+    private final int[] inOffsets;
+
+    /**
+     * In slot to the index of node in the from side.
+     */
+    private final int[] inSources;
+
+    /**
+     * In slot to the out slot of the same edge.
+     */
+    private final int[] inEdges;
+
+    /**
+     * In slot to edge type code, copied from edgeTypes to keep the in-side traversal sequential.
+     */
+    private final byte[] inTypes;
+
+    /**
+     * Build the snapshot. The out slots of a node keep the order of its out list, so the traversal on snapshot
+     * visits the neighbours in the same order as the traversal on view.
+     *
+     * @param viewId - The id of view.
+     * @param viewNodes - Node int id to node of the view.
+     * @param viewOutLists - Node int id to the out-edges of the view.
+     * @param nodeBound - All node int ids of the view are less than this bound.
+     * @param viewEdges - Edge int id to edge of the view.
+     * @param viewEdgeTo - Edge int id to the node int id in the to side of the view, -1 if not connected.
+     * @param edgeBound - All edge int ids of the view are less than this bound.
+     */
+    ViewSnapshot(String viewId, Node[] viewNodes, Adjacency[] viewOutLists, int nodeBound, Edge[] viewEdges,
+                 int[] viewEdgeTo, int edgeBound) {
+        this.viewId = viewId;
+
+        // Node int id in view to node index, -1 if the node is not in the snapshot.
+        int[] viewIndexMap = new int[nodeBound];
+        int n = 0;
+        int capacity = 0;
+        for (int i = 0; i < nodeBound; i++) {
+            if (viewNodes[i] == null) {
+                viewIndexMap[i] = -1;
+            } else {
+                viewIndexMap[i] = n++;
+                capacity += viewOutLists[i].size();
+            }
+        }
+
+        nodes = new Node[n];
+        Adjacency[] outLists = new Adjacency[n];
+        for (int i = 0; i < nodeBound; i++) {
+            if (viewIndexMap[i] >= 0) {
+                nodes[viewIndexMap[i]] = viewNodes[i];
+                outLists[viewIndexMap[i]] = viewOutLists[i];
+            }
+        }
+
+        // Resolve the to side of each out edge once, drop the edge if it or its to side is missing.
+        outOffsets = new int[n + 1];
+        int[] targets = new int[capacity];
+        Edge[] valid = new Edge[capacity];
+        byte[] types = new byte[capacity];
+        int m = 0;
+        for (int v = 0; v < n; v++) {
+            Adjacency outList = outLists[v];
+            for (int i = 0; i < outList.size(); i++) {
+                int edgeIndex = outList.get(i);
+                Edge edge = edgeIndex >= 0 && edgeIndex < edgeBound ? viewEdges[edgeIndex] : null;
+                if (edge == null || viewEdgeTo[edgeIndex] < 0 || viewEdgeTo[edgeIndex] >= nodeBound) {
+                    continue;
+                }
+                int to = viewIndexMap[viewEdgeTo[edgeIndex]];
+                if (to < 0) {
+                    continue;
+                }
+                targets[m] = to;
+                valid[m] = edge;
+                types[m] = outList.getType(i);
+                m++;
+            }
+            outOffsets[v + 1] = m;
+        }
+
+        edges = Arrays.copyOf(valid, m);
+        outTargets = Arrays.copyOf(targets, m);
+        edgeTypes = Arrays.copyOf(types, m);
+
+        // The in slots are the transpose of the out slots (counting sort by the to side).
+        inOffsets = new int[n + 1];
+        for (int slot = 0; slot < m; slot++) {
+            inOffsets[outTargets[slot] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+
+        inSources = new int[m];
+        inEdges = new int[m];
+        inTypes = new byte[m];
+        int[] cursor = Arrays.copyOf(inOffsets, n);
+        for (int v = 0; v < n; v++) {
+            for (int slot = outOffsets[v]; slot < outOffsets[v + 1]; slot++) {
+                int inSlot = cursor[outTargets[slot]]++;
+                inSources[inSlot] = v;
+                inEdges[inSlot] = slot;
+                inTypes[inSlot] = edgeTypes[slot];
+            }
+        }
+    }
+
+    /**
+     * Get the id of view the snapshot made from.
+     *
+     * @return
+     */
+    public String getViewId() {
+        return viewId;
+    }
+
+    /**
+     * The number of nodes in the snapshot.
+     *
+     * @return
+     */
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * The number of edges in the snapshot.
+     *
+     * @return
+     */
+    public int edgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * Get node by node index.
+     *
+     * @param index
+     * @return
+     */
+    public Node getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Get the index of node by node id.
+     *
+     * @param id
+     * @return - Node index, return -1 if the node is not in the snapshot.
+     */
+    public int indexOf(@NonNull String id) {
+        Map<String, Integer> map = indexMap;
+        if (map == null) {
+            map = new HashMap<>(Math.max(16, (int) (nodes.length / 0.75f) + 1));
+            for (int i = 0; i < nodes.length; i++) {
+                map.put(nodes[i].getId(), i);
+            }
+            indexMap = map;
+        }
+
+        Integer index = map.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Get the index of node.
+     *
+     * @param node
+     * @return - Node index, return -1 if the node is not in the snapshot.
+     */
+    public int indexOf(@NonNull Node node) {
+        int index = node.getId() == null ? -1 : indexOf(node.getId());
+        return index >= 0 && nodes[index] == node ? index : -1;
+    }
+
+    /**
+     * Get edge by out slot.
+     *
+     * @param slot
+     * @return
+     */
+    public Edge getEdge(int slot) {
+        return edges[slot];
+    }
+
+    /**
+     * First out slot of node.
+     *
+     * @param node - Node index.
+     * @return
+     */
+    public int outStart(int node) {
+        return outOffsets[node];
+    }
+
+    /**
+     * The end (exclusive) of out slots of node.
+     *
+     * @param node - Node index.
+     * @return
+     */
+    public int outEnd(int node) {
+        return outOffsets[node + 1];
+    }
+
+    /**
+     * The index of node in the to side of the out slot.
+     *
+     * @param slot
+     * @return
+     */
+    public int outTarget(int slot) {
+        return outTargets[slot];
+    }
+
+    /**
+     * The edge type code of the out slot.
+     *
+     * @param slot
+     * @return
+     * @see EdgeType#code(String)
+     */
+    public byte edgeType(int slot) {
+        return edgeTypes[slot];
+    }
+
+    /**
+     * First in slot of node.
+     *
+     * @param node - Node index.
+     * @return
+     */
+    public int inStart(int node) {
+        return inOffsets[node];
+    }
+
+    /**
+     * The end (exclusive) of in slots of node.
+     *
+     * @param node - Node index.
+     * @return
+     */
+    public int inEnd(int node) {
+        return inOffsets[node + 1];
+    }
+
+    /**
+     * The index of node in the from side of the in slot.
+     *
+     * @param slot
+     * @return
+     */
+    public int inSource(int slot) {
+        return inSources[slot];
+    }
+
+    /**
+     * The out slot of the edge in the in slot.
+     *
+     * @param slot
+     * @return
+     */
+    public int inEdge(int slot) {
+        return inEdges[slot];
+    }
+
+    /**
+     * The edge type code of the in slot.
+     *
+     * @param slot
+     * @return
+     * @see EdgeType#code(String)
+     */
+    public byte inType(int slot) {
+        return inTypes[slot];
+    }
+
+    /**
+     * Check if the edge in the out slot is allowed by the filter. The edge in a type not defined in EdgeType is
+     * checked by name.
+     *
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param slot
+     * @return
+     */
+    public boolean allowsOut(EdgeFilter edgeFilter, int slot) {
+        byte type = edgeTypes[slot];
+        return type == EdgeType.UNKNOWN_CODE ? edgeFilter.contains(edges[slot]) : edgeFilter.contains(type);
+    }
+
+    /**
+     * Check if the edge in the in slot is allowed by the filter.
+     *
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param slot
+     * @return
+     * @see #allowsOut(EdgeFilter, int)
+     */
+    public boolean allowsIn(EdgeFilter edgeFilter, int slot) {
+        byte type = inTypes[slot];
+        return type == EdgeType.UNKNOWN_CODE ? edgeFilter.contains(edges[inEdges[slot]]) : edgeFilter.contains(type);
+    }
+}
@@ -72,4 +72,82 @@ public class EdgeType {
      */
     public static final String FUNCTION_CALL = "Function Call";
 
-}
\ No newline at end of file
+    /**
+     * All known edge types, the position of a type in this array is its compact code.
+     */
+    private static final String[] TYPES = {
+            PARENT_CHILD_RELATION,
+            CONTAINS,
+            CSS_RULE_CONTAINER,
+            NETWORK_REQUEST,
+            NETWORK_RESPONSE,
+            DOM_CHANGE,
+            APPLY_TO,
+            SHADOW_HOST,
+            IFRAME_CONTAINER,
+            FUNCTION_CALL
+    };
+
+    /**
+     * Code used for the edge type which is not defined above. All codes are less than 64 so that a set of edge
+     * types fits in a long bitmask.
+     */
+    public static final byte UNKNOWN_CODE = (byte) TYPES.length;
+
+    /**
+     * Get the compact code of edge type, which is used in the column based structure such as view snapshot.
+     *
+     * @param edgeType - Edge type.
+     * @return - The code of edge type, return UNKNOWN_CODE if the type is not defined.
+     */
+    public static byte code(String edgeType) {
+        if (edgeType == null) {
+            return UNKNOWN_CODE;
+        }
+
+        // The constants are usually passed in, so try the reference first.
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == edgeType) {
+                return (byte) i;
+            }
+        }
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(edgeType)) {
+                return (byte) i;
+            }
+        }
+        return UNKNOWN_CODE;
+    }
+
+    /**
+     * Get the bit of the edge type code in the edge type bitmask.
+     *
+     * @param code - Code of edge type.
+     * @return
+     */
+    public static long bit(byte code) {
+        return 1L << code;
+    }
+
+    /**
+     * Get the edge type for the compact code.
+     *
+     * @param code - Code of edge type.
+     * @return - Edge type, return null if the code is unknown.
+     */
+    public static String name(byte code) {
+        if (code < 0 || code >= TYPES.length) {
+            return null;
+        }
+        return TYPES[code];
+    }
+
+    /**
+     * The number of codes (include the unknown code).
+     *
+     * @return
+     */
+    public static int codeCount() {
+        return TYPES.length + 1;
+    }
+}
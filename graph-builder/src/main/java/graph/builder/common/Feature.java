@@ -0,0 +1,43 @@
+package graph.builder.common;
+
+/**
+ * The node features which can be extracted for all nodes at once.
+ *
+ * @see graph.builder.FeatureExtraction#extractFeatureMatrix
+ */
+public enum Feature {
+    /**
+     * The number of in-edges.
+     */
+    IN_DEGREE,
+
+    /**
+     * The number of out-edges.
+     */
+    OUT_DEGREE,
+
+    /**
+     * The number of in-edges and out-edges.
+     */
+    NEIGHBOUR_COUNT,
+
+    /**
+     * The cluster coefficient.
+     */
+    CLUSTER_COEFFICIENT,
+
+    /**
+     * The number of nodes which can reach the node.
+     */
+    ASCENDANTS,
+
+    /**
+     * The number of nodes which can be reached from the node.
+     */
+    DESCENDANTS,
+
+    /**
+     * The max distance from the node to the reachable nodes.
+     */
+    ECCENTRICITY
+}
@@ -33,4 +33,62 @@ public class NodeType {
      * Represent a iframe which refer to a view but does not show the inside content.
      */
     public static final String IFRAME = "iframe";
+
+    /**
+     * All known node types, the position of a type in this array is its compact code.
+     */
+    private static final String[] TYPES = {
+            HTML,
+            CSS,
+            CSS_RULE,
+            SCRIPT,
+            NETWORK,
+            IFRAME
+    };
+
+    /**
+     * Code used for the node type which is not defined above.
+     */
+    public static final byte UNKNOWN_CODE = (byte) TYPES.length;
+
+    /**
+     * Get the compact code of node type.
+     *
+     * @param nodeType - Node type.
+     * @return - The code of node type, return UNKNOWN_CODE if the type is not defined.
+     */
+    public static byte code(String nodeType) {
+        if (nodeType == null) {
+            return UNKNOWN_CODE;
+        }
+
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == nodeType || TYPES[i].equals(nodeType)) {
+                return (byte) i;
+            }
+        }
+        return UNKNOWN_CODE;
+    }
+
+    /**
+     * Get the node type for the compact code.
+     *
+     * @param code - Code of node type.
+     * @return - Node type, return null if the code is unknown.
+     */
+    public static String name(byte code) {
+        if (code < 0 || code >= TYPES.length) {
+            return null;
+        }
+        return TYPES[code];
+    }
+
+    /**
+     * The number of codes (include the unknown code).
+     *
+     * @return
+     */
+    public static int codeCount() {
+        return TYPES.length + 1;
+    }
 }
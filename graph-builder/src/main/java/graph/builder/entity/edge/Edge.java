@@ -1,8 +1,10 @@
 package graph.builder.entity.edge;
 
 import graph.builder.common.EdgeType;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Setter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +28,14 @@ public class Edge {
      */
     private String edgeType;
 
+    /**
+     * The compact code of edge type, kept in step with the edge type.
+     *
+     * @see EdgeType#code(String)
+     */
+    @Setter(AccessLevel.NONE)
+    private byte edgeTypeCode;
+
     /**
      * The id of the node which the edge starts from.
      */
@@ -61,10 +71,22 @@ public class Edge {
      * No args constructor.
      */
     public Edge() {
+        edgeTypeCode = EdgeType.UNKNOWN_CODE;
         onload = (byte) 1;
         comment = new HashMap<>();
     }
 
+    /**
+     * Set the edge type and its code. Do not change the type after the edge is added into a view.
+     *
+     * @param edgeType
+     * @see EdgeType
+     */
+    public void setEdgeType(String edgeType) {
+        this.edgeType = edgeType;
+        this.edgeTypeCode = EdgeType.code(edgeType);
+    }
+
     /**
      * Set the information of the start side of the edge
      *
@@ -3,10 +3,12 @@ package graph.builder.entity.node;
 
 import crawler.entity.CSSCodeBlock;
 import graph.builder.common.NodeType;
+import graph.builder.util.Payload;
+import graph.builder.util.PayloadStore;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
@@ -21,9 +23,11 @@ public class CSSNode extends Node {
     private String cssType;
 
     /**
-     * CSS code block (undivided into multiple rules)
+     * CSS code block (undivided into multiple rules), kept in the payload store while the node is in a view.
      */
-    private String unprocessedContent;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Payload unprocessedContent;
 
     /**
      * If the element is deleted.
@@ -34,7 +38,8 @@ public class CSSNode extends Node {
      * No args constructor.
      */
     public CSSNode() {
-        super("", NodeType.CSS, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+        super("", NodeType.CSS, new HashMap<>());
+        unprocessedContent = new Payload();
     }
 
     /**
@@ -46,7 +51,30 @@ public class CSSNode extends Node {
         this.id = css.getId();
         this.cssType = css.getType();
         this.isDeleted = css.getIsDeleted();
-        this.unprocessedContent = css.getUnprocessContent();
+        setUnprocessedContent(css.getUnprocessContent());
+    }
+
+    /**
+     * Get the css code block.
+     *
+     * @return
+     */
+    public String getUnprocessedContent() {
+        return unprocessedContent.getString();
+    }
+
+    /**
+     * Set the css code block.
+     *
+     * @param unprocessedContent
+     */
+    public void setUnprocessedContent(String unprocessedContent) {
+        this.unprocessedContent.setString(unprocessedContent);
+    }
+
+    @Override
+    protected void movePayloads(PayloadStore store) {
+        unprocessedContent.moveTo(store);
     }
 
     /**
@@ -2,10 +2,12 @@ package graph.builder.entity.node;
 
 import crawler.entity.CSSRule;
 import graph.builder.common.NodeType;
+import graph.builder.util.Payload;
+import graph.builder.util.PayloadStore;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
@@ -22,9 +24,11 @@ public class CSSRuleNode extends Node {
     private String ruleType;
 
     /**
-     * Content
+     * Rule text, kept in the payload store while the node is in a view.
      */
-    private String text;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Payload text;
 
     /**
      * Only for style type.
@@ -40,7 +44,8 @@ public class CSSRuleNode extends Node {
      * No args constructor
      */
     public CSSRuleNode() {
-        super("", NodeType.CSS_RULE, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+        super("", NodeType.CSS_RULE, new HashMap<>());
+        text = new Payload();
     }
 
     /**
@@ -51,11 +56,34 @@ public class CSSRuleNode extends Node {
     public void transferFrom(CSSRule rule) {
         this.id = rule.getId();
         this.ruleType = rule.getRuleType();
-        this.text = rule.getText();
+        setText(rule.getText());
         this.selector = rule.getSelector();
         this.isDeleted = rule.getIsDeleted();
     }
 
+    /**
+     * Get the rule text.
+     *
+     * @return
+     */
+    public String getText() {
+        return text.getString();
+    }
+
+    /**
+     * Set the rule text.
+     *
+     * @param text
+     */
+    public void setText(String text) {
+        this.text.setString(text);
+    }
+
+    @Override
+    protected void movePayloads(PayloadStore store) {
+        text.moveTo(store);
+    }
+
     /**
      * Check if the node is deleted.
      *
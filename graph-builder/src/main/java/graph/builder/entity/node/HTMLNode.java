@@ -2,10 +2,14 @@ package graph.builder.entity.node;
 
 import crawler.entity.HTMLElement;
 import graph.builder.common.NodeType;
+import graph.builder.util.AttributeMap;
+import graph.builder.util.Payload;
+import graph.builder.util.PayloadStore;
+import graph.builder.util.StringPool;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,9 +30,11 @@ public class HTMLNode extends Node {
     private String tagName;
 
     /**
-     * The text content of a node and its descendants.
+     * The text content of a node and its descendants, kept in the payload store while the node is in a view.
      */
-    private String textualContent;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Payload textualContent;
 
     /**
      * Class name.
@@ -41,9 +47,11 @@ public class HTMLNode extends Node {
     private Map<String, String> attributes;
 
     /**
-     * Inner HTML, expose the textual content and also html code.
+     * Inner HTML, expose the textual content and also html code. Kept in the payload store while the node is in a view.
      */
-    private String innerHTML;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Payload innerHTML;
 
     /**
      * Used to determine if the node is from the html document itself or if it was created later.
@@ -69,7 +77,9 @@ public class HTMLNode extends Node {
      * No args constructor.
      */
     public HTMLNode() {
-        super("", NodeType.HTML, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+        super("", NodeType.HTML, new HashMap<>());
+        textualContent = new Payload();
+        innerHTML = new Payload();
     }
 
     /**
@@ -78,19 +88,73 @@ public class HTMLNode extends Node {
      * @param html
      */
     public void transferFrom(HTMLElement html) {
+        transferFrom(html, null);
+    }
+
+    /**
+     * Transfer from the data comes from crawler. The attributes are copied into a compact map, and the tag name,
+     * class names and attributes are deduplicated by the pool.
+     *
+     * @param html
+     * @param pool - String pool, null if no dedup is needed.
+     * @see graph.builder.View#getStringPool()
+     */
+    public void transferFrom(HTMLElement html, StringPool pool) {
         this.id = html.getId();
         this.identifyID = html.getIdentifyID();
-        this.tagName = html.getTagName();
-        this.textualContent = html.getTextualContent();
-        this.classNames = html.getClassNames();
-        this.attributes = html.getAttributes();
-        this.innerHTML = html.getInnerHTML();
+        this.tagName = pool == null ? html.getTagName() : pool.intern(html.getTagName());
+        setTextualContent(html.getTextualContent());
+        this.classNames = pool == null ? html.getClassNames() : pool.intern(html.getClassNames());
+        this.attributes = AttributeMap.copyOf(html.getAttributes(), pool);
+        setInnerHTML(html.getInnerHTML());
         this.isInitialNode = html.getInitialNode();
         this.isDeleted = html.getIsDeleted();
         this.depth = html.getDepth();
         this.isShadow = html.getShadowHost() == null ? (byte) 0 : (byte) 1;
     }
 
+    /**
+     * Get the text content of node and its descendants.
+     *
+     * @return
+     */
+    public String getTextualContent() {
+        return textualContent.getString();
+    }
+
+    /**
+     * Set the text content of node and its descendants.
+     *
+     * @param textualContent
+     */
+    public void setTextualContent(String textualContent) {
+        this.textualContent.setString(textualContent);
+    }
+
+    /**
+     * Get the inner html.
+     *
+     * @return
+     */
+    public String getInnerHTML() {
+        return innerHTML.getString();
+    }
+
+    /**
+     * Set the inner html.
+     *
+     * @param innerHTML
+     */
+    public void setInnerHTML(String innerHTML) {
+        this.innerHTML.setString(innerHTML);
+    }
+
+    @Override
+    protected void movePayloads(PayloadStore store) {
+        textualContent.moveTo(store);
+        innerHTML.moveTo(store);
+    }
+
     /**
      * Check if the node is deleted.
      *
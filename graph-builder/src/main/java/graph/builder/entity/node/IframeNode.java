@@ -4,7 +4,6 @@ import graph.builder.common.NodeType;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 
 @Setter
@@ -19,7 +18,7 @@ public class IframeNode extends Node {
      * No args constructor.
      */
     public IframeNode() {
-        super("", NodeType.IFRAME, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+        super("", NodeType.IFRAME, new HashMap<>());
     }
 
     /**
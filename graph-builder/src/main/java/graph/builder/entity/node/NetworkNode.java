@@ -2,8 +2,10 @@ package graph.builder.entity.node;
 
 import crawler.entity.NetworkRequest;
 import graph.builder.common.NodeType;
+import graph.builder.util.Payload;
+import graph.builder.util.PayloadStore;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.util.ArrayList;
@@ -36,26 +38,132 @@ public class NetworkNode extends Node {
 
     /**
      * It represents HTTP request and response messages
-     * corresponding to different methods and possibly different headers
+     * corresponding to different methods and possibly different headers.
+     * The headers and bodies are kept in the payload store while the node is in a view.
      */
     @Setter
     @Getter
-    @NoArgsConstructor
     public class Message {
         private String method;
         private long timeStamp;
-        private Map<String, String> requestHeaders;
-        private String requestBody;
         private int responseStatus;
-        private Map<String, String> responseHeaders;
-        private String responseBody;
+
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private final Payload requestHeaders;
+
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private final Payload requestBody;
+
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private final Payload responseHeaders;
+
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private final Payload responseBody;
+
+        /**
+         * No args constructor.
+         */
+        public Message() {
+            requestHeaders = new Payload();
+            requestBody = new Payload();
+            responseHeaders = new Payload();
+            responseBody = new Payload();
+        }
+
+        /**
+         * Get the request headers.
+         *
+         * @return
+         */
+        public Map<String, String> getRequestHeaders() {
+            return requestHeaders.getMap();
+        }
+
+        /**
+         * Set the request headers.
+         *
+         * @param requestHeaders
+         */
+        public void setRequestHeaders(Map<String, String> requestHeaders) {
+            this.requestHeaders.setMap(requestHeaders);
+        }
+
+        /**
+         * Get the request body.
+         *
+         * @return
+         */
+        public String getRequestBody() {
+            return requestBody.getString();
+        }
+
+        /**
+         * Set the request body.
+         *
+         * @param requestBody
+         */
+        public void setRequestBody(String requestBody) {
+            this.requestBody.setString(requestBody);
+        }
+
+        /**
+         * Get the response headers.
+         *
+         * @return
+         */
+        public Map<String, String> getResponseHeaders() {
+            return responseHeaders.getMap();
+        }
+
+        /**
+         * Set the response headers.
+         *
+         * @param responseHeaders
+         */
+        public void setResponseHeaders(Map<String, String> responseHeaders) {
+            this.responseHeaders.setMap(responseHeaders);
+        }
+
+        /**
+         * Get the response body.
+         *
+         * @return
+         */
+        public String getResponseBody() {
+            return responseBody.getString();
+        }
+
+        /**
+         * Set the response body.
+         *
+         * @param responseBody
+         */
+        public void setResponseBody(String responseBody) {
+            this.responseBody.setString(responseBody);
+        }
+
+        /**
+         * Move the headers and bodies into the store, or back on heap if the store is null.
+         *
+         * @param store
+         */
+        void movePayloads(PayloadStore store) {
+            requestHeaders.moveTo(store);
+            requestBody.moveTo(store);
+            responseHeaders.moveTo(store);
+            responseBody.moveTo(store);
+        }
     }
 
     /**
      * No args constructor.
      */
     public NetworkNode() {
-        super("", NodeType.NETWORK, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+        super("", NodeType.NETWORK, new HashMap<>());
         messageList = new ArrayList<>();
     }
 
@@ -78,6 +186,7 @@ public class NetworkNode extends Node {
             message.setResponseStatus(httpMessage.getResponseStatus());
             message.setResponseHeaders(httpMessage.getResponseHeaders());
             message.setResponseBody(httpMessage.getResponseBody());
+            messageList.add(message);
         }
     }
 
@@ -107,6 +216,10 @@ public class NetworkNode extends Node {
      * @param messages
      */
     public void addMessages(List<Message> messages) {
+        PayloadStore store = payloadStore();
+        for (Message message : messages) {
+            message.movePayloads(store);
+        }
         messageList.addAll(messages);
     }
 
@@ -127,4 +240,11 @@ public class NetworkNode extends Node {
     public boolean isPotential() {
         return isPotential == (byte) 1;
     }
+
+    @Override
+    protected void movePayloads(PayloadStore store) {
+        for (Message message : messageList) {
+            message.movePayloads(store);
+        }
+    }
 }
@@ -1,19 +1,22 @@
 package graph.builder.entity.node;
 
 import graph.builder.common.NodeType;
-import graph.builder.entity.edge.Edge;
-import lombok.AllArgsConstructor;
+import graph.builder.util.Payload;
+import graph.builder.util.PayloadStore;
+import lombok.AccessLevel;
 import lombok.Data;
-import lombok.NonNull;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 /**
  * Node interface contains the generic variables and functions.
  */
 @Data
-@AllArgsConstructor
 public class Node {
 
     /**
@@ -30,77 +33,59 @@ public class Node {
     protected String nodeType;
 
     /**
-     * A list of edges points to this node.
-     */
-    protected List<String> inList;
-
-    /**
-     * A list of edges start from this node.
+     * The compact code of node type, kept in step with the node type.
+     *
+     * @see NodeType#code(String)
      */
-    protected List<String> outList;
+    @Setter(AccessLevel.NONE)
+    protected byte nodeTypeCode;
 
     /**
      * The commit if user want to add some attributes to the node.
      */
     protected Map<String, String> commit;
 
-
     /**
-     * add new edge in "In" list.
-     *
-     * @param in
+     * The payload store which holds the payloads of node, null if the payloads are on heap.
      */
-    public void addInEdge(@NonNull Edge in) {
-        if (!inList.contains(in.getId())) {
-            inList.add(in.getId());
-        }
-    }
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private PayloadStore payloadStore;
 
     /**
-     * add new edge in "Out" list.
-     *
-     * @param out
-     */
-    public void addOutEdge(@NonNull Edge out) {
-        if (!outList.contains(out.getId())) {
-            outList.add(out.getId());
-        }
-    }
-
-    /**
-     * Remove the edge in "in" list.
-     *
-     * @param in
+     * Payload store to the number of views which hold the node with the store, null if the node is in no view.
      */
-    public void removeInEdge(@NonNull Edge in) {
-        inList.remove(in.getId());
-    }
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Map<PayloadStore, Integer> payloadViews;
 
     /**
-     * Remove the edge in "in" list.
+     * Constructor.
      *
-     * @param out
+     * @param id
+     * @param nodeType
+     * @param commit
      */
-    public void removeOutEdge(@NonNull Edge out) {
-        outList.remove(out.getId());
+    public Node(String id, String nodeType, Map<String, String> commit) {
+        this.id = id;
+        setNodeType(nodeType);
+        this.commit = commit;
     }
 
-    /**
-     * Return the size of "In" set.
-     *
-     * @return - size of "In" set.
-     */
-    public int inSize() {
-        return inList.size();
-    }
 
     /**
-     * Return the size of "Out" set.
+     * Set the node type and its code.
      *
-     * @return - size of "Out" set.
+     * @param nodeType
+     * @see NodeType
      */
-    public int outSize() {
-        return outList.size();
+    public void setNodeType(String nodeType) {
+        this.nodeType = nodeType;
+        this.nodeTypeCode = NodeType.code(nodeType);
     }
 
     /**
@@ -147,4 +132,91 @@ public class Node {
     public String deleteCommit(String key) {
         return commit.remove(key);
     }
+
+    /**
+     * Move the payloads into the store of view when the node is added into the view. If the payloads are held by the
+     * store of another graph, they are copied into this store and released from the other one, so closing the other
+     * graph does not lose them.
+     *
+     * @param store - The payload store of view.
+     */
+    public synchronized void attachPayloads(PayloadStore store) {
+        if (payloadViews == null) {
+            payloadViews = new IdentityHashMap<>(2);
+        }
+        payloadViews.merge(store, 1, Integer::sum);
+        if (payloadStore != store) {
+            payloadStore = store;
+            movePayloads(store);
+        }
+    }
+
+    /**
+     * Called when the node is removed from a view. The payloads leave the store once no view using it holds the
+     * node, they move into the store of another view holding the node, or back on heap.
+     *
+     * @param store - The payload store of view.
+     */
+    public synchronized void detachPayloads(PayloadStore store) {
+        Integer views = payloadViews == null ? null : payloadViews.get(store);
+        if (views == null) {
+            return;
+        }
+
+        if (views > 1) {
+            payloadViews.put(store, views - 1);
+        } else {
+            payloadViews.remove(store);
+            leave(store, null);
+        }
+    }
+
+    /**
+     * Take the payloads out of the store which is going to be closed, even if some views using it still hold the
+     * node. They move into the store of another view holding the node, otherwise they stay and read as null after
+     * the store is closed.
+     *
+     * @param store - The payload store.
+     */
+    public synchronized void evictPayloads(PayloadStore store) {
+        if (payloadViews != null && payloadViews.remove(store) != null) {
+            leave(store, store);
+        }
+    }
+
+    /**
+     * Move the payloads out of the store no view holds the node with any more.
+     *
+     * @param store - The store left.
+     * @param fallback - Where the payloads go if no other store holds the node, null for the heap.
+     */
+    private void leave(PayloadStore store, PayloadStore fallback) {
+        if (payloadStore != store) {
+            return;
+        }
+
+        payloadStore = payloadViews.isEmpty() ? fallback : payloadViews.keySet().iterator().next();
+        if (payloadViews.isEmpty()) {
+            payloadViews = null;
+        }
+        movePayloads(payloadStore);
+    }
+
+    /**
+     * Get the payload store which holds the payloads of node.
+     *
+     * @return - The store, return null if the payloads are on heap.
+     */
+    protected synchronized PayloadStore payloadStore() {
+        return payloadStore;
+    }
+
+    /**
+     * Move all payloads of node into the store, the node without payload does nothing.
+     *
+     * @param store - The payload store, null to move them back on heap.
+     * @see Payload#moveTo(PayloadStore)
+     */
+    protected void movePayloads(PayloadStore store) {
+    }
 }
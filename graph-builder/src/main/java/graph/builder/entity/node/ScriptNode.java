@@ -2,10 +2,12 @@ package graph.builder.entity.node;
 
 import crawler.entity.ScriptCodeBlock;
 import graph.builder.common.NodeType;
+import graph.builder.util.Payload;
+import graph.builder.util.PayloadStore;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
@@ -21,9 +23,11 @@ public class ScriptNode extends Node {
     private String scriptType;
 
     /**
-     * Script Content
+     * Script content, kept in the payload store while the node is in a view.
      */
-    private String content;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Payload content;
 
     /**
      * If the script is loaded async.
@@ -39,7 +43,8 @@ public class ScriptNode extends Node {
      * No args constructor.
      */
     public ScriptNode() {
-        super("", NodeType.SCRIPT, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+        super("", NodeType.SCRIPT, new HashMap<>());
+        content = new Payload();
     }
 
     /**
@@ -50,8 +55,31 @@ public class ScriptNode extends Node {
     public void transferFrom(ScriptCodeBlock node) {
         this.id = node.getId();
         this.scriptType = node.getType();
-        this.content = node.getContent();
+        setContent(node.getContent());
         this.async = node.getAsync();
         this.defer = node.getDefer();
     }
+
+    /**
+     * Get the script content.
+     *
+     * @return
+     */
+    public String getContent() {
+        return content.getString();
+    }
+
+    /**
+     * Set the script content.
+     *
+     * @param content
+     */
+    public void setContent(String content) {
+        this.content.setString(content);
+    }
+
+    @Override
+    protected void movePayloads(PayloadStore store) {
+        content.moveTo(store);
+    }
 }
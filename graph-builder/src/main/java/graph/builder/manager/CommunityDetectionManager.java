@@ -1,10 +1,13 @@
 package graph.builder.manager;
 
 import graph.builder.View;
+import graph.builder.ViewSnapshot;
 import graph.builder.entity.node.Node;
 import graph.builder.vo.EdgeFilter;
 import graph.builder.vo.LabelPropagationCDParam;
+import graph.builder.vo.LeidenCDParam;
 import graph.builder.vo.LouvainCDParam;
+import graph.builder.vo.PartitionQuality;
 import lombok.NonNull;
 
 import java.util.Map;
@@ -23,7 +26,19 @@ public class CommunityDetectionManager {
      * @return - The label for each node.
      */
     protected static Map<Node, Integer> lpa(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull LabelPropagationCDParam param) {
-        LabelPropagationCD lpa = new LabelPropagationCD(view, edgeFilter, param);
+        return lpa(view.freeze(), edgeFilter, param);
+    }
+
+    /**
+     * Label propagations algorithm on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The label for each node.
+     */
+    protected static Map<Node, Integer> lpa(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull LabelPropagationCDParam param) {
+        LabelPropagationCD lpa = new LabelPropagationCD(snapshot, edgeFilter, param);
         lpa.detectCommunity();
         return lpa.getCommunities();
     }
@@ -37,9 +52,73 @@ public class CommunityDetectionManager {
      * @return - The community index for each node.
      */
     protected static Map<Node, Integer> louvain(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull LouvainCDParam param) {
-        LouvainCD louvainCD = new LouvainCD(view, edgeFilter, param);
+        return louvain(view.freeze(), edgeFilter, param);
+    }
+
+    /**
+     * Louvain algorithm for community detection on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The community index for each node.
+     */
+    protected static Map<Node, Integer> louvain(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull LouvainCDParam param) {
+        LouvainCD louvainCD = new LouvainCD(snapshot, edgeFilter, param);
         louvainCD.detectCommunity();
         return louvainCD.getCommunities();
     }
 
+    /**
+     * Leiden algorithm for community detection.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The community index for each node.
+     */
+    protected static Map<Node, Integer> leiden(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull LeidenCDParam param) {
+        return leiden(view.freeze(), edgeFilter, param);
+    }
+
+    /**
+     * Leiden algorithm for community detection on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     * @return - The community index for each node.
+     */
+    protected static Map<Node, Integer> leiden(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull LeidenCDParam param) {
+        LeidenCD leidenCD = new LeidenCD(snapshot, edgeFilter, param);
+        leidenCD.detectCommunity();
+        return leidenCD.getCommunities();
+    }
+
+    /**
+     * Calculate the modularity, coverage, conductance and the quality of each community for a partition.
+     *
+     * @param view - Aim view.
+     * @param edgeFilter - Edge filter.
+     * @param partition - Node to community label, each node of the view should have a label.
+     * @param weights - Edge type to weight, the types not in the map are ignored. Null means weight 1 for all.
+     * @return - The quality of partition. Return null if a node of the view has no label.
+     */
+    protected static PartitionQuality quality(@NonNull View view, @NonNull EdgeFilter edgeFilter, @NonNull Map<Node, Integer> partition, Map<String, Double> weights) {
+        return quality(view.freeze(), edgeFilter, partition, weights);
+    }
+
+    /**
+     * Calculate the quality of a partition on the snapshot of view.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param partition - Node to community label, each node of the snapshot should have a label.
+     * @param weights - Edge type to weight, the types not in the map are ignored. Null means weight 1 for all.
+     * @return - The quality of partition. Return null if a node of the snapshot has no label.
+     */
+    protected static PartitionQuality quality(@NonNull ViewSnapshot snapshot, @NonNull EdgeFilter edgeFilter, @NonNull Map<Node, Integer> partition, Map<String, Double> weights) {
+        return PartitionEvaluation.evaluate(snapshot, edgeFilter, partition, weights);
+    }
+
 }
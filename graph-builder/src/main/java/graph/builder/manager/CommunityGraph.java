@@ -0,0 +1,377 @@
+package graph.builder.manager;
+
+import graph.builder.ViewSnapshot;
+import graph.builder.common.EdgeType;
+import graph.builder.util.IntList;
+import graph.builder.vo.EdgeFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Weighted undirected graph for community detection, in compressed-sparse-row form.
+ *
+ * The edge directions are ignored and the parallel edges are merged, so the row of node v holds each other node
+ * once with the total weight between them. The weight of the self loops is kept aside as the diagonal A(v, v), where
+ * a self loop of weight w counts 2w, the same as its share of the degree. A community of one level becomes a node of
+ * the next level, whose diagonal is the total weight inside the community.
+ */
+class CommunityGraph {
+    /**
+     * The rows of a graph with fewer entries are merged in the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    final int n;
+
+    /**
+     * The entries of node v are [start[v], start[v + 1]).
+     */
+    final int[] start;
+
+    /**
+     * Entry to the other side node.
+     */
+    final int[] neighbours;
+
+    /**
+     * Entry to the total weight between the two nodes.
+     */
+    final double[] weights;
+
+    /**
+     * Node to A(v, v).
+     */
+    final double[] loops;
+
+    /**
+     * Node to the weighted degree, the sum of its row and its diagonal.
+     */
+    final double[] degree;
+
+    /**
+     * The sum of all degrees, 2m.
+     */
+    final double totalWeight;
+
+    private CommunityGraph(int n, int[] start, int[] neighbours, double[] weights, double[] loops) {
+        this.n = n;
+        this.start = start;
+        this.neighbours = neighbours;
+        this.weights = weights;
+        this.loops = loops;
+        this.degree = new double[n];
+        double total = 0.0;
+        for (int v = 0; v < n; v++) {
+            degree[v] = loops[v];
+            for (int entry = start[v]; entry < start[v + 1]; entry++) {
+                degree[v] += weights[entry];
+            }
+            total += degree[v];
+        }
+        this.totalWeight = total;
+    }
+
+    /**
+     * Build the graph of the snapshot, the node v of the graph is the node with index v in the snapshot.
+     *
+     * @param snapshot - Aim snapshot.
+     * @param edgeFilter - Edge filter, the type set should be built.
+     * @param edgeWeights - Edge type to weight, the types not in the map are ignored. Null means weight 1 for all.
+     * @return - The graph.
+     */
+    static CommunityGraph build(ViewSnapshot snapshot, EdgeFilter edgeFilter, Map<String, Double> edgeWeights) {
+        double[] typeWeights = new double[EdgeType.codeCount()];
+        for (byte code = 0; code < EdgeType.UNKNOWN_CODE; code++) {
+            Double weight = edgeWeights == null ? Double.valueOf(1.0) : edgeWeights.get(EdgeType.name(code));
+            typeWeights[code] = weight == null ? 0.0 : weight;
+        }
+        if (edgeWeights == null) {
+            // The custom types share the unknown code, they also weigh 1.
+            typeWeights[EdgeType.UNKNOWN_CODE] = 1.0;
+        }
+
+        int n = snapshot.nodeCount();
+        int capacity = 0;
+        for (int v = 0; v < n; v++) {
+            capacity += snapshot.outEnd(v) - snapshot.outStart(v) + snapshot.inEnd(v) - snapshot.inStart(v);
+        }
+
+        Builder builder = new Builder(n, 0, capacity, new double[n]);
+        for (int v = 0; v < n; v++) {
+            for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                byte type = snapshot.inType(slot);
+                if (snapshot.allowsIn(edgeFilter, slot)) {
+                    builder.add(snapshot.inSource(slot), weight(snapshot, snapshot.inEdge(slot), type, typeWeights, edgeWeights));
+                }
+            }
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                byte type = snapshot.edgeType(slot);
+                if (snapshot.allowsOut(edgeFilter, slot)) {
+                    builder.add(snapshot.outTarget(slot), weight(snapshot, slot, type, typeWeights, edgeWeights));
+                }
+            }
+            builder.finishRow(v);
+        }
+        return builder.build();
+    }
+
+    private static double weight(ViewSnapshot snapshot, int slot, byte type, double[] typeWeights, Map<String, Double> edgeWeights) {
+        if (type != EdgeType.UNKNOWN_CODE || edgeWeights == null) {
+            return typeWeights[type];
+        }
+        return edgeWeights.getOrDefault(snapshot.getEdge(slot).getEdgeType(), 0.0);
+    }
+
+    /**
+     * Merge each community into one node. The communities are split into ranges of about the same number of
+     * entries, and the rows of each range are merged by one worker.
+     *
+     * @param community - Node to community, the communities are numbered from 0.
+     * @param count - The number of communities.
+     * @param parallelism - The number of workers.
+     * @return - The graph of the communities, node c is community c.
+     */
+    CommunityGraph aggregate(int[] community, int count, int parallelism) {
+        // Group the nodes by community.
+        int[] memberStart = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            memberStart[community[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            memberStart[c + 1] += memberStart[c];
+        }
+        int[] members = new int[n];
+        int[] next = Arrays.copyOf(memberStart, count);
+        for (int v = 0; v < n; v++) {
+            members[next[community[v]]++] = v;
+        }
+
+        // Range r covers the communities [rangeStart[r], rangeStart[r + 1]).
+        int ranges = neighbours.length < PARALLEL_THRESHOLD ? 1 : Math.max(1, Math.min(parallelism, count));
+        int[] rangeStart = new int[ranges + 1];
+        long entries = 0;
+        int r = 1;
+        for (int c = 0; c < count && r < ranges; c++) {
+            if (entries >= (long) neighbours.length * r / ranges) {
+                rangeStart[r++] = c;
+            }
+            for (int i = memberStart[c]; i < memberStart[c + 1]; i++) {
+                entries += start[members[i] + 1] - start[members[i]];
+            }
+        }
+        for (; r <= ranges; r++) {
+            rangeStart[r] = count;
+        }
+
+        double[] newLoops = new double[count];
+        Builder[] builders = new Builder[ranges];
+        IntStream.range(0, ranges).parallel().forEach(range -> {
+            int capacity = 0;
+            for (int i = memberStart[rangeStart[range]]; i < memberStart[rangeStart[range + 1]]; i++) {
+                capacity += start[members[i] + 1] - start[members[i]];
+            }
+
+            Builder builder = new Builder(count, rangeStart[range], capacity, newLoops);
+            for (int c = rangeStart[range]; c < rangeStart[range + 1]; c++) {
+                for (int i = memberStart[c]; i < memberStart[c + 1]; i++) {
+                    int v = members[i];
+                    newLoops[c] += loops[v];
+                    for (int entry = start[v]; entry < start[v + 1]; entry++) {
+                        builder.add(community[neighbours[entry]], weights[entry]);
+                    }
+                }
+                builder.finishRow(c);
+            }
+            builders[range] = builder;
+        });
+        if (ranges == 1) {
+            return builders[0].build();
+        }
+
+        // Concatenate the rows of the ranges.
+        int[] newStart = new int[count + 1];
+        int size = 0;
+        for (int range = 0; range < ranges; range++) {
+            for (int c = rangeStart[range]; c < rangeStart[range + 1]; c++) {
+                newStart[c + 1] = size + builders[range].start[c - rangeStart[range] + 1];
+            }
+            size += builders[range].size;
+        }
+        int[] newNeighbours = new int[size];
+        double[] newWeights = new double[size];
+        for (int range = 0; range < ranges; range++) {
+            int offset = newStart[rangeStart[range]];
+            System.arraycopy(builders[range].neighbours, 0, newNeighbours, offset, builders[range].size);
+            System.arraycopy(builders[range].weights, 0, newWeights, offset, builders[range].size);
+        }
+        return new CommunityGraph(count, newStart, newNeighbours, newWeights, newLoops);
+    }
+
+    /**
+     * Color the nodes greedily so that two neighbours never share a color, a node takes the smallest color not used
+     * by its colored neighbours.
+     *
+     * @return - The nodes of each color.
+     */
+    List<int[]> colorClasses() {
+        return colorClasses(n, start, neighbours);
+    }
+
+    /**
+     * Color the nodes of a graph in compressed-sparse-row form, the same as {@link #colorClasses()}.
+     *
+     * @param n - The number of nodes.
+     * @param start - The entries of node v are [start[v], start[v + 1]).
+     * @param neighbours - Entry to the other side node, the self loops and the repeated entries are allowed.
+     * @return - The nodes of each color.
+     */
+    static List<int[]> colorClasses(int n, int[] start, int[] neighbours) {
+        int[] color = new int[n];
+        int[] forbidden = new int[n + 1];
+        int[] classSize = new int[n + 1];
+        int colors = 0;
+        for (int v = 0; v < n; v++) {
+            // A color c is forbidden for v when forbidden[c] is v + 1.
+            for (int entry = start[v]; entry < start[v + 1]; entry++) {
+                int other = neighbours[entry];
+                if (other < v) {
+                    forbidden[color[other]] = v + 1;
+                }
+            }
+            int c = 0;
+            while (forbidden[c] == v + 1) {
+                c++;
+            }
+            color[v] = c;
+            classSize[c]++;
+            colors = Math.max(colors, c + 1);
+        }
+
+        List<int[]> classes = new ArrayList<>(colors);
+        for (int c = 0; c < colors; c++) {
+            classes.add(new int[classSize[c]]);
+        }
+        int[] filled = new int[colors];
+        for (int v = 0; v < n; v++) {
+            classes.get(color[v])[filled[color[v]]++] = v;
+        }
+        return classes;
+    }
+
+    /**
+     * Calculate the modularity of the partition.
+     *
+     * @param community - Node to community, the communities are numbered from 0 and less than n.
+     * @return - The modularity, 0 if the graph has no weight.
+     */
+    double modularity(int[] community) {
+        if (totalWeight <= 0) {
+            return 0.0;
+        }
+
+        double[] inner = new double[n];
+        double[] total = new double[n];
+        for (int v = 0; v < n; v++) {
+            int c = community[v];
+            total[c] += degree[v];
+            inner[c] += loops[v];
+            for (int entry = start[v]; entry < start[v + 1]; entry++) {
+                if (community[neighbours[entry]] == c) {
+                    inner[c] += weights[entry];
+                }
+            }
+        }
+
+        double q = 0.0;
+        for (int c = 0; c < n; c++) {
+            q += inner[c] / totalWeight - (total[c] / totalWeight) * (total[c] / totalWeight);
+        }
+        return q;
+    }
+
+    /**
+     * Fill the rows one by one from the first row, the weights to the same node in one row are merged through a
+     * scratch array.
+     */
+    private static class Builder {
+        private final int n;
+        private final int first;
+
+        /**
+         * The entries of row first + i are [start[i], start[i + 1]).
+         */
+        private final int[] start;
+        private final int[] neighbours;
+        private final double[] weights;
+
+        /**
+         * Shared by all builders of one graph, each builder only adds to its rows.
+         */
+        private final double[] loops;
+
+        /**
+         * Scratch, node to the weight in the current row, and the nodes in the current row.
+         */
+        private final double[] rowWeight;
+        private final IntList row = new IntList();
+
+        private int size = 0;
+        private int current;
+
+        /**
+         * Constructor.
+         *
+         * @param n - The number of nodes of the graph.
+         * @param first - The first row to fill.
+         * @param capacity - The max number of entries.
+         * @param loops - Node to A(v, v).
+         */
+        Builder(int n, int first, int capacity, double[] loops) {
+            this.n = n;
+            this.first = first;
+            this.start = new int[n - first + 1];
+            this.neighbours = new int[capacity];
+            this.weights = new double[capacity];
+            this.loops = loops;
+            this.rowWeight = new double[n];
+            this.current = first;
+        }
+
+        /**
+         * Add weight between the current row node and node v.
+         */
+        void add(int v, double weight) {
+            if (weight <= 0) {
+                return;
+            }
+            if (v == current) {
+                loops[v] += weight;
+                return;
+            }
+            if (rowWeight[v] == 0.0) {
+                row.add(v);
+            }
+            rowWeight[v] += weight;
+        }
+
+        void finishRow(int v) {
+            for (int i = 0; i < row.size(); i++) {
+                int other = row.get(i);
+                neighbours[size] = other;
+                weights[size++] = rowWeight[other];
+                rowWeight[other] = 0.0;
+            }
+            row.clear();
+            start[v - first + 1] = size;
+            current = v + 1;
+        }
+
+        CommunityGraph build() {
+            return new CommunityGraph(n, start, Arrays.copyOf(neighbours, size), Arrays.copyOf(weights, size), loops);
+        }
+    }
+}
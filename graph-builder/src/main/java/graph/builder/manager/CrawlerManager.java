@@ -8,6 +8,7 @@ import crawler.manager.*;
 import crawler.util.Pair;
 import graph.builder.Graph;
 import graph.builder.View;
+import graph.builder.ViewBuilder;
 import graph.builder.common.EdgeType;
 import graph.builder.common.NodeOptions;
 import graph.builder.common.NodeType;
@@ -18,6 +19,7 @@ import graph.builder.entity.edge.Edge;
 import graph.builder.entity.node.*;
 import graph.builder.exception.GraphBuilderException;
 import graph.builder.util.Logger;
+import graph.builder.util.StringPool;
 
 import java.util.*;
 
@@ -52,10 +54,12 @@ public class CrawlerManager {
         }
 
         NodeExtractionManager manager = service.getNodeManager();
-        viewExtraction(manager, graph, options);
+        List<ViewBuilder> builders = new ArrayList<>();
+        viewExtraction(manager, graph, options, builders);
 
-        for (View view : graph.getViews()) {
-            view.connectionEdge();
+        // The edges are connected after all views are loaded since the iframe node is added after the html nodes.
+        for (ViewBuilder builder : builders) {
+            builder.build();
         }
     }
 
@@ -64,23 +68,28 @@ public class CrawlerManager {
      *  @param manager
      * @param graph
      * @param options
+     * @param builders - Collect the builder of each view.
      */
-    private static void viewExtraction(NodeExtractionManager manager, Graph graph, NodeOptions options) {
-        View mainView = graph.createView();
+    private static void viewExtraction(NodeExtractionManager manager, Graph graph, NodeOptions options, List<ViewBuilder> builders) {
+        ViewBuilder mainBuilder = new ViewBuilder(graph.createView());
+        builders.add(mainBuilder);
         nodeExtraction(manager.getHtmlManager(), manager.getCssManager(),
-                manager.getScriptManager(), manager.getNetworkRequestManager(), mainView, options);
+                manager.getScriptManager(), manager.getNetworkRequestManager(), mainBuilder, options);
 
-        iframeExtraction(manager.getIFrameManagers(), mainView, graph, options);
+        iframeExtraction(manager.getIFrameManagers(), mainBuilder, graph, options, builders);
     }
 
     /**
      * Process the extraction of iframes.
      *  @param iFrameManagers
-     * @param parentView
+     * @param parentBuilder
      * @param graph
      * @param options
+     * @param builders - Collect the builder of each view.
      */
-    private static void iframeExtraction(Map<String, IFrameManager> iFrameManagers, View parentView, Graph graph, NodeOptions options) {
+    private static void iframeExtraction(Map<String, IFrameManager> iFrameManagers, ViewBuilder parentBuilder, Graph graph,
+                                         NodeOptions options, List<ViewBuilder> builders) {
+        View parentView = parentBuilder.getView();
         for (Map.Entry<String, IFrameManager> entry : iFrameManagers.entrySet()) {
             String parentNodeId = entry.getKey();
             IFrameManager iframe = entry.getValue();
@@ -88,7 +97,7 @@ public class CrawlerManager {
             IframeNode iframeNode = new IframeNode();
             iframeNode.setId(iframe.getId());
             iframeNode.setViewId(iframe.getId());
-            if (parentView.addIframe(iframeNode) == null) {
+            if (parentBuilder.addNode(iframeNode) == null) {
                 Logger.getInstance().info("Fail to add the iframe node into view. Iframe node id: " + iframeNode.getId());
                 continue;
             }
@@ -96,11 +105,13 @@ public class CrawlerManager {
             View view = graph.createView(iframe.getId());
             view.setParentViewId(parentView.getViewId());
             view.setParentNodeId(parentNodeId);
+            ViewBuilder builder = new ViewBuilder(view);
+            builders.add(builder);
             nodeExtraction(iframe.getHtmlManager(), iframe.getCssManager(), iframe.getScriptManager(),
-                    iframe.getNetworkRequestManager(), view, options);
+                    iframe.getNetworkRequestManager(), builder, options);
 
 
-            iframeExtraction(iframe.getIFrameManagers(), view, graph, options);
+            iframeExtraction(iframe.getIFrameManagers(), builder, graph, options, builders);
         }
     }
 
@@ -110,25 +121,25 @@ public class CrawlerManager {
      * @param cssManager
      * @param scriptManager
      * @param networkRequestManager
-     * @param view
+     * @param builder
      * @param options
      */
     private static void nodeExtraction(HTMLManager htmlManager, CSSManager cssManager, ScriptManager scriptManager,
-                                       NetworkRequestManager networkRequestManager, View view, NodeOptions options) {
+                                       NetworkRequestManager networkRequestManager, ViewBuilder builder, NodeOptions options) {
         if (options.htmlExtraction()) {
-            htmlNodeExtraction(htmlManager, view);
+            htmlNodeExtraction(htmlManager, builder);
         }
 
         if (options.cssExtraction()) {
-            cssNodeExtraction(cssManager, view);
+            cssNodeExtraction(cssManager, builder);
         }
 
         if (options.scriptExtraction()) {
-            scriptNodeExtraction(scriptManager, view);
+            scriptNodeExtraction(scriptManager, builder);
         }
 
         if (options.networkExtraction()) {
-            networkNodeExtraction(networkRequestManager, view);
+            networkNodeExtraction(networkRequestManager, builder);
         }
 
 //        checkExternalResourceConnection(view);
@@ -138,13 +149,17 @@ public class CrawlerManager {
      * Process the extraction of html node inside the view.
      *
      * @param htmlManager
-     * @param view
+     * @param builder
      */
-    private static void htmlNodeExtraction(HTMLManager htmlManager, View view) {
-        for (HTMLElement element : htmlManager.getAllElement()) {
+    private static void htmlNodeExtraction(HTMLManager htmlManager, ViewBuilder builder) {
+        List<HTMLElement> elements = htmlManager.getAllElement();
+        // Most elements have one edge to its parent.
+        builder.ensureCapacity(elements.size(), elements.size());
+        StringPool pool = builder.getView().getStringPool();
+        for (HTMLElement element : elements) {
             HTMLNode node = new HTMLNode();
-            node.transferFrom(element);
-            if (view.addHTMLNode(node) == null) {
+            node.transferFrom(element, pool);
+            if (builder.addNode(node) == null) {
                 Logger.getInstance().info("Fail to add the html node into view. HTML node id: " + node.getId());
                 continue;
             }
@@ -154,7 +169,7 @@ public class CrawlerManager {
                 edge.setFrom(element.getParent(), NodeType.HTML);
                 edge.setTo(element.getId(), NodeType.HTML);
                 edge.setEdgeType(EdgeType.PARENT_CHILD_RELATION);
-                if (view.addEdgeUncheckExistence(edge) == null) {
+                if (builder.addEdge(edge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + edge.getId() +
                             ". Edge type: " + EdgeType.PARENT_CHILD_RELATION);
                 }
@@ -165,7 +180,7 @@ public class CrawlerManager {
                 edge.setFrom(element.getId(), NodeType.HTML);
                 edge.setTo(element.getShadowRoot(), NodeType.HTML);
                 edge.setEdgeType(EdgeType.SHADOW_HOST);
-                if (view.addEdgeUncheckExistence(edge) == null) {
+                if (builder.addEdge(edge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + edge.getId() +
                             ". Edge type: " + EdgeType.SHADOW_HOST);
                 }
@@ -176,7 +191,7 @@ public class CrawlerManager {
                 edge.setFrom(element.getId(), NodeType.HTML);
                 edge.setTo(element.getRelatedIframeId(), NodeType.IFRAME);
                 edge.setEdgeType(EdgeType.IFRAME_CONTAINER);
-                if (view.addEdgeUncheckExistence(edge) == null) {
+                if (builder.addEdge(edge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + edge.getId() +
                             ". Edge type: " + EdgeType.IFRAME_CONTAINER);
                 }
@@ -188,24 +203,25 @@ public class CrawlerManager {
      * Process the extraction of css node and css rule node inside the view.
      *
      * @param cssManager
-     * @param view
+     * @param builder
      */
-    private static void cssNodeExtraction(CSSManager cssManager, View view) {
-        cssRuleExtraction(cssManager.getAllRules(), view);
-        cssCodeBlockExtraction(cssManager.getAllCodeBlocks(), view);
+    private static void cssNodeExtraction(CSSManager cssManager, ViewBuilder builder) {
+        cssRuleExtraction(cssManager.getAllRules(), builder);
+        cssCodeBlockExtraction(cssManager.getAllCodeBlocks(), builder);
     }
 
     /**
      * Process the extraction of css node inside the view.
      *
      * @param allCodeBlocks
-     * @param view
+     * @param builder
      */
-    private static void cssCodeBlockExtraction(List<CSSCodeBlock> allCodeBlocks, View view) {
+    private static void cssCodeBlockExtraction(List<CSSCodeBlock> allCodeBlocks, ViewBuilder builder) {
+        builder.ensureCapacity(allCodeBlocks.size(), allCodeBlocks.size());
         for (CSSCodeBlock block : allCodeBlocks) {
             CSSNode node = new CSSNode();
             node.transferFrom(block);
-            if (view.addCSSNode(node) == null) {
+            if (builder.addNode(node) == null) {
                 Logger.getInstance().info("Fail to add the css node into view. CSS node id: " + node.getId());
                 continue;
             }
@@ -215,7 +231,7 @@ public class CrawlerManager {
                 edge.setFrom(block.getId(), NodeType.CSS);
                 edge.setTo(ruleId, NodeType.CSS_RULE);
                 edge.setEdgeType(EdgeType.CSS_RULE_CONTAINER);
-                if (view.addEdgeUncheckExistence(edge) == null) {
+                if (builder.addEdge(edge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + edge.getId() +
                             ". Edge type: " + EdgeType.CSS_RULE_CONTAINER);
                 }
@@ -230,7 +246,7 @@ public class CrawlerManager {
                 edge.setFrom(block.getRelatedHTMLId(), NodeType.HTML);
                 edge.setTo(block.getId(), NodeType.CSS);
                 edge.setEdgeType(EdgeType.CONTAINS);
-                if (view.addEdgeUncheckExistence(edge) == null) {
+                if (builder.addEdge(edge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + edge.getId() +
                             ". Edge type: " + EdgeType.CONTAINS);
                 }
@@ -242,13 +258,14 @@ public class CrawlerManager {
      * Process the extraction of css rule node inside the view.
      *
      * @param allRules
-     * @param view
+     * @param builder
      */
-    private static void cssRuleExtraction(List<CSSRule> allRules, View view) {
+    private static void cssRuleExtraction(List<CSSRule> allRules, ViewBuilder builder) {
+        builder.ensureCapacity(allRules.size(), allRules.size());
         for (CSSRule rule : allRules) {
             CSSRuleNode node = new CSSRuleNode();
             node.transferFrom(rule);
-            if (view.addCSSRuleNode(node) == null) {
+            if (builder.addNode(node) == null) {
                 Logger.getInstance().info("Fail to add the css rule node into view. CSS rule node id: " + node.getId());
                 continue;
             }
@@ -262,7 +279,7 @@ public class CrawlerManager {
                 edge.setFrom(node.getId(), NodeType.CSS_RULE);
                 edge.setTo(htmlId, NodeType.HTML);
                 edge.setEdgeType(EdgeType.APPLY_TO);
-                if (view.addEdgeUncheckExistence(edge) == null) {
+                if (builder.addEdge(edge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + edge.getId() +
                             ". Edge type: " + EdgeType.APPLY_TO);
                 }
@@ -274,13 +291,15 @@ public class CrawlerManager {
      * Process the extraction of script node inside the view.
      *
      * @param scriptManager
-     * @param view
+     * @param builder
      */
-    private static void scriptNodeExtraction(ScriptManager scriptManager, View view) {
-        for (ScriptCodeBlock block : scriptManager.getAllBlocks()) {
+    private static void scriptNodeExtraction(ScriptManager scriptManager, ViewBuilder builder) {
+        List<ScriptCodeBlock> blocks = scriptManager.getAllBlocks();
+        builder.ensureCapacity(blocks.size(), blocks.size());
+        for (ScriptCodeBlock block : blocks) {
             ScriptNode node = new ScriptNode();
             node.transferFrom(block);
-            if (view.addScriptNode(node) == null) {
+            if (builder.addNode(node) == null) {
                 Logger.getInstance().info("Fail to add the script node into view. Script node id: " + node.getId());
                 continue;
             }
@@ -295,7 +314,7 @@ public class CrawlerManager {
                     callerSideEdge.setFrom(callerId, callerType);
                     callerSideEdge.setTo(block.getId(), NodeType.SCRIPT);
                     callerSideEdge.setEdgeType(EdgeType.FUNCTION_CALL);
-                    if (view.addEdgeUncheckExistence(callerSideEdge) == null) {
+                    if (builder.addEdge(callerSideEdge) == null) {
                         Logger.getInstance().info("Fail to add the edge into view. Edge id: " + callerSideEdge.getId() +
                                 ". Edge type: " + EdgeType.FUNCTION_CALL);
                     }
@@ -321,7 +340,7 @@ public class CrawlerManager {
                     }
                     effectEdge.setComment(comment);
 
-                    if (view.addEdgeUncheckExistence(effectEdge) == null) {
+                    if (builder.addEdge(effectEdge) == null) {
                         Logger.getInstance().info("Fail to add the edge into view. Edge id: " + effectEdge.getId() +
                                 ". Edge type: " + EdgeType.DOM_CHANGE);
                     }
@@ -337,7 +356,7 @@ public class CrawlerManager {
                 edge.setFrom(block.getRelatedHTMLId(), NodeType.HTML);
                 edge.setTo(block.getId(), NodeType.SCRIPT);
                 edge.setEdgeType(EdgeType.CONTAINS);
-                if (view.addEdgeUncheckExistence(edge) == null) {
+                if (builder.addEdge(edge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + edge.getId() +
                             ". Edge type: " + EdgeType.CONTAINS);
                 }
@@ -349,10 +368,12 @@ public class CrawlerManager {
      * Process the extraction of network node inside the view.
      *
      * @param networkRequestManager
-     * @param view
+     * @param builder
      */
-    private static void networkNodeExtraction(NetworkRequestManager networkRequestManager, View view) {
-        for (NetworkRequest request : networkRequestManager.getAllNetworkRequests()) {
+    private static void networkNodeExtraction(NetworkRequestManager networkRequestManager, ViewBuilder builder) {
+        List<NetworkRequest> requests = networkRequestManager.getAllNetworkRequests();
+        builder.ensureCapacity(requests.size(), requests.size() * 2);
+        for (NetworkRequest request : requests) {
             // filter out the network request caused by redirect
             if (request.getRequestFlows().isEmpty()) {
                 continue;
@@ -363,7 +384,7 @@ public class CrawlerManager {
             if (networkRequestManager.getNetworkRequestsOnPageLoad().contains(request)) {
                 node.setIsPotential(false);
             }
-            String savedId = view.addNetworkNode(node);
+            String savedId = builder.addNode(node);
 
             if (savedId == null) {
                 Logger.getInstance().info("Fail to add the script node into view. Network node id: " + node.getId());
@@ -378,7 +399,7 @@ public class CrawlerManager {
                 senderEdge.setTo(savedId, NodeType.NETWORK);
                 senderEdge.setEdgeType(EdgeType.NETWORK_REQUEST);
                 senderEdge.setOnload(flow.isLoaded() ? (byte) 1: (byte) 0);
-                if (view.addEdgeUncheckExistence(senderEdge) == null) {
+                if (builder.addEdge(senderEdge) == null) {
                     Logger.getInstance().info("Fail to add the edge into view. Edge id: " + senderEdge.getId() +
                             ". Edge type: " + EdgeType.NETWORK_REQUEST);
                 }
@@ -393,7 +414,7 @@ public class CrawlerManager {
                     Map<String, String> comment = new HashMap<>();
                     comment.put("senderEdgeId", sendSideEdgeId);
                     receiverEdge.setComment(comment);
-                    if (view.addEdgeUncheckExistence(receiverEdge) == null) {
+                    if (builder.addEdge(receiverEdge) == null) {
                         Logger.getInstance().info("Fail to add the edge into view. Edge id: " + receiverEdge.getId() +
                                 ". Edge type: " + EdgeType.NETWORK_RESPONSE);
                     }
@@ -1,18 +1,40 @@
 package graph.builder.manager;
 
-import graph.builder.FeatureExtraction;
-import graph.builder.View;
+import graph.builder.ViewSnapshot;
 import graph.builder.entity.node.Node;
+import graph.builder.util.IntList;
+import graph.builder.util.Logger;
 import graph.builder.vo.EdgeFilter;
 import graph.builder.vo.LabelPropagationCDParam;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Label Propagation Algorithm Implementation.
+ *
+ * The neighbours of each node are kept in compressed-sparse-row form with the weight of their side, and the labels
+ * are node indexes in an array. The weights of the labels around a node are summed in an open addressing table
+ * reused by all nodes. Only the active nodes are updated in an iteration, a node becomes active when the label of
+ * one of its neighbours changes. The activated nodes are collected into the frontier of the next iteration, so the
+ * later iterations only touch the area still changing and never scan all nodes.
+ *
+ * Without parallelism, the active nodes are updated one by one in random order and each update is seen at once. With
+ * parallelism, the nodes are colored so that two neighbours never share a color, and the colors are updated one by
+ * one while the nodes of one color are updated in parallel (semi-synchronous). Two neighbours never update at the
+ * same time, so the labels do not oscillate between them, and the result does not depend on the number of threads.
  */
 class LabelPropagationCD{
-    private final View view;
+    /**
+     * The number of nodes handed out to a worker at once.
+     */
+    private static final int CHUNK = 256;
+
+    private final ViewSnapshot snapshot;
     private final EdgeFilter edgeFilter;
 
     private final double convergence;
@@ -20,17 +42,60 @@ class LabelPropagationCD{
     private final boolean shuffle;
     private final double inDegreeWeight;
     private final double outDegreeWeight;
-    private final Map<Node, Integer> nodeLabelMap;
+    private final int parallelism;
+
+    /**
+     * The entries of node v are [start[v], start[v + 1]), one entry for each edge of v in the filter. Entry to the
+     * other side node and the weight of the side.
+     */
+    private int[] start;
+    private int[] neighbours;
+    private double[] weights;
+
+    /**
+     * Node to its label, and if it should be updated.
+     */
+    private int[] labels;
+    private boolean[] active;
+
+    /**
+     * The nodes to update in the next iteration. A node may appear more than once or be no longer active, both are
+     * dropped when the frontier is collected.
+     */
+    private IntList frontier;
+
+    /**
+     * Marks the nodes already taken while collecting the frontier, and with parallelism the nodes waiting in a bucket.
+     */
+    private boolean[] collected;
+
+    /**
+     * With parallelism, node to its color, the nodes to update of each color in this iteration, and the nodes
+     * activated by each worker while the current color is updated.
+     */
+    private int[] colorOf;
+    private IntList[] buckets;
+    private IntList[] activated;
+
+    /**
+     * The number of current iteration, to break the ties differently in each iteration.
+     */
+    private int iteration;
+
+    /**
+     * One histogram for each worker.
+     */
+    private LabelHistogram[] histograms;
 
     /**
      * Constructor.
      *
-     * @param view - Aim view.
+     * @param snapshot - Snapshot of aim view.
      * @param edgeFilter - Edge filter.
      * @param param - Parameter for algorithm.
      */
-    LabelPropagationCD(View view, EdgeFilter edgeFilter, LabelPropagationCDParam param) {
-        this.view = view;
+    LabelPropagationCD(ViewSnapshot snapshot, EdgeFilter edgeFilter, LabelPropagationCDParam param) {
+        this.snapshot = snapshot;
         this.edgeFilter = edgeFilter;
 
         this.convergence = param.getConvergence();
@@ -38,17 +103,30 @@ class LabelPropagationCD{
         this.shuffle = param.isShuffle();
         this.inDegreeWeight = param.getInDegreeWeight();
         this.outDegreeWeight = param.getOutDegreeWeight();
-
-        this.nodeLabelMap = new HashMap<>();
+        this.parallelism = param.getParallelism() > 0 ? param.getParallelism() : Runtime.getRuntime().availableProcessors();
     }
 
     /**
      * Get the community distribution.
      *
-     * @return - The label for each node.
+     * @return - The label for each node, the labels are numbered from 0.
      */
     Map<Node, Integer> getCommunities() {
-        return nodeLabelMap;
+        Map<Node, Integer> communities = new HashMap<>();
+        if (labels == null) {
+            return communities;
+        }
+
+        int[] mapping = new int[labels.length];
+        Arrays.fill(mapping, -1);
+        int count = 0;
+        for (int v = 0; v < labels.length; v++) {
+            if (mapping[labels[v]] < 0) {
+                mapping[labels[v]] = count++;
+            }
+            communities.put(snapshot.getNode(v), mapping[labels[v]]);
+        }
+        return communities;
     }
 
     /**
@@ -57,76 +135,374 @@ class LabelPropagationCD{
      */
     void detectCommunity() {
         edgeFilter.buildTypeSet();
-        List<Node> nodeList = view.getAllNode();
+        buildAdjacency();
+
         // Assign unique label for each node.
-        for (Node node : nodeList) {
-            nodeLabelMap.put(node, node.hashCode());
+        int n = snapshot.nodeCount();
+        labels = new int[n];
+        active = new boolean[n];
+        collected = new boolean[n];
+        frontier = new IntList(n);
+        for (int v = 0; v < n; v++) {
+            labels[v] = v;
+            active[v] = true;
+            frontier.add(v);
+        }
+
+        boolean semiSynchronous = parallelism > 1;
+        List<int[]> colors = semiSynchronous ? CommunityGraph.colorClasses(n, start, neighbours) : null;
+        int maxRow = 0;
+        for (int v = 0; v < n; v++) {
+            maxRow = Math.max(maxRow, start[v + 1] - start[v]);
+        }
+        histograms = new LabelHistogram[semiSynchronous ? parallelism : 1];
+        activated = new IntList[histograms.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LabelHistogram(maxRow);
+            activated[i] = new IntList();
+        }
+        if (semiSynchronous) {
+            colorOf = new int[n];
+            buckets = new IntList[colors.size()];
+            for (int c = 0; c < colors.size(); c++) {
+                for (int v : colors.get(c)) {
+                    colorOf[v] = c;
+                }
+                buckets[c] = new IntList();
+            }
         }
 
-        double nodeSize = nodeList.size();
+        double nodeSize = n;
         double labelsChanged = 1.0;
-        int iterations = 0;
-
-        while ((labelsChanged / nodeSize) > convergence && iterations < maxIterations) {
-            labelsChanged = 0.0;
-            iterations++;
-
-            // shuffle to increase randomness.
-            List<Node> processList = new ArrayList<>(nodeList);
-            if (shuffle) {
-                processList = new ArrayList<>(nodeList);
-                Collections.shuffle(processList);
-            }
-
-            // propagation.
-            for (Node node : processList) {
-                Map<Integer, Double> labelCounts = neighbourLabelCount(node);
-
-                // find the most frequently label
-                double maxCount = -1.0;
-                int dominantLabel = nodeLabelMap.get(node);
-                for (Map.Entry<Integer, Double> entry : labelCounts.entrySet()) {
-                    if (entry.getValue() > maxCount) {
-                        dominantLabel = entry.getKey();
-                        maxCount = entry.getValue();
+        iteration = 0;
+
+        while ((labelsChanged / nodeSize) > convergence && iteration < maxIterations) {
+            iteration++;
+            labelsChanged = semiSynchronous ? propagateByColor(colors) : propagate();
+        }
+    }
+
+    /**
+     * Build the weighted neighbours of each node, the in side first.
+     */
+    private void buildAdjacency() {
+        int n = snapshot.nodeCount();
+        start = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int count = 0;
+            for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                if (snapshot.allowsIn(edgeFilter, slot)) {
+                    count++;
+                }
+            }
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (snapshot.allowsOut(edgeFilter, slot)) {
+                    count++;
+                }
+            }
+            start[v + 1] = start[v] + count;
+        }
+
+        neighbours = new int[start[n]];
+        weights = new double[start[n]];
+        for (int v = 0; v < n; v++) {
+            int entry = start[v];
+            for (int slot = snapshot.inStart(v); slot < snapshot.inEnd(v); slot++) {
+                if (snapshot.allowsIn(edgeFilter, slot)) {
+                    neighbours[entry] = snapshot.inSource(slot);
+                    weights[entry++] = inDegreeWeight;
+                }
+            }
+            for (int slot = snapshot.outStart(v); slot < snapshot.outEnd(v); slot++) {
+                if (snapshot.allowsOut(edgeFilter, slot)) {
+                    neighbours[entry] = snapshot.outTarget(slot);
+                    weights[entry++] = outDegreeWeight;
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the active nodes one by one.
+     *
+     * @return - The number of nodes whose label changed.
+     */
+    private int propagate() {
+        int[] order = collectFrontier();
+        // shuffle to increase randomness, otherwise go in node order.
+        if (!shuffle) {
+            Arrays.sort(order);
+        } else {
+            Random random = new Random();
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+
+        int labelsChanged = 0;
+        for (int v : order) {
+            if (update(v, histograms[0], frontier)) {
+                labelsChanged++;
+            }
+        }
+        return labelsChanged;
+    }
+
+    /**
+     * Take the active nodes out of the frontier, each node once.
+     *
+     * @return - The nodes to update in this iteration.
+     */
+    private int[] collectFrontier() {
+        int[] nodes = new int[frontier.size()];
+        int count = 0;
+        for (int i = 0; i < frontier.size(); i++) {
+            int v = frontier.get(i);
+            if (active[v] && !collected[v]) {
+                collected[v] = true;
+                nodes[count++] = v;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            collected[nodes[i]] = false;
+        }
+        frontier.clear();
+        return Arrays.copyOf(nodes, count);
+    }
+
+    /**
+     * Update the active nodes color by color, the nodes of one color in parallel. A node activated before its
+     * color is updated is still updated in this iteration, otherwise it waits for the next iteration.
+     *
+     * @param colors - The nodes of each color.
+     * @return - The number of nodes whose label changed, 0 if the workers fail.
+     */
+    private int propagateByColor(List<int[]> colors) {
+        for (int v : collectFrontier()) {
+            collected[v] = true;
+            buckets[colorOf[v]].add(v);
+        }
+
+        int labelsChanged = 0;
+        for (int c = 0; c < colors.size(); c++) {
+            int[] nodes = takeBucket(c);
+            int changed = updateColor(nodes);
+            if (changed < 0) {
+                for (int other = c + 1; other < colors.size(); other++) {
+                    takeBucket(other);
+                }
+                return 0;
+            }
+            labelsChanged += changed;
+
+            // Two workers may activate the same node, it only goes into its bucket once.
+            for (IntList list : activated) {
+                for (int i = 0; i < list.size(); i++) {
+                    int v = list.get(i);
+                    if (colorOf[v] < c) {
+                        frontier.add(v);
+                    } else if (!collected[v]) {
+                        collected[v] = true;
+                        buckets[colorOf[v]].add(v);
                     }
                 }
+                list.clear();
+            }
+        }
+        return labelsChanged;
+    }
+
+    /**
+     * Take the nodes out of the bucket of the color.
+     *
+     * @param color
+     * @return
+     */
+    private int[] takeBucket(int color) {
+        int[] nodes = buckets[color].toArray();
+        for (int v : nodes) {
+            collected[v] = false;
+        }
+        buckets[color].clear();
+        return nodes;
+    }
 
-                if (dominantLabel != nodeLabelMap.get(node)) {
-                    nodeLabelMap.put(node,  dominantLabel);
+    /**
+     * Update the active nodes of one color.
+     *
+     * @param nodes - The nodes of the color to update, no two of them are neighbours.
+     * @return - The number of nodes whose label changed, -1 if the workers fail.
+     */
+    private int updateColor(int[] nodes) {
+        int workers = Math.min(parallelism, (nodes.length + CHUNK - 1) / CHUNK);
+        if (workers <= 1) {
+            int labelsChanged = 0;
+            for (int v : nodes) {
+                if (active[v] && update(v, histograms[0], activated[0])) {
                     labelsChanged++;
                 }
             }
+            return labelsChanged;
         }
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            LabelHistogram histogram = histograms[worker];
+            IntList list = activated[worker];
+            tasks.add(() -> {
+                int labelsChanged = 0;
+                for (int chunk = nextChunk.getAndIncrement(); chunk * CHUNK < nodes.length; chunk = nextChunk.getAndIncrement()) {
+                    for (int i = chunk * CHUNK; i < Math.min(nodes.length, (chunk + 1) * CHUNK); i++) {
+                        if (active[nodes[i]] && update(nodes[i], histogram, list)) {
+                            labelsChanged++;
+                        }
+                    }
+                }
+                return labelsChanged;
+            });
+        }
+
+        int labelsChanged = 0;
+        try {
+            for (Future<Integer> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                labelsChanged += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.getInstance().error("Label propagation is interrupted.");
+            return -1;
+        } catch (ExecutionException e) {
+            Logger.getInstance().error("Fail to run label propagation: " + e.getCause());
+            return -1;
+        }
+        return labelsChanged;
     }
 
     /**
-     * Count the occurrence of label in node's neighbours.
+     * Give node the label with max weight among its neighbours, and activate its neighbours if the label changes.
+     * The current label wins the tie, the tie of the other labels is broken by a hash of the node, the label and the
+     * iteration, which is random enough to avoid one label flooding by a fixed order and the same for any threads.
      *
-     * @param node - Aim node.
-     * @return - Label Count.
+     * @param v - Aim node.
+     * @param histogram - Histogram of the worker.
+     * @param activatedNodes - The list which the newly activated neighbours are added into.
+     * @return - If the label changed.
      */
-    private Map<Integer, Double> neighbourLabelCount(Node node) {
-        List<Node> ascendantNodes = FeatureExtraction.ascendantNodes(view, node, edgeFilter);
-        List<Node> descendantNodes = FeatureExtraction.descendantNodes(view, node, edgeFilter);
-        Map<Integer, Double> labelCounts = new HashMap<>();
+    private boolean update(int v, LabelHistogram histogram, IntList activatedNodes) {
+        active[v] = false;
+        for (int entry = start[v]; entry < start[v + 1]; entry++) {
+            histogram.add(labels[neighbours[entry]], weights[entry]);
+        }
 
-        if (ascendantNodes != null) {
-            for (Node ascendant : ascendantNodes) {
-                Integer neighborLabel = nodeLabelMap.get(ascendant);
-                labelCounts.put(neighborLabel,
-                        labelCounts.getOrDefault(neighborLabel, 0.0) + inDegreeWeight);
+        int current = labels[v];
+        int dominantLabel = current;
+        double maxCount = histogram.get(current);
+        for (int i = 0; i < histogram.size(); i++) {
+            int label = histogram.label(i);
+            double count = histogram.count(i);
+            if (count > maxCount || (count == maxCount && dominantLabel != current
+                    && priority(v, label) > priority(v, dominantLabel))) {
+                dominantLabel = label;
+                maxCount = count;
             }
         }
+        histogram.clear();
 
-        if (descendantNodes != null) {
-            for (Node descendant : descendantNodes) {
-                Integer neighborLabel = nodeLabelMap.get(descendant);
-                labelCounts.put(neighborLabel,
-                        labelCounts.getOrDefault(neighborLabel, 0.0) + outDegreeWeight);
+        if (dominantLabel == current) {
+            return false;
+        }
+        labels[v] = dominantLabel;
+        for (int entry = start[v]; entry < start[v + 1]; entry++) {
+            int neighbour = neighbours[entry];
+            if (neighbour != v && !active[neighbour]) {
+                active[neighbour] = true;
+                activatedNodes.add(neighbour);
             }
         }
+        return true;
+    }
+
+    private int priority(int v, int label) {
+        long hash = ((long) v * 0x9E3779B97F4A7C15L) ^ ((long) label * 0xC2B2AE3D27D4EB4FL) ^ iteration;
+        hash = (hash ^ (hash >>> 31)) * 0xBF58476D1CE4E5B9L;
+        return (int) (hash ^ (hash >>> 29));
+    }
+
+    /**
+     * Weight of each label, in an open addressing table with linear probing. The labels are kept in the order they
+     * are added, and only the used slots are cleared.
+     */
+    private static class LabelHistogram {
+        private final int[] keys;
+        private final double[] counts;
+        private final int mask;
+
+        /**
+         * The used slots in the order they are added.
+         */
+        private final IntList used = new IntList();
+
+        /**
+         * Constructor.
+         *
+         * @param maxSize - The max number of labels added before clear.
+         */
+        LabelHistogram(int maxSize) {
+            int capacity = Integer.highestOneBit(Math.max(1, maxSize) * 2 - 1) << 1;
+            this.keys = new int[capacity];
+            this.counts = new double[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
 
-        return labelCounts;
+        void add(int label, double weight) {
+            int slot = find(label);
+            if (keys[slot] < 0) {
+                keys[slot] = label;
+                used.add(slot);
+            }
+            counts[slot] += weight;
+        }
+
+        double get(int label) {
+            int slot = find(label);
+            return keys[slot] < 0 ? 0.0 : counts[slot];
+        }
+
+        int size() {
+            return used.size();
+        }
+
+        int label(int i) {
+            return keys[used.get(i)];
+        }
+
+        double count(int i) {
+            return counts[used.get(i)];
+        }
+
+        void clear() {
+            for (int i = 0; i < used.size(); i++) {
+                keys[used.get(i)] = -1;
+                counts[used.get(i)] = 0.0;
+            }
+            used.clear();
+        }
+
+        /**
+         * Find the slot of label, or the empty slot where it should be.
+         */
+        private int find(int label) {
+            int hash = label * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] >= 0 && keys[slot] != label) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
     }
 }
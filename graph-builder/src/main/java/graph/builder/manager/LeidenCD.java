@@ -0,0 +1,388 @@
+package graph.builder.manager;
+
+import graph.builder.ViewSnapshot;
+import graph.builder.entity.node.Node;
+import graph.builder.util.IntList;
+import graph.builder.vo.EdgeFilter;
+import graph.builder.vo.LeidenCDParam;
+
+import java.util.*;
+
+/**
+ * Leiden Community Detection Implementation (Traag, Waltman and van Eck).
+ *
+ * Each level has three phases on a CommunityGraph. The fast local moving keeps a queue of nodes, and only the
+ * neighbours of a moved node outside its new community are queued again. The refinement splits each community into
+ * well-connected parts by merging its singleton nodes, randomly among the merges that do not decrease the quality.
+ * The aggregation merges each refined part into one node of a new graph, and the communities found by the local
+ * moving are the start partition of the next level, so a community is never split by the aggregation. The snapshot
+ * and its edges are never changed.
+ */
+class LeidenCD {
+    private final ViewSnapshot snapshot;
+    private final CommunityGraph original;
+
+    private final double resolution;
+    private final double randomness;
+    private final int maxIteration;
+    private final Random random;
+
+    /**
+     * The graph of current level.
+     */
+    private CommunityGraph graph;
+
+    /**
+     * Original node index to community.
+     */
+    private final int[] result;
+
+    /**
+     * Node of current level to community, and community to the total degree and the number of nodes.
+     */
+    private int[] community;
+    private double[] sigmaTot;
+    private int[] size;
+
+    /**
+     * Node of current level to refined community, and refined community to the total degree, the number of nodes
+     * and the weight to the other nodes of its community.
+     */
+    private int[] refined;
+    private double[] refinedTot;
+    private int[] refinedSize;
+    private double[] refinedExternal;
+
+    /**
+     * Scratch, community to the weight from the moving node, and the communities touched.
+     */
+    private double[] neighbourWeight;
+    private final IntList neighbourCommunities = new IntList();
+
+    /**
+     * Constructor.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param param - Parameter for algorithm.
+     */
+    LeidenCD(ViewSnapshot snapshot, EdgeFilter edgeFilter, LeidenCDParam param) {
+        edgeFilter.buildTypeSet();
+
+        this.snapshot = snapshot;
+        this.original = CommunityGraph.build(snapshot, edgeFilter, param.getWeights());
+        this.resolution = param.getResolution();
+        this.randomness = param.getRandomness();
+        this.maxIteration = param.getMaxIteration();
+        this.random = new Random(param.getSeed());
+
+        this.result = new int[snapshot.nodeCount()];
+        for (int v = 0; v < result.length; v++) {
+            result[v] = v;
+        }
+    }
+
+    /**
+     * Get the community distribution.
+     *
+     * @return - The label for each node, the labels are numbered from 0.
+     */
+    Map<Node, Integer> getCommunities() {
+        renumber(result);
+        Map<Node, Integer> communities = new HashMap<>();
+        for (int v = 0; v < result.length; v++) {
+            communities.put(snapshot.getNode(v), result[v]);
+        }
+        return communities;
+    }
+
+    /**
+     * Run the iterations until the communities do not change.
+     */
+    void detectCommunity() {
+        if (original.totalWeight <= 0) {
+            return;
+        }
+
+        for (int iteration = 0; iteration < maxIteration; iteration++) {
+            if (!iterate()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * One iteration of the levels, from the original graph and the current communities.
+     *
+     * @return - If any node moved.
+     */
+    private boolean iterate() {
+        graph = original;
+        int[] nodeBelong = new int[result.length];
+        for (int v = 0; v < result.length; v++) {
+            nodeBelong[v] = v;
+        }
+        initialCommunity(result);
+
+        boolean changed = false;
+        while (true) {
+            changed |= fastMoveNodes();
+
+            // Stop when each community is one node.
+            int communityCount = renumber(community);
+            if (communityCount == graph.n) {
+                break;
+            }
+            initialCommunity(community);
+
+            refinePartition();
+            int refinedCount = renumber(refined);
+            if (refinedCount == graph.n) {
+                break;
+            }
+
+            // The refined communities are the nodes of the next level, which start in their communities.
+            int[] nextCommunity = new int[refinedCount];
+            for (int v = 0; v < graph.n; v++) {
+                nextCommunity[refined[v]] = community[v];
+            }
+            for (int v = 0; v < nodeBelong.length; v++) {
+                nodeBelong[v] = refined[nodeBelong[v]];
+            }
+            graph = graph.aggregate(refined, refinedCount, 1);
+            initialCommunity(nextCommunity);
+        }
+
+        for (int v = 0; v < result.length; v++) {
+            result[v] = community[nodeBelong[v]];
+        }
+        return changed;
+    }
+
+    /**
+     * Set the communities of current level and their aggregates.
+     *
+     * @param start - Node to community, less than the number of nodes.
+     */
+    private void initialCommunity(int[] start) {
+        community = Arrays.copyOf(start, graph.n);
+        sigmaTot = new double[graph.n];
+        size = new int[graph.n];
+        neighbourWeight = new double[graph.n];
+        for (int v = 0; v < graph.n; v++) {
+            sigmaTot[community[v]] += graph.degree[v];
+            size[community[v]]++;
+        }
+    }
+
+    /**
+     * Move the nodes to their best communities. All nodes are queued in random order, and a moved node queues its
+     * neighbours outside its new community.
+     *
+     * @return - If any node moved.
+     */
+    private boolean fastMoveNodes() {
+        int n = graph.n;
+        int[] queue = shuffledNodes();
+        boolean[] queued = new boolean[n];
+        Arrays.fill(queued, true);
+        int head = 0;
+        int queueSize = n;
+
+        IntList emptyCommunities = new IntList();
+        for (int c = n - 1; c >= 0; c--) {
+            if (size[c] == 0) {
+                emptyCommunities.add(c);
+            }
+        }
+
+        boolean moved = false;
+        while (queueSize > 0) {
+            int v = queue[head];
+            head = (head + 1) % n;
+            queueSize--;
+            queued[v] = false;
+
+            int currentCommunity = community[v];
+            double kv = graph.degree[v];
+            gather(v, null);
+
+            // Take the node out, then the gain of joining community c is k_v,c - resolution * sigma_tot * k_v / 2m.
+            sigmaTot[currentCommunity] -= kv;
+            size[currentCommunity]--;
+
+            int bestCommunity = currentCommunity;
+            double bestGain = neighbourWeight[currentCommunity] - resolution * sigmaTot[currentCommunity] * kv / graph.totalWeight;
+            for (int i = 0; i < neighbourCommunities.size(); i++) {
+                int c = neighbourCommunities.get(i);
+                double gain = neighbourWeight[c] - resolution * sigmaTot[c] * kv / graph.totalWeight;
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestCommunity = c;
+                }
+            }
+            // An empty community has gain 0.
+            if (bestGain < 0 && size[currentCommunity] > 0) {
+                bestCommunity = emptyCommunities.removeAt(emptyCommunities.size() - 1);
+            }
+            clearScratch();
+
+            sigmaTot[bestCommunity] += kv;
+            size[bestCommunity]++;
+            if (bestCommunity == currentCommunity) {
+                continue;
+            }
+            if (size[currentCommunity] == 0) {
+                emptyCommunities.add(currentCommunity);
+            }
+            community[v] = bestCommunity;
+            moved = true;
+
+            for (int entry = graph.start[v]; entry < graph.start[v + 1]; entry++) {
+                int u = graph.neighbours[entry];
+                if (!queued[u] && community[u] != bestCommunity) {
+                    queued[u] = true;
+                    queue[(head + queueSize) % n] = u;
+                    queueSize++;
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Split each community into refined communities. Each refined community starts as one node, and a well-connected
+     * singleton node joins a well-connected refined community of the same community at random, where the chance is
+     * exp(gain / randomness) among the joins that do not decrease the quality.
+     */
+    private void refinePartition() {
+        int n = graph.n;
+        refined = new int[n];
+        refinedTot = new double[n];
+        refinedSize = new int[n];
+        refinedExternal = new double[n];
+        for (int v = 0; v < n; v++) {
+            refined[v] = v;
+            refinedTot[v] = graph.degree[v];
+            refinedSize[v] = 1;
+            for (int entry = graph.start[v]; entry < graph.start[v + 1]; entry++) {
+                if (community[graph.neighbours[entry]] == community[v]) {
+                    refinedExternal[v] += graph.weights[entry];
+                }
+            }
+        }
+
+        double[] candidateGain = new double[n];
+        IntList candidates = new IntList();
+        for (int v : shuffledNodes()) {
+            int s = community[v];
+            double kv = graph.degree[v];
+            double total = sigmaTot[s];
+            if (refinedSize[refined[v]] != 1
+                    || refinedExternal[v] < resolution * kv * (total - kv) / graph.totalWeight) {
+                continue;
+            }
+
+            gather(v, community);
+
+            // Staying alone has gain 0.
+            int own = refined[v];
+            double maxGain = 0.0;
+            for (int i = 0; i < neighbourCommunities.size(); i++) {
+                int c = neighbourCommunities.get(i);
+                double gain = neighbourWeight[c] - resolution * refinedTot[c] * kv / graph.totalWeight;
+                if (c != own && gain >= 0
+                        && refinedExternal[c] >= resolution * refinedTot[c] * (total - refinedTot[c]) / graph.totalWeight) {
+                    candidates.add(c);
+                    candidateGain[c] = gain;
+                    maxGain = Math.max(maxGain, gain);
+                }
+            }
+
+            // Pick at random, shifted by the max gain to keep exp in range.
+            int chosen = own;
+            double sum = Math.exp(-maxGain / randomness);
+            for (int i = 0; i < candidates.size(); i++) {
+                sum += Math.exp((candidateGain[candidates.get(i)] - maxGain) / randomness);
+            }
+            double r = random.nextDouble() * sum - Math.exp(-maxGain / randomness);
+            for (int i = 0; i < candidates.size() && r >= 0; i++) {
+                chosen = candidates.get(i);
+                r -= Math.exp((candidateGain[chosen] - maxGain) / randomness);
+            }
+
+            if (chosen != own) {
+                refinedExternal[chosen] += refinedExternal[own] - 2 * neighbourWeight[chosen];
+                refinedTot[chosen] += kv;
+                refinedSize[chosen]++;
+                refinedTot[own] = 0.0;
+                refinedSize[own] = 0;
+                refined[v] = chosen;
+            }
+            candidates.clear();
+            clearScratch();
+        }
+    }
+
+    /**
+     * Gather the weights from node to the communities of its neighbours, or to the refined communities of its
+     * neighbours in the same community.
+     *
+     * @param v - Node of current level.
+     * @param within - Null to gather by community, otherwise the community array to gather by refined community.
+     */
+    private void gather(int v, int[] within) {
+        int[] label = within == null ? community : refined;
+        for (int entry = graph.start[v]; entry < graph.start[v + 1]; entry++) {
+            int u = graph.neighbours[entry];
+            if (within != null && within[u] != within[v]) {
+                continue;
+            }
+            int c = label[u];
+            if (neighbourWeight[c] == 0.0) {
+                neighbourCommunities.add(c);
+            }
+            neighbourWeight[c] += graph.weights[entry];
+        }
+    }
+
+    private void clearScratch() {
+        for (int i = 0; i < neighbourCommunities.size(); i++) {
+            neighbourWeight[neighbourCommunities.get(i)] = 0.0;
+        }
+        neighbourCommunities.clear();
+    }
+
+    private int[] shuffledNodes() {
+        int[] nodes = new int[graph.n];
+        for (int v = 0; v < nodes.length; v++) {
+            nodes[v] = v;
+        }
+        for (int i = nodes.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = swap;
+        }
+        return nodes;
+    }
+
+    /**
+     * Number the labels from 0 in the order of their first appearance.
+     *
+     * @param labels - Labels less than its length, changed in place.
+     * @return - The number of distinct labels.
+     */
+    private static int renumber(int[] labels) {
+        int[] mapping = new int[labels.length];
+        Arrays.fill(mapping, -1);
+        int count = 0;
+        for (int i = 0; i < labels.length; i++) {
+            if (mapping[labels[i]] < 0) {
+                mapping[labels[i]] = count++;
+            }
+            labels[i] = mapping[labels[i]];
+        }
+        return count;
+    }
+}
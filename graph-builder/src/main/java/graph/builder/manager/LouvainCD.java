@@ -1,98 +1,128 @@
 package graph.builder.manager;
 
-import graph.builder.View;
-import graph.builder.common.NodeType;
-import graph.builder.entity.edge.Edge;
+import graph.builder.ViewSnapshot;
 import graph.builder.entity.node.Node;
-import graph.builder.util.Random;
+import graph.builder.util.IntList;
+import graph.builder.util.Logger;
 import graph.builder.vo.EdgeFilter;
 import graph.builder.vo.LouvainCDParam;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Louvain Propagation Algorithm Implementation.
+ *
+ * The graph of each level is a CommunityGraph, the communities of a level become the nodes of the next level. The
+ * total degree (sigma_tot) and the inner weight (sigma_in) of each community are kept in arrays and updated when a
+ * node moves, and the weights from the moving node to its neighbouring communities are gathered in a scratch array
+ * reused by all nodes, so one local move costs the degree of the node and one level is near linear.
+ *
+ * With parallelism, the nodes of each level are colored so that two neighbours never share a color, and the local
+ * moving goes through the colors one by one. The nodes of one color choose their communities in parallel from the
+ * state before the color, then the moves are applied in order. Since the neighbours of a node do not move at the
+ * same time, its weights to the communities are exact, and the result does not depend on the number of threads.
  */
 public class LouvainCD {
-
     /**
-     * total edge weight.
+     * A level with fewer nodes is handled in the calling thread.
      */
-    private final double m;
+    private static final int PARALLEL_THRESHOLD = 2048;
 
     /**
-     * The node will be assigned to community and the community will be seen as a new node. This is the map
-     * from original node (input) to the new node which include this original node.
+     * The number of nodes handed out to a worker at once.
      */
-    private Map<String, List<Node>> nodeBelongMap;
+    private static final int CHUNK = 256;
+
+    private final ViewSnapshot snapshot;
 
     private final double convergence;
     private final int maxAggregationTimes;
     private final int maxInnerIteration;
-    private final Map<String, Double> edgeWeights;
+    private final int parallelism;
+
+    /**
+     * The graph of current level.
+     */
+    private CommunityGraph graph;
+
+    /**
+     * Original node index to the node of current level which includes it.
+     */
+    private final int[] nodeBelong;
 
-    private Map<String, Integer> nodeCommunityMap;
-    private Map<String, Node> nodeMap;
-    private Map<String, Edge> edgeMap;
+    /**
+     * Node of current level to community.
+     */
+    private int[] community;
+
+    /**
+     * Community to the total degree of its nodes.
+     */
+    private double[] sigmaTot;
+
+    /**
+     * Community to the total weight inside it, each inner edge counts in two directions.
+     */
+    private double[] sigmaIn;
+
+    /**
+     * One scratch for each worker.
+     */
+    private Scratch[] scratches;
+
+    /**
+     * Node to the community chosen in the parallel local moving, and its weights to the current community and the
+     * chosen community.
+     */
+    private int[] target;
+    private double[] fromWeight;
+    private double[] toWeight;
 
     /**
      * No Args Constructor.
      *
-     * @param view - Aim view.
+     * @param snapshot - Snapshot of aim view.
      * @param edgeFilter - Edge filter.
      * @param param - Parameter for algorithm.
      */
-    LouvainCD(View view, EdgeFilter edgeFilter, LouvainCDParam param) {
+    LouvainCD(ViewSnapshot snapshot, EdgeFilter edgeFilter, LouvainCDParam param) {
         edgeFilter.buildTypeSet();
 
+        this.snapshot = snapshot;
         this.convergence = param.getConvergence();
         this.maxAggregationTimes = param.getMaxAggregationTimes();
         this.maxInnerIteration = param.getMaxInnerIteration();
-        this.edgeWeights = param.getWeights();
-
-        nodeCommunityMap = new HashMap<>();
+        this.parallelism = param.getParallelism() > 0 ? param.getParallelism() : Runtime.getRuntime().availableProcessors();
 
-        nodeMap = new HashMap<>();
-        edgeMap = new HashMap<>();
-        nodeBelongMap = new HashMap<>();
-
-        for (Node node : view.getAllNode()) {
-            nodeMap.put(node.getId(), node);
-            List<Node> nodeList = new ArrayList<>();
-            nodeList.add(node);
-            nodeBelongMap.put(node.getId(), nodeList);
-        }
-
-        for (Edge edge : view.getAllEdge()) {
-            if (!edgeFilter.contains(edge.getEdgeType())) {
-                continue;
-            }
-
-            if (nodeMap.containsKey(edge.getFromNodeId()) && nodeMap.containsKey(edge.getToNodeId())) {
-                edgeMap.put(edge.getId(), edge);
-                double edgeWeight = edgeWeights.get(edge.getEdgeType());
-                Node fromNode = nodeMap.get(edge.getFromNodeId());
-                Node toNode = nodeMap.get(edge.getFromNodeId());
-            }
+        this.graph = CommunityGraph.build(snapshot, edgeFilter, param.getWeights());
+        this.nodeBelong = new int[snapshot.nodeCount()];
+        for (int v = 0; v < nodeBelong.length; v++) {
+            nodeBelong[v] = v;
         }
-
-        m = getTotalWeight(edgeMap);
     }
 
     /**
      * Get the community distribution.
      *
-     * @return - The label for each node.
+     * @return - The label for each node, the labels are numbered from 0.
      */
     Map<Node, Integer> getCommunities() {
+        // Number the communities in the order of their first original node.
+        int[] label = new int[graph.n];
+        Arrays.fill(label, -1);
+        int count = 0;
         Map<Node, Integer> result = new HashMap<>();
-
-        for (Map.Entry<String, List<Node>> entry : nodeBelongMap.entrySet()) {
-            String newNodeId = entry.getKey();
-            Integer nodeCommunity = nodeCommunityMap.get(newNodeId);
-            for (Node oriNode : entry.getValue()) {
-                result.put(oriNode, nodeCommunity);
+        for (int v = 0; v < nodeBelong.length; v++) {
+            int c = community[nodeBelong[v]];
+            if (label[c] < 0) {
+                label[c] = count++;
             }
+            result.put(snapshot.getNode(v), label[c]);
         }
 
         return result;
@@ -101,11 +131,14 @@ public class LouvainCD {
     /**
      * Louvain algorithm for community detection.
      * Outer loop: Check the difference of the total modularity before and after inner loop. Stop when difference less
-     * than convergence or
+     * than convergence or no node moves or the max aggregation times is reached.
      */
     void detectCommunity() {
-
         initialCommunity();
+        if (graph.totalWeight <= 0) {
+            return;
+        }
+
         boolean improvement = true;
         int iteration = 0;
 
@@ -122,73 +155,58 @@ public class LouvainCD {
             }
             previousModularity = newModularity;
 
-            if (improvement) {
+            if (improvement && iteration < maxAggregationTimes) {
                 aggregateGraph();
+                initialCommunity();
             }
         }
     }
 
     /**
-     * Assign each node a community.
+     * Assign each node of current level a community.
      */
     private void initialCommunity() {
-        int communityNumber = 0;
-        for (Node node : nodeMap.values()) {
-            nodeCommunityMap.put(node.getId(), communityNumber);
-            communityNumber++;
+        community = new int[graph.n];
+        sigmaTot = new double[graph.n];
+        sigmaIn = new double[graph.n];
+        scratches = new Scratch[graph.n >= PARALLEL_THRESHOLD ? parallelism : 1];
+        for (int i = 0; i < scratches.length; i++) {
+            scratches[i] = new Scratch(graph.n);
+        }
+        for (int v = 0; v < graph.n; v++) {
+            community[v] = v;
+            sigmaTot[v] = graph.degree[v];
+            sigmaIn[v] = graph.loops[v];
         }
     }
 
     /**
-     * Compute the total modularity for the view.
+     * Compute the total modularity from the community aggregates.
      *
      * @return - Total modularity.
      */
     private double computeTotalModularity() {
         double q = 0.0;
-
-        for (Node node : nodeMap.values()) {
-            int fromSideCommunity = nodeCommunityMap.get(node.getId());
-
-            for (String edgeId : node.getOutList()) {
-                Edge edge = edgeMap.get(edgeId);
-                Node toSide = nodeMap.get(edge.getToNodeId());
-                int toSideCommunity = nodeCommunityMap.get(toSide.getId());
-
-                int delta = fromSideCommunity == toSideCommunity ? 1 : 0;
-                q += (edgeWeights.get(edge.getEdgeType()) - (getSurroundWeight(node) * getSurroundWeight(toSide)) / (2.0 * m)) * delta;
-            }
+        double m2 = graph.totalWeight;
+        for (int c = 0; c < graph.n; c++) {
+            q += sigmaIn[c] / m2 - (sigmaTot[c] / m2) * (sigmaTot[c] / m2);
         }
 
-        return q / (2.0 * m);
+        return q;
     }
 
     /**
-     * Get the total surround edge weight of node.
+     * Inner loop: move each node to its best community until no node moves.
      *
-     * @param node
-     * @return
+     * @return - If any node moved.
      */
-    private double getSurroundWeight(Node node) {
-        double weight = 0.0;
-        for (String outId : node.getOutList()) {
-            Edge outEdge = edgeMap.get(outId);
-            weight += edgeWeights.get(outEdge.getEdgeType());
-        }
-        for (String inId : node.getInList()) {
-            Edge inEdge = edgeMap.get(inId);
-            weight += edgeWeights.get(inEdge.getEdgeType());
+    private boolean performCommunityDetection() {
+        if (parallelism > 1 && graph.n >= PARALLEL_THRESHOLD) {
+            return performParallelCommunityDetection();
         }
 
-        return weight;
-    }
-
-    /**
-     * Inner loop:
-     *
-     * @return
-     */
-    private boolean performCommunityDetection() {
+        Scratch scratch = scratches[0];
+        boolean moved = false;
         boolean hasChanged = true;
         int iteration = 0;
 
@@ -196,187 +214,210 @@ public class LouvainCD {
             iteration++;
             hasChanged = false;
 
-            for (Node node : nodeMap.values()) {
-                int bestCommunity = findBestCommunity(node);
-                if (bestCommunity != nodeCommunityMap.get(node.getId())) {
-                    nodeCommunityMap.put(node.getId(), bestCommunity);
+            for (int v = 0; v < graph.n; v++) {
+                int bestCommunity = findBestCommunity(v, scratch);
+                if (bestCommunity != community[v]) {
+                    move(v, bestCommunity, scratch.fromWeight, scratch.toWeight);
                     hasChanged = true;
+                    moved = true;
                 }
             }
         }
 
-        return hasChanged;
+        return moved;
     }
 
     /**
-     * Find the best community for node where modularity increase max.
+     * Inner loop with parallelism: go through the colors, the nodes of one color choose their communities in
+     * parallel and then move. Stop when no node moves or the modularity gain of a round is less than convergence.
      *
-     * @param node
-     * @return
+     * @return - If any node moved.
      */
-    private int findBestCommunity(Node node) {
-        int currentCommunity = nodeCommunityMap.get(node.getId());
+    private boolean performParallelCommunityDetection() {
+        List<int[]> colors = graph.colorClasses();
+        target = new int[graph.n];
+        fromWeight = new double[graph.n];
+        toWeight = new double[graph.n];
 
-        double ki = getSurroundWeight(node);
-        double currentModularityContribution = getModularityContribution(node, currentCommunity, ki);
+        boolean moved = false;
+        boolean hasChanged = true;
+        int iteration = 0;
+        double modularity = computeTotalModularity();
 
-        int bestCommunity = currentCommunity;
-        double bestModularityGain = 0.0;
+        while (hasChanged && iteration <= maxInnerIteration) {
+            iteration++;
+            hasChanged = false;
 
-        Set<Integer> neighboringCommunities = new HashSet<>();
-        for (String outEdgeId : node.getOutList()) {
-            String toNodeId = edgeMap.get(outEdgeId).getToNodeId();
-            Node toNode = nodeMap.get(toNodeId);
-            neighboringCommunities.add(nodeCommunityMap.get(toNode.getId()));
-        }
-        for (String inEdgeId : node.getOutList()) {
-            String fromNodeId = edgeMap.get(inEdgeId).getFromNodeId();
-            Node fromNode = nodeMap.get(fromNodeId);
-            neighboringCommunities.add(nodeCommunityMap.get(fromNode.getId()));
-        }
+            for (int[] nodes : colors) {
+                if (!chooseCommunities(nodes)) {
+                    return moved;
+                }
+                for (int v : nodes) {
+                    if (target[v] != community[v]) {
+                        move(v, target[v], fromWeight[v], toWeight[v]);
+                        hasChanged = true;
+                        moved = true;
+                    }
+                }
+            }
 
-        for (int community : neighboringCommunities) {
-            double modularityGain = getModularityContribution(node, community, ki) - currentModularityContribution;
-            if (modularityGain > bestModularityGain) {
-                bestModularityGain = modularityGain;
-                bestCommunity = community;
+            double newModularity = computeTotalModularity();
+            if (newModularity - modularity < convergence) {
+                break;
             }
+            modularity = newModularity;
         }
-        return bestCommunity;
-    }
 
-    /**
-     * Calculate the modularity after the node becoming the member of community.
-     *
-     * @param node - Node.
-     * @param community - The community node add in.
-     * @param ki - Total edge weight surround node.
-     * @return - The modularity value after node added in community
-     */
-    private double getModularityContribution(Node node, int community, double ki) {
-        double ki_in = getWeightToCommunity(node, community);
-        double sigma_tot = getCommunityWeight(community);
-        double sigma_in = getInnerCommunityWeight(community);
-
-        return (sigma_in + 2 * ki_in) / (2 * m) - Math.pow((sigma_tot + ki) / (2 * m), 2);
+        return moved;
     }
 
     /**
-     * Get the edge weight between the node and the community.
+     * Find the best community of the nodes in parallel, the communities are not changed.
      *
-     * @param node - node
-     * @param community - community
-     * @return - Edge weight between node and community.
+     * @param nodes - The nodes of one color.
+     * @return - False if the workers fail.
      */
-    private double getWeightToCommunity(Node node, int community) {
-        double weight = 0.0;
-        for (String outId : node.getOutList()) {
-            Edge outEdge = edgeMap.get(outId);
-            Node toSideNode = nodeMap.get(outEdge.getToNodeId());
-            if (nodeCommunityMap.get(toSideNode.getId()) == community) {
-                weight += edgeWeights.get(outEdge.getEdgeType());
+    private boolean chooseCommunities(int[] nodes) {
+        int workers = Math.min(parallelism, (nodes.length + CHUNK - 1) / CHUNK);
+        if (workers <= 1) {
+            for (int v : nodes) {
+                choose(v, scratches[0]);
             }
+            return true;
+        }
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            Scratch scratch = scratches[worker];
+            tasks.add(() -> {
+                for (int chunk = nextChunk.getAndIncrement(); chunk * CHUNK < nodes.length; chunk = nextChunk.getAndIncrement()) {
+                    for (int i = chunk * CHUNK; i < Math.min(nodes.length, (chunk + 1) * CHUNK); i++) {
+                        choose(nodes[i], scratch);
+                    }
+                }
+                return null;
+            });
         }
-        for (String inId : node.getInList()) {
-            Edge inEdge = edgeMap.get(inId);
-            Node fromSideNode = nodeMap.get(inEdge.getFromNodeId());
-            if (nodeCommunityMap.get(fromSideNode.getId()) == community) {
-                weight += edgeWeights.get(inEdge.getEdgeType());
+
+        try {
+            for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                future.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.getInstance().error("Louvain community detection is interrupted.");
+            return false;
+        } catch (ExecutionException e) {
+            Logger.getInstance().error("Fail to run Louvain community detection: " + e.getCause());
+            return false;
         }
+        return true;
+    }
 
-        return weight;
+    private void choose(int v, Scratch scratch) {
+        target[v] = findBestCommunity(v, scratch);
+        fromWeight[v] = scratch.fromWeight;
+        toWeight[v] = scratch.toWeight;
     }
 
     /**
-     * Calculate edge weight inside the community + connected to other community.
+     * Find the community where modularity increase max if node moves into it, the current community wins the tie.
+     * The communities are not changed.
      *
-     * @param community - community
-     * @return - Total edge weight.
+     * @param v - Node of current level.
+     * @param scratch - Scratch of the worker, its weights to the current and the best community are left in it.
+     * @return - The best community.
      */
-    private double getCommunityWeight(int community) {
-        double weight = 0.0;
-        for (Edge edge : edgeMap.values()) {
-            Node from = nodeMap.get(edge.getFromNodeId());
-            Node to = nodeMap.get(edge.getToNodeId());
-
-            if (nodeCommunityMap.get(from.getId()) == community || nodeCommunityMap.get(to.getId()) == community) {
-                weight += edgeWeights.get(edge.getEdgeType());
+    private int findBestCommunity(int v, Scratch scratch) {
+        int currentCommunity = community[v];
+        double ki = graph.degree[v];
+        double[] neighbourWeight = scratch.neighbourWeight;
+        IntList neighbourCommunities = scratch.neighbourCommunities;
+
+        // Gather the weights to the neighbouring communities, the current community is always considered.
+        neighbourCommunities.add(currentCommunity);
+        for (int entry = graph.start[v]; entry < graph.start[v + 1]; entry++) {
+            int c = community[graph.neighbours[entry]];
+            if (neighbourWeight[c] == 0.0 && c != currentCommunity) {
+                neighbourCommunities.add(c);
             }
+            neighbourWeight[c] += graph.weights[entry];
         }
 
-        return weight;
-    }
-
-    /**
-     * Calculate edge weight inside the community
-     *
-     * @param community - community
-     * @return - Total edge weight.
-     */
-    private double getInnerCommunityWeight(int community) {
-        double weight = 0.0;
-        for (Edge edge : edgeMap.values()) {
-            Node from = nodeMap.get(edge.getFromNodeId());
-            Node to = nodeMap.get(edge.getToNodeId());
-
-            if (nodeCommunityMap.get(from.getId()) == community && nodeCommunityMap.get(to.getId()) == community) {
-                weight += edgeWeights.get(edge.getEdgeType());
+        // With the node taken out, the gain of joining community c is ki_in - sigma_tot * ki / 2m, up to a factor.
+        int bestCommunity = currentCommunity;
+        double bestModularityGain = neighbourWeight[currentCommunity] - (sigmaTot[currentCommunity] - ki) * ki / graph.totalWeight;
+        for (int i = 1; i < neighbourCommunities.size(); i++) {
+            int c = neighbourCommunities.get(i);
+            double modularityGain = neighbourWeight[c] - sigmaTot[c] * ki / graph.totalWeight;
+            if (modularityGain > bestModularityGain) {
+                bestModularityGain = modularityGain;
+                bestCommunity = c;
             }
         }
 
-        return weight;
+        scratch.fromWeight = neighbourWeight[currentCommunity];
+        scratch.toWeight = neighbourWeight[bestCommunity];
+        for (int i = 0; i < neighbourCommunities.size(); i++) {
+            neighbourWeight[neighbourCommunities.get(i)] = 0.0;
+        }
+        neighbourCommunities.clear();
+        return bestCommunity;
     }
 
     /**
-     * Get total weight for edge map.
+     * Move node into community and update the aggregates of the two communities.
      *
-     * @param edges
-     * @return
+     * @param v - Node of current level.
+     * @param to - The new community.
+     * @param fromWeight - The weight between the node and the other nodes of its current community.
+     * @param toWeight - The weight between the node and the new community.
      */
-    private double getTotalWeight(Map<String, Edge> edges) {
-        return edges.values().stream().mapToDouble(edge -> edgeWeights.get(edge.getEdgeType())).sum();
+    private void move(int v, int to, double fromWeight, double toWeight) {
+        int from = community[v];
+        sigmaTot[from] -= graph.degree[v];
+        sigmaIn[from] -= 2 * fromWeight + graph.loops[v];
+        sigmaTot[to] += graph.degree[v];
+        sigmaIn[to] += 2 * toWeight + graph.loops[v];
+        community[v] = to;
     }
 
+    /**
+     * Merge each community into one node of the next level.
+     */
     private void aggregateGraph() {
-        // community to node id
-        Map<Integer, Node> communityNewNodeMap = new HashMap<>();
-        // node id to community
-        Map<String, Integer> newNodeCommunityMap = new HashMap<>();
-        // new node id to the original node belongs to this node.
-        Map<String, List<Node>> newNodeBelongMap = new HashMap<>();
-
-        Map<String, String> oldNodeNewNodeMap = new HashMap<>();
-
-        for (Node node : nodeMap.values()) {
-            Node newNode = communityNewNodeMap.get(nodeCommunityMap.get(node.getId()));
-            // check if the community has been created by other members in the community.
-            if (newNode == null) {
-                newNode = new Node(Random.generateId(), NodeType.HTML, new ArrayList<>(), new ArrayList<>());
-
-                communityNewNodeMap.put(nodeCommunityMap.get(node.getId()), newNode);
-                newNodeCommunityMap.put(newNode.getId(), nodeCommunityMap.get(node.getId()));
-                newNodeBelongMap.put(newNode.getId(), new ArrayList<>());
+        // Number the non-empty communities from 0.
+        int[] renumber = new int[graph.n];
+        Arrays.fill(renumber, -1);
+        int count = 0;
+        for (int v = 0; v < graph.n; v++) {
+            if (renumber[community[v]] < 0) {
+                renumber[community[v]] = count++;
             }
-
-            oldNodeNewNodeMap.put(node.getId(), newNode.getId());
-
-            newNodeBelongMap.get(newNode.getId()).addAll(nodeBelongMap.get(node.getId()));
         }
-
-        this.nodeMap = new HashMap<>();
-        for (Node node : communityNewNodeMap.values()) {
-            this.nodeMap.put(node.getId(), node);
+        int[] newNode = new int[graph.n];
+        for (int v = 0; v < graph.n; v++) {
+            newNode[v] = renumber[community[v]];
         }
 
-        for (Edge edge : edgeMap.values()) {
-            String newNodeIdFrom = oldNodeNewNodeMap.get(edge.getFromNodeId());
-            String newNodeIdTo = oldNodeNewNodeMap.get(edge.getToNodeId());
-            edge.setFromNodeId(newNodeIdFrom);
-            edge.setToNodeId(newNodeIdTo);
+        for (int v = 0; v < nodeBelong.length; v++) {
+            nodeBelong[v] = newNode[nodeBelong[v]];
         }
+        graph = graph.aggregate(newNode, count, parallelism);
+    }
 
-        this.nodeCommunityMap = newNodeCommunityMap;
-        this.nodeBelongMap = newNodeBelongMap;
+    /**
+     * Working arrays of one worker, community to the weight from the moving node, and the communities touched.
+     */
+    private static class Scratch {
+        private final double[] neighbourWeight;
+        private final IntList neighbourCommunities = new IntList();
+        private double fromWeight;
+        private double toWeight;
+
+        Scratch(int n) {
+            this.neighbourWeight = new double[n];
+        }
     }
 }
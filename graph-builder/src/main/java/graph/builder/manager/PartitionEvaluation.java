@@ -0,0 +1,107 @@
+package graph.builder.manager;
+
+import graph.builder.ViewSnapshot;
+import graph.builder.entity.node.Node;
+import graph.builder.util.Logger;
+import graph.builder.vo.CommunityQuality;
+import graph.builder.vo.EdgeFilter;
+import graph.builder.vo.PartitionQuality;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Evaluate a partition of the nodes on the CommunityGraph of the snapshot.
+ *
+ * The labels are mapped to dense community indexes once, then one pass over the rows sums the volume and the inner
+ * weight of each community, and all the metrics come from these two arrays and the sizes.
+ */
+class PartitionEvaluation {
+    /**
+     * Calculate the quality of partition.
+     *
+     * @param snapshot - Snapshot of aim view.
+     * @param edgeFilter - Edge filter.
+     * @param partition - Node to community label, each node of the snapshot should have a label.
+     * @param edgeWeights - Edge type to weight, the types not in the map are ignored. Null means weight 1 for all.
+     * @return - The quality. Return null if a node of the snapshot has no label.
+     */
+    static PartitionQuality evaluate(ViewSnapshot snapshot, EdgeFilter edgeFilter, Map<Node, Integer> partition, Map<String, Double> edgeWeights) {
+        int n = snapshot.nodeCount();
+        int[] community = new int[n];
+        Map<Integer, Integer> indexes = new HashMap<>();
+        int[] labels = new int[n];
+        for (int v = 0; v < n; v++) {
+            Integer label = partition.get(snapshot.getNode(v));
+            if (label == null) {
+                Logger.getInstance().error("Cannot evaluate the partition since node " + snapshot.getNode(v).getId() +
+                        " has no community.");
+                return null;
+            }
+            Integer index = indexes.get(label);
+            if (index == null) {
+                index = indexes.size();
+                indexes.put(label, index);
+                labels[index] = label;
+            }
+            community[v] = index;
+        }
+
+        edgeFilter.buildTypeSet();
+        CommunityGraph graph = CommunityGraph.build(snapshot, edgeFilter, edgeWeights);
+
+        // Inner weight counts each inner edge in two directions, and a self loop twice.
+        int count = indexes.size();
+        int[] size = new int[count];
+        double[] volume = new double[count];
+        double[] inner = new double[count];
+        double[] loops = new double[count];
+        for (int v = 0; v < n; v++) {
+            int c = community[v];
+            size[c]++;
+            volume[c] += graph.degree[v];
+            inner[c] += graph.loops[v];
+            loops[c] += graph.loops[v];
+            for (int entry = graph.start[v]; entry < graph.start[v + 1]; entry++) {
+                if (community[graph.neighbours[entry]] == c) {
+                    inner[c] += graph.weights[entry];
+                }
+            }
+        }
+
+        double m2 = graph.totalWeight;
+        double modularity = 0.0;
+        double innerTotal = 0.0;
+        double conductanceTotal = 0.0;
+        Map<Integer, CommunityQuality> communities = new HashMap<>();
+        for (int c = 0; c < count; c++) {
+            CommunityQuality quality = new CommunityQuality();
+            quality.setSize(size[c]);
+            quality.setVolume(volume[c]);
+            quality.setInnerWeight(inner[c] / 2);
+            quality.setCutWeight(volume[c] - inner[c]);
+            if (size[c] > 1) {
+                quality.setDensity((inner[c] - loops[c]) / ((double) size[c] * (size[c] - 1)));
+            }
+            double smaller = Math.min(volume[c], m2 - volume[c]);
+            if (smaller > 0) {
+                quality.setConductance((volume[c] - inner[c]) / smaller);
+            }
+            communities.put(labels[c], quality);
+
+            if (m2 > 0) {
+                modularity += inner[c] / m2 - (volume[c] / m2) * (volume[c] / m2);
+            }
+            innerTotal += inner[c];
+            conductanceTotal += quality.getConductance();
+        }
+
+        PartitionQuality result = new PartitionQuality();
+        result.setModularity(modularity);
+        result.setCoverage(m2 > 0 ? innerTotal / m2 : 0.0);
+        result.setAverageConductance(count > 0 ? conductanceTotal / count : 0.0);
+        result.setCommunityCount(count);
+        result.setCommunities(communities);
+        return result;
+    }
+}
@@ -0,0 +1,368 @@
+package graph.builder.util;
+
+import java.util.Arrays;
+
+/**
+ * The edge int ids connected to one side of a node, bucketed by edge type code.
+ *
+ * The membership check and remove are O(1): a small list is scanned directly, and a hash table from edge int id
+ * to position is built once the list grows over HASH_THRESHOLD. Remove moves the last edge into the hole, so the
+ * order of edges is the add order only until the first remove.
+ */
+public class Adjacency {
+    /**
+     * The hash table is built when the size is larger than this value.
+     */
+    private static final int HASH_THRESHOLD = 16;
+
+    /**
+     * Position to edge int id.
+     */
+    private int[] ids;
+
+    /**
+     * Position to edge type code.
+     */
+    private byte[] types;
+
+    /**
+     * Position to the position in the bucket of its edge type.
+     */
+    private int[] bucketPositions;
+
+    private int size;
+
+    /**
+     * Edge type code to the edge int ids in this type, null if no edge in this type has been added.
+     */
+    private IntList[] buckets;
+
+    /**
+     * Open addressing (linear probing) table of positions, -1 for empty slot. Null when the size is small.
+     */
+    private int[] table;
+
+    /**
+     * No args constructor.
+     */
+    public Adjacency() {
+        ids = new int[4];
+        types = new byte[4];
+        bucketPositions = new int[4];
+        buckets = new IntList[0];
+    }
+
+    /**
+     * Add the edge.
+     *
+     * @param edgeId - Edge int id.
+     * @param edgeType - Edge type code.
+     * @return - If the edge is added, return false if it is already in the list.
+     */
+    public boolean add(int edgeId, byte edgeType) {
+        if (contains(edgeId)) {
+            return false;
+        }
+
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            bucketPositions = Arrays.copyOf(bucketPositions, capacity);
+        }
+
+        IntList bucket = bucket(edgeType);
+        int position = size++;
+        ids[position] = edgeId;
+        types[position] = edgeType;
+        bucketPositions[position] = bucket.size();
+        bucket.add(edgeId);
+
+        if (table != null) {
+            if (size * 2 > table.length) {
+                rehash(table.length * 2);
+            } else {
+                insert(position);
+            }
+        } else if (size > HASH_THRESHOLD) {
+            rehash(Integer.highestOneBit(size) * 4);
+        }
+        return true;
+    }
+
+    /**
+     * Remove the edge.
+     *
+     * @param edgeId - Edge int id.
+     * @return - If the edge is removed.
+     */
+    public boolean remove(int edgeId) {
+        int position = find(edgeId);
+        if (position < 0) {
+            return false;
+        }
+
+        // Remove from the bucket, the last edge in bucket fills the hole.
+        IntList bucket = buckets[types[position]];
+        int bucketPosition = bucketPositions[position];
+        int bucketLast = bucket.removeAt(bucket.size() - 1);
+        if (bucketLast != edgeId) {
+            bucket.set(bucketPosition, bucketLast);
+            bucketPositions[find(bucketLast)] = bucketPosition;
+        }
+
+        // Remove from the list, the last edge in list fills the hole.
+        if (table != null) {
+            delete(position);
+        }
+        int last = --size;
+        if (position != last) {
+            ids[position] = ids[last];
+            types[position] = types[last];
+            bucketPositions[position] = bucketPositions[last];
+            if (table != null) {
+                table[slotOf(last)] = position;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the edge is in the list.
+     *
+     * @param edgeId - Edge int id.
+     * @return
+     */
+    public boolean contains(int edgeId) {
+        return find(edgeId) >= 0;
+    }
+
+    /**
+     * Get the edge int id at position.
+     *
+     * @param position
+     * @return
+     */
+    public int get(int position) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of size " + size);
+        }
+        return ids[position];
+    }
+
+    /**
+     * Get the edge type code at position.
+     *
+     * @param position
+     * @return
+     */
+    public byte getType(int position) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of size " + size);
+        }
+        return types[position];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The number of edges in the edge type.
+     *
+     * @param edgeType - Edge type code.
+     * @return
+     */
+    public int size(byte edgeType) {
+        return edgeType < buckets.length && buckets[edgeType] != null ? buckets[edgeType].size() : 0;
+    }
+
+    /**
+     * Get the edge int id at position of the edge type.
+     *
+     * @param edgeType - Edge type code.
+     * @param position - Position in the edge type, less than size(edgeType).
+     * @return
+     */
+    public int get(byte edgeType, int position) {
+        if (position >= size(edgeType)) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of size " + size(edgeType));
+        }
+        return buckets[edgeType].get(position);
+    }
+
+    /**
+     * Remove all edges.
+     */
+    public void clear() {
+        size = 0;
+        buckets = new IntList[0];
+        table = null;
+    }
+
+    /**
+     * Make sure the list can hold at least capacity edges without growing.
+     *
+     * @param capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            bucketPositions = Arrays.copyOf(bucketPositions, capacity);
+        }
+    }
+
+    /**
+     * Copy the edge int ids into a new array.
+     *
+     * @return
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Find the position of edge.
+     *
+     * @param edgeId - Edge int id.
+     * @return - Position, return -1 if the edge is not in the list.
+     */
+    private int find(int edgeId) {
+        if (table == null) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == edgeId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = hash(edgeId) & mask; table[slot] >= 0; slot = (slot + 1) & mask) {
+            if (ids[table[slot]] == edgeId) {
+                return table[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the table slot which holds the position.
+     *
+     * @param position
+     * @return
+     */
+    private int slotOf(int position) {
+        int mask = table.length - 1;
+        int slot = hash(ids[position]) & mask;
+        while (table[slot] != position) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Put the position into the table.
+     *
+     * @param position
+     */
+    private void insert(int position) {
+        int mask = table.length - 1;
+        int slot = hash(ids[position]) & mask;
+        while (table[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position;
+    }
+
+    /**
+     * Remove the position from the table, the following slots in the same probe chain are shifted back.
+     *
+     * @param position
+     */
+    private void delete(int position) {
+        int mask = table.length - 1;
+        int hole = slotOf(position);
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (table[slot] < 0) {
+                break;
+            }
+
+            int home = hash(ids[table[slot]]) & mask;
+            // Move the entry back if its home is not in (hole, slot] (cyclically).
+            if (hole <= slot ? (home <= hole || home > slot) : (home <= hole && home > slot)) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = -1;
+    }
+
+    /**
+     * Rebuild the table with the capacity (power of 2).
+     *
+     * @param capacity
+     */
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, -1);
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    /**
+     * Get the bucket of edge type, create it if missing.
+     *
+     * @param edgeType - Edge type code.
+     * @return
+     */
+    private IntList bucket(byte edgeType) {
+        if (edgeType >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, edgeType + 1);
+        }
+        if (buckets[edgeType] == null) {
+            buckets[edgeType] = new IntList();
+        }
+        return buckets[edgeType];
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Adjacency)) {
+            return false;
+        }
+        Adjacency other = (Adjacency) o;
+        return size == other.size && Arrays.equals(ids, 0, size, other.ids, 0, size) &&
+                Arrays.equals(types, 0, size, other.types, 0, size);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + ids[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,209 @@
+package graph.builder.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compact map for the attributes of html node. The keys and values are kept in two parallel arrays in insertion
+ * order, and the lookup is a linear scan, which is fast for the few attributes an element usually has and avoids the
+ * entry objects and table of HashMap.
+ */
+public class AttributeMap extends AbstractMap<String, String> {
+    private static final String[] EMPTY = new String[0];
+
+    private String[] keys;
+    private String[] values;
+    private int size;
+    private int modCount;
+
+    /**
+     * No args constructor.
+     */
+    public AttributeMap() {
+        keys = EMPTY;
+        values = EMPTY;
+    }
+
+    /**
+     * Copy the map, the keys and values are deduplicated by the pool.
+     *
+     * @param map - The map to copy.
+     * @param pool - String pool, null if no dedup is needed.
+     * @return - The compact map, return null if the map is null.
+     */
+    public static AttributeMap copyOf(Map<String, String> map, StringPool pool) {
+        if (map == null) {
+            return null;
+        }
+
+        AttributeMap result = new AttributeMap();
+        result.keys = new String[map.size()];
+        result.values = new String[map.size()];
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            String key = pool == null ? entry.getKey() : pool.intern(entry.getKey());
+            String value = pool == null ? entry.getValue() : pool.intern(entry.getValue());
+            result.keys[result.size] = key;
+            result.values[result.size] = value;
+            result.size++;
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public String put(String key, String value) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            String old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        if (size == keys.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public String remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+
+        String old = values[i];
+        removeAt(i);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            // The pooled keys are usually the same instance.
+            if (keys[i] == key || Objects.equals(keys[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove the entry at position, the order of other entries is kept.
+     *
+     * @param i - Position.
+     */
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry which writes the value through to the map.
+     */
+    private class Entry extends AbstractMap.SimpleEntry<String, String> {
+        private final int position;
+
+        Entry(int position) {
+            super(keys[position], values[position]);
+            this.position = position;
+        }
+
+        @Override
+        public String setValue(String value) {
+            values[position] = value;
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package graph.builder.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out dense int ids and keeps the dictionary between the string id and the int id.
+ *
+ * The object without a string id gets a minted one which is the prefix, the int id and a serial number (such as
+ * "e#12.40"). The minted ids are resolved from the string itself, so only the external string ids are stored in the
+ * hash map. The released int ids are handed out again before new ones, so the bound stays close to the peak number
+ * of ids in use under churn. The serial number only goes up, so a minted string id is never handed out twice and the
+ * string id of a deleted object never points to another object. Only the int id is reused.
+ *
+ * The ids can be allocated by several threads at once, and found without lock while others allocate. A lookup
+ * racing with the allocation of the same id may miss it. Releasing should not run at the same time as lookups.
+ */
+public class IdAllocator {
+    /**
+     * Prefix for the minted string id, it should be unique among the allocators whose ids may meet.
+     */
+    private final String prefix;
+
+    /**
+     * The serial number of the next minted string id.
+     */
+    private long serial;
+
+    /**
+     * External string id to int id.
+     */
+    private volatile Map<String, Integer> externalIds;
+
+    /**
+     * Int id to string id, null if the int id is released or skipped.
+     */
+    private volatile String[] names;
+
+    /**
+     * The released int ids to hand out again, used as a stack.
+     */
+    private int[] free;
+    private int freeCount;
+
+    /**
+     * The next new int id to hand out.
+     */
+    private volatile int next;
+
+    /**
+     * The number of int ids in use.
+     */
+    private volatile int size;
+
+    /**
+     * Constructor.
+     *
+     * @param prefix - Prefix for the minted string id.
+     */
+    public IdAllocator(String prefix) {
+        this.prefix = prefix;
+        this.externalIds = new ConcurrentHashMap<>();
+        this.names = new String[16];
+        this.free = new int[16];
+    }
+
+    /**
+     * Allocate a new int id for the string id. If the string id is null or empty, a new string id will be minted.
+     *
+     * @param id - String id.
+     * @return - The int id, return -1 if the string id is in use.
+     */
+    public synchronized int allocate(String id) {
+        if (id == null || id.isEmpty()) {
+            return mint();
+        }
+
+        if (find(id) >= 0) {
+            return -1;
+        }
+
+        int index = nextIndex();
+        names[index] = id;
+        externalIds.put(id, index);
+        size++;
+        return index;
+    }
+
+    /**
+     * Find the int id of string id.
+     *
+     * @param id - String id.
+     * @return - The int id, return -1 if the string id is not in use.
+     */
+    public int find(String id) {
+        if (id == null) {
+            return -1;
+        }
+
+        Integer index = externalIds.get(id);
+        if (index != null) {
+            return index;
+        }
+
+        int minted = parseMinted(id);
+        String[] current = names;
+        return minted >= 0 && minted < next && minted < current.length && id.equals(current[minted]) ? minted : -1;
+    }
+
+    /**
+     * Get the string id of int id.
+     *
+     * @param index - Int id.
+     * @return - String id, return null if the int id is not in use.
+     */
+    public String resolve(int index) {
+        String[] current = names;
+        return index >= 0 && index < next && index < current.length ? current[index] : null;
+    }
+
+    /**
+     * Release the int id and its string id.
+     *
+     * @param index - Int id.
+     */
+    public synchronized void release(int index) {
+        String id = resolve(index);
+        if (id == null) {
+            return;
+        }
+
+        Integer external = externalIds.get(id);
+        if (external != null && external == index) {
+            externalIds.remove(id);
+        }
+        names[index] = null;
+        size--;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, free.length << 1);
+        }
+        free[freeCount++] = index;
+    }
+
+    /**
+     * Make sure the dictionary can hold count more ids without growing.
+     *
+     * @param count - The number of ids to allocate.
+     */
+    public synchronized void ensureCapacity(int count) {
+        if (next + count - freeCount > names.length) {
+            names = Arrays.copyOf(names, next + count - freeCount);
+        }
+        if (externalIds.isEmpty()) {
+            externalIds = new ConcurrentHashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+        }
+    }
+
+    /**
+     * All int ids handed out are less than this bound.
+     *
+     * @return
+     */
+    public int bound() {
+        return next;
+    }
+
+    /**
+     * The number of int ids in use.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Mint a string id which is not bound to any int id, such as "e#.41". It is never handed out again, and it
+     * can be allocated later as an external string id.
+     *
+     * @return
+     */
+    public synchronized String mintId() {
+        return prefix + "." + serial++;
+    }
+
+    /**
+     * Allocate an int id with a minted string id. The serial number is skipped if the minted string is already used
+     * as an external string id.
+     *
+     * @return - The int id.
+     */
+    private int mint() {
+        int index = nextIndex();
+        while (true) {
+            String id = prefix + index + "." + serial++;
+            if (!externalIds.containsKey(id)) {
+                names[index] = id;
+                size++;
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Take a released int id, or the next new int id and make sure the dictionary can hold it.
+     *
+     * @return
+     */
+    private int nextIndex() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+
+        if (next == names.length) {
+            names = Arrays.copyOf(names, names.length + (names.length >> 1));
+        }
+        return next++;
+    }
+
+    /**
+     * Parse the int id from the minted string id, the serial number is checked by the caller against the name.
+     *
+     * @param id
+     * @return - The int id, return -1 if the string is not in the minted form.
+     */
+    private int parseMinted(String id) {
+        if (!id.startsWith(prefix)) {
+            return -1;
+        }
+
+        long value = 0;
+        int i = prefix.length();
+        for (; i < id.length() && i <= prefix.length() + 10; i++) {
+            char c = id.charAt(i);
+            if (c == '.') {
+                break;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return i == prefix.length() || i == id.length() || id.charAt(i) != '.' || value > Integer.MAX_VALUE
+                ? -1 : (int) value;
+    }
+}
@@ -0,0 +1,179 @@
+package graph.builder.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive int, used to hold the dense ids without boxing.
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    /**
+     * No args constructor.
+     */
+    public IntList() {
+        this(4);
+    }
+
+    /**
+     * Constructor with initial capacity.
+     *
+     * @param capacity
+     */
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 0)];
+    }
+
+    /**
+     * Append value at the end of list.
+     *
+     * @param value
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Get the value at position.
+     *
+     * @param position
+     * @return
+     */
+    public int get(int position) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of size " + size);
+        }
+        return values[position];
+    }
+
+    /**
+     * Replace the value at position.
+     *
+     * @param position
+     * @param value
+     */
+    public void set(int position, int value) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of size " + size);
+        }
+        values[position] = value;
+    }
+
+    /**
+     * Find the first position of value.
+     *
+     * @param value
+     * @return - Position of value, return -1 if value is not in the list.
+     */
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if the value is in the list.
+     *
+     * @param value
+     * @return
+     */
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Remove the first occurrence of value, the order of other values is kept.
+     *
+     * @param value
+     * @return - If the value is removed.
+     */
+    public boolean removeValue(int value) {
+        int position = indexOf(value);
+        if (position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * Remove the value at position, the order of other values is kept.
+     *
+     * @param position
+     * @return - The removed value.
+     */
+    public int removeAt(int position) {
+        int value = get(position);
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * Remove all values.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Make sure the list can hold at least capacity values without growing.
+     *
+     * @param capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy the values into a new array.
+     *
+     * @return
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntList)) {
+            return false;
+        }
+        IntList other = (IntList) o;
+        return size == other.size && Arrays.equals(values, 0, size, other.values, 0, size);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + values[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,274 @@
+package graph.builder.util;
+
+import java.util.AbstractCollection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Unmodifiable live view over the objects stored in an array by int id, such as the nodes of a view.
+ *
+ * Nothing is copied: the iterators read the backing array directly and skip the empty slots, and the spliterators
+ * split the int id range in halves, so parallelStream() can be used while the container is not modified. Any add or
+ * remove in the container after the iteration starts causes ConcurrentModificationException.
+ *
+ * @param <T> - Type of object.
+ */
+public abstract class LiveCollection<T> extends AbstractCollection<T> {
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+
+    /**
+     * Get the object at int id.
+     *
+     * @param index - Int id less than bound().
+     * @return - The object, return null if the slot is empty.
+     */
+    protected abstract T slot(int index);
+
+    /**
+     * Get the first int id not less than from which may hold an object.
+     *
+     * @param from - Int id.
+     * @return - Int id, return -1 or any value not less than bound() if there is no more object.
+     */
+    protected abstract int nextIndex(int from);
+
+    /**
+     * All int ids in use are less than this bound.
+     *
+     * @return
+     */
+    protected abstract int bound();
+
+    /**
+     * The structural modification counter of the container.
+     *
+     * @return
+     */
+    protected abstract int modCount();
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ObjectIterator();
+    }
+
+    /**
+     * Iterate the int ids of objects in ascending order without boxing.
+     *
+     * @return
+     */
+    public PrimitiveIterator.OfInt indexIterator() {
+        return new IndexIterator();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ObjectSpliterator(0, -1, 0);
+    }
+
+    /**
+     * Splittable iteration over the int ids of objects, use with StreamSupport.intStream.
+     *
+     * @return
+     */
+    public Spliterator.OfInt indexSpliterator() {
+        return new IndexSpliterator(0, -1, 0);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (int i = advance(0, bound()); i >= 0; i = advance(i + 1, bound())) {
+            if (slot(i).equals(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the first int id in [from, fence) which holds an object.
+     *
+     * @param from
+     * @param fence
+     * @return - Int id, return -1 if there is none.
+     */
+    private int advance(int from, int fence) {
+        for (int i = nextIndex(from); i >= 0 && i < fence; i = nextIndex(i + 1)) {
+            if (slot(i) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void checkModCount(int expected) {
+        if (modCount() != expected) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Cursor over the int ids in use in ascending order.
+     */
+    private abstract class Cursor {
+        private final int expectedModCount = modCount();
+        private int next = advance(0, bound());
+
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        protected int step() {
+            checkModCount(expectedModCount);
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            int current = next;
+            next = advance(current + 1, bound());
+            return current;
+        }
+    }
+
+    private class ObjectIterator extends Cursor implements Iterator<T> {
+        @Override
+        public T next() {
+            return slot(step());
+        }
+    }
+
+    private class IndexIterator extends Cursor implements PrimitiveIterator.OfInt {
+        @Override
+        public int nextInt() {
+            return step();
+        }
+    }
+
+    /**
+     * Spliterator over the int id range [index, fence), the fence and the modification counter are bound at the
+     * first use.
+     */
+    private abstract class RangeSpliterator {
+        protected int index;
+        protected int fence;
+        protected int expectedModCount;
+
+        RangeSpliterator(int index, int fence, int expectedModCount) {
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        protected int fence() {
+            if (fence < 0) {
+                fence = bound();
+                expectedModCount = modCount();
+            }
+            return fence;
+        }
+
+        /**
+         * Give the lower half of the range away.
+         *
+         * @return - The start of the lower half, return -1 if the range is too small to split.
+         */
+        protected int splitRange() {
+            int hi = fence();
+            int mid = (index + hi) >>> 1;
+            if (index >= mid) {
+                return -1;
+            }
+            int lo = index;
+            index = mid;
+            return lo;
+        }
+
+        /**
+         * Move to the next object.
+         *
+         * @return - The int id of object, return -1 if the range is exhausted.
+         */
+        protected int tryAdvanceIndex() {
+            int hi = fence();
+            int i = index < hi ? advance(index, hi) : -1;
+            index = i < 0 ? hi : i + 1;
+            checkModCount(expectedModCount);
+            return i;
+        }
+
+        public long estimateSize() {
+            return fence() - index;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    private class ObjectSpliterator extends RangeSpliterator implements Spliterator<T> {
+        ObjectSpliterator(int index, int fence, int expectedModCount) {
+            super(index, fence, expectedModCount);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            int i = tryAdvanceIndex();
+            if (i < 0) {
+                return false;
+            }
+            action.accept(slot(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            int hi = fence();
+            for (int i = advance(index, hi); i >= 0; i = advance(i + 1, hi)) {
+                action.accept(slot(i));
+            }
+            index = hi;
+            checkModCount(expectedModCount);
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int lo = splitRange();
+            return lo < 0 ? null : new ObjectSpliterator(lo, index, expectedModCount);
+        }
+    }
+
+    private class IndexSpliterator extends RangeSpliterator implements Spliterator.OfInt {
+        IndexSpliterator(int index, int fence, int expectedModCount) {
+            super(index, fence, expectedModCount);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            int i = tryAdvanceIndex();
+            if (i < 0) {
+                return false;
+            }
+            action.accept(i);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            int hi = fence();
+            for (int i = advance(index, hi); i >= 0; i = advance(i + 1, hi)) {
+                action.accept(i);
+            }
+            index = hi;
+            checkModCount(expectedModCount);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int lo = splitRange();
+            return lo < 0 ? null : new IndexSpliterator(lo, index, expectedModCount);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package graph.builder.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A large value of node, a string or a string map. The value is kept on heap until the node is added into a view,
+ * then it is moved into the payload store of the graph and decoded on every access. It is moved back on heap when
+ * the node leaves the view, so the store never holds the payloads of deleted nodes.
+ */
+public class Payload {
+    /**
+     * The store which holds the value, null if the value is on heap.
+     */
+    private PayloadStore store;
+
+    /**
+     * The value on heap, a String or a Map, only used when the store is null.
+     */
+    private Object value;
+
+    /**
+     * Handle of value in the store, only used when the store is not null.
+     */
+    private long handle;
+
+    /**
+     * If the value is a string map.
+     */
+    private boolean map;
+
+    /**
+     * No args constructor, the value is null.
+     */
+    public Payload() {
+        handle = PayloadStore.NULL;
+    }
+
+    /**
+     * Get the string value.
+     *
+     * @return
+     */
+    public synchronized String getString() {
+        return store == null ? (String) value : store.getString(handle);
+    }
+
+    /**
+     * Set the string value, the old value is released.
+     *
+     * @param value
+     */
+    public synchronized void setString(String value) {
+        set(value, false);
+    }
+
+    /**
+     * Get the string map value, the map is a new copy.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Map<String, String> getMap() {
+        if (store != null) {
+            return store.getMap(handle);
+        }
+        return value == null ? null : new HashMap<>((Map<String, String>) value);
+    }
+
+    /**
+     * Set the string map value, the map is copied and the old value is released.
+     *
+     * @param value
+     */
+    public synchronized void setMap(Map<String, String> value) {
+        set(value == null ? null : new HashMap<>(value), true);
+    }
+
+    /**
+     * Move the value into the store, or back on heap if the store is null.
+     *
+     * @param target
+     */
+    public synchronized void moveTo(PayloadStore target) {
+        if (target == store) {
+            return;
+        }
+
+        Object current = store == null ? value : map ? store.getMap(handle) : store.getString(handle);
+        set(null, map);
+        store = target;
+        set(current, map);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(Object value, boolean map) {
+        if (store == null) {
+            this.value = value;
+        } else {
+            store.release(handle);
+            handle = map ? store.putMap((Map<String, String>) value) : store.putString((String) value);
+        }
+        this.map = map;
+    }
+}
@@ -0,0 +1,424 @@
+package graph.builder.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Off-heap store for the large payloads of nodes, such as inner html, script content and http bodies.
+ *
+ * The payloads are appended into direct byte buffer chunks as UTF-8, and the node only holds a long handle (chunk
+ * index in the high 32 bits, then the stamp of slot and the offset in chunk). The content is decoded again on every
+ * access, so the graph skeleton stays small on heap.
+ *
+ * The slot of a released payload is kept in a free list by the power of two below its capacity, and a new payload
+ * takes a free slot at least as large before it is appended, so the chunks partly used by long-lived payloads are
+ * filled again under churn. The stamp of slot changes on each reuse, so a stale handle does not read or release the
+ * new payload. A chunk is freed once all payloads in it are released and no more payloads are appended into it.
+ * Each graph has its own store, which is closed together with the graph.
+ */
+public class PayloadStore {
+    /**
+     * Handle of null payload.
+     */
+    public static final long NULL = -1L;
+
+    /**
+     * Size of one chunk, the payload larger than a chunk gets a chunk of its own.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Bytes before the content of a payload, which hold the length of content, the capacity and the stamp of slot.
+     */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /**
+     * Bits of offset in the handle, enough for the offsets in a chunk.
+     */
+    private static final int OFFSET_BITS = 20;
+
+    /**
+     * Mask of the stamp of slot, which takes the bits above the offset in the low 32 bits of handle.
+     */
+    private static final int STAMP_MASK = (1 << (32 - OFFSET_BITS)) - 1;
+
+    /**
+     * The number of free slots looked at in the size class of a new payload.
+     */
+    private static final int SCAN_LIMIT = 8;
+
+    /**
+     * The length in the header of a released payload.
+     */
+    private static final int RELEASED = -1;
+
+    /**
+     * Chunk index to chunk, null if the chunk is freed.
+     */
+    private final List<ByteBuffer> chunks;
+
+    /**
+     * Chunk index to the bytes of payloads not released in the chunk.
+     */
+    private final IntList liveBytes;
+
+    /**
+     * Size class (the power of two below the capacity) to the handles of released slots, used as stacks.
+     */
+    private final long[][] freeSlots;
+    private final int[] freeCounts;
+
+    /**
+     * The chunk index which new payloads are appended into, -1 if there is none.
+     */
+    private int current;
+
+    /**
+     * Total bytes of chunks allocated and not freed.
+     */
+    private long allocatedBytes;
+
+    /**
+     * No args constructor.
+     */
+    public PayloadStore() {
+        chunks = new ArrayList<>();
+        liveBytes = new IntList();
+        freeSlots = new long[OFFSET_BITS + 1][];
+        freeCounts = new int[OFFSET_BITS + 1];
+        current = -1;
+    }
+
+    /**
+     * Store the string.
+     *
+     * @param value
+     * @return - Handle of payload, return NULL if the value is null.
+     */
+    public long putString(String value) {
+        return value == null ? NULL : put(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read the string back.
+     *
+     * @param handle - Handle of payload.
+     * @return - The string, return null if the handle is NULL.
+     */
+    public String getString(long handle) {
+        byte[] bytes = get(handle);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Store the string map, such as http headers.
+     *
+     * @param map
+     * @return - Handle of payload, return NULL if the map is null.
+     */
+    public long putMap(Map<String, String> map) {
+        if (map == null) {
+            return NULL;
+        }
+
+        List<byte[]> parts = new ArrayList<>(map.size() * 2);
+        int size = Integer.BYTES;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            byte[] key = entry.getKey() == null ? null : entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = entry.getValue() == null ? null : entry.getValue().getBytes(StandardCharsets.UTF_8);
+            parts.add(key);
+            parts.add(value);
+            size += 2 * Integer.BYTES + (key == null ? 0 : key.length) + (value == null ? 0 : value.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(map.size());
+        for (byte[] part : parts) {
+            buffer.putInt(part == null ? -1 : part.length);
+            if (part != null) {
+                buffer.put(part);
+            }
+        }
+        return put(buffer.array());
+    }
+
+    /**
+     * Read the string map back, the map is a new copy.
+     *
+     * @param handle - Handle of payload.
+     * @return - The map, return null if the handle is NULL.
+     */
+    public Map<String, String> getMap(long handle) {
+        byte[] bytes = get(handle);
+        if (bytes == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int size = buffer.getInt();
+        Map<String, String> map = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (int i = 0; i < size; i++) {
+            String key = readString(buffer);
+            map.put(key, readString(buffer));
+        }
+        return map;
+    }
+
+    /**
+     * Store the bytes.
+     *
+     * @param bytes
+     * @return - Handle of payload.
+     */
+    public synchronized long put(byte[] bytes) {
+        int size = HEADER_SIZE + bytes.length;
+        if (size <= CHUNK_SIZE) {
+            long slot = takeFreeSlot(size);
+            if (slot != NULL) {
+                return write(slot, bytes);
+            }
+        }
+
+        int index;
+        if (size > CHUNK_SIZE) {
+            index = allocate(size);
+        } else {
+            if (current < 0 || chunks.get(current).remaining() < size) {
+                int full = current;
+                current = allocate(CHUNK_SIZE);
+                // Nothing is appended into the full chunk any more, free it if its payloads are all released.
+                if (full >= 0 && liveBytes.get(full) <= 0) {
+                    free(full);
+                }
+            }
+            index = current;
+        }
+
+        ByteBuffer chunk = chunks.get(index);
+        int offset = chunk.position();
+        chunk.position(offset + size);
+        chunk.putInt(offset + Integer.BYTES, size);
+        chunk.putInt(offset + 2 * Integer.BYTES, 0);
+        return write(((long) index << 32) | offset, bytes);
+    }
+
+    /**
+     * Read the bytes back.
+     *
+     * @param handle - Handle of payload.
+     * @return - A copy of bytes, return null if the handle is NULL or the payload is released.
+     */
+    public byte[] get(long handle) {
+        if (handle == NULL) {
+            return null;
+        }
+
+        ByteBuffer chunk = chunk((int) (handle >>> 32));
+        if (chunk == null) {
+            return null;
+        }
+
+        // Read through a duplicate, so the readers do not share the position with the writer.
+        ByteBuffer view = chunk.duplicate();
+        int offset = offset(handle);
+        int length = view.getInt(offset);
+        if (length == RELEASED || view.getInt(offset + 2 * Integer.BYTES) != stamp(handle)) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        view.position(offset + HEADER_SIZE);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Release the payload, its slot goes into the free list and the chunk is freed once all its payloads are
+     * released. Releasing a handle again (such as a copy of handle) is ignored, even if the slot is reused.
+     *
+     * @param handle - Handle of payload.
+     */
+    public synchronized void release(long handle) {
+        if (handle == NULL) {
+            return;
+        }
+
+        int index = (int) (handle >>> 32);
+        ByteBuffer chunk = index < chunks.size() ? chunks.get(index) : null;
+        if (chunk == null) {
+            return;
+        }
+
+        int offset = offset(handle);
+        if (chunk.getInt(offset) == RELEASED || chunk.getInt(offset + 2 * Integer.BYTES) != stamp(handle)) {
+            return;
+        }
+        chunk.putInt(offset, RELEASED);
+
+        int capacity = chunk.getInt(offset + Integer.BYTES);
+        int live = liveBytes.get(index) - capacity;
+        liveBytes.set(index, live);
+        if (live <= 0 && index != current) {
+            free(index);
+        } else if (capacity <= CHUNK_SIZE) {
+            addFreeSlot(31 - Integer.numberOfLeadingZeros(capacity), handle);
+        }
+    }
+
+    /**
+     * Free all chunks, the payloads read as null afterwards. The store can still be used to put new payloads.
+     */
+    public synchronized void close() {
+        for (int i = 0; i < chunks.size(); i++) {
+            if (chunks.get(i) != null) {
+                free(i);
+            }
+        }
+        current = -1;
+        Arrays.fill(freeCounts, 0);
+    }
+
+    /**
+     * Total bytes of off-heap memory held by the store.
+     *
+     * @return
+     */
+    public synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Allocate a new chunk.
+     *
+     * @param capacity
+     * @return - Chunk index.
+     */
+    private int allocate(int capacity) {
+        chunks.add(ByteBuffer.allocateDirect(capacity));
+        liveBytes.add(0);
+        allocatedBytes += capacity;
+        return chunks.size() - 1;
+    }
+
+    /**
+     * Write the payload into the slot and count its capacity as live.
+     *
+     * @param slot - Handle of slot, the capacity and the stamp are already in its header.
+     * @param bytes
+     * @return - Handle of payload.
+     */
+    private long write(long slot, byte[] bytes) {
+        int index = (int) (slot >>> 32);
+        ByteBuffer chunk = chunks.get(index);
+        int offset = offset(slot);
+        chunk.putInt(offset, bytes.length);
+        ByteBuffer view = chunk.duplicate();
+        view.position(offset + HEADER_SIZE);
+        view.put(bytes);
+        liveBytes.set(index, liveBytes.get(index) + chunk.getInt(offset + Integer.BYTES));
+        return slot;
+    }
+
+    /**
+     * Take a released slot which can hold the size, and give it a new stamp.
+     *
+     * @param size - Bytes of header and content.
+     * @return - Handle of slot, return NULL if there is none.
+     */
+    private long takeFreeSlot(int size) {
+        // The class of size itself may hold smaller slots, look at the most recent ones for a slot large enough.
+        int sizeClass = 31 - Integer.numberOfLeadingZeros(size);
+        long[] slots = freeSlots[sizeClass];
+        for (int i = freeCounts[sizeClass] - 1; i >= Math.max(freeCounts[sizeClass] - SCAN_LIMIT, 0); i--) {
+            if (capacity(slots[i]) >= size) {
+                long slot = slots[i];
+                slots[i] = slots[--freeCounts[sizeClass]];
+                return restamp(slot);
+            }
+        }
+
+        // The slots in the classes above are all large enough.
+        for (sizeClass++; sizeClass < freeCounts.length; sizeClass++) {
+            if (freeCounts[sizeClass] > 0) {
+                return restamp(freeSlots[sizeClass][--freeCounts[sizeClass]]);
+            }
+        }
+        return NULL;
+    }
+
+    private int capacity(long slot) {
+        return chunks.get((int) (slot >>> 32)).getInt(offset(slot) + Integer.BYTES);
+    }
+
+    /**
+     * Give the slot taken from the free list a new stamp, so the handles of its old payload go stale.
+     *
+     * @param slot
+     * @return - Handle of slot with the new stamp.
+     */
+    private long restamp(long slot) {
+        ByteBuffer chunk = chunks.get((int) (slot >>> 32));
+        int offset = offset(slot);
+        int stamp = (chunk.getInt(offset + 2 * Integer.BYTES) + 1) & STAMP_MASK;
+        chunk.putInt(offset + 2 * Integer.BYTES, stamp);
+        return (slot & ~((long) STAMP_MASK << OFFSET_BITS)) | ((long) stamp << OFFSET_BITS);
+    }
+
+    private void addFreeSlot(int sizeClass, long slot) {
+        long[] slots = freeSlots[sizeClass];
+        if (slots == null) {
+            slots = new long[16];
+        } else if (freeCounts[sizeClass] == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length << 1);
+        }
+        freeSlots[sizeClass] = slots;
+        slots[freeCounts[sizeClass]++] = slot;
+    }
+
+    /**
+     * Free the chunk and drop its slots from the free lists, the chunk index is not reused so the stale handles
+     * never read another payload.
+     *
+     * @param index - Chunk index.
+     */
+    private void free(int index) {
+        allocatedBytes -= chunks.get(index).capacity();
+        chunks.set(index, null);
+        liveBytes.set(index, 0);
+        for (int sizeClass = 0; sizeClass < freeCounts.length; sizeClass++) {
+            int kept = 0;
+            for (int i = 0; i < freeCounts[sizeClass]; i++) {
+                if ((int) (freeSlots[sizeClass][i] >>> 32) != index) {
+                    freeSlots[sizeClass][kept++] = freeSlots[sizeClass][i];
+                }
+            }
+            freeCounts[sizeClass] = kept;
+        }
+    }
+
+    private static int offset(long handle) {
+        return (int) handle & ((1 << OFFSET_BITS) - 1);
+    }
+
+    private static int stamp(long handle) {
+        return ((int) handle >>> OFFSET_BITS) & STAMP_MASK;
+    }
+
+    private synchronized ByteBuffer chunk(int index) {
+        return index >= 0 && index < chunks.size() ? chunks.get(index) : null;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
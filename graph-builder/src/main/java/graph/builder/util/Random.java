@@ -1,9 +1,19 @@
 package graph.builder.util;
 
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Random {
+    /**
+     * Generate a random (version 4) UUID string. The random bits come from ThreadLocalRandom instead of the
+     * SecureRandom used by UUID.randomUUID(), the id only needs to be unique and does not need to be unpredictable.
+     *
+     * @return
+     */
     public static String generateId() {
-        return UUID.randomUUID().toString();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long most = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        long least = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(most, least).toString();
     }
 }
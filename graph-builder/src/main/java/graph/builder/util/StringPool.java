@@ -0,0 +1,54 @@
+package graph.builder.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dedup pool for the short strings repeated across nodes, such as tag names, attribute keys, class names and inline
+ * style values. The pool lives as long as the graph owns it, so the pooled strings are dropped together with the graph.
+ */
+public class StringPool {
+    /**
+     * The strings longer than this are unlikely to repeat, they are not pooled.
+     */
+    private static final int MAX_LENGTH = 512;
+
+    private final ConcurrentHashMap<String, String> pool;
+
+    /**
+     * No args constructor.
+     */
+    public StringPool() {
+        pool = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the pooled instance equal to the value, the value is pooled if it is the first one.
+     *
+     * @param value
+     * @return - The pooled string, or the value itself if it is null or too long to pool.
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+
+        String pooled = pool.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+
+    /**
+     * The number of strings in the pool.
+     *
+     * @return
+     */
+    public int size() {
+        return pool.size();
+    }
+
+    /**
+     * Remove all strings from the pool, the strings already handed out are not affected.
+     */
+    public void clear() {
+        pool.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package graph.builder.vo;
+
+import lombok.Data;
+
+/**
+ * Parameters for approximate betweenness centrality.
+ */
+@Data
+public class ApproximateBetweennessParam {
+    /**
+     * Additive error of the normalized betweenness (the fraction of node pairs whose shortest paths go through the
+     * node), between 0 and 1.
+     */
+    double epsilon = 0.01;
+
+    /**
+     * The probability that some node is out of the error, between 0 and 1.
+     */
+    double delta = 0.1;
+
+    /**
+     * Seed of sampling, the same seed gives the same result on the same snapshot.
+     */
+    long seed = 0L;
+
+    /**
+     * Time budget in milliseconds, the sampling stops early when the budget is used up and the error bound is looser.
+     * 0 means no budget.
+     */
+    long timeBudget = 0L;
+}
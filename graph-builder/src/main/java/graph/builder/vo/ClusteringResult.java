@@ -0,0 +1,26 @@
+package graph.builder.vo;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Cluster coefficients of all nodes and the global clustering, calculated in the same triangle counting pass.
+ */
+@Data
+public class ClusteringResult {
+    /**
+     * Node id to cluster coefficient.
+     */
+    Map<String, Double> coefficients;
+
+    /**
+     * The number of triangles in the simple undirected graph, the edge directions and repeated edges are ignored.
+     */
+    long triangles;
+
+    /**
+     * The global transitivity of the simple undirected graph, 3 * triangles / connected triples.
+     */
+    double transitivity;
+}
@@ -0,0 +1,40 @@
+package graph.builder.vo;
+
+import lombok.Data;
+
+/**
+ * Quality of one community in a partition, the edge directions are ignored.
+ */
+@Data
+public class CommunityQuality {
+    /**
+     * The number of nodes.
+     */
+    int size;
+
+    /**
+     * The total weighted degree of its nodes, a self loop counts twice.
+     */
+    double volume;
+
+    /**
+     * The total weight of the edges inside, self loops included.
+     */
+    double innerWeight;
+
+    /**
+     * The total weight of the edges to the other communities.
+     */
+    double cutWeight;
+
+    /**
+     * The weight of the edges between two different nodes inside, divided by the number of node pairs. 0 for a
+     * community of one node.
+     */
+    double density;
+
+    /**
+     * Cut weight divided by the smaller volume of the two sides, 0 if either side has no weight.
+     */
+    double conductance;
+}
@@ -0,0 +1,43 @@
+package graph.builder.vo;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diameter, radius and center of a view, with the eccentricity bounds of each node found on the way. The distances
+ * ignore the edge directions. A node whose lower bound equals its upper bound has the exact eccentricity.
+ */
+@Data
+public class EccentricityBounds {
+    /**
+     * The max eccentricity of all nodes.
+     */
+    int diameter;
+
+    /**
+     * The min eccentricity of all nodes.
+     */
+    int radius;
+
+    /**
+     * The ids of the nodes whose eccentricity equals the radius.
+     */
+    List<String> center;
+
+    /**
+     * Node id to the lower bound of eccentricity.
+     */
+    Map<String, Integer> lowerBounds;
+
+    /**
+     * Node id to the upper bound of eccentricity.
+     */
+    Map<String, Integer> upperBounds;
+
+    /**
+     * The number of bfs run.
+     */
+    int bfsCount;
+}
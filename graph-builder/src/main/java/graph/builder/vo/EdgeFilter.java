@@ -1,13 +1,24 @@
 package graph.builder.vo;
 
 import graph.builder.common.EdgeType;
+import graph.builder.entity.edge.Edge;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Edge type filter.
+ *
+ * The allowed types are compiled into a bitmask of edge type codes by buildTypeSet(), so the check in the
+ * traversal is a single AND. The algorithms call buildTypeSet() when they start. The setters, getTypeList() and
+ * resetTypeSet() mark the bitmask dirty, and the next check compiles it again, so a filter changed by hand works
+ * without calling buildTypeSet(). The types not defined in EdgeType share one code, they are checked by name.
  */
 @Data
 public class EdgeFilter {
@@ -22,8 +33,30 @@ public class EdgeFilter {
     private boolean cssContainer;
     private boolean functionCall;
 
+    /**
+     * The allowed edge types filled by hand, the flags above are used if it is empty.
+     */
     private Set<String> typeList;
 
+    /**
+     * Allowed edge types as a bitmask of edge type codes, replaced at once by buildTypeSet().
+     *
+     * @see EdgeType#bit(byte)
+     */
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile long typeMask;
+
+    /**
+     * If the filter may have changed since the bitmask is compiled.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile boolean dirty;
+
     /**
      * No args constructor. The apply to relationship is false by default. Other types is true.
      */
@@ -39,6 +72,85 @@ public class EdgeFilter {
         cssContainer = true;
         applyTo = false;
         typeList = new HashSet<>();
+        dirty = true;
+    }
+
+    /**
+     * Get the allowed edge types as a bitmask, compiled first if the filter changed.
+     *
+     * @return
+     */
+    public long getTypeMask() {
+        if (dirty) {
+            buildTypeSet();
+        }
+        return typeMask;
+    }
+
+    /**
+     * Get the allowed edge types filled by hand. The bitmask is compiled again at the next check, since the caller
+     * may fill the set.
+     *
+     * @return
+     */
+    public Set<String> getTypeList() {
+        dirty = true;
+        return typeList;
+    }
+
+    public void setTypeList(Set<String> typeList) {
+        this.typeList = typeList;
+        dirty = true;
+    }
+
+    public void setParentChildRelationship(boolean parentChildRelationship) {
+        this.parentChildRelationship = parentChildRelationship;
+        dirty = true;
+    }
+
+    public void setContains(boolean contains) {
+        this.contains = contains;
+        dirty = true;
+    }
+
+    public void setNetworkRequest(boolean networkRequest) {
+        this.networkRequest = networkRequest;
+        dirty = true;
+    }
+
+    public void setNetworkResponse(boolean networkResponse) {
+        this.networkResponse = networkResponse;
+        dirty = true;
+    }
+
+    public void setDomChange(boolean domChange) {
+        this.domChange = domChange;
+        dirty = true;
+    }
+
+    public void setApplyTo(boolean applyTo) {
+        this.applyTo = applyTo;
+        dirty = true;
+    }
+
+    public void setShadowHost(boolean shadowHost) {
+        this.shadowHost = shadowHost;
+        dirty = true;
+    }
+
+    public void setIframeContainer(boolean iframeContainer) {
+        this.iframeContainer = iframeContainer;
+        dirty = true;
+    }
+
+    public void setCssContainer(boolean cssContainer) {
+        this.cssContainer = cssContainer;
+        dirty = true;
+    }
+
+    public void setFunctionCall(boolean functionCall) {
+        this.functionCall = functionCall;
+        dirty = true;
     }
 
     /**
@@ -46,56 +158,72 @@ public class EdgeFilter {
      */
     public void resetTypeSet() {
         typeList.clear();
+        dirty = true;
     }
 
 
     /**
-     * Build the set which includes all allowed edge type.
+     * Compile the allowed edge types into the bitmask. If the type set is filled by hand, only the types in it are
+     * allowed, otherwise the types switched on by the flags. The bitmask is compiled again on every call, and is
+     * replaced only after it is complete, so a concurrent check never sees a partial one.
      */
     public void buildTypeSet() {
-        if (!typeList.isEmpty()) {
+        // Clear the flag first, so a change made during the compile is picked up by the next check.
+        dirty = false;
+        long mask = 0L;
+        if (typeList != null && !typeList.isEmpty()) {
+            for (String type : typeList) {
+                mask |= bit(type);
+            }
+            typeMask = mask;
             return;
         }
 
         if (parentChildRelationship) {
-            typeList.add(EdgeType.PARENT_CHILD_RELATION);
+            mask |= bit(EdgeType.PARENT_CHILD_RELATION);
         }
 
         if (contains) {
-            typeList.add(EdgeType.CONTAINS);
+            mask |= bit(EdgeType.CONTAINS);
         }
 
         if (networkRequest) {
-            typeList.add(EdgeType.NETWORK_REQUEST);
+            mask |= bit(EdgeType.NETWORK_REQUEST);
         }
 
         if (networkResponse) {
-            typeList.add(EdgeType.NETWORK_RESPONSE);
+            mask |= bit(EdgeType.NETWORK_RESPONSE);
         }
 
         if (domChange) {
-            typeList.add(EdgeType.DOM_CHANGE);
+            mask |= bit(EdgeType.DOM_CHANGE);
         }
 
         if (applyTo) {
-            typeList.add(EdgeType.APPLY_TO);
+            mask |= bit(EdgeType.APPLY_TO);
         }
 
         if (shadowHost) {
-            typeList.add(EdgeType.SHADOW_HOST);
+            mask |= bit(EdgeType.SHADOW_HOST);
         }
 
         if (iframeContainer) {
-            typeList.add(EdgeType.IFRAME_CONTAINER);
+            mask |= bit(EdgeType.IFRAME_CONTAINER);
         }
 
         if (functionCall) {
-            typeList.add(EdgeType.FUNCTION_CALL);
+            mask |= bit(EdgeType.FUNCTION_CALL);
         }
 
         if (cssContainer) {
-            typeList.add(EdgeType.CSS_RULE_CONTAINER);
+            mask |= bit(EdgeType.CSS_RULE_CONTAINER);
         }
+
+        typeMask = mask;
+    }
+
+    private static long bit(String edgeType) {
+        return EdgeType.bit(EdgeType.code(edgeType));
     }
 
     /**
@@ -105,6 +233,34 @@ public class EdgeFilter {
      * @return
      */
     public boolean contains(String edgeType) {
-        return typeList.contains(edgeType);
+        byte code = EdgeType.code(edgeType);
+        return code == EdgeType.UNKNOWN_CODE ? typeList != null && typeList.contains(edgeType) : contains(code);
+    }
+
+    /**
+     * Check if the type of edge is allowed.
+     *
+     * @param edge
+     * @return
+     */
+    public boolean contains(Edge edge) {
+        byte code = edge.getEdgeTypeCode();
+        return code == EdgeType.UNKNOWN_CODE ? typeList != null && typeList.contains(edge.getEdgeType()) : contains(code);
+    }
+
+    /**
+     * Check if the edge type code is allowed, the bitmask is compiled first if the filter changed.
+     * For EdgeType.UNKNOWN_CODE it only tells if any type not defined in EdgeType is allowed, check such an edge by
+     * contains(Edge) instead.
+     *
+     * @param edgeTypeCode
+     * @return
+     * @see EdgeType#code(String)
+     */
+    public boolean contains(byte edgeTypeCode) {
+        if (dirty) {
+            buildTypeSet();
+        }
+        return (typeMask & EdgeType.bit(edgeTypeCode)) != 0;
     }
 }
@@ -0,0 +1,119 @@
+package graph.builder.vo;
+
+import graph.builder.common.Feature;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense feature matrix of all nodes in a snapshot. The matrix is column-major, column f holds feature f of all nodes
+ * and row v is the node with index v in the snapshot.
+ */
+@Getter
+public class FeatureMatrix {
+    /**
+     * Row index to node id.
+     */
+    private final String[] nodeIds;
+
+    /**
+     * Column index to feature, in the order of Feature.
+     */
+    private final Feature[] features;
+
+    /**
+     * Column index to the values of all nodes.
+     */
+    private final double[][] columns;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<Feature, Integer> columnIndex;
+
+    @Getter(AccessLevel.NONE)
+    private Map<String, Integer> rowIndex;
+
+    /**
+     * Constructor.
+     *
+     * @param nodeIds - Row index to node id.
+     * @param features - Column index to feature.
+     */
+    public FeatureMatrix(String[] nodeIds, List<Feature> features) {
+        this.nodeIds = nodeIds;
+        this.features = features.toArray(new Feature[0]);
+        this.columns = new double[this.features.length][nodeIds.length];
+        this.columnIndex = new EnumMap<>(Feature.class);
+        for (int f = 0; f < this.features.length; f++) {
+            columnIndex.put(this.features[f], f);
+        }
+    }
+
+    public int rowCount() {
+        return nodeIds.length;
+    }
+
+    public int columnCount() {
+        return features.length;
+    }
+
+    /**
+     * Get the column of feature.
+     *
+     * @param feature
+     * @return - The values of all nodes by row index, return null if the feature is not extracted.
+     */
+    public double[] column(Feature feature) {
+        Integer f = columnIndex.get(feature);
+        return f == null ? null : columns[f];
+    }
+
+    /**
+     * Get the row index of node.
+     *
+     * @param nodeId - Node id.
+     * @return - The row index, return -1 if the node is not in the matrix.
+     */
+    public synchronized int rowOf(String nodeId) {
+        if (rowIndex == null) {
+            rowIndex = new HashMap<>();
+            for (int v = 0; v < nodeIds.length; v++) {
+                rowIndex.put(nodeIds[v], v);
+            }
+        }
+        Integer v = rowIndex.get(nodeId);
+        return v == null ? -1 : v;
+    }
+
+    /**
+     * Get the feature of node.
+     *
+     * @param nodeId - Node id.
+     * @param feature
+     * @return - The value, return NaN if the node or the feature is not in the matrix.
+     */
+    public double get(String nodeId, Feature feature) {
+        int v = rowOf(nodeId);
+        double[] column = column(feature);
+        return v < 0 || column == null ? Double.NaN : column[v];
+    }
+
+    /**
+     * Flatten the matrix into a column-major float array, value of row v in column f is at f * rowCount() + v.
+     *
+     * @return
+     */
+    public float[] toFloatArray() {
+        int n = nodeIds.length;
+        float[] result = new float[features.length * n];
+        for (int f = 0; f < features.length; f++) {
+            for (int v = 0; v < n; v++) {
+                result[f * n + v] = (float) columns[f][v];
+            }
+        }
+        return result;
+    }
+}
@@ -32,14 +32,21 @@ public class LabelPropagationCDParam {
      */
     double outDegreeWeight;
 
+    /**
+     * The number of threads. 1 updates the labels one by one in random order, more than 1 updates the labels color by
+     * color in parallel, 0 or less uses all available processors.
+     */
+    int parallelism;
+
     /**
      * No args constructor.
      */
-    LabelPropagationCDParam() {
+    public LabelPropagationCDParam() {
         convergence = 0.00001;
         maxIteration = 500;
         shuffle = true;
         inDegreeWeight = 1.0;
         outDegreeWeight = 1.0;
+        parallelism = 1;
     }
 }
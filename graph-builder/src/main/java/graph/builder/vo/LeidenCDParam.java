@@ -0,0 +1,47 @@
+package graph.builder.vo;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Parameter for Leiden Community Detection
+ */
+@Data
+public class LeidenCDParam {
+    /**
+     * Resolution of modularity, larger resolution gives smaller communities.
+     */
+    double resolution;
+
+    /**
+     * Randomness of the refinement, the chance to merge a node into a community grows with exp(gain / randomness).
+     */
+    double randomness;
+
+    /**
+     * Max iterations of the whole algorithm, each iteration starts from the communities of the last one.
+     */
+    int maxIteration;
+
+    /**
+     * Seed of the random node order and the refinement, the same seed gives the same result on the same snapshot.
+     */
+    long seed;
+
+    /**
+     * Weight for different types of edge, the types not in the map are ignored. Null means weight 1 for all types.
+     */
+    Map<String, Double> weights;
+
+    /**
+     * No args constructor.
+     */
+    public LeidenCDParam() {
+        resolution = 1.0;
+        randomness = 0.01;
+        maxIteration = 10;
+        seed = 0L;
+        weights = null;
+    }
+}
@@ -31,6 +31,12 @@ public class LouvainCDParam {
      */
     Map<String, Double> weights;
 
+    /**
+     * The number of threads for the local moving and the aggregation. 1 runs in the calling thread, 0 or less uses
+     * all available processors.
+     */
+    int parallelism;
+
     /**
      * No args constructor.
      */
@@ -38,6 +44,7 @@ public class LouvainCDParam {
         convergence = 0.00001;
         maxAggregationTimes = 3;
         maxInnerIteration = 100;
+        parallelism = 1;
 
         weights = new HashMap<>();
         weights.put(EdgeType.PARENT_CHILD_RELATION, 1.0);
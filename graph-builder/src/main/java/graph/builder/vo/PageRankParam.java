@@ -0,0 +1,24 @@
+package graph.builder.vo;
+
+import lombok.Data;
+
+/**
+ * Parameters for global PageRank. The walk moves along the filtered edges in both directions.
+ */
+@Data
+public class PageRankParam {
+    /**
+     * The probability that the walk jumps to a random node at each step, between 0 and 1.
+     */
+    double alpha = 0.15;
+
+    /**
+     * Max iterations.
+     */
+    int maxIteration = 100;
+
+    /**
+     * The iteration stops when the sum of the changes of all nodes is within the tolerance.
+     */
+    double tol = 1.0e-9;
+}
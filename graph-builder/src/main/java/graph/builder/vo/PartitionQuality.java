@@ -0,0 +1,36 @@
+package graph.builder.vo;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Quality of a partition of the nodes, calculated in one pass over the edges. The edge directions are ignored.
+ */
+@Data
+public class PartitionQuality {
+    /**
+     * Modularity with resolution 1.
+     */
+    double modularity;
+
+    /**
+     * The ratio of edge weight inside the communities.
+     */
+    double coverage;
+
+    /**
+     * The average conductance of the communities.
+     */
+    double averageConductance;
+
+    /**
+     * The number of communities.
+     */
+    int communityCount;
+
+    /**
+     * Community label to its quality.
+     */
+    Map<Integer, CommunityQuality> communities;
+}
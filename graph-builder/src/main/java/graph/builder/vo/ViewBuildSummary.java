@@ -0,0 +1,80 @@
+package graph.builder.vo;
+
+import graph.builder.entity.edge.Edge;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a bulk loading into view.
+ */
+@Data
+public class ViewBuildSummary {
+    /**
+     * The id of view.
+     */
+    private String viewId;
+
+    /**
+     * The number of nodes added into the view.
+     */
+    private int nodeCount;
+
+    /**
+     * The number of network nodes merged into the existing node with the same url, they are not counted as added.
+     */
+    private int mergedNodeCount;
+
+    /**
+     * The number of nodes rejected by the view, such as the node id already exists.
+     */
+    private int rejectedNodeCount;
+
+    /**
+     * The number of edges connected.
+     */
+    private int edgeCount;
+
+    /**
+     * The number of edges rejected by the view, such as the edge id already exists.
+     */
+    private int rejectedEdgeCount;
+
+    /**
+     * The edges fail to find the node in either side, they are removed from the view.
+     */
+    private List<Edge> danglingEdges;
+
+    /**
+     * Edge type to the number of dangling edges in this type.
+     */
+    private Map<String, Integer> danglingCountByType;
+
+    /**
+     * No args constructor.
+     */
+    public ViewBuildSummary() {
+        danglingEdges = new ArrayList<>();
+        danglingCountByType = new HashMap<>();
+    }
+
+    /**
+     * Record a dangling edge.
+     *
+     * @param edge
+     */
+    public void addDanglingEdge(Edge edge) {
+        danglingEdges.add(edge);
+        danglingCountByType.merge(String.valueOf(edge.getEdgeType()), 1, Integer::sum);
+    }
+
+    @Override
+    public String toString() {
+        return "View " + viewId + " built with " + nodeCount + " nodes and " + edgeCount + " edges. Merged nodes: " +
+                mergedNodeCount + ", rejected nodes: " + rejectedNodeCount + ", rejected edges: " + rejectedEdgeCount +
+                ", dangling edges: " + danglingEdges.size() + (danglingCountByType.isEmpty() ? "" : " " + danglingCountByType) + ".";
+    }
+}
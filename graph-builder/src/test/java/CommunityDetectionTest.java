@@ -0,0 +1,271 @@
+import graph.builder.CommunityDetection;
+import graph.builder.FeatureExtraction;
+import graph.builder.View;
+import graph.builder.common.EdgeType;
+import graph.builder.entity.edge.Edge;
+import graph.builder.entity.node.HTMLNode;
+import graph.builder.entity.node.Node;
+import graph.builder.vo.CommunityQuality;
+import graph.builder.vo.EdgeFilter;
+import graph.builder.vo.LabelPropagationCDParam;
+import graph.builder.vo.LeidenCDParam;
+import graph.builder.vo.LouvainCDParam;
+import graph.builder.vo.PartitionQuality;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class CommunityDetectionTest {
+    /**
+     * Build a view of groups, each group is a chain with random edges inside, and a few random edges between groups.
+     */
+    private static View plantedView(int groups, int groupSize, int innerEdges, int crossEdges, long seed, List<Node> nodes) {
+        View view = new View();
+        for (int i = 0; i < groups * groupSize; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            view.addHTMLNode(node);
+            nodes.add(node);
+        }
+
+        Random random = new Random(seed);
+        for (int g = 0; g < groups; g++) {
+            int base = g * groupSize;
+            for (int i = 1; i < groupSize; i++) {
+                view.addEdge(String.valueOf(base + i - 1), "", String.valueOf(base + i), "", EdgeType.PARENT_CHILD_RELATION);
+            }
+            for (int i = 0; i < innerEdges; i++) {
+                view.addEdge(String.valueOf(base + random.nextInt(groupSize)), "",
+                        String.valueOf(base + random.nextInt(groupSize)), "", EdgeType.CONTAINS);
+            }
+        }
+        for (int i = 0; i < crossEdges; i++) {
+            view.addEdge(String.valueOf(random.nextInt(groups * groupSize)), "",
+                    String.valueOf(random.nextInt(groups * groupSize)), "", EdgeType.DOM_CHANGE);
+        }
+        return view;
+    }
+
+    /**
+     * Check each group has one label and different groups have different labels.
+     */
+    private static void assertGroups(Map<Node, Integer> communities, List<Node> nodes, int groupSize) {
+        Assert.assertEquals(nodes.size(), communities.size());
+        Set<Integer> labels = new HashSet<>();
+        for (int base = 0; base < nodes.size(); base += groupSize) {
+            int label = communities.get(nodes.get(base));
+            Assert.assertTrue(labels.add(label));
+            for (int i = base; i < base + groupSize; i++) {
+                Assert.assertEquals(label, (int) communities.get(nodes.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testLouvain() {
+        List<Node> nodes = new ArrayList<>();
+        View view = plantedView(10, 30, 150, 12, 21, nodes);
+        EdgeFilter filter = new EdgeFilter();
+        LouvainCDParam param = new LouvainCDParam();
+        assertGroups(CommunityDetection.LouvainAlgorithm(view, filter, param), nodes, 30);
+
+        // With almost no weight on the random edges inside, each group is a long chain which is split.
+        param.updateEdgeWeight(EdgeType.CONTAINS, 1e-9);
+        Map<Node, Integer> communities = CommunityDetection.LouvainAlgorithm(view.freeze(), filter, param);
+        Assert.assertNotEquals(communities.get(nodes.get(0)), communities.get(nodes.get(29)));
+
+        // A large view with many groups.
+        nodes.clear();
+        view = plantedView(2000, 25, 100, 4000, 22, nodes);
+        communities = CommunityDetection.LouvainAlgorithm(view, filter, new LouvainCDParam());
+        Assert.assertEquals(nodes.size(), communities.size());
+        Assert.assertTrue(new HashSet<>(communities.values()).size() <= 2000);
+    }
+
+    @Test
+    public void testParallelLouvain() {
+        List<Node> nodes = new ArrayList<>();
+        View view = plantedView(600, 25, 150, 300, 23, nodes);
+        EdgeFilter filter = new EdgeFilter();
+        LouvainCDParam param = new LouvainCDParam();
+        param.updateEdgeWeight(EdgeType.DOM_CHANGE, 0.01);
+        param.setParallelism(4);
+        Map<Node, Integer> communities = CommunityDetection.LouvainAlgorithm(view, filter, param);
+        assertGroups(communities, nodes, 25);
+
+        // The moves of one color are chosen from the same state, so the number of threads does not matter.
+        param.setParallelism(2);
+        Assert.assertEquals(communities, CommunityDetection.LouvainAlgorithm(view, filter, param));
+        param.setParallelism(3);
+        Assert.assertEquals(communities, CommunityDetection.LouvainAlgorithm(view.freeze(), filter, param));
+
+        // The color batches reach the modularity of the sequential moves.
+        param.setParallelism(1);
+        Map<Node, Integer> serial = CommunityDetection.LouvainAlgorithm(view, filter, param);
+        assertGroups(serial, nodes, 25);
+        double serialModularity = CommunityDetection.evaluate(view, filter, serial, param.getWeights()).getModularity();
+        double parallelModularity = CommunityDetection.evaluate(view, filter, communities, param.getWeights()).getModularity();
+        Assert.assertEquals(serialModularity, parallelModularity, 1e-3);
+    }
+
+    @Test
+    public void testLabelPropagation() {
+        List<Node> nodes = new ArrayList<>();
+        View view = plantedView(10, 30, 600, 12, 25, nodes);
+        EdgeFilter filter = new EdgeFilter();
+        LabelPropagationCDParam param = new LabelPropagationCDParam();
+        assertGroups(CommunityDetection.labelPropagationAlgorithm(view, filter, param), nodes, 30);
+
+        // Semi-synchronous on a large view, the number of threads does not matter.
+        nodes.clear();
+        view = plantedView(300, 20, 400, 100, 26, nodes);
+        param.setParallelism(4);
+        Map<Node, Integer> communities = CommunityDetection.labelPropagationAlgorithm(view, filter, param);
+        assertGroups(communities, nodes, 20);
+        param.setParallelism(2);
+        Assert.assertEquals(communities, CommunityDetection.labelPropagationAlgorithm(view.freeze(), filter, param));
+    }
+
+    @Test
+    public void testLeiden() {
+        List<Node> nodes = new ArrayList<>();
+        View view = plantedView(10, 30, 150, 12, 21, nodes);
+        EdgeFilter filter = new EdgeFilter();
+        LeidenCDParam param = new LeidenCDParam();
+        Map<Node, Integer> communities = CommunityDetection.leidenAlgorithm(view, filter, param);
+        assertGroups(communities, nodes, 30);
+        Assert.assertEquals(communities, CommunityDetection.leidenAlgorithm(view.freeze(), filter, param));
+
+        // On a sparse random view, every community is connected and the edges are not changed.
+        nodes.clear();
+        view = plantedView(1, 3000, 1500, 0, 24, nodes);
+        Map<String, String> endpoints = new HashMap<>();
+        for (Edge edge : view.getAllEdge()) {
+            endpoints.put(edge.getId(), edge.getFromNodeId() + "->" + edge.getToNodeId());
+        }
+        communities = CommunityDetection.leidenAlgorithm(view, filter, param);
+        for (Edge edge : view.getAllEdge()) {
+            Assert.assertEquals(endpoints.get(edge.getId()), edge.getFromNodeId() + "->" + edge.getToNodeId());
+        }
+
+        Map<Integer, List<Node>> members = new HashMap<>();
+        for (Node node : nodes) {
+            members.computeIfAbsent(communities.get(node), label -> new ArrayList<>()).add(node);
+        }
+        Assert.assertTrue(members.size() > 1);
+        for (List<Node> community : members.values()) {
+            // Bfs inside the community from its first node.
+            Set<Node> reached = new HashSet<>();
+            Deque<Node> queue = new ArrayDeque<>();
+            reached.add(community.get(0));
+            queue.add(community.get(0));
+            while (!queue.isEmpty()) {
+                Node current = queue.poll();
+                for (Node next : FeatureExtraction.neighbor(view, current, filter)) {
+                    if (communities.get(next).equals(communities.get(current)) && reached.add(next)) {
+                        queue.add(next);
+                    }
+                }
+            }
+            Assert.assertEquals(community.size(), reached.size());
+        }
+    }
+
+    @Test
+    public void testEvaluate() {
+        // Two triangles joined by one edge.
+        View view = new View();
+        List<Node> nodes = new ArrayList<>();
+        Map<Node, Integer> partition = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            view.addHTMLNode(node);
+            nodes.add(node);
+        }
+        String[][] edges = {{"0", "1"}, {"1", "2"}, {"2", "0"}, {"3", "4"}, {"4", "5"}, {"5", "3"}, {"2", "3"}};
+        for (String[] edge : edges) {
+            view.addEdge(edge[0], "", edge[1], "", EdgeType.CONTAINS);
+        }
+        for (int i = 0; i < 6; i++) {
+            partition.put(nodes.get(i), i < 3 ? 7 : 9);
+        }
+
+        EdgeFilter filter = new EdgeFilter();
+        PartitionQuality quality = CommunityDetection.evaluate(view, filter, partition, null);
+        Assert.assertEquals(2, quality.getCommunityCount());
+        Assert.assertEquals(2 * (6.0 / 14 - 0.25), quality.getModularity(), 1e-12);
+        Assert.assertEquals(6.0 / 7, quality.getCoverage(), 1e-12);
+        Assert.assertEquals(1.0 / 7, quality.getAverageConductance(), 1e-12);
+        CommunityQuality first = quality.getCommunities().get(7);
+        Assert.assertEquals(3, first.getSize());
+        Assert.assertEquals(7.0, first.getVolume(), 1e-12);
+        Assert.assertEquals(3.0, first.getInnerWeight(), 1e-12);
+        Assert.assertEquals(1.0, first.getCutWeight(), 1e-12);
+        Assert.assertEquals(1.0, first.getDensity(), 1e-12);
+
+        // The same on the snapshot, and the edge types not in the weights are ignored.
+        Map<String, Double> weights = new HashMap<>();
+        weights.put(EdgeType.CONTAINS, 2.0);
+        Assert.assertEquals(quality.getModularity(), CommunityDetection.evaluate(view.freeze(), filter, partition, weights).getModularity(), 1e-12);
+        weights.put(EdgeType.CONTAINS, 0.0);
+        Assert.assertEquals(0.0, CommunityDetection.evaluate(view, filter, partition, weights).getCoverage(), 1e-12);
+
+        partition.remove(nodes.get(0));
+        Assert.assertNull(CommunityDetection.evaluate(view, filter, partition, null));
+
+        // The Louvain result of a planted view has high modularity and coverage.
+        nodes.clear();
+        view = plantedView(10, 30, 150, 12, 27, nodes);
+        Map<Node, Integer> communities = CommunityDetection.LouvainAlgorithm(view, filter, new LouvainCDParam());
+        quality = CommunityDetection.evaluate(view, filter, communities, null);
+        Assert.assertEquals(10, quality.getCommunityCount());
+        Assert.assertTrue(quality.getModularity() > 0.8);
+        Assert.assertTrue(quality.getCoverage() > quality.getModularity());
+    }
+
+    @Test
+    public void testCustomEdgeType() {
+        // Two pairs joined by the edges in a type not defined in EdgeType.
+        View view = new View();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            view.addHTMLNode(node);
+            nodes.add(node);
+        }
+        view.addEdge("0", "", "1", "", "my-custom");
+        view.addEdge("2", "", "3", "", "my-custom");
+
+        EdgeFilter filter = new EdgeFilter();
+        filter.getTypeList().add("my-custom");
+        Map<Node, Integer> partition = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            partition.put(nodes.get(i), i / 2);
+        }
+
+        // Without weights the custom edges weigh 1 like the others.
+        PartitionQuality quality = CommunityDetection.evaluate(view, filter, partition, null);
+        Assert.assertEquals(0.5, quality.getModularity(), 1e-12);
+        Assert.assertEquals(2.0, quality.getCommunities().get(0).getVolume(), 1e-12);
+
+        Map<String, Double> weights = new HashMap<>();
+        weights.put("my-custom", 3.0);
+        Assert.assertEquals(0.5, CommunityDetection.evaluate(view, filter, partition, weights).getModularity(), 1e-12);
+
+        Map<Node, Integer> communities = CommunityDetection.leidenAlgorithm(view, filter, new LeidenCDParam());
+        Assert.assertEquals(communities.get(nodes.get(0)), communities.get(nodes.get(1)));
+        Assert.assertEquals(communities.get(nodes.get(2)), communities.get(nodes.get(3)));
+        Assert.assertNotEquals(communities.get(nodes.get(0)), communities.get(nodes.get(2)));
+    }
+}
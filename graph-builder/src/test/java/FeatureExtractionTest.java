@@ -1,17 +1,58 @@
 import graph.builder.FeatureExtraction;
+import graph.builder.IncrementalFeatureTracker;
+import graph.builder.ReachabilityIndex;
 import graph.builder.View;
+import graph.builder.ViewSnapshot;
 import graph.builder.common.EdgeType;
+import graph.builder.common.Feature;
+import graph.builder.common.NodeType;
+import graph.builder.entity.edge.Edge;
 import graph.builder.entity.node.HTMLNode;
 import graph.builder.entity.node.Node;
+import graph.builder.vo.ApproximateBetweennessParam;
+import graph.builder.vo.ClusteringResult;
+import graph.builder.vo.EccentricityBounds;
 import graph.builder.vo.EdgeFilter;
+import graph.builder.vo.FeatureMatrix;
+import graph.builder.vo.KatzCentralityParam;
+import graph.builder.vo.PageRankParam;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 public class FeatureExtractionTest {
+    /**
+     * Build a view of html nodes with ids "0" to "nodeCount - 1" and random edges between them, every fourth edge is
+     * an apply to edge which the default filter skips.
+     */
+    private static View randomView(int nodeCount, int edgeCount, long seed, List<Node> nodes) {
+        View view = new View();
+        for (int i = 0; i < nodeCount; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            view.addHTMLNode(node);
+            nodes.add(node);
+        }
+
+        Random random = new Random(seed);
+        for (int i = 0; i < edgeCount; i++) {
+            String from = String.valueOf(random.nextInt(nodeCount));
+            String to = String.valueOf(random.nextInt(nodeCount));
+            view.addEdge(from, "", to, "", i % 4 == 0 ? EdgeType.APPLY_TO : EdgeType.PARENT_CHILD_RELATION);
+        }
+        return view;
+    }
 
     @Test
     public void testBetweennessCentrality() {
@@ -469,4 +510,541 @@ public class FeatureExtractionTest {
         Assert.assertEquals(3.0, node1e, 0.00001);
     }
 
+    @Test
+    public void testSnapshot() {
+        View view = new View();
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            view.addHTMLNode(node);
+            nodes.add(node);
+        }
+
+        view.addEdge("1", "", "2", "", EdgeType.PARENT_CHILD_RELATION);
+        view.addEdge("2", "", "3", "", EdgeType.PARENT_CHILD_RELATION);
+        view.addEdge("2", "", "4", "", EdgeType.PARENT_CHILD_RELATION);
+        view.addEdge("3", "", "5", "", EdgeType.PARENT_CHILD_RELATION);
+        view.addEdge("4", "", "5", "", EdgeType.PARENT_CHILD_RELATION);
+        view.addEdge("5", "", "1", "", EdgeType.APPLY_TO);
+
+        ViewSnapshot snapshot = view.freeze();
+        Assert.assertEquals(5, snapshot.nodeCount());
+        Assert.assertEquals(6, snapshot.edgeCount());
+
+        EdgeFilter filter = new EdgeFilter();
+        for (Node node : nodes) {
+            Assert.assertEquals(FeatureExtraction.inDegree(view, node, filter), FeatureExtraction.inDegree(snapshot, node, filter));
+            Assert.assertEquals(FeatureExtraction.outDegree(view, node, filter), FeatureExtraction.outDegree(snapshot, node, filter));
+            Assert.assertEquals(FeatureExtraction.neighbourCount(view, node, filter), FeatureExtraction.neighbourCount(snapshot, node, filter));
+            Assert.assertEquals(FeatureExtraction.ascendants(view, node, filter, -1), FeatureExtraction.ascendants(snapshot, node, filter, -1));
+            Assert.assertEquals(FeatureExtraction.descendants(view, node, filter, 2), FeatureExtraction.descendants(snapshot, node, filter, 2));
+            Assert.assertEquals(FeatureExtraction.shortestPathFrom(view, node, filter, 2), FeatureExtraction.shortestPathFrom(snapshot, node, filter, 2));
+            Assert.assertEquals(FeatureExtraction.eccentricity(view, node, filter), FeatureExtraction.eccentricity(snapshot, node, filter), 0.00001);
+            Assert.assertEquals(FeatureExtraction.clusterCoefficient(view, node, filter), FeatureExtraction.clusterCoefficient(snapshot, node, filter), 0.00001);
+        }
+
+        Map<String, Double> result = FeatureExtraction.betweennessCentrality(snapshot, filter);
+        Assert.assertEquals(0.0, result.get("1"), 0.001);
+        Assert.assertEquals(3.0, result.get("2"), 0.001);
+        Assert.assertEquals(1.0, result.get("3"), 0.001);
+        Assert.assertEquals(1.0, result.get("4"), 0.001);
+        Assert.assertEquals(0.0, result.get("5"), 0.001);
+
+        // The snapshot is not changed by the later modification of view.
+        view.deleteHTMLNodeById("5");
+        Assert.assertEquals(5, snapshot.nodeCount());
+        Assert.assertEquals(2, FeatureExtraction.inDegree(snapshot, nodes.get(4), filter));
+    }
+
+    @Test
+    public void testParallelBetweenness() {
+        View view = randomView(300, 1200, 11, new ArrayList<>());
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        Map<String, Double> sequential = FeatureExtraction.betweennessCentrality(snapshot, filter, 1);
+        // More workers than the common pool has threads still finish, the sums only differ by rounding.
+        int many = ForkJoinPool.commonPool().getParallelism() + 3;
+        for (int parallelism : new int[]{2, 4, 7, many}) {
+            Map<String, Double> parallel = FeatureExtraction.betweennessCentrality(snapshot, filter, parallelism);
+            Assert.assertEquals(sequential.keySet(), parallel.keySet());
+            for (Map.Entry<String, Double> entry : sequential.entrySet()) {
+                Assert.assertEquals(entry.getValue(), parallel.get(entry.getKey()), 1e-9 * Math.max(1.0, entry.getValue()));
+            }
+        }
+    }
+
+    @Test
+    public void testApproximateBetweenness() {
+        // A chain with some random edges, so that the nodes in the middle are on many shortest paths.
+        View view = randomView(200, 20, 12, new ArrayList<>());
+        for (int i = 1; i < 200; i++) {
+            view.addEdge(String.valueOf(i - 1), "", String.valueOf(i), "", EdgeType.PARENT_CHILD_RELATION);
+        }
+
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        Map<String, Double> exact = FeatureExtraction.betweennessCentrality(snapshot, filter);
+
+        ApproximateBetweennessParam param = new ApproximateBetweennessParam();
+        param.setEpsilon(0.02);
+        param.setDelta(0.01);
+        param.setSeed(7);
+        Map<String, Double> approximate = FeatureExtraction.approximateBetweenness(snapshot, filter, param);
+        double pairs = 200.0 * 199.0;
+        for (Map.Entry<String, Double> entry : exact.entrySet()) {
+            Assert.assertEquals(entry.getValue() / pairs, approximate.get(entry.getKey()) / pairs, 0.02);
+        }
+        String top = Collections.max(exact.entrySet(), Map.Entry.comparingByValue()).getKey();
+        Assert.assertTrue(exact.get(top) / pairs > 0.05);
+        Assert.assertTrue(approximate.get(top) > 0);
+
+        // Deterministic with the same seed.
+        Assert.assertEquals(approximate, FeatureExtraction.approximateBetweenness(snapshot, filter, param));
+
+        param.setTimeBudget(1);
+        Assert.assertEquals(200, FeatureExtraction.approximateBetweenness(snapshot, filter, param).size());
+
+        Assert.assertNull(FeatureExtraction.approximateBetweenness(view, filter, 0, 0.1));
+    }
+
+    @Test
+    public void testMultiSourceBfs() {
+        List<Node> nodes = new ArrayList<>();
+        View view = randomView(150, 300, 13, nodes);
+
+        // The batches of 64 nodes must give the same result as the bfs from each node.
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        Map<String, Double> eccentricity = FeatureExtraction.eccentricity(snapshot, filter);
+        Map<String, Integer> ascendants = FeatureExtraction.ascendants(snapshot, filter, 3);
+        Map<String, Integer> descendants = FeatureExtraction.descendants(snapshot, filter, -1);
+        for (Node node : nodes) {
+            Assert.assertEquals(FeatureExtraction.eccentricity(snapshot, node, filter), eccentricity.get(node.getId()), 0.0);
+            Assert.assertEquals(FeatureExtraction.ascendants(snapshot, node, filter, 3), (int) ascendants.get(node.getId()));
+            Assert.assertEquals(FeatureExtraction.descendants(snapshot, node, filter, -1), (int) descendants.get(node.getId()));
+        }
+
+        for (int direction = 0; direction < 3; direction++) {
+            Map<String, Double> closeness = FeatureExtraction.closenessCentrality(snapshot, filter, direction);
+            for (Node node : nodes) {
+                Map<String, Integer> paths = FeatureExtraction.shortestPathFrom(snapshot, node, filter, direction);
+                double sum = 0.0;
+                for (int length : paths.values()) {
+                    sum += length;
+                }
+                double expected = sum == 0.0 ? 0.0 : 1 / (sum / (paths.size() - 1));
+                Assert.assertEquals(expected, closeness.get(node.getId()), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testKatzCentrality() {
+        // Large enough for the parallel row partitions.
+        int n = 5000;
+        View view = randomView(n, 4 * n, 14, new ArrayList<>());
+        List<int[]> edges = new ArrayList<>();
+        for (Edge edge : view.getAllEdge()) {
+            if (!edge.getEdgeType().equals(EdgeType.APPLY_TO)) {
+                edges.add(new int[]{Integer.parseInt(edge.getFromNodeId()), Integer.parseInt(edge.getToNodeId())});
+            }
+        }
+
+        KatzCentralityParam param = new KatzCentralityParam();
+        param.setAlpha(0.05);
+        for (int consideration = 0; consideration < 3; consideration++) {
+            param.setNeighborConsideration(consideration);
+            Map<String, Double> result = FeatureExtraction.katzCentrality(view, new EdgeFilter(), param);
+
+            // Plain power iteration over the edge list.
+            double[] old = new double[n];
+            double[] next = new double[n];
+            Arrays.fill(old, param.getBeta());
+            for (int iteration = 0; iteration < param.getMax_iteration(); iteration++) {
+                Arrays.fill(next, 0.0);
+                for (int[] edge : edges) {
+                    if (consideration != 1) {
+                        next[edge[1]] += old[edge[0]];
+                    }
+                    if (consideration != 0) {
+                        next[edge[0]] += old[edge[1]];
+                    }
+                }
+                double change = 0.0;
+                for (int v = 0; v < n; v++) {
+                    next[v] = param.getBeta() + param.getAlpha() * next[v];
+                    change = Math.max(change, Math.abs(next[v] - old[v]));
+                }
+                double[] swap = old;
+                old = next;
+                next = swap;
+                if (change <= param.getTol()) {
+                    break;
+                }
+            }
+
+            for (int v = 0; v < n; v++) {
+                Assert.assertEquals(old[v], result.get(String.valueOf(v)), 1e-5);
+            }
+        }
+    }
+
+    @Test
+    public void testFeatureMatrix() {
+        List<Node> nodes = new ArrayList<>();
+        View view = randomView(100, 300, 15, nodes);
+
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        FeatureMatrix matrix = FeatureExtraction.extractFeatureMatrix(snapshot, filter, EnumSet.allOf(Feature.class));
+        Assert.assertEquals(100, matrix.rowCount());
+        Assert.assertEquals(Feature.values().length, matrix.columnCount());
+        for (Node node : nodes) {
+            String id = node.getId();
+            Assert.assertEquals(FeatureExtraction.inDegree(snapshot, node, filter), matrix.get(id, Feature.IN_DEGREE), 0.0);
+            Assert.assertEquals(FeatureExtraction.outDegree(snapshot, node, filter), matrix.get(id, Feature.OUT_DEGREE), 0.0);
+            Assert.assertEquals(FeatureExtraction.neighbourCount(snapshot, node, filter), matrix.get(id, Feature.NEIGHBOUR_COUNT), 0.0);
+            Assert.assertEquals(FeatureExtraction.clusterCoefficient(snapshot, node, filter), matrix.get(id, Feature.CLUSTER_COEFFICIENT), 0.0);
+            Assert.assertEquals(FeatureExtraction.ascendants(snapshot, node, filter, -1), matrix.get(id, Feature.ASCENDANTS), 0.0);
+            Assert.assertEquals(FeatureExtraction.descendants(snapshot, node, filter, -1), matrix.get(id, Feature.DESCENDANTS), 0.0);
+            Assert.assertEquals(FeatureExtraction.eccentricity(snapshot, node, filter), matrix.get(id, Feature.ECCENTRICITY), 0.0);
+        }
+
+        // Only the selected columns, in the order of Feature.
+        matrix = FeatureExtraction.extractFeatureMatrix(view, filter, EnumSet.of(Feature.ECCENTRICITY, Feature.IN_DEGREE));
+        Assert.assertArrayEquals(new Feature[]{Feature.IN_DEGREE, Feature.ECCENTRICITY}, matrix.getFeatures());
+        Assert.assertNull(matrix.column(Feature.DESCENDANTS));
+        float[] flat = matrix.toFloatArray();
+        int row = matrix.rowOf("7");
+        Assert.assertEquals(matrix.get("7", Feature.ECCENTRICITY), flat[matrix.rowCount() + row], 0.0);
+    }
+
+    @Test
+    public void testClusterCoefficient() {
+        List<Node> nodes = new ArrayList<>();
+        List<Set<Integer>> neighbours = new ArrayList<>();
+        // Enough nodes for several workers and lock stripes in the triangle counting.
+        int size = 2500;
+        View view = randomView(size, 0, 18, nodes);
+        for (int i = 0; i < size; i++) {
+            neighbours.add(new HashSet<>());
+        }
+
+        // Dense in a few hubs, with reciprocal edges and self loops.
+        Random random = new Random(18);
+        for (int i = 0; i < 10 * size; i++) {
+            int from = random.nextInt(4) == 0 ? random.nextInt(10) : random.nextInt(size);
+            int to = i % 50 == 0 ? from : random.nextInt(size);
+            String type = i % 6 == 0 ? EdgeType.APPLY_TO : EdgeType.PARENT_CHILD_RELATION;
+            view.addEdge(String.valueOf(from), "", String.valueOf(to), "", type);
+            if (i % 10 == 0) {
+                view.addEdge(String.valueOf(to), "", String.valueOf(from), "", type);
+            }
+            if (!type.equals(EdgeType.APPLY_TO) && from != to) {
+                neighbours.get(from).add(to);
+                neighbours.get(to).add(from);
+            }
+        }
+
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        ClusteringResult directed = FeatureExtraction.clusterCoefficient(snapshot, filter, true);
+        for (Node node : nodes) {
+            Assert.assertEquals(FeatureExtraction.clusterCoefficient(snapshot, node, filter),
+                    directed.getCoefficients().get(node.getId()), 0.0);
+        }
+
+        // The undirected coefficient and the transitivity against the neighbour sets.
+        ClusteringResult undirected = FeatureExtraction.clusterCoefficient(view, filter, false);
+        long triangles = 0;
+        long triples = 0;
+        for (int v = 0; v < size; v++) {
+            long links = 0;
+            for (int u : neighbours.get(v)) {
+                for (int w : neighbours.get(v)) {
+                    if (u < w && neighbours.get(u).contains(w)) {
+                        links++;
+                    }
+                }
+            }
+            long d = neighbours.get(v).size();
+            double expected = d < 2 ? 0.0 : 2.0 * links / (d * (d - 1));
+            Assert.assertEquals(expected, undirected.getCoefficients().get(String.valueOf(v)), 1e-12);
+            triangles += links;
+            triples += d * (d - 1) / 2;
+        }
+        Assert.assertEquals(triangles / 3, undirected.getTriangles());
+        Assert.assertEquals(directed.getTriangles(), undirected.getTriangles());
+        Assert.assertEquals((double) triangles / triples, undirected.getTransitivity(), 1e-12);
+        Assert.assertTrue(undirected.getTriangles() > 0);
+    }
+
+    @Test
+    public void testPageRank() {
+        // Nodes [0, 500) are connected randomly, nodes [500, 600) are a separate chain, node 599 has no edge.
+        List<Node> nodes = new ArrayList<>();
+        View view = randomView(500, 2500, 19, nodes);
+        for (int i = 500; i < 600; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            view.addHTMLNode(node);
+            nodes.add(node);
+        }
+        for (int i = 500; i < 598; i++) {
+            view.addEdge(String.valueOf(i), "", String.valueOf(i + 1), "", EdgeType.PARENT_CHILD_RELATION);
+        }
+
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        double alpha = 0.2;
+        double epsilon = 1e-6;
+
+        // Exact personalized PageRank of node 3 by power iteration.
+        List<List<Node>> neighbours = new ArrayList<>();
+        for (Node node : nodes) {
+            neighbours.add(FeatureExtraction.neighbor(snapshot, node, filter));
+        }
+        double[] exact = new double[600];
+        exact[3] = 1.0;
+        for (int iteration = 0; iteration < 200; iteration++) {
+            double[] next = new double[600];
+            next[3] = alpha;
+            for (int v = 0; v < 600; v++) {
+                for (Node w : neighbours.get(v)) {
+                    next[Integer.parseInt(w.getId())] += (1 - alpha) * exact[v] / neighbours.get(v).size();
+                }
+            }
+            exact = next;
+        }
+
+        for (Map<String, Double> estimate : Arrays.asList(
+                FeatureExtraction.personalizedPageRank(view, Collections.singletonList(nodes.get(3)), filter, alpha, epsilon),
+                FeatureExtraction.personalizedPageRank(snapshot, Collections.singletonList(nodes.get(3)), filter, alpha, epsilon))) {
+            for (int v = 0; v < 600; v++) {
+                double value = estimate.getOrDefault(String.valueOf(v), 0.0);
+                Assert.assertTrue(value <= exact[v] + 1e-12);
+                Assert.assertTrue(exact[v] - value < epsilon * neighbours.get(v).size() + 1e-12);
+            }
+        }
+
+        // Only the neighbourhood of the seeds is touched.
+        Map<String, Double> chain = FeatureExtraction.personalizedPageRank(view, Arrays.asList(nodes.get(550), nodes.get(599)), filter, alpha, 1e-3);
+        Assert.assertEquals(0.5, chain.get("599"), 0.0);
+        for (String id : chain.keySet()) {
+            Assert.assertTrue(Integer.parseInt(id) >= 500);
+        }
+        Assert.assertNull(FeatureExtraction.personalizedPageRank(view, Collections.emptyList(), filter, alpha, epsilon));
+        Assert.assertNull(FeatureExtraction.personalizedPageRank(view, Collections.singletonList(nodes.get(3)), filter, 1.0, epsilon));
+
+        // The global PageRank is the personalized PageRank of all nodes.
+        PageRankParam param = new PageRankParam();
+        param.setAlpha(alpha);
+        Map<String, Double> global = FeatureExtraction.pageRank(view, filter, param);
+        Map<String, Double> pushed = FeatureExtraction.personalizedPageRank(snapshot, nodes, filter, alpha, epsilon / 600);
+        double sum = 0.0;
+        for (int v = 0; v < 600; v++) {
+            String id = String.valueOf(v);
+            sum += global.get(id);
+            Assert.assertEquals(global.get(id), pushed.get(id), epsilon * neighbours.get(v).size() / 600 + 1e-8);
+        }
+        Assert.assertEquals(1.0, sum, 1e-9);
+        Assert.assertEquals(1.0 / 600, global.get("599"), 1e-12);
+    }
+
+    @Test
+    public void testEccentricityBounds() {
+        // A random tree with extra edges on nodes [0, 700), small trees on [700, 790), isolated nodes after.
+        List<Node> nodes = new ArrayList<>();
+        View view = randomView(700, 40, 20, nodes);
+        Random random = new Random(21);
+        for (int i = 1; i < 700; i++) {
+            view.addEdge(String.valueOf(random.nextInt(i)), "", String.valueOf(i), "", EdgeType.PARENT_CHILD_RELATION);
+        }
+        for (int i = 700; i < 800; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            view.addHTMLNode(node);
+            nodes.add(node);
+        }
+        for (int i = 701; i < 790; i++) {
+            if (i % 10 != 0) {
+                view.addEdge(String.valueOf(i), "", String.valueOf(i - 1), "", EdgeType.PARENT_CHILD_RELATION);
+            }
+        }
+
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        EccentricityBounds bounds = FeatureExtraction.eccentricityBounds(snapshot, filter);
+
+        int diameter = 0;
+        int radius = Integer.MAX_VALUE;
+        List<String> center = new ArrayList<>();
+        for (Node node : nodes) {
+            // Eccentricity ignoring the edge directions.
+            Map<String, Integer> distance = new HashMap<>();
+            List<Node> queue = new ArrayList<>();
+            distance.put(node.getId(), 0);
+            queue.add(node);
+            for (int head = 0; head < queue.size(); head++) {
+                Node current = queue.get(head);
+                for (Node next : FeatureExtraction.neighbor(snapshot, current, filter)) {
+                    if (!distance.containsKey(next.getId())) {
+                        distance.put(next.getId(), distance.get(current.getId()) + 1);
+                        queue.add(next);
+                    }
+                }
+            }
+            int eccentricity = distance.get(queue.get(queue.size() - 1).getId());
+
+            Assert.assertTrue(bounds.getLowerBounds().get(node.getId()) <= eccentricity);
+            Assert.assertTrue(bounds.getUpperBounds().get(node.getId()) >= eccentricity);
+            if (eccentricity < radius) {
+                radius = eccentricity;
+                center.clear();
+            }
+            if (eccentricity == radius) {
+                center.add(node.getId());
+            }
+            diameter = Math.max(diameter, eccentricity);
+        }
+
+        Assert.assertEquals(diameter, bounds.getDiameter());
+        Assert.assertEquals(0, bounds.getRadius());
+        Assert.assertEquals(radius, bounds.getRadius());
+        Assert.assertEquals(new HashSet<>(center), new HashSet<>(bounds.getCenter()));
+        Assert.assertTrue(bounds.getBfsCount() < 100);
+        Assert.assertEquals(diameter, FeatureExtraction.diameter(view, filter));
+
+        // The radius and the center of the tree alone.
+        View tree = new View();
+        for (int i = 0; i < 700; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            tree.addHTMLNode(node);
+        }
+        for (Edge edge : view.getAllEdge()) {
+            if (Integer.parseInt(edge.getFromNodeId()) < 700) {
+                tree.addEdge(edge.getFromNodeId(), "", edge.getToNodeId(), "", edge.getEdgeType());
+            }
+        }
+        EccentricityBounds treeBounds = FeatureExtraction.eccentricityBounds(tree, filter);
+        Assert.assertEquals(diameter, treeBounds.getDiameter());
+        Assert.assertTrue(treeBounds.getRadius() >= (diameter + 1) / 2);
+        Assert.assertEquals(treeBounds.getRadius(), FeatureExtraction.radius(tree, filter));
+        for (String id : FeatureExtraction.center(tree, filter)) {
+            Assert.assertEquals(treeBounds.getRadius(), (int) treeBounds.getLowerBounds().get(id));
+        }
+    }
+
+    @Test
+    public void testReachabilityIndex() {
+        // Sparse enough to keep many components, with some cycles and self loops.
+        List<Node> nodes = new ArrayList<>();
+        View view = randomView(200, 220, 16, nodes);
+        for (int i = 0; i < 200; i += 20) {
+            view.addEdge(String.valueOf(i), "", String.valueOf(i), "", EdgeType.PARENT_CHILD_RELATION);
+        }
+
+        ViewSnapshot snapshot = view.freeze();
+        EdgeFilter filter = new EdgeFilter();
+        ReachabilityIndex index = ReachabilityIndex.build(snapshot, filter);
+        Assert.assertTrue(index.componentCount() > 1);
+        for (Node node : nodes) {
+            Assert.assertEquals(FeatureExtraction.ascendants(snapshot, node, filter, -1), index.ascendants(node));
+            Assert.assertEquals(FeatureExtraction.descendants(snapshot, node, filter, -1), index.descendants(node));
+            Assert.assertEquals(FeatureExtraction.descendants(snapshot, node, filter, 2), index.descendants(node, 2));
+
+            Map<String, Integer> reached = FeatureExtraction.shortestPathFrom(snapshot, node, filter, 0);
+            for (Node other : nodes) {
+                if (other != node) {
+                    Assert.assertEquals(reached.containsKey(other.getId()), index.canReach(node, other));
+                }
+            }
+        }
+
+        // A long chain, whose closure is too large to keep.
+        View chain = new View();
+        for (int i = 0; i < 20000; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId(String.valueOf(i));
+            chain.addHTMLNode(node);
+            if (i > 0) {
+                chain.addEdge(String.valueOf(i - 1), "", String.valueOf(i), "", EdgeType.PARENT_CHILD_RELATION);
+            }
+        }
+        chain.addEdge("15000", "", "14000", "", EdgeType.PARENT_CHILD_RELATION);
+
+        index = FeatureExtraction.reachabilityIndex(chain, filter);
+        Node first = chain.findNodeById("0");
+        Node last = chain.findNodeById("19999");
+        Assert.assertEquals(19999, index.descendants(first));
+        Assert.assertEquals(19999, index.ascendants(last));
+        Assert.assertEquals(5000, index.descendants(chain.findNodeById("100"), 5000));
+        Assert.assertEquals(19999 - 14000 + 1, index.descendants(chain.findNodeById("14500")));
+        Assert.assertTrue(index.canReach(first, last));
+        Assert.assertFalse(index.canReach(last, first));
+        Assert.assertTrue(index.canReach(chain.findNodeById("15000"), chain.findNodeById("14000")));
+    }
+
+    @Test
+    public void testIncrementalFeatureTracker() {
+        View view = randomView(40, 80, 17, new ArrayList<>());
+        Random random = new Random(17);
+
+        EdgeFilter filter = new EdgeFilter();
+        IncrementalFeatureTracker tracker = new IncrementalFeatureTracker(view, filter);
+        int nextId = 40;
+        for (int round = 0; round < 30; round++) {
+            // Random adds and deletes of edges and nodes, like the dom changes in script replay.
+            for (int i = 0; i < 10; i++) {
+                List<Node> alive = view.getAllNode();
+                Node from = alive.get(random.nextInt(alive.size()));
+                Node to = alive.get(random.nextInt(alive.size()));
+                view.addEdge(from.getId(), "", to.getId(), "", i % 5 == 0 ? EdgeType.DOM_CHANGE : EdgeType.PARENT_CHILD_RELATION);
+            }
+            List<Edge> edges = view.getAllEdge();
+            for (int i = 0; i < 4 && !edges.isEmpty(); i++) {
+                view.deleteEdgeById(edges.remove(random.nextInt(edges.size())).getId());
+            }
+            if (round % 3 == 0) {
+                List<Node> alive = view.getAllNode();
+                view.deleteHTMLNodeById(alive.get(random.nextInt(alive.size())).getId());
+                HTMLNode node = new HTMLNode();
+                node.setId(String.valueOf(nextId++));
+                view.addHTMLNode(node);
+            }
+
+            ViewSnapshot snapshot = view.freeze();
+            for (Node node : view.getAllNode()) {
+                Assert.assertEquals(FeatureExtraction.inDegree(snapshot, node, filter), tracker.inDegree(node));
+                Assert.assertEquals(FeatureExtraction.outDegree(snapshot, node, filter), tracker.outDegree(node));
+                Assert.assertEquals(FeatureExtraction.neighbourCount(snapshot, node, filter), tracker.neighbourCount(node));
+                Assert.assertEquals(FeatureExtraction.clusterCoefficient(snapshot, node, filter), tracker.clusterCoefficient(node));
+            }
+        }
+
+        HTMLNode removed = (HTMLNode) view.getAllNode().get(0);
+        view.deleteHTMLNodeById(removed.getId());
+        Assert.assertEquals(-1, tracker.inDegree(removed));
+
+        // The edge registered without connection can be deleted while the tracker is attached.
+        Node side = view.getAllNode().get(0);
+        int sideDegree = tracker.outDegree(side);
+        Edge unconnected = new Edge();
+        unconnected.setFrom(side.getId(), NodeType.HTML);
+        unconnected.setTo("missing", NodeType.HTML);
+        unconnected.setEdgeType(EdgeType.PARENT_CHILD_RELATION);
+        String unconnectedId = view.addEdgeUncheckExistence(unconnected);
+        Assert.assertEquals(unconnected, view.deleteEdgeById(unconnectedId));
+        Assert.assertNull(view.findEdgeById(unconnectedId));
+        Assert.assertEquals(sideDegree, tracker.outDegree(side));
+
+        tracker.detach();
+        Node node = view.getAllNode().get(0);
+        int degree = tracker.inDegree(node);
+        view.addEdge(node.getId(), "", node.getId(), "", EdgeType.PARENT_CHILD_RELATION);
+        Assert.assertEquals(degree, tracker.inDegree(node));
+    }
 }
@@ -1,14 +1,33 @@
+import crawler.entity.HTMLElement;
+import graph.builder.ConcurrentView;
+import graph.builder.FeatureExtraction;
 import graph.builder.Graph;
 import graph.builder.View;
+import graph.builder.ViewBuilder;
+import graph.builder.ViewSnapshot;
 import graph.builder.common.EdgeType;
 import graph.builder.common.NodeType;
 import graph.builder.entity.edge.Edge;
 import graph.builder.entity.node.*;
+import graph.builder.util.LiveCollection;
+import graph.builder.util.PayloadStore;
 import graph.builder.util.Random;
+import graph.builder.vo.EdgeFilter;
+import graph.builder.vo.ViewBuildSummary;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 public class ViewTest {
 
@@ -44,8 +63,8 @@ public class ViewTest {
         Edge edge = view.addEdge( htmlId, NodeType.HTML,networkId, NodeType.NETWORK, EdgeType.NETWORK_REQUEST);
 
         Assert.assertNotNull(view.findEdgeById(edge.getId()));
-        Assert.assertEquals(1, htmlNode.getOutList().size());
-        Assert.assertEquals(1, networkNode.getInList().size());
+        Assert.assertEquals(1, outSize(view, htmlNode));
+        Assert.assertEquals(1, inSize(view, networkNode));
 
 
         Assert.assertEquals(1, view.findInEdgeForNode(networkNode).size());
@@ -68,6 +87,657 @@ public class ViewTest {
         List<Edge> deletedEdge = view.connectionEdge();
         Assert.assertEquals(1, deletedEdge.size());
         Assert.assertEquals(edge, deletedEdge.get(0));
-        Assert.assertEquals(0, htmlNode.getOutList().size());
+        Assert.assertEquals(0, outSize(view, htmlNode));
+    }
+
+    @Test
+    public void testDenseId() {
+        View view = new View();
+        HTMLNode htmlNode = new HTMLNode();
+        htmlNode.setId("html");
+        CSSNode cssNode = new CSSNode();
+
+        Assert.assertEquals("html", view.addHTMLNode(htmlNode));
+        String cssId = view.addCSSNode(cssNode);
+        Assert.assertNotNull(cssId);
+        Assert.assertEquals(cssNode, view.findNodeById(cssId));
+        Assert.assertEquals(htmlNode, view.findNodeByIndex(view.indexOf(htmlNode)));
+
+        // The id is unique in the view whatever the node type is.
+        CSSNode duplicate = new CSSNode();
+        duplicate.setId("html");
+        Assert.assertNull(view.addCSSNode(duplicate));
+
+        Edge edge = view.addEdge("html", NodeType.HTML, cssId, NodeType.CSS, EdgeType.CONTAINS);
+        Assert.assertEquals(edge, view.findEdgeById(edge.getId()));
+        int edgeIndex = view.indexOf(edge);
+        Assert.assertEquals(view.indexOf(htmlNode), view.fromIndexOf(edgeIndex));
+        Assert.assertEquals(view.indexOf(cssNode), view.toIndexOf(edgeIndex));
+        Assert.assertTrue(view.outList(view.indexOf(htmlNode)).contains(edgeIndex));
+
+        Assert.assertEquals(cssNode, view.deleteCSSNodeById(cssId));
+        Assert.assertEquals(-1, view.indexOf(cssNode));
+        Assert.assertEquals(-1, view.indexOf(edge));
+        Assert.assertEquals(-1, view.fromIndexOf(edgeIndex));
+        Assert.assertNull(view.findNodeById(cssId));
+        Assert.assertNull(view.findEdgeById(edge.getId()));
+        Assert.assertEquals(0, outSize(view, htmlNode));
+        Assert.assertEquals(1, view.getAllNode().size());
+    }
+
+    @Test
+    public void testHighDegreeAdjacency() {
+        View view = new View();
+        HTMLNode body = new HTMLNode();
+        String bodyId = view.addHTMLNode(body);
+
+        List<String> childIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String childId = view.addHTMLNode(new HTMLNode());
+            childIds.add(childId);
+            String type = i % 4 == 0 ? EdgeType.DOM_CHANGE : EdgeType.PARENT_CHILD_RELATION;
+            view.addEdge(bodyId, NodeType.HTML, childId, NodeType.HTML, type);
+        }
+
+        Assert.assertEquals(100, outSize(view, body));
+        Assert.assertEquals(25, view.findOutEdgeForNode(body, EdgeType.DOM_CHANGE).size());
+        Assert.assertEquals(75, view.findOutEdgeForNode(body, EdgeType.PARENT_CHILD_RELATION).size());
+        Assert.assertEquals(25, view.findAllEdgeForNode(body, EdgeType.DOM_CHANGE).size());
+
+        // Add an existing edge again does not change the adjacency.
+        Edge first = view.findOutEdgeForNode(body).get(0);
+        Assert.assertNull(view.addEdge(first));
+        Assert.assertEquals(100, outSize(view, body));
+
+        for (int i = 0; i < 100; i += 2) {
+            view.deleteHTMLNodeById(childIds.get(i));
+        }
+
+        Assert.assertEquals(50, outSize(view, body));
+        Assert.assertEquals(0, view.findOutEdgeForNode(body, EdgeType.DOM_CHANGE).size());
+        Assert.assertEquals(50, view.findOutEdgeForNode(body, EdgeType.PARENT_CHILD_RELATION).size());
+        for (Edge edge : view.findOutEdgeForNode(body)) {
+            Assert.assertTrue(view.outList(view.indexOf(body)).contains(view.indexOf(edge)));
+            Assert.assertNotNull(view.findNodeById(edge.getToNodeId()));
+        }
+    }
+
+    @Test
+    public void testSecondaryIndex() {
+        Graph graph = new Graph();
+        View view = graph.createView("main");
+        View child = graph.createView("child");
+        child.setParentNodeId("iframe");
+        Assert.assertEquals(view, graph.findViewById("main"));
+        Assert.assertEquals(child, graph.findViewByRelatedNodeId("iframe"));
+        Assert.assertNull(graph.findViewByRelatedNodeId("main"));
+
+        child.setId("renamed");
+        Assert.assertNull(graph.findViewById("child"));
+        Assert.assertEquals(child, graph.findViewById("renamed"));
+
+        HTMLNode div = new HTMLNode();
+        div.setTagName("div");
+        div.setIdentifyID("menu");
+        div.setClassNames("nav  top");
+        view.addHTMLNode(div);
+        HTMLNode span = new HTMLNode();
+        span.setTagName("span");
+        span.setClassNames("top");
+        view.addHTMLNode(span);
+
+        Assert.assertEquals(1, view.findHTMLNodeByTag("div").size());
+        Assert.assertEquals(div, view.findHTMLNodeByIdentifyID("menu").get(0));
+        Assert.assertEquals(1, view.findHTMLNodeByClass("nav").size());
+        Assert.assertEquals(2, view.findHTMLNodeByClass("top").size());
+
+        span.setTagName("div");
+        view.reindexNode(span);
+        Assert.assertEquals(0, view.findHTMLNodeByTag("span").size());
+        Assert.assertEquals(2, view.findHTMLNodeByTag("div").size());
+
+        view.deleteHTMLNodeById(div.getId());
+        Assert.assertEquals(1, view.findHTMLNodeByTag("div").size());
+        Assert.assertEquals(0, view.findHTMLNodeByIdentifyID("menu").size());
+        Assert.assertEquals(1, view.findHTMLNodeByClass("top").size());
+
+        NetworkNode first = new NetworkNode();
+        first.setUrl("www.test.com");
+        String firstId = view.addNetworkNode(first);
+        NetworkNode second = new NetworkNode();
+        second.setUrl("www.test.com");
+        Assert.assertEquals(firstId, view.addNetworkNode(second));
+        Assert.assertEquals(first, view.findNetworkNodeByURL("www.test.com"));
+
+        view.deleteNetworkNodeById(firstId);
+        Assert.assertNull(view.findNetworkNodeByURL("www.test.com"));
+    }
+
+    @Test
+    public void testViewBuilder() {
+        View view = new View();
+        ViewBuilder builder = new ViewBuilder(view).ensureCapacity(3, 4);
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            HTMLNode node = new HTMLNode();
+            node.setId("h" + i);
+            nodes.add(node);
+        }
+        Assert.assertEquals(3, builder.addNodes(nodes));
+        Assert.assertNull(builder.addNode(nodes.get(0)));
+
+        List<Edge> edges = new ArrayList<>();
+        String[][] pairs = {{"h0", "h1"}, {"h0", "h2"}, {"h1", "h2"}, {"h2", "missing"}};
+        for (String[] pair : pairs) {
+            Edge edge = new Edge();
+            edge.setFrom(pair[0], NodeType.HTML);
+            edge.setTo(pair[1], NodeType.HTML);
+            edge.setEdgeType(EdgeType.PARENT_CHILD_RELATION);
+            edges.add(edge);
+        }
+        Assert.assertEquals(4, builder.addEdges(edges));
+
+        // The edges are registered but not connected before build.
+        Assert.assertNotNull(view.findEdgeById(edges.get(0).getId()));
+        Assert.assertEquals(0, outSize(view, nodes.get(0)));
+
+        ViewBuildSummary summary = builder.build();
+        Assert.assertEquals(3, summary.getNodeCount());
+        Assert.assertEquals(1, summary.getRejectedNodeCount());
+        Assert.assertEquals(3, summary.getEdgeCount());
+        Assert.assertEquals(1, summary.getDanglingEdges().size());
+        Assert.assertEquals(1, (int) summary.getDanglingCountByType().get(EdgeType.PARENT_CHILD_RELATION));
+        Assert.assertNull(view.findEdgeById(edges.get(3).getId()));
+
+        Assert.assertEquals(2, outSize(view, nodes.get(0)));
+        Assert.assertEquals(2, inSize(view, nodes.get(2)));
+        Assert.assertEquals(0, outSize(view, nodes.get(2)));
+        Assert.assertEquals(3, view.getAllEdge().size());
+
+        // The network node merged into the existing one with the same url is not counted as added.
+        NetworkNode request = new NetworkNode();
+        request.setUrl("www.test.com");
+        NetworkNode again = new NetworkNode();
+        again.setUrl("www.test.com");
+        Assert.assertEquals(1, builder.addNodes(Arrays.asList(request, again)));
+        summary = builder.build();
+        Assert.assertEquals(1, summary.getNodeCount());
+        Assert.assertEquals(1, summary.getMergedNodeCount());
+        Assert.assertEquals(0, summary.getEdgeCount());
+    }
+
+    @Test
+    public void testLiveCollection() {
+        View view = new View();
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                HTMLNode node = new HTMLNode();
+                node.setId("n" + i);
+                view.addHTMLNode(node);
+            } else {
+                ScriptNode node = new ScriptNode();
+                node.setId("n" + i);
+                view.addScriptNode(node);
+            }
+        }
+        for (int i = 0; i < count; i += 3) {
+            view.deleteHTMLNodeById("n" + i);
+            view.deleteScriptNodeById("n" + i);
+        }
+
+        LiveCollection<Node> nodes = view.nodes();
+        Assert.assertEquals(view.getAllNode(), new ArrayList<>(nodes));
+        Assert.assertEquals(view.getAllNode().size(), nodes.size());
+        Assert.assertEquals(view.getAllHTMLNodes().size(), view.htmlNodes().size());
+        Assert.assertEquals(nodes.size(), nodes.parallelStream().count());
+        Assert.assertEquals(view.getAllHTMLNodes(), view.htmlNodes().parallelStream().collect(Collectors.toList()));
+
+        long indexSum = StreamSupport.intStream(view.scriptNodes().indexSpliterator(), true).asLongStream().sum();
+        long expected = 0;
+        for (ScriptNode node : view.getAllScriptNodes()) {
+            expected += view.indexOf(node);
+        }
+        Assert.assertEquals(expected, indexSum);
+
+        PrimitiveIterator.OfInt iterator = nodes.indexIterator();
+        int previous = -1;
+        while (iterator.hasNext()) {
+            int index = iterator.nextInt();
+            Assert.assertTrue(index > previous);
+            Assert.assertNotNull(view.findNodeByIndex(index));
+            previous = index;
+        }
+
+        // The collection is live and fails fast on modification.
+        Iterator<Node> it = nodes.iterator();
+        it.next();
+        view.deleteHTMLNodeById("n2");
+        Assert.assertThrows(ConcurrentModificationException.class, it::next);
+        Assert.assertEquals(view.getAllNode().size(), nodes.size());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> nodes.add(new HTMLNode()));
+    }
+
+    @Test
+    public void testConcurrentView() throws InterruptedException {
+        Graph graph = new Graph();
+        ConcurrentView view = graph.createConcurrentView("concurrent");
+        Assert.assertSame(view, graph.findViewById("concurrent"));
+
+        int threadCount = 4;
+        int nodeCount = 500;
+        Thread[] threads = new Thread[threadCount];
+        ViewBuildSummary[] summaries = new ViewBuildSummary[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int thread = t;
+            String prefix = "t" + t + "-";
+            threads[t] = new Thread(() -> {
+                ViewBuilder builder = new ViewBuilder(view);
+                for (int i = 0; i < nodeCount; i++) {
+                    HTMLNode node = new HTMLNode();
+                    node.setId(prefix + i);
+                    builder.addNode(node);
+                    if (i > 0) {
+                        Edge edge = new Edge();
+                        edge.setFrom(prefix + (i - 1), NodeType.HTML);
+                        edge.setTo(prefix + i, NodeType.HTML);
+                        edge.setEdgeType(EdgeType.PARENT_CHILD_RELATION);
+                        builder.addEdge(edge);
+                    }
+                    // Readers run alongside the writers.
+                    view.findNodeById(prefix + (i / 2));
+                }
+                Edge dangling = new Edge();
+                dangling.setFrom(prefix + 0, NodeType.HTML);
+                dangling.setTo(prefix + "missing", NodeType.HTML);
+                dangling.setEdgeType(EdgeType.PARENT_CHILD_RELATION);
+                builder.addEdge(dangling);
+
+                summaries[thread] = builder.build();
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (ViewBuildSummary summary : summaries) {
+            Assert.assertEquals(nodeCount, summary.getNodeCount());
+            Assert.assertEquals(nodeCount - 1, summary.getEdgeCount());
+            Assert.assertEquals(1, summary.getDanglingEdges().size());
+        }
+
+        Assert.assertEquals(threadCount * nodeCount, view.getAllNode().size());
+        Assert.assertEquals(threadCount * (nodeCount - 1), view.getAllEdge().size());
+        ViewSnapshot snapshot = view.freeze();
+        Assert.assertEquals(threadCount * nodeCount, snapshot.nodeCount());
+        for (int t = 0; t < threadCount; t++) {
+            Node first = view.findNodeById("t" + t + "-0");
+            Node last = view.findNodeById("t" + t + "-" + (nodeCount - 1));
+            Assert.assertEquals(1, outSize(view, first));
+            Assert.assertEquals(0, inSize(view, first));
+            Assert.assertEquals(1, inSize(view, last));
+        }
+
+        // The direct adds from all threads into one hub grow the arrays while other threads read and create views.
+        HTMLNode hub = new HTMLNode();
+        hub.setId("hub");
+        view.addHTMLNode(hub);
+        for (int t = 0; t < threadCount; t++) {
+            String prefix = "t" + t + "-";
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < nodeCount; i++) {
+                    Edge added = view.addEdge(prefix + i, NodeType.HTML, "hub", NodeType.HTML, EdgeType.CONTAINS);
+                    // The published edge is seen with its two sides.
+                    int edgeIndex = view.indexOf(view.findEdgeById(added.getId()));
+                    Assert.assertEquals(view.indexOf(hub), view.toIndexOf(edgeIndex));
+                    Assert.assertTrue(view.fromIndexOf(edgeIndex) >= 0);
+                    // The network nodes with the same url are merged, whichever thread adds first.
+                    NetworkNode request = new NetworkNode();
+                    request.setUrl("https://example.com/" + (i % 10));
+                    view.addNetworkNode(request);
+                    HTMLNode node = new HTMLNode();
+                    node.setId(prefix + "extra-" + i);
+                    view.addHTMLNode(node);
+                    view.findAllEdgeForNode(hub);
+                    graph.createView();
+                    for (View created : graph.getViews()) {
+                        Assert.assertNotNull(created);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(threadCount * nodeCount, inSize(view, hub));
+        Assert.assertEquals(10, view.getAllNetworkNodes().size());
+        Assert.assertEquals(2 * threadCount * nodeCount + 11, view.getAllNode().size());
+        Assert.assertEquals(view.getAllNode().size(), view.nodes().size());
+        Assert.assertEquals(view.getAllEdge().size(), view.edges().size());
+        Assert.assertEquals(2 * threadCount * (nodeCount - 1) + threadCount, view.getAllEdge().size());
+        Assert.assertEquals(threadCount * nodeCount + 1, graph.getViews().size());
+        snapshot = view.freeze();
+        Assert.assertEquals(threadCount * nodeCount, snapshot.inEnd(snapshot.indexOf(hub)) - snapshot.inStart(snapshot.indexOf(hub)));
+    }
+
+    @Test
+    public void testEdgeTypeCode() {
+        Edge edge = new Edge();
+        Assert.assertEquals(EdgeType.UNKNOWN_CODE, edge.getEdgeTypeCode());
+        edge.setEdgeType(EdgeType.APPLY_TO);
+        Assert.assertEquals(EdgeType.code(EdgeType.APPLY_TO), edge.getEdgeTypeCode());
+        Assert.assertEquals(EdgeType.APPLY_TO, EdgeType.name(edge.getEdgeTypeCode()));
+        Assert.assertEquals(NodeType.code(NodeType.SCRIPT), new ScriptNode().getNodeTypeCode());
+
+        // Apply to is not allowed by default.
+        EdgeFilter filter = new EdgeFilter();
+        filter.buildTypeSet();
+        Assert.assertFalse(filter.contains(edge));
+        Assert.assertFalse(filter.contains(EdgeType.APPLY_TO));
+        Assert.assertTrue(filter.contains(EdgeType.code(EdgeType.CONTAINS)));
+        Assert.assertEquals(0L, filter.getTypeMask() & EdgeType.bit(EdgeType.code(EdgeType.APPLY_TO)));
+
+        filter.setApplyTo(true);
+        filter.resetTypeSet();
+        filter.buildTypeSet();
+        Assert.assertTrue(filter.contains(edge));
+
+        // The change of the flags is picked up by the next build without reset.
+        filter.setApplyTo(false);
+        filter.buildTypeSet();
+        Assert.assertFalse(filter.contains(edge));
+
+        // The types not defined in EdgeType are checked by name.
+        EdgeFilter custom = new EdgeFilter();
+        custom.getTypeList().add("Custom");
+        custom.buildTypeSet();
+        Edge customEdge = new Edge();
+        customEdge.setEdgeType("Custom");
+        Edge otherEdge = new Edge();
+        otherEdge.setEdgeType("Other");
+        Assert.assertTrue(custom.contains(customEdge));
+        Assert.assertFalse(custom.contains(otherEdge));
+        Assert.assertFalse(custom.contains(edge));
+
+        View view = new View();
+        HTMLNode from = new HTMLNode();
+        HTMLNode to = new HTMLNode();
+        view.addHTMLNode(from);
+        view.addHTMLNode(to);
+        Assert.assertNotNull(view.addEdge(from.getId(), NodeType.HTML, to.getId(), NodeType.HTML, "Custom"));
+        Assert.assertNotNull(view.addEdge(from.getId(), NodeType.HTML, to.getId(), NodeType.HTML, "Other"));
+        Assert.assertEquals(1, view.findOutEdgeForNode(from, "Custom").size());
+        Assert.assertEquals(1, view.findInEdgeForNode(to, "Other").size());
+        Assert.assertEquals(2, view.findAllEdgeForNode(from).size());
+
+        // The custom types share one code, the snapshot checks them by name as well.
+        ViewSnapshot snapshot = view.freeze();
+        Assert.assertEquals(1, FeatureExtraction.outDegree(view, from, custom));
+        Assert.assertEquals(1, FeatureExtraction.outDegree(snapshot, from, custom));
+        Assert.assertEquals(1, FeatureExtraction.inDegree(snapshot, to, custom));
+        custom.getTypeList().add("Other");
+        Assert.assertEquals(2, FeatureExtraction.outDegree(snapshot, from, custom));
+
+        // The filter filled by hand works without building, and the edits after a build are picked up.
+        Edge contains = view.addEdge(from.getId(), NodeType.HTML, to.getId(), NodeType.HTML, EdgeType.CONTAINS);
+        EdgeFilter byHand = new EdgeFilter();
+        byHand.getTypeList().add(EdgeType.CONTAINS);
+        Assert.assertTrue(byHand.contains(EdgeType.CONTAINS));
+        Assert.assertTrue(view.edgeTypeVerify(contains.getId(), byHand));
+        Assert.assertFalse(view.edgeTypeVerify(view.findOutEdgeForNode(from, "Custom").get(0).getId(), byHand));
+        byHand.getTypeList().remove(EdgeType.CONTAINS);
+        byHand.getTypeList().add(EdgeType.APPLY_TO);
+        Assert.assertFalse(view.edgeTypeVerify(contains.getId(), byHand));
+        Assert.assertFalse(byHand.contains(EdgeType.CONTAINS));
+        byHand.getTypeList().add("Custom");
+        Assert.assertTrue(view.edgeTypeVerify(view.findOutEdgeForNode(from, "Custom").get(0).getId(), byHand));
+        EdgeFilter flags = new EdgeFilter();
+        flags.setContains(false);
+        Assert.assertFalse(flags.contains(EdgeType.CONTAINS));
+        Assert.assertTrue(view.edgeTypeVerify(view.findInEdgeForNode(to, "Other").get(0).getId(), custom));
+    }
+
+    @Test
+    public void testPayloadStore() {
+        PayloadStore store = new PayloadStore();
+        Assert.assertEquals(PayloadStore.NULL, store.putString(null));
+        Assert.assertNull(store.getString(PayloadStore.NULL));
+
+        long empty = store.putString("");
+        long text = store.putString("text with unicode \u00e9\u4e2d");
+        Assert.assertEquals("", store.getString(empty));
+        Assert.assertEquals("text with unicode \u00e9\u4e2d", store.getString(text));
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "text/html");
+        headers.put("X-Empty", null);
+        Assert.assertEquals(headers, store.getMap(store.putMap(headers)));
+
+        // The payload larger than a chunk gets its own chunk which is freed after release.
+        char[] chars = new char[(1 << 20) + 10];
+        Arrays.fill(chars, 'a');
+        String large = new String(chars);
+        long before = store.allocatedBytes();
+        long handle = store.putString(large);
+        Assert.assertEquals(large, store.getString(handle));
+        Assert.assertTrue(store.allocatedBytes() > before);
+        store.release(handle);
+        Assert.assertEquals(before, store.allocatedBytes());
+        Assert.assertNull(store.getString(handle));
+
+        // Releasing a copy of handle again is ignored.
+        long copy = text;
+        store.release(text);
+        store.release(copy);
+        Assert.assertNull(store.getString(text));
+        Assert.assertEquals("", store.getString(empty));
+
+        // The emptied chunk is freed once new payloads are appended into the next chunk.
+        PayloadStore single = new PayloadStore();
+        single.release(single.putString("small"));
+        Assert.assertEquals(1 << 20, single.allocatedBytes());
+        // The header holds the length, the capacity and the stamp of slot.
+        single.putString(new String(chars, 0, (1 << 20) - 3 * Integer.BYTES));
+        Assert.assertEquals(1 << 20, single.allocatedBytes());
+
+        // The slots released around a long-lived payload are reused, so the churn does not grow the store.
+        PayloadStore churn = new PayloadStore();
+        long pinned = churn.putString("long-lived");
+        String body = new String(chars, 0, 1000);
+        for (int round = 0; round < 10000; round++) {
+            churn.release(churn.putString(body));
+        }
+        Assert.assertEquals(1 << 20, churn.allocatedBytes());
+        Assert.assertEquals("long-lived", churn.getString(pinned));
+
+        // A stale handle of the reused slot neither reads nor releases the new payload.
+        long stale = churn.putString("first");
+        churn.release(stale);
+        long reused = churn.putString("again");
+        Assert.assertEquals(stale >>> 32, reused >>> 32);
+        Assert.assertNull(churn.getString(stale));
+        churn.release(stale);
+        Assert.assertEquals("again", churn.getString(reused));
+
+        HTMLNode node = new HTMLNode();
+        Assert.assertNull(node.getInnerHTML());
+        node.setInnerHTML("<p>content</p>");
+        node.setInnerHTML("<p>changed</p>");
+        Assert.assertEquals("<p>changed</p>", node.getInnerHTML());
+
+        NetworkNode networkNode = new NetworkNode();
+        NetworkNode.Message message = networkNode.new Message();
+        message.setResponseBody("body");
+        message.setResponseHeaders(headers);
+        Assert.assertEquals("body", message.getResponseBody());
+        Assert.assertEquals(headers, message.getResponseHeaders());
+        Assert.assertNull(message.getRequestHeaders());
+
+        // The payloads are held by the store of graph while the node is in a view.
+        Graph graph = new Graph();
+        View view = graph.createView();
+        PayloadStore graphStore = view.getPayloadStore();
+        Assert.assertSame(graph.getPayloadStore(), graphStore);
+        HTMLNode stored = new HTMLNode();
+        stored.setId("stored");
+        stored.setInnerHTML(large);
+        Assert.assertEquals(0, graphStore.allocatedBytes());
+        view.addHTMLNode(stored);
+        Assert.assertTrue(graphStore.allocatedBytes() > 0);
+        Assert.assertEquals(large, stored.getInnerHTML());
+
+        // The deleted node takes its payloads back on heap.
+        view.deleteHTMLNodeById("stored");
+        Assert.assertEquals(0, graphStore.allocatedBytes());
+        Assert.assertEquals(large, stored.getInnerHTML());
+
+        // The messages merged into a network node in view are moved into the store.
+        NetworkNode network = new NetworkNode();
+        network.setId("network");
+        network.setUrl("https://example.com");
+        view.addNetworkNode(network);
+        NetworkNode duplicate = new NetworkNode();
+        duplicate.setId("duplicate");
+        duplicate.setUrl("https://example.com");
+        NetworkNode.Message merged = duplicate.new Message();
+        merged.setResponseBody(large);
+        duplicate.addMessages(Collections.singletonList(merged));
+        view.addNetworkNode(duplicate);
+        Assert.assertTrue(graphStore.allocatedBytes() > 0);
+        Assert.assertEquals(large, merged.getResponseBody());
+
+        // The node also added into a view of another graph keeps its payloads when the first graph is closed.
+        Graph other = new Graph();
+        View otherView = other.createView();
+        HTMLNode shared = new HTMLNode();
+        shared.setId("shared");
+        shared.setInnerHTML("<p>shared</p>");
+        view.addHTMLNode(shared);
+        otherView.addHTMLNode(shared);
+        Assert.assertEquals("<p>shared</p>", shared.getInnerHTML());
+        otherView.deleteHTMLNodeById("shared");
+        Assert.assertEquals("<p>shared</p>", shared.getInnerHTML());
+        otherView.addHTMLNode(shared);
+
+        // Closing the graph frees the store.
+        view.addHTMLNode(stored);
+        graph.close();
+        Assert.assertEquals(0, graphStore.allocatedBytes());
+        Assert.assertNull(stored.getInnerHTML());
+        Assert.assertEquals("<p>shared</p>", shared.getInnerHTML());
+        Assert.assertTrue(other.getPayloadStore().allocatedBytes() > 0);
+        other.close();
+        Assert.assertNull(shared.getInnerHTML());
+    }
+
+    @Test
+    public void testStringPool() {
+        Graph graph = new Graph();
+        View view = graph.createView();
+        Assert.assertSame(graph.getStringPool(), view.getStringPool());
+
+        List<HTMLNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            HTMLElement element = new HTMLElement();
+            element.setId("element" + i);
+            element.setTagName(new String("div"));
+            element.setClassNames(new String("row item"));
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put(new String("style"), new String("color: red"));
+            attributes.put(new String("data-index"), String.valueOf(i));
+            element.setAttributes(attributes);
+
+            HTMLNode node = new HTMLNode();
+            node.transferFrom(element, view.getStringPool());
+            Assert.assertEquals(attributes, node.getAttributes());
+            nodes.add(node);
+        }
+
+        HTMLNode first = nodes.get(0);
+        HTMLNode second = nodes.get(1);
+        Assert.assertSame(first.getTagName(), second.getTagName());
+        Assert.assertSame(first.getClassNames(), second.getClassNames());
+        Assert.assertSame(first.getAttributes().get("style"), second.getAttributes().get("style"));
+        for (String key : first.getAttributes().keySet()) {
+            Assert.assertTrue(second.getAttributes().keySet().stream().anyMatch(other -> other == key));
+        }
+
+        // The compact map behaves as a normal map.
+        Map<String, String> attributes = second.getAttributes();
+        Assert.assertNull(attributes.put("id", "main"));
+        Assert.assertEquals("main", attributes.put("id", "other"));
+        Assert.assertEquals(3, attributes.size());
+        Assert.assertEquals("color: red", attributes.remove("style"));
+        Assert.assertFalse(attributes.containsKey("style"));
+        attributes.entrySet().removeIf(entry -> entry.getKey().equals("id"));
+        Assert.assertEquals(Collections.singletonMap("data-index", "1"), attributes);
+    }
+
+    @Test
+    public void testIndexPerView() {
+        View first = new View();
+        View second = new View();
+        HTMLNode shared = new HTMLNode();
+        shared.setId("shared");
+        HTMLNode other = new HTMLNode();
+        other.setId("other");
+
+        // The same node object keeps a separate int id and adjacency in each view.
+        first.addHTMLNode(other);
+        first.addHTMLNode(shared);
+        second.addHTMLNode(shared);
+        second.addHTMLNode(other);
+        Assert.assertEquals(1, first.indexOf(shared));
+        Assert.assertEquals(0, second.indexOf(shared));
+        first.addEdge("other", NodeType.HTML, "shared", NodeType.HTML, EdgeType.PARENT_CHILD_RELATION);
+        Assert.assertEquals(1, inSize(first, shared));
+        Assert.assertEquals(0, inSize(second, shared));
+        Assert.assertEquals(1, FeatureExtraction.inDegree(first, shared, new EdgeFilter()));
+        Assert.assertEquals(0, FeatureExtraction.inDegree(second, shared, new EdgeFilter()));
+
+        // The released int ids are handed out again, so the bound does not grow under churn.
+        View view = new View();
+        HTMLNode root = new HTMLNode();
+        String rootId = view.addHTMLNode(root);
+        String staleNodeId = null;
+        String staleEdgeId = null;
+        for (int round = 0; round < 100; round++) {
+            String childId = view.addHTMLNode(new HTMLNode());
+            Edge edge = view.addEdge(rootId, NodeType.HTML, childId, NodeType.HTML, EdgeType.PARENT_CHILD_RELATION);
+            Assert.assertNotNull(edge);
+            // The string ids of deleted objects are not handed out again, only the int ids are.
+            Assert.assertNotEquals(staleNodeId, childId);
+            Assert.assertNotEquals(staleEdgeId, edge.getId());
+            Assert.assertNull(view.findNodeById(staleNodeId == null ? childId + "x" : staleNodeId));
+            Assert.assertNull(view.findEdgeById(staleEdgeId == null ? edge.getId() + "x" : staleEdgeId));
+            view.deleteHTMLNodeById(childId);
+            Assert.assertNull(view.findNodeById(childId));
+            staleNodeId = childId;
+            staleEdgeId = edge.getId();
+        }
+        Assert.assertEquals(2, view.nodeIndexBound());
+        Assert.assertEquals(1, view.edgeIndexBound());
+        Assert.assertEquals(0, outSize(view, root));
+
+        // The minted ids of two views do not meet.
+        Assert.assertNotEquals(first.addHTMLNode(new HTMLNode()), second.addHTMLNode(new HTMLNode()));
+        HTMLNode otherRoot = new HTMLNode();
+        Assert.assertNotNull(view.setRootHTMLNode(otherRoot));
+        Assert.assertNull(view.findNodeById(otherRoot.getId()));
+        Assert.assertEquals(otherRoot.getId(), view.addHTMLNode(otherRoot));
+    }
+
+    private static int inSize(View view, Node node) {
+        return view.inList(view.indexOf(node)).size();
+    }
+
+    private static int outSize(View view, Node node) {
+        return view.outList(view.indexOf(node)).size();
     }
 }